@@ -0,0 +1,82 @@
+package org.sagebionetworks.bridge.benchmarks;
+
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.CLIENT_TIME_ZONE;
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.ENROLLMENT;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.schedules2.Schedule2;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceState;
+import org.sagebionetworks.bridge.models.schedules2.adherence.eventstream.EventStreamAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.eventstream.EventStreamAdherenceReportGenerator;
+import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReportGenerator;
+import org.sagebionetworks.bridge.models.schedules2.timelines.Scheduler;
+import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
+
+/**
+ * The study and event stream adherence reports for one participant, part way through schedules of increasing
+ * size, with adherence records for the sessions that have already started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdherenceReportBenchmark {
+
+    @Param({ "10", "50", "100" })
+    public int sessionCount;
+
+    @Param({ "26", "52" })
+    public int weeks;
+
+    private Schedule2 schedule;
+    private AdherenceState state;
+
+    @Setup
+    public void setup() {
+        schedule = BenchmarkData.createSchedule(sessionCount, weeks, 4);
+        List<TimelineMetadata> metadata = Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata();
+
+        DateTime enrolledOn = DateTime.parse("2022-01-03T09:00:00.000-08:00");
+        int daysSinceEnrollment = (weeks * 7) / 2;
+        List<StudyActivityEvent> events = BenchmarkData.createEvents(schedule, enrolledOn);
+        List<AdherenceRecord> records = BenchmarkData.createSessionRecords(metadata, events, daysSinceEnrollment);
+        state = new AdherenceState.Builder()
+                .withNow(enrolledOn.plusDays(daysSinceEnrollment))
+                .withClientTimeZone(CLIENT_TIME_ZONE)
+                .withMetadata(metadata)
+                .withEvents(events)
+                .withAdherenceRecords(records)
+                .withStudyStartEventId(ENROLLMENT)
+                .build();
+    }
+
+    @Benchmark
+    public EventStreamAdherenceReport generateEventStreamReport() {
+        return EventStreamAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+    }
+
+    @Benchmark
+    public StudyAdherenceReport generateStudyReport() {
+        return StudyAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+    }
+}
@@ -0,0 +1,218 @@
+package org.sagebionetworks.bridge.benchmarks;
+
+import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.CUSTOM;
+import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.STUDY_BURST;
+import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.MUTABLE;
+import static org.sagebionetworks.bridge.models.schedules2.PerformanceOrder.SEQUENTIAL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.Period;
+
+import org.sagebionetworks.bridge.models.Criteria;
+import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+import org.sagebionetworks.bridge.models.schedules2.AssessmentReference;
+import org.sagebionetworks.bridge.models.schedules2.Schedule2;
+import org.sagebionetworks.bridge.models.schedules2.Session;
+import org.sagebionetworks.bridge.models.schedules2.StudyBurst;
+import org.sagebionetworks.bridge.models.schedules2.TimeWindow;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
+import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
+
+/**
+ * Synthetic schedules, event histories and adherence histories for the benchmarks. Everything is generated from a
+ * fixed seed, so runs with the same parameters measure the same work.
+ */
+final class BenchmarkData {
+    static final String APP_ID = "benchmark-app";
+    static final String STUDY_ID = "benchmark-study";
+    static final String USER_ID = "benchmark-user";
+    static final String CLIENT_TIME_ZONE = "America/Los_Angeles";
+    static final String ENROLLMENT = "enrollment";
+    static final String TIMELINE_RETRIEVED = "timeline_retrieved";
+    static final String BURST_ID = "burst";
+    static final List<String> DATA_GROUPS = ImmutableList.of("group1", "group2", "group3", "group4", "group5");
+    static final List<String> LANGUAGES = ImmutableList.of("en", "fr", "de", "es");
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * A schedule that lasts the given number of weeks, with the given number of sessions. Sessions alternate between
+     * daily and weekly, each has one to three time windows and three assessments, and every third session is also
+     * triggered by the study bursts. Half of the sessions start from a custom event.
+     */
+    static Schedule2 createSchedule(int sessionCount, int weeks, int burstCount) {
+        Schedule2 schedule = new Schedule2();
+        schedule.setAppId(APP_ID);
+        schedule.setGuid("benchmark-schedule");
+        schedule.setName("Benchmark schedule");
+        schedule.setDuration(Period.weeks(weeks));
+        schedule.setCreatedOn(DateTime.parse("2022-01-01T00:00:00.000Z"));
+        schedule.setModifiedOn(DateTime.parse("2022-01-01T00:00:00.000Z"));
+        schedule.setPublished(true);
+
+        StudyBurst burst = new StudyBurst();
+        burst.setIdentifier(BURST_ID);
+        burst.setOriginEventId(TIMELINE_RETRIEVED);
+        burst.setDelay(Period.weeks(1));
+        burst.setInterval(Period.weeks(Math.max(1, weeks / Math.max(1, burstCount))));
+        burst.setOccurrences(burstCount);
+        burst.setUpdateType(MUTABLE);
+        schedule.setStudyBursts(ImmutableList.of(burst));
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            Session session = new Session();
+            session.setGuid("session-" + i);
+            session.setName("Session " + i);
+            session.setSymbol("S" + i);
+            session.setStartEventIds(ImmutableList.of((i % 2 == 0) ? ENROLLMENT : "custom:event" + (i % 5)));
+            session.setStudyBurstIds((i % 3 == 0) ? ImmutableList.of(BURST_ID) : ImmutableList.of());
+            session.setDelay(Period.days(i % 7));
+            session.setInterval((i % 2 == 0) ? Period.days(1) : Period.weeks(1));
+            session.setPerformanceOrder(SEQUENTIAL);
+
+            List<TimeWindow> windows = new ArrayList<>();
+            for (int j = 0; j <= (i % 3); j++) {
+                TimeWindow window = new TimeWindow();
+                window.setGuid("window-" + i + "-" + j);
+                window.setStartTime(new LocalTime(8 + (j * 4), 0));
+                window.setExpiration(Period.hours(4));
+                window.setPersistent(i % 10 == 9);
+                windows.add(window);
+            }
+            session.setTimeWindows(windows);
+
+            List<AssessmentReference> assessments = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                AssessmentReference ref = new AssessmentReference();
+                ref.setGuid("assessment-" + ((i + j) % 20));
+                ref.setAppId(APP_ID);
+                ref.setIdentifier("assessment-id-" + ((i + j) % 20));
+                ref.setTitle("Assessment " + ((i + j) % 20));
+                ref.setRevision(1);
+                ref.setMinutesToComplete(5);
+                assessments.add(ref);
+            }
+            session.setAssessments(assessments);
+            sessions.add(session);
+        }
+        schedule.setSessions(sessions);
+        return schedule;
+    }
+
+    /**
+     * The events a participant who enrolled at the given time would have: enrollment, timeline retrieval on the
+     * same day, the custom events used by the schedule, and the study burst events.
+     */
+    static List<StudyActivityEvent> createEvents(Schedule2 schedule, DateTime enrolledOn) {
+        List<StudyActivityEvent> events = new ArrayList<>();
+        events.add(event(ENROLLMENT, enrolledOn));
+        events.add(event(TIMELINE_RETRIEVED, enrolledOn.plusHours(1)));
+        for (int i = 0; i < 5; i++) {
+            events.add(new StudyActivityEvent.Builder().withAppId(APP_ID).withStudyId(STUDY_ID).withUserId(USER_ID)
+                    .withObjectType(CUSTOM).withObjectId("event" + i).withTimestamp(enrolledOn.plusDays(i))
+                    .withCreatedOn(enrolledOn.plusDays(i)).build());
+        }
+        for (StudyBurst burst : schedule.getStudyBursts()) {
+            for (int i = 0; i < burst.getOccurrences(); i++) {
+                DateTime timestamp = enrolledOn.plus(burst.getDelay());
+                for (int j = 0; j < i; j++) {
+                    timestamp = timestamp.plus(burst.getInterval());
+                }
+                events.add(new StudyActivityEvent.Builder().withAppId(APP_ID).withStudyId(STUDY_ID)
+                        .withUserId(USER_ID).withObjectType(STUDY_BURST).withObjectId(burst.getIdentifier())
+                        .withAnswerValue(Strings.padStart(Integer.toString(i + 1), 2, '0'))
+                        .withTimestamp(timestamp).withCreatedOn(timestamp).build());
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Session adherence records for the session instances that would have started by the given number of days
+     * after enrollment, about three quarters of them finished and a few declined.
+     */
+    static List<AdherenceRecord> createSessionRecords(List<TimelineMetadata> metadata,
+            List<StudyActivityEvent> events, int daysSinceEnrollment) {
+        Random random = new Random(1L);
+        List<AdherenceRecord> records = new ArrayList<>();
+        for (TimelineMetadata meta : metadata) {
+            if (meta.getAssessmentInstanceGuid() != null || meta.isTimeWindowPersistent()
+                    || meta.getSessionInstanceStartDay() > daysSinceEnrollment) {
+                continue;
+            }
+            DateTime eventTimestamp = events.stream()
+                    .filter(event -> event.getEventId().equals(meta.getSessionStartEventId()))
+                    .map(StudyActivityEvent::getTimestamp).findFirst().orElse(null);
+            if (eventTimestamp == null) {
+                continue;
+            }
+            DateTime startedOn = eventTimestamp.plusDays(meta.getSessionInstanceStartDay()).plusHours(9);
+            AdherenceRecord record = new AdherenceRecord();
+            record.setAppId(APP_ID);
+            record.setStudyId(STUDY_ID);
+            record.setUserId(USER_ID);
+            record.setInstanceGuid(meta.getSessionInstanceGuid());
+            record.setSessionGuid(meta.getSessionGuid());
+            record.setEventTimestamp(eventTimestamp);
+            record.setInstanceTimestamp(eventTimestamp);
+            int outcome = random.nextInt(20);
+            if (outcome == 0) {
+                record.setDeclined(true);
+            } else if (outcome < 16) {
+                record.setStartedOn(startedOn);
+                record.setFinishedOn(startedOn.plusMinutes(15));
+            } else if (outcome < 18) {
+                record.setStartedOn(startedOn);
+            } else {
+                continue;
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /** App configs with a spread of language, data group and app version criteria. */
+    static List<AppConfig> createAppConfigs(int count) {
+        Random random = new Random(1L);
+        List<AppConfig> appConfigs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Criteria criteria = Criteria.create();
+            if (random.nextBoolean()) {
+                criteria.setLanguage(LANGUAGES.get(random.nextInt(LANGUAGES.size())));
+            }
+            if (random.nextInt(3) == 0) {
+                criteria.setAllOfGroups(ImmutableSet.of(DATA_GROUPS.get(random.nextInt(DATA_GROUPS.size()))));
+            }
+            if (random.nextInt(3) == 0) {
+                criteria.setNoneOfGroups(ImmutableSet.of(DATA_GROUPS.get(random.nextInt(DATA_GROUPS.size()))));
+            }
+            if (random.nextBoolean()) {
+                criteria.setMinAppVersion("iPhone OS", random.nextInt(10));
+                criteria.setMaxAppVersion("iPhone OS", 10 + random.nextInt(10));
+            }
+            AppConfig appConfig = AppConfig.create();
+            appConfig.setGuid("app-config-" + i);
+            appConfig.setLabel("App config " + i);
+            appConfig.setCreatedOn(1640995200000L + (i * 60000L));
+            appConfig.setCriteria(criteria);
+            appConfigs.add(appConfig);
+        }
+        return appConfigs;
+    }
+
+    private static StudyActivityEvent event(String eventId, DateTime timestamp) {
+        return new StudyActivityEvent.Builder().withAppId(APP_ID).withStudyId(STUDY_ID).withUserId(USER_ID)
+                .withEventId(eventId).withTimestamp(timestamp).withCreatedOn(timestamp).build();
+    }
+}
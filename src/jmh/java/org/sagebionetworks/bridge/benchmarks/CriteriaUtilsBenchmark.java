@@ -0,0 +1,64 @@
+package org.sagebionetworks.bridge.benchmarks;
+
+import static java.util.Comparator.comparingLong;
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.APP_ID;
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.USER_ID;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.CriteriaUtils;
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+
+/**
+ * Matching app configs against a participant's criteria context, the way app configs are selected on every
+ * request for one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CriteriaUtilsBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int appConfigCount;
+
+    private List<AppConfig> appConfigs;
+    private CriteriaContext context;
+
+    @Setup
+    public void setup() {
+        appConfigs = BenchmarkData.createAppConfigs(appConfigCount);
+        context = new CriteriaContext.Builder()
+                .withAppId(APP_ID)
+                .withUserId(USER_ID)
+                .withClientInfo(ClientInfo.fromUserAgentCache("Benchmark/12 (iPhone 12; iPhone OS/14.4) BridgeSDK/4"))
+                .withUserDataGroups(ImmutableSet.of("group1", "group3"))
+                .withUserStudyIds(ImmutableSet.of(BenchmarkData.STUDY_ID))
+                .withLanguages(ImmutableList.of("fr", "en"))
+                .build();
+    }
+
+    @Benchmark
+    public List<AppConfig> filterByCriteria() {
+        return CriteriaUtils.filterByCriteria(context, appConfigs, comparingLong(AppConfig::getCreatedOn));
+    }
+}
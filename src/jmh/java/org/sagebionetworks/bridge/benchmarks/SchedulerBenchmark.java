@@ -0,0 +1,75 @@
+package org.sagebionetworks.bridge.benchmarks;
+
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.CLIENT_TIME_ZONE;
+import static org.sagebionetworks.bridge.benchmarks.BenchmarkData.ENROLLMENT;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.schedules2.Schedule2;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceState;
+import org.sagebionetworks.bridge.models.schedules2.participantschedules.ParticipantSchedule;
+import org.sagebionetworks.bridge.models.schedules2.participantschedules.ParticipantScheduleGenerator;
+import org.sagebionetworks.bridge.models.schedules2.timelines.Scheduler;
+import org.sagebionetworks.bridge.models.schedules2.timelines.Timeline;
+
+/**
+ * Timeline calculation, and the participant schedule generated from a timeline, for schedules of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @Param({ "10", "50", "100" })
+    public int sessionCount;
+
+    @Param({ "26", "52" })
+    public int weeks;
+
+    private Schedule2 schedule;
+    private Timeline timeline;
+    private AdherenceState state;
+
+    @Setup
+    public void setup() {
+        schedule = BenchmarkData.createSchedule(sessionCount, weeks, 4);
+        timeline = Scheduler.INSTANCE.calculateTimeline(schedule);
+
+        DateTime enrolledOn = DateTime.parse("2022-01-03T09:00:00.000-08:00");
+        List<StudyActivityEvent> events = BenchmarkData.createEvents(schedule, enrolledOn);
+        state = new AdherenceState.Builder()
+                .withNow(enrolledOn.plusWeeks(weeks / 2))
+                .withClientTimeZone(CLIENT_TIME_ZONE)
+                .withEvents(events)
+                .withStudyStartEventId(ENROLLMENT)
+                .build();
+    }
+
+    @Benchmark
+    public Timeline calculateTimeline() {
+        return Scheduler.INSTANCE.calculateTimeline(schedule);
+    }
+
+    @Benchmark
+    public ParticipantSchedule generateParticipantSchedule() {
+        return ParticipantScheduleGenerator.INSTANCE.generate(state, timeline);
+    }
+}
@@ -37,6 +37,11 @@ public class AuthUtils {
             .isInOrg().or()
             .hasAnyRole(ADMIN);
     
+    /**
+     * The caller is the target account, or there is no caller (the server is acting on its own behalf).
+     */
+    public static final AuthEvaluator IS_SELF = new AuthEvaluator().isSelf();
+    
     /**
      * Calling account is only a developer, and thus should only have access to test
      * accounts, not production accounts.
@@ -36,6 +36,9 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
@@ -892,4 +895,40 @@ public class BridgeUtils {
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Wrap a task that will be submitted to an executor so that it runs with the caller’s request 
+     * context (and so is authorized as the caller). The worker thread’s own context is restored 
+     * when the task completes.
+     */
+    public static <T> Callable<T> withRequestContext(Callable<T> task) {
+        RequestContext context = RequestContext.get();
+        return () -> {
+            RequestContext threadContext = RequestContext.get();
+            RequestContext.set(context);
+            try {
+                return task.call();
+            } finally {
+                RequestContext.set(threadContext);
+            }
+        };
+    }
+    
+    /**
+     * Wait for and return the result of a task that was submitted to an executor. If the task threw 
+     * a runtime exception, that exception is rethrown, as if the task had been run on this thread.
+     */
+    public static <T> T getFutureResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * In-process (near) caches sit in front of Redis and our databases on every server node. When an entry
+ * changes on one node, this bus publishes the change over Redis pub/sub so that every other node evicts
+ * its copy. Pub/sub delivery is at-most-once, so each near-cache must also have a short TTL to bound
+ * staleness if a message is lost; when the subscription is re-established after a connection failure,
+ * all registered near-caches are cleared for the same reason.
+ */
+@Component
+public class CacheInvalidationBus {
+    private static final Logger LOG = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "near-cache-invalidation";
+    static final char DELIMITER = '|';
+    static final long RESUBSCRIBE_DELAY_MILLIS = 5000L;
+    private static final Splitter MESSAGE_SPLITTER = Splitter.on(DELIMITER).limit(3);
+
+    // Used to ignore messages this node published itself; it has already evicted its own entries.
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Listener> regions = new ConcurrentHashMap<>();
+    private final InvalidationSubscriber subscriber = new InvalidationSubscriber();
+    private JedisPool jedisPool;
+    private Thread subscriberThread;
+    private volatile boolean running;
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Register a near-cache under a region name. Invalidation messages for that region, from any node,
+     * evict the named key from this cache.
+     */
+    public void register(String region, Cache<String, ?> cache) {
+        checkNotNull(cache);
+        register(region, new Listener() {
+            @Override
+            public void evict(String key) {
+                cache.invalidate(key);
+            }
+            @Override
+            public void evictAll() {
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Register a listener under a region name, for near-caches that need to do more than evict a single
+     * Guava cache entry.
+     */
+    public void register(String region, Listener listener) {
+        checkNotNull(region);
+        checkNotNull(listener);
+        regions.put(region, listener);
+    }
+
+    /**
+     * Evict a key from the region's cache on this node, then tell all other nodes to do the same. A
+     * failure to publish is logged but not thrown; the near-cache TTL bounds how stale other nodes can be.
+     */
+    public void invalidate(String region, String key) {
+        checkNotNull(region);
+        checkNotNull(key);
+
+        evict(region, key);
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.publish(CHANNEL, nodeId + DELIMITER + region + DELIMITER + key);
+        } catch (Exception e) {
+            LOG.warn("Could not publish near-cache invalidation for region " + region, e);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        subscriberThread = new Thread(this::subscribeLoop, "near-cache-invalidation-subscriber");
+        subscriberThread.setDaemon(true);
+        subscriberThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        if (subscriberThread != null) {
+            subscriberThread.interrupt();
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                // Blocks until unsubscribed or the connection fails.
+                jedis.subscribe(subscriber, CHANNEL);
+            } catch (Exception e) {
+                LOG.warn("Near-cache invalidation subscription failed, will resubscribe", e);
+            }
+            if (running) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void onMessage(String message) {
+        List<String> parts = MESSAGE_SPLITTER.splitToList(message);
+        if (parts.size() != 3) {
+            LOG.warn("Ignoring malformed near-cache invalidation message: " + message);
+            return;
+        }
+        if (!nodeId.equals(parts.get(0))) {
+            evict(parts.get(1), parts.get(2));
+        }
+    }
+
+    void invalidateAll() {
+        for (Listener listener : regions.values()) {
+            listener.evictAll();
+        }
+    }
+
+    private void evict(String region, String key) {
+        Listener listener = regions.get(region);
+        if (listener != null) {
+            listener.evict(key);
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    /** Receives the evictions for one near-cache region. */
+    public interface Listener {
+        void evict(String key);
+        void evictAll();
+    }
+
+    private class InvalidationSubscriber extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            // Anything could have changed while we were not listening.
+            invalidateAll();
+        }
+        @Override
+        public void onMessage(String channel, String message) {
+            CacheInvalidationBus.this.onMessage(message);
+        }
+    }
+}
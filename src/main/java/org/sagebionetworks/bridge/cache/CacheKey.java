@@ -3,7 +3,6 @@ package org.sagebionetworks.bridge.cache;
 import java.util.List;
 import java.util.Objects;
 
-import org.sagebionetworks.bridge.models.ThrottleRequestType;
 import org.sagebionetworks.bridge.models.accounts.Phone;
 import org.sagebionetworks.bridge.models.accounts.SignIn;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
@@ -19,7 +18,7 @@ import com.google.common.collect.Lists;
 public final class CacheKey {
     
     private static final String[] PUBLIC_KEYS = new String[] { "emailVerificationStatus", 
-            "AppConfigList", "channel-throttling", "lock", "App", "Subpopulation", 
+            "AppConfigList", "rateLimit", "lock", "App", "Subpopulation", 
             "SubpopulationList", "view" };
     
     public final static boolean isPublic(String key) {
@@ -30,6 +29,22 @@ public final class CacheKey {
         }
         return false;
     }
+    /**
+     * True if keys of this type (the last segment of the key, e.g. "App") can be returned through the
+     * administrative API.
+     */
+    public final static boolean isPublicType(String type) {
+        for (String suffix : PUBLIC_KEYS) {
+            if (suffix.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /** A Redis SCAN MATCH pattern for all keys of the given type. */
+    public final static String typePattern(String type) {
+        return "*:" + type;
+    }
     public static final CacheKey etag(Class<?> model, String... keys) {
         return new CacheKey(COLON_JOINER.join(keys), model.getSimpleName(), "Etag");
     }
@@ -62,8 +77,9 @@ public final class CacheKey {
         return new CacheKey(signInToken, "channel-signin-to-session-token");
     }
 
-    public static CacheKey channelThrottling(ThrottleRequestType throttleType, String userId) {
-        return new CacheKey(userId, throttleType.name().toLowerCase(), "channel-throttling");
+    /** The token bucket of one caller (usually a user ID) for the named rate limit. */
+    public static CacheKey rateLimit(String limitName, String id) {
+        return new CacheKey(id, limitName, "rateLimit");
     }
     public static final CacheKey emailSignInRequest(SignIn signIn) {
         return new CacheKey(signIn.getEmail(), signIn.getAppId(), "signInRequest");
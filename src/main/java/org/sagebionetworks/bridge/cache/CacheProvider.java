@@ -1,13 +1,18 @@
 package org.sagebionetworks.bridge.cache;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
@@ -18,11 +23,21 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Transaction;
 
 /**
  * A wrapper around our use of Redis.
@@ -30,14 +45,146 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 @Component
 public class CacheProvider {
     private static final String LOCAL_SERVICE_ERROR = "Cannot find cache service, have you started Redis? (original message: %s)";
+    static final String SESSION_REGION = "session";
+    static final String SESSION_NEAR_CACHE_MAX_SIZE = "session.near.cache.max.size";
+    static final String SESSION_NEAR_CACHE_TTL_SECONDS = "session.near.cache.ttl.seconds";
+    private static final int DEFAULT_SESSION_NEAR_CACHE_MAX_SIZE = 10000;
+    private static final int DEFAULT_SESSION_NEAR_CACHE_TTL_SECONDS = 60;
+    static final String SESSION_STORAGE_MODE = "session.storage.mode";
+    
+    // The userId --> session key is derived from the userId inside the script.
+    static final String USER_ID_TO_SESSION_SUFFIX = CacheKey.userIdToSession("").toString();
+    
+    /**
+     * KEYS[1] = token --> userId key, ARGV[1] = suffix of the userId --> session key. Returns 
+     * [userId, session] or nil if either key is missing.
+     * 
+     * The userId --> session key cannot be known until the first GET returns, so the script 
+     * builds it from ARGV[1] rather than declaring it in KEYS. This is only correct on a single 
+     * Redis node (our deployment); under Redis Cluster the two keys could hash to different 
+     * slots. The key must also match CacheKey.userIdToSession(userId), which CacheProviderTest 
+     * pins. Use TRANSACTION mode if either of these ever changes.
+     */
+    static final RedisScript GET_SESSION_SCRIPT = new RedisScript(
+            "local userId = redis.call('GET', KEYS[1]) " +
+            "if not userId then return false end " +
+            "local session = redis.call('GET', userId .. ARGV[1]) " +
+            "if not session then return false end " +
+            "return {userId, session}");
+    
+    /**
+     * KEYS[1] = token --> userId key, KEYS[2] = userId --> session key, ARGV[1] = userId, 
+     * ARGV[2] = serialized session, ARGV[3] = expiration for a new session. An existing session 
+     * keeps its remaining time to expiration. Returns the expiration that was set.
+     */
+    static final RedisScript SET_SESSION_SCRIPT = new RedisScript(
+            "local ttl = redis.call('TTL', KEYS[2]) " +
+            "if ttl <= 0 then ttl = tonumber(ARGV[3]) end " +
+            "redis.call('SETEX', KEYS[1], ttl, ARGV[1]) " +
+            "redis.call('SETEX', KEYS[2], ttl, ARGV[2]) " +
+            "return ttl");
+
+    static final String SESSION_SERIALIZATION_FORMAT = "session.serialization.format";
+    
+    static final BridgeObjectMapper SMILE_MAPPER = new BridgeObjectMapper(new SmileFactory());
+
+    /**
+     * How sessions are read from and written to Redis. Both modes use the same keys and values, so 
+     * existing sessions remain valid when the mode is changed, and nodes in different modes can 
+     * run side-by-side during a deployment.
+     */
+    enum SessionStorageMode {
+        /** Two sequential GETs to read; a TTL call followed by a MULTI/EXEC transaction to write. */
+        TRANSACTION,
+        /** One server-side script execution to read, and one to write. Requires a single Redis node. */
+        SCRIPT
+    }
+    
+    /**
+     * The format in which sessions are written. Sessions in either format can always be read, so 
+     * the format can be changed once every node is able to read Smile.
+     */
+    enum SessionFormat {
+        /** JSON text. */
+        JSON,
+        /** Smile, a binary encoding of JSON that is smaller and faster to parse. */
+        SMILE
+    }
+
     private JedisOps jedisOps;
+    private JedisPool jedisPool;
+    private SessionStorageMode sessionStorageMode = SessionStorageMode.TRANSACTION;
+    private SessionFormat sessionFormat = SessionFormat.JSON;
     private int sessionExpireInSeconds;
+    private CacheInvalidationBus invalidationBus;
+
+    // In-process near-cache of deserialized sessions, in front of Redis, mirroring the Redis layout
+    // (token --> userId, userId --> session). Entries are only ever filled from Redis reads; writes
+    // and removals evict the user's entry on every node through the invalidation bus. The TTL bounds
+    // staleness should an invalidation message be lost.
+    private Cache<String, String> tokenToUserIdNearCache = buildNearCache(
+            DEFAULT_SESSION_NEAR_CACHE_MAX_SIZE, DEFAULT_SESSION_NEAR_CACHE_TTL_SECONDS);
+    private Cache<String, UserSession> sessionNearCache = buildNearCache(
+            DEFAULT_SESSION_NEAR_CACHE_MAX_SIZE, DEFAULT_SESSION_NEAR_CACHE_TTL_SECONDS);
+    // Incremented on every session eviction. A reader that started before an eviction does not fill
+    // the near-cache with what it read, since that may be the value that was just replaced.
+    private final AtomicLong sessionEvictionCount = new AtomicLong();
 
     @Resource(name = "jedisOps")
     final void setJedisOps(JedisOps jedisOps) {
         this.jedisOps = jedisOps;
     }
 
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    final void setSessionStorageMode(SessionStorageMode sessionStorageMode) {
+        this.sessionStorageMode = sessionStorageMode;
+    }
+
+    final void setSessionFormat(SessionFormat sessionFormat) {
+        this.sessionFormat = sessionFormat;
+    }
+
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        int maxSize = bridgeConfig.getPropertyAsInt(SESSION_NEAR_CACHE_MAX_SIZE);
+        int ttlSeconds = bridgeConfig.getPropertyAsInt(SESSION_NEAR_CACHE_TTL_SECONDS);
+        this.tokenToUserIdNearCache = buildNearCache(maxSize, ttlSeconds);
+        this.sessionNearCache = buildNearCache(maxSize, ttlSeconds);
+        this.sessionStorageMode = SessionStorageMode.valueOf(
+                bridgeConfig.getProperty(SESSION_STORAGE_MODE).toUpperCase());
+        this.sessionFormat = SessionFormat.valueOf(
+                bridgeConfig.getProperty(SESSION_SERIALIZATION_FORMAT).toUpperCase());
+    }
+
+    @PostConstruct
+    public void registerNearCaches() {
+        invalidationBus.register(SESSION_REGION, new CacheInvalidationBus.Listener() {
+            @Override
+            public void evict(String userId) {
+                evictSession(userId);
+            }
+            @Override
+            public void evictAll() {
+                sessionEvictionCount.incrementAndGet();
+                sessionNearCache.invalidateAll();
+            }
+        });
+    }
+
+    private static <V> Cache<String, V> buildNearCache(int maxSize, int ttlSeconds) {
+        return CacheBuilder.newBuilder().maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+    }
+
     @Resource(name = "sessionExpireInSeconds")
     final void setSessionExpireInSeconds(@SuppressWarnings("SameParameterValue") int sessionExpireInSeconds) {
         this.sessionExpireInSeconds = sessionExpireInSeconds;
@@ -87,60 +234,98 @@ public class CacheProvider {
         checkNotNull(session.getSessionToken());
         checkNotNull(session.getId());
         
-        CacheKey tokenToUserIdKey = CacheKey.tokenToUserId(session.getSessionToken());
-        CacheKey userIdToSessionKey = CacheKey.userIdToSession(session.getId());
+        byte[] tokenToUserIdKey = bytes(CacheKey.tokenToUserId(session.getSessionToken()).toString());
+        byte[] userIdToSessionKey = bytes(CacheKey.userIdToSession(session.getId()).toString());
         
-        try (JedisTransaction transaction = jedisOps.getTransaction()) {
-            // If the key exists, get the remaining time to expiration. If it doesn't exist
-            // then save with the full expiration period.
-            Long ttl = jedisOps.ttl(userIdToSessionKey.toString());
-            int expiration = (ttl != null && ttl > 0L) ? ttl.intValue() : sessionExpireInSeconds;
-                   
-            String ser = StudyParticipant.CACHE_WRITER.writeValueAsString(session);
-            
-            List<Object> results = transaction
-                .setex(tokenToUserIdKey.toString(), expiration, session.getId())
-                .setex(userIdToSessionKey.toString(), expiration, ser)
-                .exec();
+        try (Jedis jedis = jedisPool.getResource()) {
+            byte[] userId = bytes(session.getId());
+            byte[] ser = serializeSession(session);
             
-            if (results == null) {
-                throw new BridgeServiceException("Session storage error.");
-            }
-            for (Object result : results) {
-                if (!"OK".equals(result)) {
+            if (sessionStorageMode == SessionStorageMode.SCRIPT) {
+                Object result = SET_SESSION_SCRIPT.evalBinary(jedis,
+                        ImmutableList.of(tokenToUserIdKey, userIdToSessionKey),
+                        ImmutableList.of(userId, ser, bytes(Integer.toString(sessionExpireInSeconds))));
+                if (result == null) {
                     throw new BridgeServiceException("Session storage error.");
                 }
+            } else {
+                // If the key exists, get the remaining time to expiration. If it doesn't exist
+                // then save with the full expiration period.
+                Long ttl = jedis.ttl(userIdToSessionKey);
+                int expiration = (ttl != null && ttl > 0L) ? ttl.intValue() : sessionExpireInSeconds;
+                
+                Transaction transaction = jedis.multi();
+                transaction.setex(tokenToUserIdKey, expiration, userId);
+                transaction.setex(userIdToSessionKey, expiration, ser);
+                List<Object> results = transaction.exec();
+                
+                if (results == null) {
+                    throw new BridgeServiceException("Session storage error.");
+                }
+                for (Object result : results) {
+                    if (!"OK".equals(result)) {
+                        throw new BridgeServiceException("Session storage error.");
+                    }
+                }
             }
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
+        } finally {
+            // Evict even on failure, since we don't know what state Redis was left in.
+            invalidateSession(session.getId());
         }
-
     }
     
     public UserSession getUserSession(String sessionToken) {
         checkNotNull(sessionToken);
+        
+        String nearUserId = tokenToUserIdNearCache.getIfPresent(sessionToken);
+        if (nearUserId != null) {
+            UserSession nearSession = sessionNearCache.getIfPresent(nearUserId);
+            if (nearSession != null && sessionToken.equals(nearSession.getSessionToken())) {
+                return copyOf(nearSession);
+            }
+        }
         try {
+            long evictionCount = sessionEvictionCount.get();
             CacheKey tokenToUserIdKey = CacheKey.tokenToUserId(sessionToken);
-            String userId = jedisOps.get(tokenToUserIdKey.toString());
-            if (userId != null) {
-                CacheKey userIdToSessionKey = CacheKey.userIdToSession(userId);
-                String ser = jedisOps.get(userIdToSessionKey.toString());
-                if (ser != null) {
-                    JsonNode node = adjustJsonWithStudyIdentifier(ser);
-                    UserSession session = BridgeObjectMapper.get().treeToValue(node,  UserSession.class);
-                    
-                    // The token --> userId look up is not replaced on session invalidation. 
-                    // Check here and only return if the sessionToken is valid. It is possible 
-                    // to successfully sign in and then have this fail due to concurrent requests.
-                    // The client needs to manage concurrent requests if it doesn't want to 
-                    // invalidate its own session.
-                    if (session.getSessionToken().equals(sessionToken)) {
-                        return session;
+            String userId = null;
+            byte[] ser = null;
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (sessionStorageMode == SessionStorageMode.SCRIPT) {
+                    List<?> result = (List<?>)GET_SESSION_SCRIPT.evalBinary(jedis,
+                            ImmutableList.of(bytes(tokenToUserIdKey.toString())),
+                            ImmutableList.of(bytes(USER_ID_TO_SESSION_SUFFIX)));
+                    if (result != null) {
+                        userId = new String((byte[])result.get(0), UTF_8);
+                        ser = (byte[])result.get(1);
                     }
-                    // Otherwise, delete the key sessionToken key (it's known to be invalid)
-                    removeObject(tokenToUserIdKey);
+                } else {
+                    byte[] userIdBytes = jedis.get(bytes(tokenToUserIdKey.toString()));
+                    if (userIdBytes != null) {
+                        userId = new String(userIdBytes, UTF_8);
+                        ser = jedis.get(bytes(CacheKey.userIdToSession(userId).toString()));
+                    }
+                }
+            }
+            if (ser != null) {
+                UserSession session = deserializeSession(ser);
+                
+                // The token --> userId look up is not replaced on session invalidation. 
+                // Check here and only return if the sessionToken is valid. It is possible 
+                // to successfully sign in and then have this fail due to concurrent requests.
+                // The client needs to manage concurrent requests if it doesn't want to 
+                // invalidate its own session.
+                if (session.getSessionToken().equals(sessionToken)) {
+                    if (evictionCount == sessionEvictionCount.get()) {
+                        tokenToUserIdNearCache.put(sessionToken, userId);
+                        sessionNearCache.put(userId, copyOf(session));
+                    }
+                    return session;
                 }
+                // Otherwise, delete the key sessionToken key (it's known to be invalid)
+                removeObject(tokenToUserIdKey);
             }
             return null;
         } catch (Throwable e) {
@@ -152,26 +337,54 @@ public class CacheProvider {
     public UserSession getUserSessionByUserId(String userId) {
         checkNotNull(userId);
         
-        try {
+        try (Jedis jedis = jedisPool.getResource()) {
             CacheKey userIdToSessionKey = CacheKey.userIdToSession(userId);
-            String ser = jedisOps.get(userIdToSessionKey.toString());
+            byte[] ser = jedis.get(bytes(userIdToSessionKey.toString()));
             if (ser == null) {
                 return null;
             }
-            JsonNode node = adjustJsonWithStudyIdentifier(ser);
-            return BridgeObjectMapper.get().treeToValue(node,  UserSession.class);
+            return deserializeSession(ser);
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
         }
     }
+    
+    private byte[] serializeSession(UserSession session) throws Exception {
+        if (sessionFormat == SessionFormat.SMILE) {
+            return StudyParticipant.SMILE_CACHE_WRITER.writeValueAsBytes(session);
+        }
+        return StudyParticipant.CACHE_WRITER.writeValueAsBytes(session);
+    }
+    
+    /**
+     * Every Smile document starts with a header, so sessions stored in that format are recognized 
+     * and bound directly. Anything else is JSON written by an earlier version of the server, and may 
+     * need to be fixed up before it can be bound.
+     */
+    static UserSession deserializeSession(byte[] ser) throws Exception {
+        if (isSmile(ser)) {
+            return SMILE_MAPPER.readValue(ser, UserSession.class);
+        }
+        JsonNode node = adjustJsonWithStudyIdentifier(new String(ser, UTF_8));
+        return BridgeObjectMapper.get().treeToValue(node,  UserSession.class);
+    }
+    
+    private static boolean isSmile(byte[] ser) {
+        return ser.length >= 3 && ser[0] == SmileConstants.HEADER_BYTE_1 && ser[1] == SmileConstants.HEADER_BYTE_2
+                && ser[2] == SmileConstants.HEADER_BYTE_3;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
 
     /**
      * During a transition period away from appId, we will need special handling to
      * ensure persisted sessions, subpopulations, and subpopulation lists are deserialized 
      * correctly. 
      */
-    private JsonNode adjustJsonWithStudyIdentifier(String ser) throws Exception {
+    private static JsonNode adjustJsonWithStudyIdentifier(String ser) throws Exception {
         JsonNode node = BridgeObjectMapper.get().readTree(ser);
         if (node.isArray()) {
             for (int i=0; i < node.size(); i++) {
@@ -183,7 +396,7 @@ public class CacheProvider {
         return node;
     }
 
-    private void adjustNode(JsonNode node) {
+    private static void adjustNode(JsonNode node) {
         JsonNode child = seek(node, "studyIdentifier", "studyId");
         if (child != null) {
             if (child.isTextual()) {
@@ -197,7 +410,7 @@ public class CacheProvider {
         }
     }
     
-    private JsonNode seek(JsonNode node, String... propNames) {
+    private static JsonNode seek(JsonNode node, String... propNames) {
         for (int i=0; i < propNames.length; i++) {
             if (node.has(propNames[i])) {
                 return node.get(propNames[i]);
@@ -224,9 +437,42 @@ public class CacheProvider {
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
+        } finally {
+            tokenToUserIdNearCache.invalidate(session.getSessionToken());
+            invalidateSession(session.getId());
         }
     }
     
+    /**
+     * Evict the user's session from the near-cache on this node and on all other nodes.
+     */
+    private void invalidateSession(String userId) {
+        invalidationBus.invalidate(SESSION_REGION, userId);
+    }
+    
+    private void evictSession(String userId) {
+        sessionEvictionCount.incrementAndGet();
+        sessionNearCache.invalidate(userId);
+    }
+    
+    /**
+     * Sessions are mutable and callers change them before persisting them again, so the near-cache
+     * hands out shallow copies (the participant and consent statuses are immutable). The reauth 
+     * token is never persisted, so it is not copied.
+     */
+    private static UserSession copyOf(UserSession session) {
+        UserSession copy = new UserSession(session.getParticipant());
+        copy.setAuthenticated(session.isAuthenticated());
+        copy.setSynapseAuthenticated(session.isSynapseAuthenticated());
+        copy.setEnvironment(session.getEnvironment());
+        copy.setIpAddress(session.getIpAddress());
+        copy.setSessionToken(session.getSessionToken());
+        copy.setInternalSessionToken(session.getInternalSessionToken());
+        copy.setAppId(session.getAppId());
+        copy.setConsentStatuses(session.getConsentStatuses());
+        return copy;
+    }
+    
     public void removeSessionByUserId(final String userId) {
         checkNotNull(userId);
 
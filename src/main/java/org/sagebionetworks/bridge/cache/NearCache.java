@@ -0,0 +1,144 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+
+/**
+ * A read-through, in-process cache for entities that are read on most requests but rarely change
+ * (apps, studies). Concurrent misses for the same key wait on a single load, so a cold node does
+ * not send a burst of identical queries to the database. Writers call {@link #invalidate(String)},
+ * which evicts the key on every node through the {@link CacheInvalidationBus}.
+ *
+ * The cached instance is never handed out. Callers routinely modify the entities they retrieve, so
+ * every read returns a copy made by the supplied copier (see {@link #copyOf(Object, Class)}).
+ *
+ * The size and TTL of the cache for region "foo" are read from the "foo.near.cache.max.size" and
+ * "foo.near.cache.ttl.seconds" configuration properties. A size of zero disables caching.
+ */
+public class NearCache<T> {
+    static final String MAX_SIZE_PROPERTY = "%s.near.cache.max.size";
+    static final String TTL_SECONDS_PROPERTY = "%s.near.cache.ttl.seconds";
+
+    private static final NearCache<?> DISABLED = new NearCache<>();
+
+    private final String region;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<String, T> cache;
+    private final UnaryOperator<T> copier;
+    // Incremented on every eviction. A load that started before an eviction may have read the value
+    // that was just replaced, so it is removed from the cache once its waiters have it.
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public NearCache(String region, BridgeConfig bridgeConfig, CacheInvalidationBus invalidationBus,
+            UnaryOperator<T> copier) {
+        this.region = checkNotNull(region);
+        this.invalidationBus = checkNotNull(invalidationBus);
+        this.copier = checkNotNull(copier);
+
+        int maxSize = bridgeConfig.getPropertyAsInt(String.format(MAX_SIZE_PROPERTY, region));
+        int ttlSeconds = bridgeConfig.getPropertyAsInt(String.format(TTL_SECONDS_PROPERTY, region));
+        this.cache = (maxSize > 0) ? CacheBuilder.newBuilder().maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build() : null;
+
+        invalidationBus.register(region, new CacheInvalidationBus.Listener() {
+            @Override
+            public void evict(String key) {
+                evictionCount.incrementAndGet();
+                if (cache != null) {
+                    cache.invalidate(key);
+                }
+            }
+            @Override
+            public void evictAll() {
+                evictionCount.incrementAndGet();
+                if (cache != null) {
+                    cache.invalidateAll();
+                }
+            }
+        });
+    }
+
+    private NearCache() {
+        this.region = null;
+        this.invalidationBus = null;
+        this.cache = null;
+        this.copier = null;
+    }
+
+    /**
+     * A cache that calls the loader on every read and ignores invalidations. Services start with
+     * this until their near-cache is created, which keeps them usable outside of Spring.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> NearCache<T> disabled() {
+        return (NearCache<T>)DISABLED;
+    }
+
+    /**
+     * Copy an entity by serializing it to and from Smile. Only the properties that are serialized
+     * to JSON are copied.
+     */
+    public static <T> T copyOf(Object value, Class<T> clazz) {
+        try {
+            return CacheProvider.SMILE_MAPPER.readValue(CacheProvider.SMILE_MAPPER.writeValueAsBytes(value), clazz);
+        } catch (Exception e) {
+            throw new BridgeServiceException(e);
+        }
+    }
+
+    /**
+     * Return a copy of the cached entity, loading it if it is not cached. If the loader returns
+     * null, null is returned and nothing is cached. Exceptions thrown by the loader are re-thrown
+     * to every caller waiting on that load.
+     */
+    public T get(String key, Supplier<T> loader) {
+        checkNotNull(key);
+        checkNotNull(loader);
+
+        if (cache == null) {
+            return loader.get();
+        }
+        long count = evictionCount.get();
+        T value;
+        try {
+            value = cache.get(key, loader::get);
+        } catch (InvalidCacheLoadException e) {
+            // The loader returned null.
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+        if (evictionCount.get() != count) {
+            cache.asMap().remove(key, value);
+        }
+        return copier.apply(value);
+    }
+
+    /** Evict the entity from this cache on every node. */
+    public void invalidate(String key) {
+        checkNotNull(key);
+
+        if (invalidationBus != null) {
+            invalidationBus.invalidate(region, key);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The settings of one token bucket rate limit, shared by every caller that is limited the same way (for example,
+ * bytes of participant files downloaded per user). Each caller has their own bucket, which starts with
+ * initialTokens, is refilled with refillTokens every refillIntervalSeconds, and never holds more than
+ * maximumTokens. A limit fails open (allows requests when it cannot be applied) unless it is created with 
+ * failOpen set to false.
+ */
+public final class RateLimit {
+    private final String name;
+    private final long initialTokens;
+    private final long maximumTokens;
+    private final long refillIntervalSeconds;
+    private final long refillTokens;
+    private final boolean failOpen;
+
+    public RateLimit(String name, long initialTokens, long maximumTokens, long refillIntervalSeconds,
+            long refillTokens) {
+        this(name, initialTokens, maximumTokens, refillIntervalSeconds, refillTokens, true);
+    }
+
+    public RateLimit(String name, long initialTokens, long maximumTokens, long refillIntervalSeconds,
+            long refillTokens, boolean failOpen) {
+        checkNotNull(name);
+        checkArgument(refillIntervalSeconds > 0, "refillIntervalSeconds must be positive");
+        checkArgument(refillTokens > 0, "refillTokens must be positive");
+        this.name = name;
+        this.initialTokens = initialTokens;
+        this.maximumTokens = maximumTokens;
+        this.refillIntervalSeconds = refillIntervalSeconds;
+        this.refillTokens = refillTokens;
+        this.failOpen = failOpen;
+    }
+
+    /** Name of the limit, used in its cache keys and metrics. */
+    public String getName() {
+        return name;
+    }
+    public long getInitialTokens() {
+        return initialTokens;
+    }
+    public long getMaximumTokens() {
+        return maximumTokens;
+    }
+    public long getRefillIntervalSeconds() {
+        return refillIntervalSeconds;
+    }
+    public long getRefillTokens() {
+        return refillTokens;
+    }
+    /**
+     * True if requests are allowed when the limit cannot be applied (e.g. Redis is unreachable). Limits that 
+     * protect against abuse should fail open, so a cache outage doesn't become an outage of the APIs they 
+     * protect; limits that control spending (such as sending SMS) should fail closed.
+     */
+    public boolean isFailOpen() {
+        return failOpen;
+    }
+
+    /**
+     * How long an untouched bucket is kept. By then it would have been refilled to its maximum, so starting over
+     * with initialTokens is never more permissive than keeping it (as long as initialTokens is not above
+     * maximumTokens).
+     */
+    long getExpirationSeconds() {
+        long refillsToMaximum = (maximumTokens + refillTokens - 1) / refillTokens;
+        return (refillsToMaximum + 1) * refillIntervalSeconds;
+    }
+}
@@ -0,0 +1,58 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * A Lua script that executes atomically on the Redis server. Scripts are invoked by their SHA1 digest
+ * so the script body is not sent on every call; if the server does not have the script cached (after
+ * a restart or failover, for example), it is sent once with EVAL, which also caches it on the server.
+ */
+public final class RedisScript {
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+    private final String script;
+    private final String sha1;
+
+    public RedisScript(String script) {
+        this.script = checkNotNull(script);
+        this.sha1 = DigestUtils.sha1Hex(script);
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    public Object eval(Jedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch(JedisDataException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                return jedis.eval(script, keys, args);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluate the script with binary keys and arguments, for values that are not UTF-8 text. Bulk 
+     * string replies are returned as byte arrays.
+     */
+    public Object evalBinary(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return jedis.evalsha(sha1.getBytes(UTF_8), keys, args);
+        } catch(JedisDataException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                return jedis.eval(script.getBytes(UTF_8), keys, args);
+            }
+            throw e;
+        }
+    }
+}
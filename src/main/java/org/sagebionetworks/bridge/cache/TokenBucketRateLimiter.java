@@ -0,0 +1,168 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.util.PeriodicJsonReporter;
+
+/**
+ * Token bucket rate limiting shared by all servers. Each bucket is a Redis hash that is refilled and consumed from
+ * by a single script, so concurrent requests on different servers cannot both spend the same tokens, and the limit
+ * is the configured one no matter how many servers there are. Buckets expire once they would have been refilled,
+ * so memory only grows with the callers that are currently being limited.
+ */
+@Component
+public class TokenBucketRateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    static final String CONFIG_KEY_REPORT_INTERVAL_MINUTES = "rate.limiter.metrics.report.interval.minutes";
+    static final String LOG_PREFIX = "Rate limiter metrics: ";
+
+    /**
+     * KEYS[1] = bucket key, ARGV[1] = initial tokens, ARGV[2] = maximum tokens, ARGV[3] = refill interval in
+     * seconds, ARGV[4] = tokens per refill, ARGV[5] = tokens to consume, ARGV[6] = current time in epoch seconds,
+     * ARGV[7] = bucket expiration in seconds. Returns 1 if the tokens were consumed, 0 if there were not enough.
+     * Refills are whole intervals, and the time of the last refill advances by whole intervals, so time between
+     * refills is never lost.
+     */
+    static final RedisScript CONSUME_SCRIPT = new RedisScript(
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'refilledOn') " +
+            "local now = tonumber(ARGV[6]) " +
+            "local tokens = tonumber(bucket[1]) " +
+            "local refilledOn = tonumber(bucket[2]) " +
+            "if not tokens or not refilledOn then " +
+            "  tokens = tonumber(ARGV[1]) " +
+            "  refilledOn = now " +
+            "else " +
+            "  local interval = tonumber(ARGV[3]) " +
+            "  local refills = math.floor((now - refilledOn) / interval) " +
+            "  if refills > 0 then " +
+            "    tokens = math.min(tonumber(ARGV[2]), tokens + refills * tonumber(ARGV[4])) " +
+            "    refilledOn = refilledOn + refills * interval " +
+            "  end " +
+            "end " +
+            "local consumed = 0 " +
+            "local cost = tonumber(ARGV[5]) " +
+            "if tokens >= cost then " +
+            "  tokens = tokens - cost " +
+            "  consumed = 1 " +
+            "end " +
+            "redis.call('HMSET', KEYS[1], 'tokens', string.format('%d', tokens), " +
+            "  'refilledOn', string.format('%d', refilledOn)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[7]) " +
+            "return consumed");
+
+    private final ConcurrentMap<String, LimitMetrics> metrics = new ConcurrentHashMap<>();
+    private JedisPool jedisPool;
+    private int reportIntervalMinutes;
+    private final PeriodicJsonReporter reporter = new PeriodicJsonReporter(LOG, "rate-limiter-metrics",
+            LOG_PREFIX, this::snapshot);
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /** Config, for the metrics report interval. A non-positive interval disables the periodic report. */
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.reportIntervalMinutes = bridgeConfig.getPropertyAsInt(CONFIG_KEY_REPORT_INTERVAL_MINUTES);
+    }
+
+    @PostConstruct
+    public void start() {
+        reporter.start(reportIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reporter.stop();
+    }
+
+    /**
+     * Consume tokens from the caller's bucket for the given limit. If the bucket does not hold enough tokens, none
+     * are consumed. If Redis cannot be reached, the request is allowed or rejected as the limit specifies (see
+     * {@link RateLimit#isFailOpen()}).
+     *
+     * @param limit
+     *         the limit to apply
+     * @param id
+     *         the caller being limited, usually a user ID
+     * @param tokens
+     *         how many tokens the request costs
+     * @return true if the tokens were consumed and the request can proceed, false if it should be rejected
+     */
+    public boolean tryConsume(RateLimit limit, String id, long tokens) {
+        checkNotNull(limit);
+        checkNotNull(id);
+        checkArgument(tokens >= 0, "tokens cannot be negative");
+
+        LimitMetrics limitMetrics = metrics.computeIfAbsent(limit.getName(), k -> new LimitMetrics());
+        String key = CacheKey.rateLimit(limit.getName(), id).toString();
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(DateTimeUtils.currentTimeMillis());
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = CONSUME_SCRIPT.eval(jedis, ImmutableList.of(key), ImmutableList.of(
+                    Long.toString(limit.getInitialTokens()), Long.toString(limit.getMaximumTokens()),
+                    Long.toString(limit.getRefillIntervalSeconds()), Long.toString(limit.getRefillTokens()),
+                    Long.toString(tokens), Long.toString(nowSeconds), Long.toString(limit.getExpirationSeconds())));
+            boolean consumed = Long.valueOf(1L).equals(result);
+            (consumed ? limitMetrics.allowed : limitMetrics.rejected).increment();
+            return consumed;
+        } catch (RuntimeException e) {
+            limitMetrics.errors.increment();
+            LOG.warn("Could not apply rate limit " + limit.getName() + ", " 
+                    + (limit.isFailOpen() ? "allowing" : "rejecting") + " request: " + e.getMessage(), e);
+            return limit.isFailOpen();
+        }
+    }
+
+    /**
+     * A JSON snapshot of the number of requests allowed, rejected, and allowed or rejected because of an error, 
+     * for each limit since the server started. Keys are sorted so that consecutive reports are easy to compare.
+     */
+    public ObjectNode snapshot() {
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+        for (Map.Entry<String, LimitMetrics> entry : new TreeMap<>(metrics).entrySet()) {
+            ObjectNode limitNode = node.putObject(entry.getKey());
+            limitNode.put("allowed", entry.getValue().allowed.sum());
+            limitNode.put("rejected", entry.getValue().rejected.sum());
+            limitNode.put("errors", entry.getValue().errors.sum());
+        }
+        return node;
+    }
+
+    // Package-scoped so unit tests can call this directly.
+    void report() {
+        reporter.report();
+    }
+
+    private static class LimitMetrics {
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
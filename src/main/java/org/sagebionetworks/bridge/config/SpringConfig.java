@@ -12,8 +12,11 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.servlet.Filter;
@@ -40,6 +43,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mchange.v2.c3p0.DriverManagerDataSource;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -291,6 +295,42 @@ public class SpringConfig {
         return Executors.newFixedThreadPool(bridgeConfig.getPropertyAsInt("async.worker.thread.count"));
     }
 
+    // Upload validation is slow and memory-hungry, so it gets its own pool, separate from the general async pool.
+    // The queue is bounded; when it is full, further uploads are turned away until it drains.
+    @Bean(name = "uploadValidationExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor uploadValidationExecutorService(BridgeConfig bridgeConfig) {
+        int threadCount = bridgeConfig.getPropertyAsInt("upload.validation.thread.count");
+        int queueCapacity = bridgeConfig.getPropertyAsInt("upload.validation.queue.capacity");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("upload-validation-%d").build());
+    }
+
+    // Study-wide adherence report calculation runs participants in parallel on this pool.
+    @Bean(name = "adherenceExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ExecutorService adherenceExecutorService(BridgeConfig bridgeConfig) {
+        return Executors.newFixedThreadPool(bridgeConfig.getPropertyAsInt("adherence.batch.thread.count"),
+                new ThreadFactoryBuilder().setNameFormat("adherence-batch-%d").build());
+    }
+
+    // The activity history queries of one v4 scheduled activities request, and the global event lookup of the 
+    // recent study activity events APIs, run in parallel on this pool. The queue is bounded. When it is full, 
+    // queries run on the request thread, as they did before the pool existed, rather than wait behind other 
+    // requests. (This also runs them if the pool has been shut down, so no request waits on a query that never 
+    // runs.)
+    @Bean(name = "activityQueryExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ExecutorService activityQueryExecutorService(BridgeConfig bridgeConfig) {
+        int threadCount = bridgeConfig.getPropertyAsInt("activity.query.thread.count");
+        int queueCapacity = bridgeConfig.getPropertyAsInt("activity.query.queue.capacity");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("activity-query-%d").build(),
+                (task, executor) -> task.run());
+    }
+
     @Bean(name = "supportEmail")
     @Resource(name = "bridgeConfig")
     public String supportEmail(BridgeConfig bridgeConfig) {
@@ -628,6 +668,8 @@ public class SpringConfig {
         props.put("hibernate.connection.CharSet", "UTF-8");
         props.put("hibernate.connection.useUnicode", true);
         props.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+        // Send the statements of bulk writes (see HibernateHelper.saveOrUpdateAll) in batches.
+        props.put("hibernate.jdbc.batch_size", 50);
 
         // c3p0 connection pool properties
         props.put("hibernate.c3p0.min_size", 5);
@@ -3,7 +3,10 @@ package org.sagebionetworks.bridge.dao;
 import java.util.List;
 import java.util.Optional;
 
+import org.joda.time.DateTime;
+
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -44,6 +47,18 @@ public interface AccountDao {
      */
     Optional<Account> getAccount(AccountId accountId);
     
+    /**
+     * Get the health code of the account with this ID in this app, without loading the account.
+     * Returns an empty optional if the account does not exist.
+     */
+    Optional<String> getHealthCode(String appId, String userId);
+    
+    /**
+     * Get the time the account with this ID was enrolled in a study, without loading the account.
+     * Returns an empty optional if the account is not enrolled in the study.
+     */
+    Optional<DateTime> getEnrolledOn(String appId, String studyId, String userId);
+    
     /**
      * Delete an account along with the authentication credentials.
      */
@@ -59,6 +74,14 @@ public interface AccountDao {
      */
     PagedResourceList<AccountSummary> getPagedAccountSummaries(String appId, AccountSummarySearch search);
     
+    /**
+     * Get a page of lightweight account summaries, starting after the account whose ID is the search's offset 
+     * key (or at the first account if the key is null), ordered by account ID. The search is not counted; the 
+     * page's nextPageOffsetKey retrieves the next page.
+     */
+    ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByOffsetKey(String appId,
+            AccountSummarySearch search);
+    
     /**
      * Get a page of external IDs associated to the indicated study. These are really accounts, but 
      * older APIs continue to view these as paged external ID records.  
@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordsSearch;
@@ -8,6 +10,8 @@ public interface AdherenceRecordDao {
     
     void updateAdherenceRecord(AdherenceRecord record);
     
+    void updateAdherenceRecords(List<AdherenceRecord> records);
+    
     PagedResourceList<AdherenceRecord> getAdherenceRecords(AdherenceRecordsSearch search);
 
     void deleteAdherenceRecordPermanently(AdherenceRecord record);
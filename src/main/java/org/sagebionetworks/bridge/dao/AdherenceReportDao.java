@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistics;
@@ -9,9 +11,18 @@ public interface AdherenceReportDao {
 
     void saveWeeklyAdherenceReport(WeeklyAdherenceReport report);
     
+    /** Save a batch of weekly adherence reports in one transaction. */
+    void saveWeeklyAdherenceReports(List<WeeklyAdherenceReport> reports);
+    
     PagedResourceList<WeeklyAdherenceReport> getWeeklyAdherenceReports(String appId, String studyId,
             AdherenceReportSearch search);
     
     AdherenceStatistics getAdherenceStatistics(String appId, String studyId, Integer adherenceThreshold);
     
+    /** Recalculate the counts behind adherence statistics from all of the study's reports. */
+    void recalculateAdherenceStatistics(String appId, String studyId);
+    
+    /** True if the counts behind adherence statistics no longer match the study's reports. */
+    boolean haveAdherenceStatisticsDrifted(String appId, String studyId);
+    
 }
@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 public interface RequestInfoDao {
@@ -11,6 +13,13 @@ public interface RequestInfoDao {
      */    
     public void updateRequestInfo(RequestInfo requestInfo);
     
+    /**
+     * Update a batch of request info objects, as {@link #updateRequestInfo(RequestInfo)} does for one, with one 
+     * query to read the existing records and one transaction to write them. There should be at most one request 
+     * info per user in the batch.
+     */
+    public void updateRequestInfos(List<RequestInfo> requestInfos);
+    
     public RequestInfo getRequestInfo(String userId);
     
     public void removeRequestInfo(String userId);
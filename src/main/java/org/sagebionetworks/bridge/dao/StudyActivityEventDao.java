@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
 import java.util.List;
+import java.util.Set;
 
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
@@ -11,6 +12,12 @@ public interface StudyActivityEventDao {
      * need not be supplied as part of this event (if it is supplied, it is ignored).
      */
     void deleteEvent(StudyActivityEvent event);
+    
+    /**
+     * Remove all timestamp records for a set of events for one user in one study, 
+     * with a single statement. Does nothing if the set is empty.
+     */
+    void deleteEvents(String userId, String studyId, Set<String> eventIds);
 
     /**
      * Publish an event into this user’s event stream. This event becomes available 
@@ -18,6 +25,12 @@ public interface StudyActivityEventDao {
      */
     void publishEvent(StudyActivityEvent event);
     
+    /**
+     * Publish a list of events in a single transaction: either all of them are 
+     * published, or none are. Does nothing if the list is empty.
+     */
+    void publishEvents(List<StudyActivityEvent> events);
+    
     /**
      * Return the most recently persisted study event record (the record with the most 
      * recent `createdOn` timestamp, not necessarily the record with the most recent 
@@ -19,6 +19,7 @@ import static org.sagebionetworks.bridge.models.ResourceList.IN_USE;
 import static org.sagebionetworks.bridge.models.ResourceList.LANGUAGE;
 import static org.sagebionetworks.bridge.models.ResourceList.NONE_OF_GROUPS;
 import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_BY;
+import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_KEY;
 import static org.sagebionetworks.bridge.models.ResourceList.ORG_MEMBERSHIP;
 import static org.sagebionetworks.bridge.models.ResourceList.PAGE_SIZE;
 import static org.sagebionetworks.bridge.models.ResourceList.PHONE_FILTER;
@@ -50,7 +51,9 @@ import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.hibernate.QueryBuilder.WhereClauseBuilder;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.SearchTermPredicate;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -66,8 +69,14 @@ public class HibernateAccountDao implements AccountDao {
     static final String FULL_QUERY = "SELECT acct FROM HibernateAccount AS acct";
     static final String COUNT_QUERY = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct";
     static final String DELETE_ALL_ACCOUNTS_QUERY = "DELETE FROM Accounts WHERE studyId = :appId";
+    static final String HEALTH_CODE_QUERY = "SELECT acct.healthCode FROM HibernateAccount AS acct "
+            + "WHERE acct.appId = :appId AND acct.id = :userId";
+    static final String ENROLLED_ON_QUERY = "SELECT en.enrolledOn FROM HibernateEnrollment AS en "
+            + "WHERE en.appId = :appId AND en.studyId = :studyId AND en.accountId = :userId";
     static final String APP_IDS_FOR_USER_QUERY = "SELECT DISTINCT acct.appId FROM HibernateAccount AS acct WHERE synapseUserId = :synapseUserId";
     
+    static final String ID_ORDER_QUERY = "ORDER BY acct.id";
+    
     static final String EXTID_BASE_QUERY = "from HibernateEnrollment as en "
             + "WHERE en.appId = :appId AND en.studyId = :studyId "
             + "AND en.externalId IS NOT NULL";
@@ -141,7 +150,40 @@ public class HibernateAccountDao implements AccountDao {
         return Optional.of(account);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public Optional<String> getHealthCode(String appId, String userId) {
+        checkNotNull(appId);
+        checkNotNull(userId);
+        
+        QueryBuilder query = new QueryBuilder();
+        query.append(HEALTH_CODE_QUERY, "appId", appId, "userId", userId);
+        List<String> healthCodes = hibernateHelper.queryGet(query.getQuery(), query.getParameters(), 
+                null, null, String.class);
+        // Older accounts can lack a health code until they are loaded (see validateHealthCode).
+        return healthCodes.isEmpty() ? Optional.empty() : Optional.ofNullable(healthCodes.get(0));
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public Optional<DateTime> getEnrolledOn(String appId, String studyId, String userId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        checkNotNull(userId);
+        
+        QueryBuilder query = new QueryBuilder();
+        query.append(ENROLLED_ON_QUERY, "appId", appId, "studyId", studyId, "userId", userId);
+        List<DateTime> enrolledOns = hibernateHelper.queryGet(query.getQuery(), query.getParameters(), 
+                null, null, DateTime.class);
+        return enrolledOns.isEmpty() ? Optional.empty() : Optional.ofNullable(enrolledOns.get(0));
+    }
+    
     QueryBuilder makeQuery(String prefix, String appId, AccountId accountId, AccountSummarySearch search, boolean isCount) {
+        return makeQuery(prefix, appId, accountId, search, null, isCount);
+    }
+    
+    QueryBuilder makeQuery(String prefix, String appId, AccountId accountId, AccountSummarySearch search,
+            String afterAccountId, boolean isCount) {
         RequestContext context = RequestContext.get();
         Set<String> callerStudies = context.getOrgSponsoredStudies();
         
@@ -156,6 +198,7 @@ public class HibernateAccountDao implements AccountDao {
         SearchTermPredicate predicate = (search != null) ? search.getPredicate() : AND;
         WhereClauseBuilder where = builder.startWhere(predicate);
         where.appendRequired("acct.appId = :appId", "appId", appId);
+        where.appendRequired("acct.id > :afterId", "afterId", afterAccountId);
         
         if (accountId != null) {
             AccountId unguarded = accountId.getUnguardedAccountId();
@@ -229,41 +272,75 @@ public class HibernateAccountDao implements AccountDao {
         // studies, and Y=2 once we add attributes. On the downside, this approach loads all 
         // HibernateAccount fields, like clientData, though it is not returned.
         QueryBuilder builder = makeQuery(ID_QUERY, appId, null, search, false);
+        builder.append(ID_ORDER_QUERY);
         
         List<String> ids = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(),
                 search.getOffsetBy(), search.getPageSize(), String.class);
         
-        List<AccountSummary>accountSummaryList = ids.stream()
-                .map(id -> hibernateHelper.getById(HibernateAccount.class, id))
-                .map(this::unmarshallAccountSummary)
-                .collect(Collectors.toList());
+        List<AccountSummary> accountSummaryList = getAccountSummaries(ids);
 
         // Get count of accounts.
         builder = makeQuery(COUNT_QUERY, appId, null, search, true);
         int count = hibernateHelper.queryCount(builder.getQuery(), builder.getParameters());
         
         // Package results and return.
-        return new PagedResourceList<>(accountSummaryList, count)
-                .withRequestParam(ADMIN_ONLY, search.isAdminOnly())
-                .withRequestParam(ALL_OF_GROUPS, search.getAllOfGroups())
-                .withRequestParam(EMAIL_FILTER, search.getEmailFilter())
-                .withRequestParam(END_TIME, search.getEndTime())
-                .withRequestParam(LANGUAGE, search.getLanguage())
-                .withRequestParam(NONE_OF_GROUPS, search.getNoneOfGroups())
-                .withRequestParam(OFFSET_BY, search.getOffsetBy())
-                .withRequestParam(ORG_MEMBERSHIP, search.getOrgMembership())
-                .withRequestParam(PAGE_SIZE, search.getPageSize())
-                .withRequestParam(PHONE_FILTER, search.getPhoneFilter())
-                .withRequestParam(PREDICATE, search.getPredicate())
-                .withRequestParam(START_TIME, search.getStartTime())
-                .withRequestParam(STRING_SEARCH_POSITION, search.getStringSearchPosition())
-                .withRequestParam(EXTERNAL_ID_FILTER, search.getExternalIdFilter())
-                .withRequestParam(STATUS, search.getStatus())
-                .withRequestParam(ENROLLMENT, search.getEnrollment())
-                .withRequestParam(ATTRIBUTE_KEY, search.getAttributeKey())
-                .withRequestParam(ATTRIBUTE_VALUE_FILTER, search.getAttributeValueFilter())
-                .withRequestParam(ENROLLED_IN_STUDY_ID, search.getEnrolledInStudyId())
-                .withRequestParam(IN_USE, search.isInUse());
+        PagedResourceList<AccountSummary> page = new PagedResourceList<>(accountSummaryList, count)
+                .withRequestParam(OFFSET_BY, search.getOffsetBy());
+        return withSearchParams(page, search);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByOffsetKey(String appId,
+            AccountSummarySearch search) {
+        // The page starts after the account whose ID is the offset key, rather than scanning past offsetBy 
+        // accounts, and the search is not counted. We read one extra ID to know if there is a next page.
+        QueryBuilder builder = makeQuery(ID_QUERY, appId, null, search, search.getOffsetKey(), false);
+        builder.append(ID_ORDER_QUERY);
+        
+        List<String> ids = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(),
+                null, search.getPageSize() + 1, String.class);
+        
+        String nextPageOffsetKey = null;
+        if (ids.size() > search.getPageSize()) {
+            ids = ids.subList(0, search.getPageSize());
+            nextPageOffsetKey = ids.get(ids.size() - 1);
+        }
+        List<AccountSummary> accountSummaryList = getAccountSummaries(ids);
+        
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                accountSummaryList, nextPageOffsetKey, true).withRequestParam(OFFSET_KEY, search.getOffsetKey());
+        return withSearchParams(page, search);
+    }
+    
+    private List<AccountSummary> getAccountSummaries(List<String> ids) {
+        return ids.stream()
+                .map(id -> hibernateHelper.getById(HibernateAccount.class, id))
+                .map(this::unmarshallAccountSummary)
+                .collect(Collectors.toList());
+    }
+    
+    private <T extends ResourceList<AccountSummary>> T withSearchParams(T page, AccountSummarySearch search) {
+        page.withRequestParam(ADMIN_ONLY, search.isAdminOnly())
+            .withRequestParam(ALL_OF_GROUPS, search.getAllOfGroups())
+            .withRequestParam(EMAIL_FILTER, search.getEmailFilter())
+            .withRequestParam(END_TIME, search.getEndTime())
+            .withRequestParam(LANGUAGE, search.getLanguage())
+            .withRequestParam(NONE_OF_GROUPS, search.getNoneOfGroups())
+            .withRequestParam(ORG_MEMBERSHIP, search.getOrgMembership())
+            .withRequestParam(PAGE_SIZE, search.getPageSize())
+            .withRequestParam(PHONE_FILTER, search.getPhoneFilter())
+            .withRequestParam(PREDICATE, search.getPredicate())
+            .withRequestParam(START_TIME, search.getStartTime())
+            .withRequestParam(STRING_SEARCH_POSITION, search.getStringSearchPosition())
+            .withRequestParam(EXTERNAL_ID_FILTER, search.getExternalIdFilter())
+            .withRequestParam(STATUS, search.getStatus())
+            .withRequestParam(ENROLLMENT, search.getEnrollment())
+            .withRequestParam(ATTRIBUTE_KEY, search.getAttributeKey())
+            .withRequestParam(ATTRIBUTE_VALUE_FILTER, search.getAttributeValueFilter())
+            .withRequestParam(ENROLLED_IN_STUDY_ID, search.getEnrolledInStudyId())
+            .withRequestParam(IN_USE, search.isInUse());
+        return page;
     }
     
     // Callers of AccountDao assume that an Account will always a health code and health ID. All accounts created
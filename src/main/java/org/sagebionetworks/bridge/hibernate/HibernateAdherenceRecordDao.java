@@ -4,11 +4,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.FALSE;
 import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Resource;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
 import org.joda.time.DateTime;
 import org.springframework.stereotype.Component;
 
@@ -36,6 +44,8 @@ public class HibernateAdherenceRecordDao implements AdherenceRecordDao {
             "AND ar.eventTimestamp = au.eventTimestamp AND ar.instanceTimestamp = au.instanceTimestamp)";
     static final String WHERE_HAS_MULTIPLE_UPLOAD_IDS = UPLOAD_ID_SUBQUERY + " > 1";
     static final String WHERE_HAS_NO_UPLOAD_IDS = UPLOAD_ID_SUBQUERY + " = 0";
+    static final String SELECT_RECORDS_FOR_INSTANCES = "SELECT * FROM AdherenceRecords WHERE userId = :userId "
+            + "AND studyId = :studyId AND instanceGuid IN (:instanceGuids)";
 
     private HibernateHelper hibernateHelper;
 
@@ -59,8 +69,7 @@ public class HibernateAdherenceRecordDao implements AdherenceRecordDao {
         boolean deleteRecord = record.getStartedOn() == null && !record.isDeclined();
     
         // Check if there is an existing record.
-        AdherenceRecordId id = new AdherenceRecordId(record.getUserId(), record.getStudyId(),
-                record.getInstanceGuid(), record.getEventTimestamp(), record.getInstanceTimestamp());
+        AdherenceRecordId id = getId(record);
         AdherenceRecord previousRecord = hibernateHelper.getById(AdherenceRecord.class, id);
         
         if (previousRecord != null) {
@@ -70,36 +79,113 @@ public class HibernateAdherenceRecordDao implements AdherenceRecordDao {
                 hibernateHelper.deleteById(AdherenceRecord.class, id);
                 return;
             }
+            mergePreviousRecord(previousRecord, record);
+        }
+    
+        if (!deleteRecord) {
+            hibernateHelper.saveOrUpdate(record);
+        }
+    }
+
+    /**
+     * Saves or deletes a batch of records with the same rules as {@link #updateAdherenceRecord}. The existing 
+     * records are read with one query per participant (normally there is only one participant in a batch), and 
+     * all the changes are written in one transaction. Records later in the list are applied on top of earlier 
+     * records with the same ID, as if they had been updated one at a time.
+     */
+    @Override
+    public void updateAdherenceRecords(List<AdherenceRecord> records) {
+        checkNotNull(records);
+        
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<AdherenceRecordId, AdherenceRecord> persistedRecords = getRecordsForInstances(records);
+        
+        // The state of each record after this batch, where null means that the record will not exist.
+        Map<AdherenceRecordId, AdherenceRecord> finalRecords = new LinkedHashMap<>();
+        for (AdherenceRecord record : records) {
+            AdherenceRecordId id = getId(record);
+            AdherenceRecord previousRecord = finalRecords.containsKey(id) ? 
+                    finalRecords.get(id) : persistedRecords.get(id);
             
-            // Persisted record keeps the earliest uploadedOn date.
-            DateTime previousUploadedOn = previousRecord.getUploadedOn();
-            if (previousUploadedOn != null && previousUploadedOn.isBefore(record.getUploadedOn())) {
-                record.setUploadedOn(previousUploadedOn);
+            // The record does not need to be persisted if there is no participant activity
+            if (record.getStartedOn() == null && !record.isDeclined()) {
+                finalRecords.put(id, null);
+                continue;
             }
-            
-            // Keep uploadIds from both the previous and new record.
-            for (String uploadId : previousRecord.getUploadIds()) {
-                record.addUploadId(uploadId);
+            if (previousRecord != null) {
+                mergePreviousRecord(previousRecord, record);
             }
-
-            // Merge old post-processing attributes. Note that in the call to JsonUtils.mergeNode, later nodes take
-            // priority over earlier nodes in the list, so the new record will overwrite the old record for the keys
-            // that they share, but won't erase keys that are only in the old record. This is the behavior we want.
-            JsonNode mergedAttrNode = JsonUtils.mergeObjectNodes(previousRecord.getPostProcessingAttributes(),
-                    record.getPostProcessingAttributes());
-            record.setPostProcessingAttributes(mergedAttrNode);
-
-            // If the new record doesn't have post-processing completed on or status, retain the old ones.
-            if (record.getPostProcessingCompletedOn() == null) {
-                record.setPostProcessingCompletedOn(previousRecord.getPostProcessingCompletedOn());
+            finalRecords.put(id, record);
+        }
+        
+        List<AdherenceRecord> recordsToSave = new ArrayList<>();
+        List<AdherenceRecord> recordsToDelete = new ArrayList<>();
+        for (Map.Entry<AdherenceRecordId, AdherenceRecord> entry : finalRecords.entrySet()) {
+            if (entry.getValue() != null) {
+                recordsToSave.add(entry.getValue());
+            } else if (persistedRecords.containsKey(entry.getKey())) {
+                recordsToDelete.add(persistedRecords.get(entry.getKey()));
             }
-            if (record.getPostProcessingStatus() == null) {
-                record.setPostProcessingStatus(previousRecord.getPostProcessingStatus());
+        }
+        hibernateHelper.saveOrUpdateAndDeleteAll(recordsToSave, recordsToDelete);
+    }
+    
+    private Map<AdherenceRecordId, AdherenceRecord> getRecordsForInstances(List<AdherenceRecord> records) {
+        SetMultimap<List<String>, String> instanceGuidsByParticipant = LinkedHashMultimap.create();
+        for (AdherenceRecord record : records) {
+            instanceGuidsByParticipant.put(ImmutableList.of(record.getUserId(), record.getStudyId()),
+                    record.getInstanceGuid());
+        }
+        // This will retrieve every record for the instances, including repeats of persistent time windows
+        // that are not in the batch. These are few, and it's simpler than matching on all the key fields.
+        Map<AdherenceRecordId, AdherenceRecord> persistedRecords = new HashMap<>();
+        for (Map.Entry<List<String>, Collection<String>> entry : instanceGuidsByParticipant.asMap().entrySet()) {
+            QueryBuilder builder = new QueryBuilder();
+            builder.append(SELECT_RECORDS_FOR_INSTANCES, "userId", entry.getKey().get(0), 
+                    "studyId", entry.getKey().get(1), "instanceGuids", entry.getValue());
+            
+            List<AdherenceRecord> persisted = hibernateHelper.nativeQueryGet(builder.getQuery(), 
+                    builder.getParameters(), null, null, AdherenceRecord.class);
+            for (AdherenceRecord record : persisted) {
+                persistedRecords.put(getId(record), record);
             }
         }
+        return persistedRecords;
+    }
     
-        if (!deleteRecord) {
-            hibernateHelper.saveOrUpdate(record);
+    private static AdherenceRecordId getId(AdherenceRecord record) {
+        return new AdherenceRecordId(record.getUserId(), record.getStudyId(),
+                record.getInstanceGuid(), record.getEventTimestamp(), record.getInstanceTimestamp());
+    }
+    
+    // Carries over the values of the record being overwritten that the client does not submit.
+    private void mergePreviousRecord(AdherenceRecord previousRecord, AdherenceRecord record) {
+        // Persisted record keeps the earliest uploadedOn date.
+        DateTime previousUploadedOn = previousRecord.getUploadedOn();
+        if (previousUploadedOn != null && previousUploadedOn.isBefore(record.getUploadedOn())) {
+            record.setUploadedOn(previousUploadedOn);
+        }
+        
+        // Keep uploadIds from both the previous and new record.
+        for (String uploadId : previousRecord.getUploadIds()) {
+            record.addUploadId(uploadId);
+        }
+
+        // Merge old post-processing attributes. Note that in the call to JsonUtils.mergeNode, later nodes take
+        // priority over earlier nodes in the list, so the new record will overwrite the old record for the keys
+        // that they share, but won't erase keys that are only in the old record. This is the behavior we want.
+        JsonNode mergedAttrNode = JsonUtils.mergeObjectNodes(previousRecord.getPostProcessingAttributes(),
+                record.getPostProcessingAttributes());
+        record.setPostProcessingAttributes(mergedAttrNode);
+
+        // If the new record doesn't have post-processing completed on or status, retain the old ones.
+        if (record.getPostProcessingCompletedOn() == null) {
+            record.setPostProcessingCompletedOn(previousRecord.getPostProcessingCompletedOn());
+        }
+        if (record.getPostProcessingStatus() == null) {
+            record.setPostProcessingStatus(previousRecord.getPostProcessingStatus());
         }
     }
 
@@ -7,15 +7,22 @@ import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import javax.annotation.Resource;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import org.hibernate.Session;
-import org.hibernate.SessionFactory;
+import org.hibernate.exception.LockAcquisitionException;
 import org.hibernate.query.NativeQuery;
-import org.hibernate.type.StandardBasicTypes;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.hibernate.QueryBuilder.WhereClauseBuilder;
@@ -27,7 +34,8 @@ import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistic
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatisticsEntry;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportRow;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -35,6 +43,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 
 @Component
 public class HibernateAdherenceReportDao implements AdherenceReportDao {
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateAdherenceReportDao.class);
     
     private static final TypeReference<List<WeeklyAdherenceReportRow>> ROWS_LIST = new TypeReference<List<WeeklyAdherenceReportRow>>() {};
     
@@ -45,14 +54,69 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
             +"reports.studyId and labels.userId = reports.userId WHERE reports.appId = :appId AND reports.studyId = :studyId "
             +"GROUP BY label";
     
-    static final String ALL_ACTIVE_SQL = "SELECT count(distinct userId) AS count FROM BridgeDB.WeeklyAdherenceReports WHERE "
-            +"appId = :appId AND studyId = :studyId AND weeklyAdherencePercent IS NOT NULL";
+    static final String PERCENT_SQL = "SELECT weeklyAdherencePercent, count(*) FROM WeeklyAdherenceReports WHERE "
+            +"appId = :appId AND studyId = :studyId AND weeklyAdherencePercent IS NOT NULL GROUP BY weeklyAdherencePercent";
     
-    static final String UNDER_THRESHOLD_SQL = "SELECT count(distinct userId) AS count FROM BridgeDB.WeeklyAdherenceReports WHERE "
-            +"appId = :appId AND studyId = :studyId AND weeklyAdherencePercent < :threshold";
+    // Statistics are kept as counts of participants for each adherence percentage and each label, which are 
+    // updated whenever reports are saved. Every save and recalculation first locks the study's marker row (see 
+    // COUNTED_MARKER_PERCENT), so they are applied to a study's counts one at a time. If the marker row doesn't 
+    // exist yet, this takes a gap lock, and two concurrent transactions that both go on to create it deadlock 
+    // rather than both counting the study's reports; the transaction is retried.
+    static final String LOCK_COUNTS_SQL = "SELECT weeklyAdherencePercent, participants FROM "
+            +"WeeklyAdherencePercentCounts WHERE appId = :appId AND studyId = :studyId AND weeklyAdherencePercent = "
+            +":percent FOR UPDATE";
+    
+    static final String PREVIOUS_REPORTS_SQL = "SELECT reports.userId, reports.weeklyAdherencePercent, labels.label "
+            +"FROM WeeklyAdherenceReports AS reports LEFT JOIN WeeklyAdherenceReportLabels AS labels ON reports.appId = "
+            +"labels.appId AND reports.studyId = labels.studyId AND reports.userId = labels.userId WHERE reports.appId = "
+            +":appId AND reports.studyId = :studyId AND reports.userId IN (:userIds) FOR UPDATE";
+    
+    static final String UPDATE_PERCENT_COUNT_SQL = "INSERT INTO WeeklyAdherencePercentCounts (appId, studyId, "
+            +"weeklyAdherencePercent, participants) VALUES (:appId, :studyId, :percent, GREATEST(:delta, 0)) "
+            +"ON DUPLICATE KEY UPDATE participants = GREATEST(participants + :delta, 0)";
+    
+    static final String INCREMENT_LABEL_COUNT_SQL = "INSERT INTO WeeklyAdherenceLabelCounts (appId, studyId, "
+            +"searchableLabel, label, sessionName, weekInStudy, studyBurstId, studyBurstNum, participants) VALUES "
+            +"(:appId, :studyId, :searchableLabel, :label, :sessionName, :weekInStudy, :studyBurstId, :studyBurstNum, "
+            +":delta) ON DUPLICATE KEY UPDATE participants = participants + :delta, label = VALUES(label), "
+            +"sessionName = VALUES(sessionName), weekInStudy = VALUES(weekInStudy), studyBurstId = "
+            +"VALUES(studyBurstId), studyBurstNum = VALUES(studyBurstNum)";
+    
+    static final String DECREMENT_LABEL_COUNT_SQL = "UPDATE WeeklyAdherenceLabelCounts SET participants = "
+            +"GREATEST(participants + :delta, 0) WHERE appId = :appId AND studyId = :studyId AND searchableLabel = "
+            +":searchableLabel";
+    
+    static final String COUNT_PERCENT_REPORTS_QUERY = "SELECT COUNT(*) FROM WeeklyAdherenceReport h WHERE "
+            +"h.appId = :appId AND h.studyId = :studyId AND h.weeklyAdherencePercent IS NOT NULL";
+    
+    static final String SELECT_PERCENT_COUNTS_SQL = "SELECT weeklyAdherencePercent, participants FROM "
+            +"WeeklyAdherencePercentCounts WHERE appId = :appId AND studyId = :studyId";
+    
+    static final String SELECT_LABEL_COUNTS_SQL = "SELECT searchableLabel, label, sessionName, weekInStudy, "
+            +"studyBurstId, studyBurstNum, participants FROM WeeklyAdherenceLabelCounts WHERE appId = :appId AND "
+            +"studyId = :studyId AND participants > 0";
+    
+    static final String DELETE_PERCENT_COUNTS_SQL = "DELETE FROM WeeklyAdherencePercentCounts WHERE appId = :appId "
+            +"AND studyId = :studyId";
+    
+    static final String DELETE_LABEL_COUNTS_SQL = "DELETE FROM WeeklyAdherenceLabelCounts WHERE appId = :appId "
+            +"AND studyId = :studyId";
+    
+    // Recalculating a study's counts always writes a row for this percentage (with no participants). Counts are 
+    // only updated with deltas once this row exists, and a study whose reports have no percentages is not 
+    // recalculated on every read.
+    static final int COUNTED_MARKER_PERCENT = -1;
+    
+    // Transactions that deadlock are retried, up to this many attempts in all.
+    static final int MAX_SAVE_ATTEMPTS = 3;
 
     static final Comparator<String> STRING_COMPARATOR = Comparator.nullsLast((r1, r2) -> r1.compareToIgnoreCase(r2));
     
+    static final Comparator<WeeklyAdherenceReport> REPORT_COMPARATOR = Comparator
+            .comparing(WeeklyAdherenceReport::getAppId)
+            .thenComparing(WeeklyAdherenceReport::getStudyId)
+            .thenComparing(WeeklyAdherenceReport::getUserId);
+    
     static final Comparator<AdherenceStatisticsEntry> ENTRIES_COMPARATOR = (r1, r2) -> {
         int sb = STRING_COMPARATOR.compare(r1.getStudyBurstId(), r2.getStudyBurstId());
         return (sb != 0) ? sb : STRING_COMPARATOR.compare(r1.getSessionName(), r2.getSessionName());
@@ -67,25 +131,161 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
     static final String LABEL_FILTER_FIELD = "labelFilter";
     static final String STUDY_ID_FIELD = "studyId";
     static final String APP_ID_FIELD = "appId";
+    static final String USER_IDS_FIELD = "userIds";
     
     private HibernateHelper hibernateHelper;
     
-    private SessionFactory sessionFactory;
-
     @Resource(name = "mysqlHibernateHelper")
     final void setHibernateHelper(HibernateHelper hibernateHelper) {
         this.hibernateHelper = hibernateHelper;
     }
     
-    @Autowired
-    final void setSessionFactory(SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
-    }
-
     @Override
     public void saveWeeklyAdherenceReport(WeeklyAdherenceReport report) {
         checkNotNull(report);
-        hibernateHelper.saveOrUpdate(report);
+        saveWeeklyAdherenceReports(ImmutableList.of(report));
+    }
+
+    @Override
+    public void saveWeeklyAdherenceReports(List<WeeklyAdherenceReport> reports) {
+        checkNotNull(reports);
+        if (reports.isEmpty()) {
+            return;
+        }
+        // Reports are saved one study at a time, but group them anyway so the counts are always correct. Rows are 
+        // locked in the same order by every save (each study's marker row, then its reports by user ID, then its 
+        // counts by key), so concurrent saves wait on each other instead of deadlocking.
+        List<WeeklyAdherenceReport> sortedReports = new ArrayList<>(reports);
+        sortedReports.sort(REPORT_COMPARATOR);
+        Map<List<String>, List<WeeklyAdherenceReport>> reportsByStudy = new LinkedHashMap<>();
+        for (WeeklyAdherenceReport report : sortedReports) {
+            reportsByStudy.computeIfAbsent(ImmutableList.of(report.getAppId(), report.getStudyId()),
+                    k -> new ArrayList<>()).add(report);
+        }
+        executeRetryingDeadlocks("saving " + reports.size() + " weekly adherence reports", session -> {
+            for (Map.Entry<List<String>, List<WeeklyAdherenceReport>> entry : reportsByStudy.entrySet()) {
+                saveAndCountReports(session, entry.getKey().get(0), entry.getKey().get(1), entry.getValue());
+            }
+        });
+    }
+    
+    private void executeRetryingDeadlocks(String description, Consumer<Session> consumer) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                hibernateHelper.executeWithExceptionHandling(null, session -> {
+                    consumer.accept(session);
+                    return null;
+                });
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS || !isDeadlock(e)) {
+                    throw e;
+                }
+                LOG.info("Deadlock " + description + ", retrying (attempt " + attempt + ")");
+            }
+        }
+    }
+    
+    // The whole transaction was rolled back, so it can be run again from the start.
+    static boolean isDeadlock(Throwable throwable) {
+        for (Throwable cause : Throwables.getCausalChain(throwable)) {
+            if (cause instanceof LockAcquisitionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void saveAndCountReports(Session session, String appId, String studyId,
+            List<WeeklyAdherenceReport> reports) {
+        // The deltas are only correct if the counts already include the reports being replaced.
+        if (!lockCounts(session, appId, studyId)) {
+            recalculateCounts(session, appId, studyId);
+        }
+        
+        // Sorted, so the counts are updated in a fixed order.
+        Map<Integer, Integer> percentDeltas = new TreeMap<>();
+        Map<String, Integer> labelDeltas = new TreeMap<>();
+        Map<String, WeeklyAdherenceReportRow> labelRows = new TreeMap<>();
+        
+        // Remove the reports being replaced from the counts.
+        Set<String> userIds = new TreeSet<>();
+        for (WeeklyAdherenceReport report : reports) {
+            userIds.add(report.getUserId());
+        }
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(PREVIOUS_REPORTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, USER_IDS_FIELD, userIds);
+        Set<String> previousUserIds = new HashSet<>();
+        for (Object[] previous : list(session, builder)) {
+            // There is one result for each label of the previous report.
+            if (previousUserIds.add((String)previous[0]) && previous[1] != null) {
+                percentDeltas.merge(((Number)previous[1]).intValue(), -1, Integer::sum);
+            }
+            if (previous[2] != null) {
+                labelDeltas.merge((String)previous[2], -1, Integer::sum);
+            }
+        }
+        
+        // Save the reports and add them to the counts.
+        int count = 0;
+        for (WeeklyAdherenceReport report : reports) {
+            session.saveOrUpdate(report);
+            if (++count % HibernateHelper.BATCH_SIZE == 0) {
+                session.flush();
+                session.clear();
+            }
+            if (report.getWeeklyAdherencePercent() != null) {
+                percentDeltas.merge(report.getWeeklyAdherencePercent(), 1, Integer::sum);
+            }
+            if (report.getSearchableLabels() != null) {
+                for (String label : report.getSearchableLabels()) {
+                    labelDeltas.merge(label, 1, Integer::sum);
+                }
+            }
+            if (report.getRows() != null) {
+                for (WeeklyAdherenceReportRow row : report.getRows()) {
+                    labelRows.putIfAbsent(row.getSearchableLabel(), row);
+                }
+            }
+        }
+        
+        for (Map.Entry<Integer, Integer> entry : percentDeltas.entrySet()) {
+            if (entry.getValue() != 0) {
+                builder = new QueryBuilder();
+                builder.append(UPDATE_PERCENT_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, 
+                        "percent", entry.getKey());
+                builder.getParameters().put("delta", entry.getValue());
+                update(session, builder);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : labelDeltas.entrySet()) {
+            WeeklyAdherenceReportRow row = labelRows.get(entry.getKey());
+            if (entry.getValue() > 0 && row != null) {
+                builder = new QueryBuilder();
+                builder.append(INCREMENT_LABEL_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+                addLabelParameters(builder, entry.getKey(), row.getLabel(), row.getSessionName(),
+                        row.getWeekInStudy(), row.getStudyBurstId(), row.getStudyBurstNum(), entry.getValue());
+                update(session, builder);
+            } else if (entry.getValue() < 0) {
+                builder = new QueryBuilder();
+                builder.append(DECREMENT_LABEL_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, 
+                        "searchableLabel", entry.getKey());
+                builder.getParameters().put("delta", entry.getValue());
+                update(session, builder);
+            }
+        }
+    }
+    
+    private static void addLabelParameters(QueryBuilder builder, String searchableLabel, String label,
+            String sessionName, Integer weekInStudy, String studyBurstId, Integer studyBurstNum, int delta) {
+        Map<String, Object> params = builder.getParameters();
+        params.put("searchableLabel", searchableLabel);
+        params.put("label", label);
+        params.put("sessionName", sessionName);
+        params.put("weekInStudy", weekInStudy);
+        params.put("studyBurstId", studyBurstId);
+        params.put("studyBurstNum", studyBurstNum);
+        params.put("delta", delta);
     }
 
     @Override
@@ -145,51 +345,168 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
         return new PagedResourceList<>(reports, total, true);
     }
 
+    /**
+     * Reads the participant counts kept for the study. If the study's counts have never been calculated, they are 
+     * calculated from the study's reports first.
+     */
     @Override
     public AdherenceStatistics getAdherenceStatistics(String appId, String studyId, Integer adherenceThreshold) {
-        List<AdherenceStatisticsEntry> entries = new ArrayList<>();
-        
         QueryBuilder builder = new QueryBuilder();
-        builder.append(STATISTICS_SQL, "appId", appId, "studyId", studyId);
-        List<Object[]> results = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
-        for (Object[] oneResult : results) {
-            String searchableLabel = (String)oneResult[0];
-            BigInteger totalActive = (BigInteger)oneResult[1];
-            String rowsJson = (String)oneResult[2];
-            WeeklyAdherenceReportRow row = findRow(rowsJson, searchableLabel);
-            
-            AdherenceStatisticsEntry entry = new AdherenceStatisticsEntry();
-            entry.setLabel(row.getLabel());
-            entry.setSearchableLabel(row.getSearchableLabel());
-            entry.setSessionName(row.getSessionName());
-            entry.setWeekInStudy(row.getWeekInStudy());
-            entry.setStudyBurstId(row.getStudyBurstId());
-            entry.setStudyBurstNum(row.getStudyBurstNum());
-            entry.setTotalActive(totalActive.intValue());
-            entries.add(entry);
+        builder.append(SELECT_PERCENT_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        List<Object[]> percentCounts = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
+        if (!hasCountedMarker(percentCounts)) {
+            executeRetryingDeadlocks("calculating adherence statistics", session -> {
+                // Another request may have calculated the counts while this one waited for the lock.
+                if (!lockCounts(session, appId, studyId)) {
+                    recalculateCounts(session, appId, studyId);
+                }
+            });
+            percentCounts = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
+        }
+        int total = 0;
+        int noncompliant = 0;
+        for (Object[] oneCount : percentCounts) {
+            if (((Number)oneCount[0]).intValue() == COUNTED_MARKER_PERCENT) {
+                continue;
+            }
+            int participants = ((Number)oneCount[1]).intValue();
+            total += participants;
+            if (((Number)oneCount[0]).intValue() < adherenceThreshold) {
+                noncompliant += participants;
+            }
         }
         
+        List<AdherenceStatisticsEntry> entries = new ArrayList<>();
         builder = new QueryBuilder();
-        builder.append(ALL_ACTIVE_SQL, "appId", appId, "studyId", studyId);
-        Integer total = getCount(builder);
-
-        builder = new QueryBuilder();
-        builder.append(UNDER_THRESHOLD_SQL, "appId", appId, "studyId", studyId, "threshold", adherenceThreshold);
-        Integer noncompliant = getCount(builder);
-        
-        Integer compliant = (total != null && noncompliant != null) ? total - noncompliant : null;
-        
+        builder.append(SELECT_LABEL_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        for (Object[] oneResult : hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters())) {
+            AdherenceStatisticsEntry entry = new AdherenceStatisticsEntry();
+            entry.setSearchableLabel((String)oneResult[0]);
+            entry.setLabel((String)oneResult[1]);
+            entry.setSessionName((String)oneResult[2]);
+            entry.setWeekInStudy(toInteger(oneResult[3]));
+            entry.setStudyBurstId((String)oneResult[4]);
+            entry.setStudyBurstNum(toInteger(oneResult[5]));
+            entry.setTotalActive(toInteger(oneResult[6]));
+            entries.add(entry);
+        }
         entries.sort(ENTRIES_COMPARATOR);
         
         AdherenceStatistics stats = new AdherenceStatistics();
         stats.setAdherenceThresholdPercentage(adherenceThreshold);
         stats.setNoncompliant(noncompliant);
-        stats.setCompliant(compliant);
+        stats.setCompliant(total - noncompliant);
         stats.setTotalActive(total);
         stats.setEntries(entries);
         return stats;
     }
     
+    /**
+     * Replaces the participant counts for a study with counts calculated from all of its reports. This reads 
+     * every report in the study, so it should only be used when the counts are missing, or to correct counts
+     * that have drifted (e.g. when reports are deleted along with their accounts).
+     */
+    @Override
+    public void recalculateAdherenceStatistics(String appId, String studyId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        
+        executeRetryingDeadlocks("recalculating adherence statistics", session -> {
+            lockCounts(session, appId, studyId);
+            recalculateCounts(session, appId, studyId);
+        });
+    }
+    
+    /**
+     * Compares the number of participants counted with an adherence percentage to the number of reports that 
+     * have one. This is two count queries rather than a recalculation, but a report deleted without an adherence 
+     * percentage is not detected. The counts are read without a lock, so a concurrent save can report drift 
+     * that isn't there; this only causes an unnecessary recalculation.
+     */
+    @Override
+    public boolean haveAdherenceStatisticsDrifted(String appId, String studyId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(SELECT_PERCENT_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        List<Object[]> percentCounts = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
+        if (!hasCountedMarker(percentCounts)) {
+            return true;
+        }
+        int counted = 0;
+        for (Object[] oneCount : percentCounts) {
+            if (((Number)oneCount[0]).intValue() != COUNTED_MARKER_PERCENT) {
+                counted += ((Number)oneCount[1]).intValue();
+            }
+        }
+        builder = new QueryBuilder();
+        builder.append(COUNT_PERCENT_REPORTS_QUERY, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        int reports = hibernateHelper.queryCount(builder.getQuery(), builder.getParameters());
+        
+        return counted != reports;
+    }
+    
+    private static boolean hasCountedMarker(List<Object[]> percentCounts) {
+        for (Object[] oneCount : percentCounts) {
+            if (((Number)oneCount[0]).intValue() == COUNTED_MARKER_PERCENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Lock the study's counts for the rest of the transaction. Returns false if the counts have never been 
+     * calculated.
+     */
+    private static boolean lockCounts(Session session, String appId, String studyId) {
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(LOCK_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, 
+                "percent", COUNTED_MARKER_PERCENT);
+        return !list(session, builder).isEmpty();
+    }
+    
+    private void recalculateCounts(Session session, String appId, String studyId) {
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(DELETE_PERCENT_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        update(session, builder);
+        
+        builder = new QueryBuilder();
+        builder.append(DELETE_LABEL_COUNTS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        update(session, builder);
+        
+        builder = new QueryBuilder();
+        builder.append(UPDATE_PERCENT_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, 
+                "percent", COUNTED_MARKER_PERCENT);
+        builder.getParameters().put("delta", 0);
+        update(session, builder);
+        
+        builder = new QueryBuilder();
+        builder.append(PERCENT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        for (Object[] oneResult : list(session, builder)) {
+            QueryBuilder insert = new QueryBuilder();
+            insert.append(UPDATE_PERCENT_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId, 
+                    "percent", ((Number)oneResult[0]).intValue());
+            insert.getParameters().put("delta", ((Number)oneResult[1]).intValue());
+            update(session, insert);
+        }
+        
+        builder = new QueryBuilder();
+        builder.append(STATISTICS_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+        for (Object[] oneResult : list(session, builder)) {
+            String searchableLabel = (String)oneResult[0];
+            BigInteger totalActive = (BigInteger)oneResult[1];
+            WeeklyAdherenceReportRow row = findRow((String)oneResult[2], searchableLabel);
+            
+            QueryBuilder insert = new QueryBuilder();
+            insert.append(INCREMENT_LABEL_COUNT_SQL, APP_ID_FIELD, appId, STUDY_ID_FIELD, studyId);
+            addLabelParameters(insert, searchableLabel, row.getLabel(), row.getSessionName(), 
+                    row.getWeekInStudy(), row.getStudyBurstId(), row.getStudyBurstNum(), totalActive.intValue());
+            update(session, insert);
+        }
+    }
+    
     private WeeklyAdherenceReportRow findRow(String rowsJson, String searchableLabel) {
         try {
             List<WeeklyAdherenceReportRow> rows = BridgeObjectMapper.get().readValue(rowsJson, ROWS_LIST);
@@ -207,18 +524,24 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
         throw new BridgeServiceException("Weekly report rows do not include searchableLabel: " + searchableLabel);
     }
     
-    private Integer getCount(QueryBuilder builder) {
-        try (Session session = sessionFactory.openSession()) {  
-            @SuppressWarnings("unchecked")
-            NativeQuery<Integer> query = session.createNativeQuery(builder.getQuery());
-            query.addScalar("count", StandardBasicTypes.INTEGER);
-            for (Map.Entry<String, Object> entry : builder.getParameters().entrySet()) {
-                query.setParameter(entry.getKey(), entry.getValue());
-            }
-            if (query.list().isEmpty()) {
-                return null;
-            }
-            return ((List<Integer>)query.list()).get(0);
+    private static Integer toInteger(Object value) {
+        return (value == null) ? null : ((Number)value).intValue();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> list(Session session, QueryBuilder builder) {
+        NativeQuery<Object[]> query = session.createNativeQuery(builder.getQuery());
+        for (Map.Entry<String, Object> entry : builder.getParameters().entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
+        }
+        return query.list();
+    }
+    
+    private static void update(Session session, QueryBuilder builder) {
+        NativeQuery<?> query = session.createNativeQuery(builder.getQuery());
+        for (Map.Entry<String, Object> entry : builder.getParameters().entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
         }
+        query.executeUpdate();
     }
 }    
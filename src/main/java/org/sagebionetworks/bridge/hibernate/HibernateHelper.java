@@ -19,6 +19,8 @@ import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 
 /** Encapsulates common scenarios for using Hibernate to make it easier to use. */
 public class HibernateHelper {
+    // Should match hibernate.jdbc.batch_size.
+    static final int BATCH_SIZE = 50;
     private SessionFactory hibernateSessionFactory;
     private PersistenceExceptionConverter exceptionConverter;
 
@@ -227,6 +229,50 @@ public class HibernateHelper {
         });
     }
     
+    /**
+     * Save or update a list of objects in a single session and transaction. The session is flushed 
+     * and cleared every {@link #BATCH_SIZE} objects, so the statements are sent in batches and the
+     * session does not hold on to every object. Either all objects are saved, or none are.
+     */
+    public <T> List<T> saveOrUpdateAll(List<T> objs) {
+        return executeWithExceptionHandling(objs, session -> {
+            int count = 0;
+            for (T obj : objs) {
+                session.saveOrUpdate(obj);
+                if (++count % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            return objs;
+        });
+    }
+    
+    /**
+     * Save or update one list of objects and delete another in a single session and transaction, batched 
+     * as in {@link #saveOrUpdateAll}. Either all the changes are made, or none are.
+     */
+    public <T> void saveOrUpdateAndDeleteAll(List<T> objsToSave, List<T> objsToDelete) {
+        executeWithExceptionHandling(objsToSave, session -> {
+            int count = 0;
+            for (T obj : objsToDelete) {
+                session.delete(obj);
+                if (++count % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            for (T obj : objsToSave) {
+                session.saveOrUpdate(obj);
+                if (++count % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            return objsToSave;
+        });
+    }
+    
     /** Updates a single object. */
     public <T> T update(T obj) {
         return executeWithExceptionHandling(obj, session -> {
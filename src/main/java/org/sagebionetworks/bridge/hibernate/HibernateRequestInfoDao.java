@@ -1,9 +1,16 @@
 package org.sagebionetworks.bridge.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Resource;
 
+import com.google.common.collect.ImmutableMap;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
@@ -11,6 +18,8 @@ import org.sagebionetworks.bridge.models.RequestInfo;
 
 @Component
 public class HibernateRequestInfoDao implements RequestInfoDao {
+    static final String GET_BY_USER_IDS = "FROM RequestInfo WHERE userId IN (:userIds)";
+    
     private HibernateHelper hibernateHelper;
     
     @Resource(name = "basicHibernateHelper")
@@ -31,6 +40,43 @@ public class HibernateRequestInfoDao implements RequestInfoDao {
         }        
     }
 
+    @Override
+    public void updateRequestInfos(List<RequestInfo> requestInfos) {
+        checkNotNull(requestInfos);
+        if (requestInfos.isEmpty()) {
+            return;
+        }
+        List<String> userIds = requestInfos.stream().map(RequestInfo::getUserId).collect(toList());
+        Map<String, RequestInfo> existingRequestInfos = hibernateHelper.queryGet(GET_BY_USER_IDS,
+                ImmutableMap.of("userIds", userIds), null, null, RequestInfo.class).stream()
+                .collect(toMap(RequestInfo::getUserId, info -> info));
+
+        List<RequestInfo> mergedRequestInfos = new ArrayList<>();
+        for (RequestInfo requestInfo : requestInfos) {
+            RequestInfo.Builder builder = new RequestInfo.Builder();
+            builder.copyOf(existingRequestInfos.get(requestInfo.getUserId()));
+            builder.copyOf(requestInfo);
+            mergedRequestInfos.add(builder.build());
+        }
+        // We already know which rows exist, so save or update each one directly. saveOrUpdate would select each 
+        // row again, because the IDs are assigned.
+        hibernateHelper.executeWithExceptionHandling(mergedRequestInfos, session -> {
+            int count = 0;
+            for (RequestInfo requestInfo : mergedRequestInfos) {
+                if (existingRequestInfos.containsKey(requestInfo.getUserId())) {
+                    session.update(requestInfo);
+                } else {
+                    session.save(requestInfo);
+                }
+                if (++count % HibernateHelper.BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            return mergedRequestInfos;
+        });
+    }
+
     @Override
     public RequestInfo getRequestInfo(String userId) {
         checkNotNull(userId);
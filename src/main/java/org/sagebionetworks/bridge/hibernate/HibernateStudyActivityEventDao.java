@@ -8,6 +8,7 @@ import static org.sagebionetworks.bridge.models.ResourceList.PAGE_SIZE;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -21,11 +22,14 @@ import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
 public class HibernateStudyActivityEventDao implements StudyActivityEventDao {
     
     static final String EVENT_ID_FIELD = "eventId";
+    static final String EVENT_IDS_FIELD = "eventIds";
     static final String STUDY_ID_FIELD = "studyId";
     static final String USER_ID_FIELD = "userId";
 
     static final String DELETE_SQL = "DELETE FROM StudyActivityEvents " +
             "WHERE userId = :userId AND studyId = :studyId AND eventId = :eventId";
+    static final String DELETE_ALL_SQL = "DELETE FROM StudyActivityEvents " +
+            "WHERE userId = :userId AND studyId = :studyId AND eventId IN (:eventIds)";
     
     // Is there a better way to get this than two subselects? Apparently not in MySQL
     static final String GET_RECENT_SQL = "SELECT *, (SELECT count(*) as total FROM " +
@@ -58,12 +62,38 @@ public class HibernateStudyActivityEventDao implements StudyActivityEventDao {
         helper.nativeQueryUpdate(query.getQuery(), query.getParameters());
     }
 
+    @Override
+    public void deleteEvents(String userId, String studyId, Set<String> eventIds) {
+        checkNotNull(userId);
+        checkNotNull(studyId);
+        checkNotNull(eventIds);
+        
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        QueryBuilder query = new QueryBuilder();
+        query.append(DELETE_ALL_SQL, USER_ID_FIELD, userId, 
+                STUDY_ID_FIELD, studyId,
+                EVENT_IDS_FIELD, eventIds);
+        helper.nativeQueryUpdate(query.getQuery(), query.getParameters());
+    }
+
     @Override
     public void publishEvent(StudyActivityEvent event) {
         checkNotNull(event);
         
         helper.saveOrUpdate(event);
     }
+    
+    @Override
+    public void publishEvents(List<StudyActivityEvent> events) {
+        checkNotNull(events);
+        
+        if (events.isEmpty()) {
+            return;
+        }
+        helper.saveOrUpdateAll(events);
+    }
 
     @Override
     public List<StudyActivityEvent> getRecentStudyActivityEvents(String userId, String studyId) {
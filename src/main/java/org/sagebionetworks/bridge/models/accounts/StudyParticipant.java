@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
@@ -39,6 +40,11 @@ public final class StudyParticipant implements BridgeEntity {
     public static final ObjectWriter CACHE_WRITER = new BridgeObjectMapper().writer(
             new SimpleFilterProvider().addFilter("filter", 
             SimpleBeanPropertyFilter.serializeAllExcept("healthCode")));
+    
+    /** As CACHE_WRITER, but writing Smile (binary JSON), which is smaller and faster to parse. */
+    public static final ObjectWriter SMILE_CACHE_WRITER = new BridgeObjectMapper(new SmileFactory()).writer(
+            new SimpleFilterProvider().addFilter("filter", 
+            SimpleBeanPropertyFilter.serializeAllExcept("healthCode")));
 
     /** Serialize the study participant including healthCode and excluding encryptedHealthCode. */
     public static final ObjectWriter API_WITH_HEALTH_CODE_WRITER = new BridgeObjectMapper().writer(
@@ -10,6 +10,7 @@ import java.util.Map;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.sagebionetworks.bridge.models.DateRange;
+import org.sagebionetworks.bridge.models.schedules2.TimeWindow;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceState;
 import org.sagebionetworks.bridge.models.schedules2.timelines.ScheduledAssessment;
 import org.sagebionetworks.bridge.models.schedules2.timelines.ScheduledSession;
@@ -65,8 +66,9 @@ public class ParticipantScheduleGenerator {
                         .withInstanceGuid(schAssessment.getInstanceGuid());
                 builder.withScheduledAssessment(asmtBuilder.build());
             }
-            // null these out, not useful
-            schSession.getTimeWindow().setGuid(null);
+            // null these out, not useful. The timeline can be shared between participants, so its 
+            // window is copied rather than modified.
+            builder.withTimeWindow(copyWithoutGuid(schSession.getTimeWindow()));
             builder.withStartDay(null);
             builder.withEndDay(null);
             chronology.put(startDate, builder.build());
@@ -96,4 +98,12 @@ public class ParticipantScheduleGenerator {
         schedule.setEventTimestamps(eventTimestamps);
         return schedule;
     }
+    
+    private TimeWindow copyWithoutGuid(TimeWindow window) {
+        TimeWindow copy = new TimeWindow();
+        copy.setStartTime(window.getStartTime());
+        copy.setExpiration(window.getExpiration());
+        copy.setPersistent(window.isPersistent());
+        return copy;
+    }
 }
@@ -21,14 +21,19 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import javax.annotation.PostConstruct;
+
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
@@ -37,6 +42,7 @@ import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -52,6 +58,8 @@ import org.sagebionetworks.bridge.time.DateUtils;
 
 @Component
 public class AccountService {
+    static final String HEALTH_CODE_CACHE_REGION = "accounthealthcode";
+    
     @Autowired
     private AccountDao accountDao;
     @Autowired
@@ -86,6 +94,19 @@ public class AccountService {
     private UploadService uploadService;
     @Autowired
     private RequestInfoService requestInfoService;
+    @Autowired
+    private BridgeConfig bridgeConfig;
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+    
+    private NearCache<String> healthCodeCache = NearCache.disabled();
+    
+    @PostConstruct
+    public void createHealthCodeCache() {
+        // Strings are immutable, so they are not copied.
+        this.healthCodeCache = new NearCache<>(HEALTH_CODE_CACHE_REGION, bridgeConfig, cacheInvalidationBus, 
+                healthCode -> healthCode);
+    }
     
     // Provided to override in tests
     protected String generateGUID() {
@@ -321,6 +342,7 @@ public class AccountService {
             // Remove known etag cache keys for this user
             cacheProvider.removeObject( CacheKey.etag(DateTimeZone.class, account.getId()) );
             cacheProvider.removeObject( CacheKey.etag(StudyActivityEvent.class, account.getId()) );
+            healthCodeCache.invalidate(healthCodeCacheKey(appId, userId));
         }
     }
     
@@ -348,6 +370,7 @@ public class AccountService {
                 // It is too slow to use deleteAccount because it cleans up a ton of
                 // DynamoDB resources. So... we leave all the non-relational data behind.
                 accountDao.deleteAccount(summary.getId());
+                healthCodeCache.invalidate(healthCodeCacheKey(appId, summary.getId()));
             }
         } while(!page.getItems().isEmpty());
     }
@@ -368,6 +391,18 @@ public class AccountService {
         return accountDao.getPagedAccountSummaries(appId, search);
     }
     
+    /**
+     * Get a page of lightweight account summaries, starting after the account whose ID is the search's 
+     * offset key. These pages are not counted, and return a nextPageOffsetKey to retrieve the next page.
+     */
+    public ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByOffsetKey(String appId,
+            AccountSummarySearch search) {
+        checkNotNull(appId);
+        checkNotNull(search);
+        
+        return accountDao.getAccountSummariesByOffsetKey(appId, search);
+    }
+    
     /**
      * Get the health code for an account.
      */
@@ -382,7 +417,51 @@ public class AccountService {
         return getAccountField(appId, userIdToken, Account::getId);
     }
     
-    private Optional<String> getAccountField(String appId, String userIdToken, Function<Account,String> func) {
+    /**
+     * Get the health code for the account with this ID, without loading the account. Health codes 
+     * never change, so they are cached. Unlike {@link #getAccountHealthCode(String, String)}, this 
+     * does not check that the caller can access the account.
+     */
+    public Optional<String> getHealthCodeForUserId(String appId, String userId) {
+        checkNotNull(appId);
+        checkNotNull(userId);
+        
+        return Optional.ofNullable(healthCodeCache.get(healthCodeCacheKey(appId, userId), () -> {
+            Optional<String> healthCode = accountDao.getHealthCode(appId, userId);
+            if (healthCode.isPresent()) {
+                return healthCode.get();
+            }
+            // Loading the account assigns a health code to older accounts that lack one.
+            return accountDao.getAccount(AccountId.forId(appId, userId))
+                    .map(Account::getHealthCode).orElse(null);
+        }));
+    }
+    
+    /**
+     * Get the time the account with this ID was enrolled in a study, without loading the account. 
+     * This does not check that the caller can access the account.
+     */
+    public Optional<DateTime> getEnrolledOn(String appId, String studyId, String userId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        checkNotNull(userId);
+        
+        return accountDao.getEnrolledOn(appId, studyId, userId);
+    }
+    
+    /**
+     * Get an account for work done on the caller's behalf that doesn't return the account to the caller, 
+     * such as cache maintenance. This does not check that the caller can access the account.
+     */
+    public Optional<Account> getAccountForInternalUse(String appId, String userIdToken) {
+        return getAccountField(appId, userIdToken, Function.identity());
+    }
+    
+    private static String healthCodeCacheKey(String appId, String userId) {
+        return appId + ":" + userId;
+    }
+    
+    private <T> Optional<T> getAccountField(String appId, String userIdToken, Function<Account,T> func) {
         if (appId != null && userIdToken != null) {
             AccountId accountId = BridgeUtils.parseAccountId(appId, userIdToken);
             Account account = accountDao.getAccount(accountId).orElse(null);
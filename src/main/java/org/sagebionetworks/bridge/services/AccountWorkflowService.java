@@ -18,6 +18,8 @@ import static org.sagebionetworks.bridge.validators.SignInValidator.EMAIL_SIGNIN
 import static org.sagebionetworks.bridge.validators.SignInValidator.PHONE_SIGNIN_REQUEST;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -26,6 +28,8 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.SecureTokenGenerator;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -104,8 +108,7 @@ public class AccountWorkflowService {
     static final int SIGNIN_EXPIRE_IN_SECONDS = 60*60; // 1 hour
 
     // Config values
-    private int channelThrottleMaxRequests;
-    private int channelThrottleTimeoutSeconds;
+    private Map<ThrottleRequestType, RateLimit> channelThrottleLimits;
 
     // Dependent services
     private SmsService smsService;
@@ -114,12 +117,23 @@ public class AccountWorkflowService {
     private AccountService accountService;
     private CacheProvider cacheProvider;
     private TemplateService templateService;
+    private TokenBucketRateLimiter rateLimiter;
 
     /** Bridge config, used to get config values such as throttle configuration. */
     @Autowired
     final void setBridgeConfig(BridgeConfig bridgeConfig) {
-        this.channelThrottleMaxRequests = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_MAX_REQUESTS);
-        this.channelThrottleTimeoutSeconds = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_TIMEOUT_SECONDS);
+        int maxRequests = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_MAX_REQUESTS);
+        int timeoutSeconds = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_TIMEOUT_SECONDS);
+        
+        // Up to maxRequests at once, with one more allowed as each 1/maxRequests of the timeout passes. Each 
+        // request sends an email or SMS that we pay for, so these limits fail closed.
+        long refillIntervalSeconds = Math.max(1, timeoutSeconds / Math.max(1, maxRequests));
+        Map<ThrottleRequestType, RateLimit> limits = new EnumMap<>(ThrottleRequestType.class);
+        for (ThrottleRequestType type : ThrottleRequestType.values()) {
+            limits.put(type, new RateLimit(type.name().toLowerCase(), maxRequests, maxRequests,
+                    refillIntervalSeconds, 1, false));
+        }
+        this.channelThrottleLimits = limits;
     }
 
     /** SMS Service, used to send account workflow text messages. */
@@ -152,6 +166,12 @@ public class AccountWorkflowService {
     final void setTemplateService(TemplateService templateService) {
         this.templateService = templateService;
     }
+    
+    /** Rate limiter shared by all servers, used to throttle verification and sign-in messages. */
+    @Autowired
+    final void setRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
 
     final AtomicLong getEmailSignInRequestInMillis() {
         return emailSignInRequestInMillis;
@@ -620,30 +640,10 @@ public class AccountWorkflowService {
         return BASE_URL + String.format(formatString, (Object[])strings);
     }
 
-    // Check if the request is throttled. Key is either email address or phone, depending on the type.
+    // Check if the request is throttled. Each type of request is limited separately for each user. We throttle
+    // email/SMS sent, not requests, so throttled requests don't use up the limit.
     private boolean isRequestThrottled(ThrottleRequestType type, String userId) {
-        // Generate key, which is in the form of channel-throttling:[type]:[userId].
-        CacheKey cacheKey = CacheKey.channelThrottling(type, userId);
-
-        Integer numRequests = cacheProvider.getObject(cacheKey, Integer.class);
-        if (numRequests == null) {
-            // Fall back to 0.
-            numRequests = 0;
-        }
-
-        if (numRequests < channelThrottleMaxRequests) {
-            // We've seen less than the maximum number of requests. We can let this request through without throttling.
-            // But we should increment the request count in Redis. Reset the expiration so that participants can't
-            // exceed the throttle limit by making a bunch of requests at the end of the throttle window.
-            cacheProvider.setObject(cacheKey, numRequests + 1, channelThrottleTimeoutSeconds);
-            return false;
-        } else {
-            // We've seen at least as many requests as our limit (or more), so this next request will push us over the
-            // limit. Throttle this.
-            // Don't update Redis, since we throttle email/SMS sent, not requests. This allows the expiration to expire
-            // naturally.
-            return true;
-        }
+        return !rateLimiter.tryConsume(channelThrottleLimits.get(type), userId, 1);
     }
     
     long getDateTimeInMillis() {
@@ -17,6 +17,10 @@ import static org.sagebionetworks.bridge.validators.ActivityEventValidator.INSTA
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -27,8 +31,11 @@ import org.joda.time.Period;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ActivityEventDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoActivityEvent;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -40,6 +47,7 @@ import org.sagebionetworks.bridge.models.activities.ActivityEvent;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.sagebionetworks.bridge.models.surveys.SurveyAnswer;
 import org.sagebionetworks.bridge.validators.Validate;
 
@@ -55,12 +63,23 @@ import org.sagebionetworks.bridge.validators.Validate;
  */
 @Component
 public class ActivityEventService {
+    /**
+     * Region of the cache of immutable events known to be published, keyed by health code. Deleting a participant's
+     * events invalidates their key on every node.
+     */
+    static final String PUBLISHED_EVENTS_CACHE_REGION = "publishedevents";
 
     private ActivityEventDao activityEventDao;
     private ParticipantService participantService;
     private AppService appService;
     private AccountService accountService;
     private CacheProvider cacheProvider;
+    private BridgeConfig bridgeConfig;
+    private CacheInvalidationBus cacheInvalidationBus;
+    
+    // The IDs of immutable events that have been persisted, by health code. Every event is written until the cache
+    // is created.
+    private NearCache<Set<String>> publishedEvents = NearCache.disabled();
     
     @Autowired
     final void setActivityEventDao(ActivityEventDao activityEventDao) {
@@ -87,6 +106,23 @@ public class ActivityEventService {
         this.cacheProvider = cacheProvider;
     }
     
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+    }
+    
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
+    @PostConstruct
+    public void createPublishedEventsCache() {
+        // The cached set is not copied; it is concurrent, and each node adds event IDs to it as they are published.
+        this.publishedEvents = new NearCache<>(PUBLISHED_EVENTS_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                eventIds -> eventIds);
+    }
+    
     public DateTime getDateTime() {
         return DateTime.now();
     }
@@ -159,7 +195,7 @@ public class ActivityEventService {
         // If the globalEvent is valid, all other derivations are valid 
         Validate.entityThrowingException(INSTANCE, globalEvent);
         
-        if (activityEventDao.publishEvent(globalEvent)) {
+        if (publishImmutableEvent(globalEvent)) {
             updateEtagCache(app.getIdentifier(), healthCode, enrolledOn);
             // Create automatic events, as defined in the app
             createAutomaticCustomEvents(app, healthCode, globalEvent);
@@ -178,7 +214,7 @@ public class ActivityEventService {
         // If the globalEvent is valid, all other derivations are valid
         Validate.entityThrowingException(INSTANCE, globalEvent);
         
-        if (activityEventDao.publishEvent(globalEvent)) {
+        if (publishImmutableEvent(globalEvent)) {
             // Create automatic events, as defined in the app
             createAutomaticCustomEvents(app, healthCode, globalEvent);
         }
@@ -325,9 +361,25 @@ public class ActivityEventService {
         checkNotNull(healthCode);
         
         activityEventDao.deleteActivityEvents(healthCode);
+        publishedEvents.invalidate(healthCode);
         
         updateEtagCache(appId, healthCode, getDateTime());
     }
+    
+    /**
+     * Publish an event that can only be written once, such as the activities_retrieved event that is published on 
+     * every request for scheduled activities. Once the event is known to be persisted (whether or not this call 
+     * wrote it), later calls on this server return false without reading or writing the table.
+     */
+    private boolean publishImmutableEvent(ActivityEvent event) {
+        Set<String> eventIds = publishedEvents.get(event.getHealthCode(), ConcurrentHashMap::newKeySet);
+        if (eventIds.contains(event.getEventId())) {
+            return false;
+        }
+        boolean published = activityEventDao.publishEvent(event);
+        eventIds.add(event.getEventId());
+        return published;
+    }
 
     /**
      * If the triggering event is mutable, it will succeed and these events must update as well, so they are 
@@ -358,12 +410,17 @@ public class ActivityEventService {
      * We have to look up the userId because we switched away from the use of healthCode
      * in our system, and userId is referenced in the controllers where we are calculating
      * ETag values. This is always a set, not a remove, because it's a timestamp for the
-     * entire collection of events for this user.
+     * entire collection of events for this user. Adherence reports include some global 
+     * events, so the user's cached adherence state is invalidated in each of their studies.
      */
     private void updateEtagCache(String appId, String healthCode, DateTime timestamp) {
-        String userId = accountService.getAccountId(appId, "healthcode:"+healthCode)
+        Account account = accountService.getAccountForInternalUse(appId, "healthcode:"+healthCode)
                 .orElseThrow(() -> new EntityNotFoundException(Account.class));
-        CacheKey cacheKey = CacheKey.etag(StudyActivityEvent.class, userId);
+        CacheKey cacheKey = CacheKey.etag(StudyActivityEvent.class, account.getId());
         cacheProvider.setObject(cacheKey, timestamp);
+        for (Enrollment enrollment : account.getEnrollments()) {
+            cacheInvalidationBus.invalidate(AdherenceService.ADHERENCE_STATE_CACHE_REGION,
+                    AdherenceService.adherenceStateKey(appId, enrollment.getStudyId(), account.getId()));
+        }
     }
 }
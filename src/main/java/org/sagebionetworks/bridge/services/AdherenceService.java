@@ -8,6 +8,7 @@ import static org.sagebionetworks.bridge.AuthUtils.CAN_ACCESS_ADHERENCE_DATA;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.TEST_USER_GROUP;
 import static org.sagebionetworks.bridge.BridgeUtils.formatActivityEventId;
+import static org.sagebionetworks.bridge.BridgeUtils.withRequestContext;
 import static org.sagebionetworks.bridge.models.ResourceList.ADHERENCE_RECORD_TYPE;
 import static org.sagebionetworks.bridge.models.ResourceList.ASSESSMENT_IDS;
 import static org.sagebionetworks.bridge.models.ResourceList.CURRENT_TIMESTAMPS_ONLY;
@@ -32,16 +33,26 @@ import static org.sagebionetworks.bridge.models.schedules2.adherence.Participant
 import static org.sagebionetworks.bridge.validators.AdherenceRecordListValidator.INSTANCE;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -61,19 +72,28 @@ import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.sagebionetworks.bridge.AuthEvaluatorField;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.AdherenceRecordDao;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.models.AccountSummarySearch;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.accounts.Account;
+import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountRef;
+import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEventIdsMap;
 import org.sagebionetworks.bridge.models.schedules2.Schedule2;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordId;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordType;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordsSearch;
@@ -89,6 +109,7 @@ import org.sagebionetworks.bridge.models.schedules2.timelines.MetadataContainer;
 import org.sagebionetworks.bridge.models.schedules2.timelines.SessionState;
 import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
 import org.sagebionetworks.bridge.models.studies.Alert;
+import org.sagebionetworks.bridge.models.studies.EnrollmentFilter;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.validators.AdherenceRecordsSearchValidator;
 import org.sagebionetworks.bridge.validators.AdherenceReportSearchValidator;
@@ -102,6 +123,7 @@ public class AdherenceService {
     
     static final StudyReportWeek EMPTY_WEEK = new StudyReportWeek();
     static final String THRESHOLD_OUT_OF_RANGE_ERROR = "Adherence threshold must be from 1-100.";
+    static final String ADHERENCE_STATE_CACHE_REGION = "adherencestate";
     static final String NO_THRESHOLD_VALUE_ERROR = "An adherence threshold value must be supplied in the request or set as a study default.";
 
     private AdherenceRecordDao recordDao;
@@ -118,6 +140,18 @@ public class AdherenceService {
     
     private RequestInfoService requestInfoService;
     
+    private AccountService accountService;
+    
+    private ExecutorService adherenceExecutorService;
+    
+    private ExecutorService asyncExecutorService;
+    
+    private BridgeConfig bridgeConfig;
+    
+    private CacheInvalidationBus cacheInvalidationBus;
+    
+    private NearCache<AdherenceStateSnapshot> adherenceStateCache = NearCache.disabled();
+    
     @Autowired
     final void setAdherenceRecordDao(AdherenceRecordDao recordDao) {
         this.recordDao = recordDao;
@@ -153,6 +187,38 @@ public class AdherenceService {
         this.requestInfoService = requestInfoService;
     }
     
+    @Autowired
+    final void setAccountService(AccountService accountService) {
+        this.accountService = accountService;
+    }
+    
+    @Resource(name = "adherenceExecutorService")
+    final void setAdherenceExecutorService(ExecutorService adherenceExecutorService) {
+        this.adherenceExecutorService = adherenceExecutorService;
+    }
+    
+    @Resource(name = "asyncExecutorService")
+    final void setAsyncExecutorService(ExecutorService asyncExecutorService) {
+        this.asyncExecutorService = asyncExecutorService;
+    }
+    
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+    }
+    
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
+    @PostConstruct
+    public void createAdherenceStateCache() {
+        // Snapshots are shared, not copied. See getAdherenceStateSnapshot().
+        this.adherenceStateCache = new NearCache<>(ADHERENCE_STATE_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                snapshot -> snapshot);
+    }
+    
     protected DateTime getDateTime() {
         return DateTime.now();
     }
@@ -176,22 +242,23 @@ public class AdherenceService {
         
         MetadataContainer container = new MetadataContainer(scheduleService, recordList.getRecords());
         
-        // Update assessments
+        // Update sessions implied by assessments. Clients often submit all the assessments of a session 
+        // together, so the state is calculated once for each session instance and event timestamp.
+        Set<String> updatedSessions = new HashSet<>();
         for (AdherenceRecord record : container.getAssessments()) {
             TimelineMetadata meta = container.getMetadata(record.getInstanceGuid());
-            recordDao.updateAdherenceRecord(record);
-            publishEvent(appId, meta, record);
-        }
-        // Update sessions implied by assessments
-        for (AdherenceRecord record : container.getAssessments()) {
-            updateSessionState(appId, container, record);
-        }
-        // Update sessions
-        for (AdherenceRecord record : container.getSessionUpdates()) {
-            TimelineMetadata sessionMeta = container.getMetadata(record.getInstanceGuid());
-            recordDao.updateAdherenceRecord(record);
-            publishEvent(appId, sessionMeta, record);
+            if (updatedSessions.add(meta.getSessionInstanceGuid() + ":" + record.getEventTimestamp().getMillis())) {
+                updateSessionState(appId, container, record);
+            }
         }
+        // Update assessments and sessions together
+        List<AdherenceRecord> records = new ArrayList<>(container.getAssessments());
+        records.addAll(container.getSessionUpdates());
+        recordDao.updateAdherenceRecords(records);
+        adherenceStateCache.invalidate(adherenceStateKey(appId,
+                recordList.getRecords().get(0).getStudyId(), recordList.getRecords().get(0).getUserId()));
+        
+        publishEvents(appId, container, records);
     }
     
     protected void updateSessionState(String appId, MetadataContainer container, AdherenceRecord asmt) {
@@ -211,12 +278,29 @@ public class AdherenceService {
                 .withEventTimestamps(ImmutableMap.of(asmtMeta.getSessionStartEventId(), asmt.getEventTimestamp()))
                 .withInstanceGuids(instanceGuids).build());
         
+        // The submitted assessments have not been saved yet, so they replace the persisted records, 
+        // and assessments that will be deleted are dropped.
+        Map<AdherenceRecordId, AdherenceRecord> recordsById = new LinkedHashMap<>();
+        for (AdherenceRecord oneRecord : allRecords.getItems()) {
+            recordsById.put(getId(oneRecord), oneRecord);
+        }
+        for (AdherenceRecord submitted : container.getAssessments()) {
+            if (instanceGuids.contains(submitted.getInstanceGuid())
+                    && submitted.getEventTimestamp().isEqual(asmt.getEventTimestamp())) {
+                if (submitted.getStartedOn() == null && !submitted.isDeclined()) {
+                    recordsById.remove(getId(submitted));
+                } else {
+                    recordsById.put(getId(submitted), submitted);
+                }
+            }
+        }
+        
         SessionState state = new SessionState(asmtMetas.size());
         
         // The session record may have been submitted, it may be persisted, or
         // it may not yet exist, and we take the records in that order.
         AdherenceRecord sessionRecord = container.getRecord(sessionInstanceGuid);
-        for (AdherenceRecord oneRecord : allRecords.getItems()) {
+        for (AdherenceRecord oneRecord : recordsById.values()) {
             if (sessionInstanceGuid.equals(oneRecord.getInstanceGuid())) {
                 // The record was persisted
                 if (sessionRecord == null) {
@@ -240,7 +324,32 @@ public class AdherenceService {
         }
     }
 
-    protected void publishEvent(String appId, TimelineMetadata meta, AdherenceRecord record) {
+    private static AdherenceRecordId getId(AdherenceRecord record) {
+        return new AdherenceRecordId(record.getUserId(), record.getStudyId(), record.getInstanceGuid(),
+                record.getEventTimestamp(), record.getInstanceTimestamp());
+    }
+
+    /**
+     * Publishes a finished event for each finished assessment and session. Both kinds of event can only move 
+     * forward in time, so if the batch finishes the same assessment more than once, only the latest timestamp 
+     * can take effect, and only that event is published.
+     */
+    protected void publishEvents(String appId, MetadataContainer container, List<AdherenceRecord> records) {
+        Map<String, StudyActivityEvent> events = new LinkedHashMap<>();
+        for (AdherenceRecord record : records) {
+            StudyActivityEvent event = createFinishedEvent(appId, container.getMetadata(record.getInstanceGuid()),
+                    record);
+            if (event != null) {
+                events.merge(event.getEventId(), event,
+                        (prev, next) -> next.getTimestamp().isAfter(prev.getTimestamp()) ? next : prev);
+            }
+        }
+        for (StudyActivityEvent event : events.values()) {
+            studyActivityEventService.publishEvent(event, false, true);
+        }
+    }
+
+    protected StudyActivityEvent createFinishedEvent(String appId, TimelineMetadata meta, AdherenceRecord record) {
         if (meta != null && record.getFinishedOn() != null) {
             StudyActivityEvent.Builder builder = new StudyActivityEvent.Builder()
                     .withAppId(appId)
@@ -258,8 +367,9 @@ public class AdherenceService {
                 builder.withObjectType(ASSESSMENT);
                 builder.withObjectId(meta.getAssessmentId());
             }
-            studyActivityEventService.publishEvent(builder.build(), false, true);
+            return builder.build();
         }
+        return null;
     }
 
     public PagedResourceList<AdherenceRecord> getAdherenceRecords(String appId, AdherenceRecordsSearch search) {
@@ -376,6 +486,8 @@ public class AdherenceService {
             }
 
             recordDao.deleteAdherenceRecordPermanently(record);
+            adherenceStateCache.invalidate(adherenceStateKey(record.getAppId(), record.getStudyId(),
+                    record.getUserId()));
         }
     }
 
@@ -512,20 +624,172 @@ public class AdherenceService {
     public WeeklyAdherenceReport getWeeklyAdherenceReportForWorker(String appId, String studyId, Account account) {
         WeeklyAdherenceReport weeklyReport = getWeeklyAdherenceReport(appId, studyId, account);
 
-        // trigger alert for low weekly adherence
         Study study = studyService.getStudy(appId, studyId, true);
+        alertOnLowAdherence(appId, studyId, account.getId(), study, weeklyReport);
+
+        return weeklyReport;
+    }
+    
+    /**
+     * Start calculating and saving the weekly adherence report of every participant enrolled in a study. The 
+     * study and its schedule are checked before this returns; the reports are then updated in the background 
+     * by {@link #updateWeeklyAdherenceReports(String, String, Study, Schedule2)}.
+     */
+    public void updateWeeklyAdherenceReports(String appId, String studyId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        
+        Study study = studyService.getStudy(appId, studyId, true);
+        if (study.getScheduleGuid() == null) {
+            throw new EntityNotFoundException(Schedule2.class);
+        }
+        Schedule2 schedule = scheduleService.getScheduleForStudy(appId, studyId)
+                .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
+        
+        // The task runs on another thread, but must be authorized as the caller.
+        asyncExecutorService.submit(withRequestContext(() -> {
+            try {
+                updateWeeklyAdherenceReports(appId, studyId, study, schedule);
+            } catch (Exception e) {
+                LOG.error("Error updating weekly adherence reports in study " + studyId, e);
+            }
+            return null;
+        }));
+    }
+    
+    /**
+     * Calculate and save the weekly adherence report of every participant enrolled in a study. The result 
+     * is the same as calling {@link #getWeeklyAdherenceReportForWorker} for each participant, but the study, 
+     * schedule and timeline metadata are loaded once, participants are processed in parallel, and reports
+     * are saved a page of participants at a time. A participant whose report cannot be calculated is logged
+     * and skipped. Returns the number of reports that were saved.
+     */
+    int updateWeeklyAdherenceReports(String appId, String studyId, Study study, Schedule2 schedule) {
+        Stopwatch watch = Stopwatch.createStarted();
+        
+        DateTime createdOn = getDateTime();
+        List<TimelineMetadata> metadata = scheduleService.getScheduleMetadata(schedule);
+        StudyActivityEventIdsMap eventMap = studyService.getStudyActivityEventIdsMap(appId, studyId);
+        
+        // Participants are paged by account ID, so each page starts where the last one ended rather than 
+        // scanning past all the participants before it, and the search is never counted.
+        int count = 0;
+        String offsetKey = null;
+        do {
+            ForwardCursorPagedResourceList<AccountSummary> page = accountService.getAccountSummariesByOffsetKey(
+                    appId, new AccountSummarySearch.Builder()
+                    .withEnrolledInStudyId(studyId)
+                    .withEnrollment(EnrollmentFilter.ENROLLED)
+                    .withOffsetKey(offsetKey)
+                    .withPageSize(API_MAXIMUM_PAGE_SIZE).build());
+            
+            List<Future<WeeklyAdherenceReport>> futures = new ArrayList<>();
+            for (AccountSummary summary : page.getItems()) {
+                // Tasks run on other threads, but must be authorized as the caller.
+                futures.add(adherenceExecutorService.submit(withRequestContext(
+                        () -> calculateWeeklyAdherenceReport(appId, studyId, study, schedule, metadata, 
+                                eventMap, createdOn, summary.getId()))));
+            }
+            List<WeeklyAdherenceReport> reports = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    WeeklyAdherenceReport report = futures.get(i).get();
+                    if (report != null) {
+                        reports.add(report);
+                    }
+                } catch (ExecutionException e) {
+                    LOG.error("Error calculating weekly adherence report for user " 
+                            + page.getItems().get(i).getId() + " in study " + studyId, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BridgeServiceException(e);
+                }
+            }
+            reportDao.saveWeeklyAdherenceReports(reports);
+            for (WeeklyAdherenceReport report : reports) {
+                alertOnLowAdherence(appId, studyId, report.getUserId(), study, report);
+            }
+            count += reports.size();
+            offsetKey = page.getNextPageOffsetKey();
+        } while (offsetKey != null);
+        
+        // Statistics are updated as each report is saved, but reports can also be deleted with their accounts, 
+        // so correct the counts if they no longer match the reports.
+        if (reportDao.haveAdherenceStatisticsDrifted(appId, studyId)) {
+            reportDao.recalculateAdherenceStatistics(appId, studyId);
+        }
+        
+        watch.stop();
+        LOG.info("Weekly adherence reports for " + count + " participants in study " + studyId + " took " 
+                + watch.elapsed(TimeUnit.MILLISECONDS) + "ms");
+        return count;
+    }
+    
+    /**
+     * Calculate one participant’s weekly adherence report from study-wide data that has already been loaded.
+     * The participant’s events are loaded once and used for both the report and the current timestamps of 
+     * the adherence record search. The report is not saved. Returns null if the account no longer exists.
+     */
+    WeeklyAdherenceReport calculateWeeklyAdherenceReport(String appId, String studyId, Study study,
+            Schedule2 schedule, List<TimelineMetadata> metadata, StudyActivityEventIdsMap eventMap, 
+            DateTime createdOn, String userId) {
+        Account account = accountService.getAccount(AccountId.forId(appId, userId)).orElse(null);
+        if (account == null) {
+            return null;
+        }
+        String zoneId = studyService.getZoneId(appId, studyId, account.getClientTimeZone());
+        
+        List<StudyActivityEvent> events = studyActivityEventService.getRecentStudyActivityEvents(
+                appId, studyId, account).getItems();
+        
+        Map<String, DateTime> eventTimestamps = new HashMap<>();
+        addToMap(events.stream().collect(toMap(StudyActivityEvent::getEventId, StudyActivityEvent::getTimestamp)),
+                eventMap, eventTimestamps);
+        List<AdherenceRecord> adherenceRecords = recordDao.getAdherenceRecords(new AdherenceRecordsSearch.Builder()
+                .withEventTimestamps(eventTimestamps)
+                .withIncludeRepeats(true)
+                .withAdherenceRecordType(AdherenceRecordType.SESSION)
+                .withStudyId(studyId)
+                .withUserId(userId)
+                .build()).getItems();
+        
+        AdherenceState state = new AdherenceState.Builder()
+                .withNow(createdOn)
+                .withClientTimeZone(zoneId)
+                .withMetadata(metadata)
+                .withEvents(events)
+                .withAdherenceRecords(adherenceRecords)
+                .withStudyStartEventId(study.getStudyStartEventId())
+                .build();
+        
+        StudyAdherenceReport report = StudyAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+        report.setParticipant(new AccountRef(account, studyId));
+        report.setTestAccount(account.getDataGroups().contains(TEST_USER_GROUP));
+        report.setCreatedOn(createdOn);
+        report.setClientTimeZone(zoneId);
+        
+        return createWeeklyAdherenceReport(studyId, account, report);
+    }
+    
+    private void alertOnLowAdherence(String appId, String studyId, String userId, Study study,
+            WeeklyAdherenceReport weeklyReport) {
         if (weeklyReport.getWeeklyAdherencePercent() != null
                 && study.getAdherenceThresholdPercentage() != null
                 && weeklyReport.getWeeklyAdherencePercent() <= study.getAdherenceThresholdPercentage()) {
             alertService.createAlert(
-                    Alert.lowAdherence(studyId, appId, account.getId(), study.getAdherenceThresholdPercentage()));
+                    Alert.lowAdherence(studyId, appId, userId, study.getAdherenceThresholdPercentage()));
         }
-
-        return weeklyReport;
     }
 
     protected WeeklyAdherenceReport deriveWeeklyAdherenceFromStudyReportWeek(String studyId, Account account,
             StudyAdherenceReport report) {
+        WeeklyAdherenceReport weeklyReport = createWeeklyAdherenceReport(studyId, account, report);
+        reportDao.saveWeeklyAdherenceReport(weeklyReport);
+        return weeklyReport;
+    }
+    
+    private WeeklyAdherenceReport createWeeklyAdherenceReport(String studyId, Account account,
+            StudyAdherenceReport report) {
         
         WeeklyAdherenceReport weeklyReport = new WeeklyAdherenceReport();
         weeklyReport.setAppId(account.getAppId());
@@ -556,7 +820,6 @@ public class AdherenceService {
                 weeklyReport.setNextActivity(report.getNextActivity());    
             }
         }
-        reportDao.saveWeeklyAdherenceReport(weeklyReport);
         return weeklyReport;
     }
 
@@ -581,37 +844,61 @@ public class AdherenceService {
     
     protected <T> T generateReport(String appId, String studyId, String userId,
             DateTime createdOn, String clientTimeZone, BiFunction<AdherenceState, Schedule2, T> func) {
-        AdherenceState.Builder builder = new AdherenceState.Builder();
-        builder.withNow(createdOn);
-        builder.withClientTimeZone(clientTimeZone);
-        
-        Study study = studyService.getStudy(appId, studyId, true);
-        if (study.getScheduleGuid() == null) {
-            throw new EntityNotFoundException(Schedule2.class);
-        }
-        Schedule2 schedule = scheduleService.getScheduleForStudy(appId, studyId)
-                .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
-        List<TimelineMetadata> metadata = scheduleService.getScheduleMetadata(study.getScheduleGuid());
+        AdherenceStateSnapshot snapshot = getAdherenceStateSnapshot(appId, studyId, userId);
 
-        List<StudyActivityEvent> events = studyActivityEventService.getRecentStudyActivityEvents(
-                appId, studyId, userId).getItems();
+        AdherenceState state = snapshot.toBuilder()
+                .withNow(createdOn)
+                .withClientTimeZone(clientTimeZone)
+                .withAdherenceRecords(snapshot.sessionRecords.get())
+                .build();
+        return func.apply(state, snapshot.schedule);
+    }
+    
+    /**
+     * The parts of a participant's adherence state that don't depend on when, or in which time zone, a report is
+     * generated. Study coordinators tend to request several reports for the same participant together, so this is
+     * cached per participant and study until an adherence record, study activity event, or global event of theirs 
+     * changes. 
+     * Schedule and study changes rely on the TTL. Snapshots are shared between requests, and must not be modified.
+     */
+    private AdherenceStateSnapshot getAdherenceStateSnapshot(String appId, String studyId, String userId) {
+        AdherenceStateSnapshot snapshot = adherenceStateCache.get(adherenceStateKey(appId, studyId, userId), () -> {
+            Study study = studyService.getStudy(appId, studyId, true);
+            if (study.getScheduleGuid() == null) {
+                throw new EntityNotFoundException(Schedule2.class);
+            }
+            Schedule2 schedule = scheduleService.getScheduleForStudy(appId, studyId)
+                    .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
+            List<TimelineMetadata> metadata = scheduleService.getScheduleMetadata(schedule);
 
-        List<AdherenceRecord> adherenceRecords = getAdherenceRecords(appId, new AdherenceRecordsSearch.Builder()
-                .withCurrentTimestampsOnly(true)
-                // If includeRepeats=false (which is counter-intuitive) you will not get declined sessions with no 
-                // startedOn value, but it's not needed because persistent time windows are excluded from adherence.
-                .withIncludeRepeats(true)
-                .withAdherenceRecordType(AdherenceRecordType.SESSION)
-                .withStudyId(studyId)
-                .withUserId(userId)
-                .build()).getItems();
-        
-        builder.withMetadata(metadata);
-        builder.withEvents(events);
-        builder.withAdherenceRecords(adherenceRecords);
-        builder.withStudyStartEventId(study.getStudyStartEventId());
-        AdherenceState state = builder.build();
-        return func.apply(state, schedule);
+            List<StudyActivityEvent> events = studyActivityEventService.getRecentStudyActivityEvents(
+                    appId, studyId, userId).getItems();
+
+            // The detailed report retrieves all of the participant's records instead, so only load these if used.
+            Supplier<List<AdherenceRecord>> sessionRecords = Suppliers.memoize(() -> getAdherenceRecords(appId,
+                    new AdherenceRecordsSearch.Builder()
+                    .withCurrentTimestampsOnly(true)
+                    // If includeRepeats=false (which is counter-intuitive) you will not get declined sessions with no 
+                    // startedOn value, but it's not needed because persistent time windows are excluded from adherence.
+                    .withIncludeRepeats(true)
+                    .withAdherenceRecordType(AdherenceRecordType.SESSION)
+                    .withStudyId(studyId)
+                    .withUserId(userId)
+                    .build()).getItems());
+
+            return new AdherenceStateSnapshot(study.getStudyStartEventId(), schedule, metadata, events,
+                    sessionRecords);
+        });
+        // A cached snapshot's records are not retrieved through getAdherenceRecords(), so check access here.
+        CAN_ACCESS_ADHERENCE_DATA.checkAndThrow(
+                AuthEvaluatorField.STUDY_ID, studyId, 
+                AuthEvaluatorField.USER_ID, userId);
+        return snapshot;
+    }
+    
+    // Study IDs are only unique within an app.
+    static String adherenceStateKey(String appId, String studyId, String userId) {
+        return appId + ":" + studyId + ":" + userId;
     }
     
     public AdherenceStatistics getAdherenceStatistics(String appId, String studyId, Integer adherenceThreshold) {
@@ -644,20 +931,9 @@ public class AdherenceService {
         DateTime createdOn = getDateTime();
         String zoneId = studyService.getZoneId(appId, studyId, account.getClientTimeZone());
         
-        AdherenceState.Builder builder = new AdherenceState.Builder();
-        builder.withNow(createdOn);
-        builder.withClientTimeZone(zoneId);
-        
-        Study study = studyService.getStudy(appId, studyId, true);
-        
-        Schedule2 schedule = scheduleService.getScheduleForStudy(appId, studyId)
-                .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
-        List<TimelineMetadata> metadata = scheduleService.getScheduleMetadata(study.getScheduleGuid());
-        
-        Timeline timeline = scheduleService.getTimelineForSchedule(appId, schedule.getGuid());
+        AdherenceStateSnapshot snapshot = getAdherenceStateSnapshot(appId, studyId, account.getId());
         
-        List<StudyActivityEvent> events = studyActivityEventService.getRecentStudyActivityEvents(
-                appId, studyId, account.getId()).getItems();
+        Timeline timeline = scheduleService.getTimelineForSchedule(appId, snapshot.schedule.getGuid());
         
         List<AdherenceRecord> adherenceRecords = new ArrayList<>();
         int total;
@@ -681,11 +957,11 @@ public class AdherenceService {
             offset += API_MAXIMUM_PAGE_SIZE;
         } while (offset < total);
         
-        builder.withMetadata(metadata);
-        builder.withEvents(events);
-        builder.withAdherenceRecords(adherenceRecords);
-        builder.withStudyStartEventId(study.getStudyStartEventId());
-        AdherenceState state = builder.build();
+        AdherenceState state = snapshot.toBuilder()
+                .withNow(createdOn)
+                .withClientTimeZone(zoneId)
+                .withAdherenceRecords(adherenceRecords)
+                .build();
     
         // Format timeline for labeling.
         // The adherence records can be in any order and timelines can be large. Organizing the session and 
@@ -870,4 +1146,28 @@ public class AdherenceService {
         
         sessionRecords.put(sessionRecord.getSessionInstanceGuid(), sessionRecord);
     }
+
+    private static final class AdherenceStateSnapshot {
+        private final String studyStartEventId;
+        private final Schedule2 schedule;
+        private final List<TimelineMetadata> metadata;
+        private final List<StudyActivityEvent> events;
+        private final Supplier<List<AdherenceRecord>> sessionRecords;
+        
+        AdherenceStateSnapshot(String studyStartEventId, Schedule2 schedule, List<TimelineMetadata> metadata,
+                List<StudyActivityEvent> events, Supplier<List<AdherenceRecord>> sessionRecords) {
+            this.studyStartEventId = studyStartEventId;
+            this.schedule = schedule;
+            this.metadata = Collections.unmodifiableList(metadata);
+            this.events = Collections.unmodifiableList(events);
+            this.sessionRecords = sessionRecords;
+        }
+        
+        AdherenceState.Builder toBuilder() {
+            return new AdherenceState.Builder()
+                    .withMetadata(metadata)
+                    .withEvents(events)
+                    .withStudyStartEventId(studyStartEventId);
+        }
+    }
 }
@@ -5,6 +5,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.List;
 
 import org.joda.time.DateTime;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.AppConfigElementDao;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -22,11 +23,18 @@ public class AppConfigElementService {
     
     private AppConfigElementDao appConfigElementDao;
     
+    private CacheInvalidationBus cacheInvalidationBus;
+    
     @Autowired
     final void setAppConfigElementDao(AppConfigElementDao appConfigElementDao) {
         this.appConfigElementDao = appConfigElementDao;
     }
     
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
     public List<AppConfigElement> getMostRecentElements(String appId, boolean includeDeleted) {
         checkNotNull(appId);
         
@@ -56,7 +64,9 @@ public class AppConfigElementService {
             throw new EntityAlreadyExistsException(AppConfigElement.class,
                     ImmutableMap.of("id", existing.getId(), "revision", existing.getRevision()));
         }
-        return appConfigElementDao.saveElementRevision(element);
+        VersionHolder version = appConfigElementDao.saveElementRevision(element);
+        invalidateAppConfigs(appId);
+        return version;
     }
 
     public List<AppConfigElement> getElementRevisions(String appId, String id, boolean includeDeleted) {
@@ -103,7 +113,9 @@ public class AppConfigElementService {
         element.setModifiedOn(DateTime.now().getMillis());
         // cannot change the creation timestamp
         element.setCreatedOn(existing.getCreatedOn());
-        return appConfigElementDao.saveElementRevision(element);
+        VersionHolder version = appConfigElementDao.saveElementRevision(element);
+        invalidateAppConfigs(appId);
+        return version;
     }
     
     public void deleteElementRevision(String appId, String id, long revision) {
@@ -114,6 +126,7 @@ public class AppConfigElementService {
         existing.setDeleted(true);
         existing.setModifiedOn(DateTime.now().getMillis());
         appConfigElementDao.saveElementRevision(existing);
+        invalidateAppConfigs(appId);
     }
     
     public void deleteElementAllRevisions(String appId, String id) {
@@ -127,6 +140,7 @@ public class AppConfigElementService {
             oneElement.setModifiedOn(modifiedOn);
             appConfigElementDao.saveElementRevision(oneElement);
         }
+        invalidateAppConfigs(appId);
     }
     
     public void deleteElementRevisionPermanently(String appId, String id, long revision) {
@@ -136,6 +150,7 @@ public class AppConfigElementService {
         // Throws exception if the element does not exist.
         getElementRevision(appId, id, revision);
         appConfigElementDao.deleteElementRevisionPermanently(appId, id, revision);
+        invalidateAppConfigs(appId);
     }
     
     public void deleteElementAllRevisionsPermanently(String appId, String id) {
@@ -146,5 +161,11 @@ public class AppConfigElementService {
         for (AppConfigElement oneElement : elements) {
             appConfigElementDao.deleteElementRevisionPermanently(appId, oneElement.getId(), oneElement.getRevision());
         }
+        invalidateAppConfigs(appId);
+    }
+    
+    // App configs include the data of the element revisions they reference.
+    private void invalidateAppConfigs(String appId) {
+        cacheInvalidationBus.invalidate(AppConfigService.APP_CONFIG_CACHE_REGION, appId);
     }
 }
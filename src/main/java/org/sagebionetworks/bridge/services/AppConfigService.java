@@ -9,10 +9,17 @@ import static org.sagebionetworks.bridge.models.appconfig.ConfigResolver.INSTANC
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.AppConfigDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoAppConfig;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -38,12 +45,19 @@ import org.springframework.stereotype.Component;
 import org.springframework.validation.Validator;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 @Component
 public class AppConfigService {
     private static final Logger LOG = LoggerFactory.getLogger(AppConfigService.class);
     
+    /**
+     * Near-cache region of each app's app configs, keyed by app ID. Services that change an entity an app config 
+     * can reference (config elements, surveys, assessments) invalidate the app's key in this region.
+     */
+    static final String APP_CONFIG_CACHE_REGION = "appconfig";
+    
     private AppConfigDao appConfigDao;
     
     private AppConfigElementService appConfigElementService;
@@ -60,6 +74,13 @@ public class AppConfigService {
     
     private AssessmentService assessmentService;
     
+    private BridgeConfig bridgeConfig;
+    
+    private CacheInvalidationBus cacheInvalidationBus;
+    
+    /** In-process cache of the app configs of each app, in front of DynamoDB and reference resolution. */
+    private NearCache<AppConfigs> appConfigCache = NearCache.disabled();
+    
     @Autowired
     final void setAppConfigDao(AppConfigDao appConfigDao) {
         this.appConfigDao = appConfigDao;
@@ -100,6 +121,23 @@ public class AppConfigService {
         this.assessmentService = assessmentService;
     }
     
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+    }
+    
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
+    @PostConstruct
+    public void createAppConfigCache() {
+        // The cached instance is not copied here; getAppConfigForUser copies the config it returns.
+        this.appConfigCache = new NearCache<>(APP_CONFIG_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                appConfigs -> appConfigs);
+    }
+    
     // In order to mock this value;
     protected long getCurrentTimestamp() {
         return DateUtils.getCurrentMillisFromEpoch(); 
@@ -125,12 +163,19 @@ public class AppConfigService {
         return appConfig;
     }
     
+    /**
+     * Return the app config that matches the caller's criteria, with its references resolved. App configs are 
+     * cached per app, and each config is resolved the first time it is matched, so in the steady state this 
+     * makes no calls to the database or to other services. The returned config is a copy that the caller can
+     * modify.
+     */
     public AppConfig getAppConfigForUser(CriteriaContext context, boolean throwException) {
         checkNotNull(context);
 
-        List<AppConfig> appConfigs = getAppConfigs(context.getAppId(), false);
+        String appId = context.getAppId();
+        AppConfigs appConfigs = appConfigCache.get(appId, () -> new AppConfigs(getAppConfigs(appId, false)));
 
-        List<AppConfig> matches = CriteriaUtils.filterByCriteria(context, appConfigs,
+        List<AppConfig> matches = CriteriaUtils.filterByCriteria(context, appConfigs.configs,
                 comparingLong(AppConfig::getCreatedOn));
 
         // Should have matched one and only one app config.
@@ -145,8 +190,33 @@ public class AppConfigService {
             LOG.info("CriteriaContext matches more than one app config: criteriaContext=" + context + ", appConfigs="+matches);
         }
         AppConfig matched = matches.get(0);
-        resolveReferences(context.getAppId(), matched);
-        return matched;
+        AppConfig resolved = appConfigs.resolvedConfigs.computeIfAbsent(
+                matched.getGuid() + ":" + matched.getModifiedOn(), key -> {
+                    resolveReferences(appId, matched);
+                    return matched;
+                });
+        return copy(resolved);
+    }
+    
+    // A shallow copy. Callers only replace the properties of the config they are given.
+    private static AppConfig copy(AppConfig config) {
+        AppConfig copy = AppConfig.create();
+        copy.setAppId(config.getAppId());
+        copy.setLabel(config.getLabel());
+        copy.setGuid(config.getGuid());
+        copy.setCriteria(config.getCriteria());
+        copy.setCreatedOn(config.getCreatedOn());
+        copy.setModifiedOn(config.getModifiedOn());
+        copy.setClientData(config.getClientData());
+        copy.setSurveyReferences(config.getSurveyReferences());
+        copy.setSchemaReferences(config.getSchemaReferences());
+        copy.setConfigReferences(config.getConfigReferences());
+        copy.setFileReferences(config.getFileReferences());
+        copy.setAssessmentReferences(config.getAssessmentReferences());
+        copy.setConfigElements(config.getConfigElements());
+        copy.setVersion(config.getVersion());
+        copy.setDeleted(config.isDeleted());
+        return copy;
     }
     
     protected void resolveReferences(String appId, AppConfig config) {
@@ -269,6 +339,7 @@ public class AppConfigService {
         
         appConfigDao.createAppConfig(newAppConfig);
         newAppConfig.setVersion(newAppConfig.getVersion());
+        appConfigCache.invalidate(appId);
         return newAppConfig;
     }
     
@@ -291,7 +362,9 @@ public class AppConfigService {
         appConfig.setCreatedOn(persistedConfig.getCreatedOn());
         appConfig.setModifiedOn(getCurrentTimestamp());
 
-        return appConfigDao.updateAppConfig(appConfig);
+        AppConfig updated = appConfigDao.updateAppConfig(appConfig);
+        appConfigCache.invalidate(appId);
+        return updated;
     }
     
     public void deleteAppConfig(String appId, String guid) {
@@ -299,6 +372,7 @@ public class AppConfigService {
         checkArgument(isNotBlank(guid));
         
         appConfigDao.deleteAppConfig(appId, guid);
+        appConfigCache.invalidate(appId);
     }
     
     public void deleteAppConfigPermanently(String appId, String guid) {
@@ -306,5 +380,20 @@ public class AppConfigService {
         checkArgument(isNotBlank(guid));
         
         appConfigDao.deleteAppConfigPermanently(appId, guid);
+        appConfigCache.invalidate(appId);
+    }
+    
+    /**
+     * The app configs of one app, as loaded from the database, and the configs that have been resolved so far,
+     * keyed by GUID and modification time. Configs are resolved in place, once, the first time they are matched.
+     * The whole entry is replaced when any config in the app or anything the configs reference changes.
+     */
+    static final class AppConfigs {
+        private final List<AppConfig> configs;
+        private final ConcurrentMap<String, AppConfig> resolvedConfigs = new ConcurrentHashMap<>();
+        
+        AppConfigs(List<AppConfig> configs) {
+            this.configs = ImmutableList.copyOf(configs);
+        }
     }
 }
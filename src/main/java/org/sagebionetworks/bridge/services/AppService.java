@@ -20,6 +20,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
@@ -53,8 +54,10 @@ import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.SecureTokenGenerator;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.dao.AppDao;
@@ -110,6 +113,7 @@ public class AppService {
     private static final String APP_EMAIL_VERIFICATION_URL = "appEmailVerificationUrl";
     private static final String APP_EMAIL_VERIFICATION_EXPIRATION_PERIOD = "appEmailVerificationExpirationPeriod";
     private static final String IDENTIFIER_PROPERTY = "identifier";
+    static final String APP_CACHE_REGION = "app";
     public static final Set<ACCESS_TYPE> READ_DOWNLOAD_ACCESS = ImmutableSet.of(ACCESS_TYPE.READ, ACCESS_TYPE.DOWNLOAD);
 
     private Set<String> appWhitelist;
@@ -117,6 +121,9 @@ public class AppService {
     private String bridgeAdminTeamId;
     private String bridgeStaffTeamId;
     private String synapseTrackingViewId;
+    private BridgeConfig bridgeConfig;
+    /** In-process cache of apps, in front of the Redis cache and DynamoDB. */
+    private NearCache<App> appCache = NearCache.disabled();
     /** Compound activity definition service, used to clean up deleted apps. This is set by Spring. */
     @Autowired
     private CompoundActivityDefinitionService compoundActivityDefinitionService;
@@ -134,6 +141,8 @@ public class AppService {
     @Autowired
     private CacheProvider cacheProvider;
     @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+    @Autowired
     private HealthDataDocumentationService healthDataDocumentationService;
     @Autowired
     private ReportService reportService;
@@ -191,6 +200,7 @@ public class AppService {
     /** Bridge config. */
     @Autowired
     public final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
         this.bridgeSupportEmailPlain = bridgeConfig.get(CONFIG_KEY_SUPPORT_EMAIL_PLAIN);
         this.bridgeAdminTeamId = bridgeConfig.get(CONFIG_KEY_TEAM_BRIDGE_ADMIN);
         this.bridgeStaffTeamId = bridgeConfig.get(CONFIG_KEY_TEAM_BRIDGE_STAFF);
@@ -199,14 +209,23 @@ public class AppService {
         this.synapseTrackingViewId = bridgeConfig.get(CONFIG_KEY_SYNAPSE_TRACKING_VIEW);
     }
     
+    @PostConstruct
+    public void createAppCache() {
+        this.appCache = new NearCache<>(APP_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                app -> NearCache.copyOf(app, App.class));
+    }
+    
     public App getApp(String identifier, boolean includeDeleted) {
         checkArgument(isNotBlank(identifier));
 
-        App app = cacheProvider.getApp(identifier);
-        if (app == null) {
-            app = appDao.getApp(identifier);
-            cacheProvider.setApp(app);
-        }
+        App app = appCache.get(identifier, () -> {
+            App loaded = cacheProvider.getApp(identifier);
+            if (loaded == null) {
+                loaded = appDao.getApp(identifier);
+                cacheProvider.setApp(loaded);
+            }
+            return loaded;
+        });
         if (app != null) {
             // If it it exists and has been deactivated, and this call is not supposed to retrieve deactivated
             // apps, treat it as if it doesn't exist.
@@ -536,6 +555,7 @@ public class AppService {
         cacheProvider.removeApp(app.getIdentifier());
         App updatedApp = appDao.updateApp(app);
         cacheProvider.setApp(updatedApp);
+        appCache.invalidate(app.getIdentifier());
         return updatedApp;
     }
 
@@ -639,6 +659,7 @@ public class AppService {
         }
 
         cacheProvider.removeApp(identifier);
+        appCache.invalidate(identifier);
     }
     
     /**
@@ -49,6 +49,7 @@ import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.AssessmentDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
@@ -71,6 +72,8 @@ public class AssessmentService {
     
     private OrganizationService organizationService;
     
+    private CacheInvalidationBus cacheInvalidationBus;
+    
     @Autowired
     final void setAssessmentDao(AssessmentDao assessmentDao) {
         this.dao = assessmentDao;
@@ -86,6 +89,11 @@ public class AssessmentService {
         this.organizationService = organizationService;
     }
     
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
     // accessor to mock for tests
     String generateGuid() {
         return BridgeUtils.generateGuid();
@@ -329,7 +337,9 @@ public class AssessmentService {
         
         original.setOriginGuid(assessmentToPublish.getGuid());
         
-        return dao.publishAssessment(appId, original, assessmentToPublish, configToPublish);
+        Assessment published = dao.publishAssessment(appId, original, assessmentToPublish, configToPublish);
+        invalidateAppConfigs(appId);
+        return published;
     }
     
     /**
@@ -393,6 +403,7 @@ public class AssessmentService {
         if (opt.isPresent()) {
             Assessment assessment = opt.get();
             dao.deleteAssessment(appId, assessment);
+            invalidateAppConfigs(appId);
         }
     }
     
@@ -400,6 +411,14 @@ public class AssessmentService {
         checkArgument(isNotBlank(appId));
         
         dao.deleteAllAssessments(appId);
+        invalidateAppConfigs(appId);
+    }
+    
+    // App configs include the identifiers of the assessments they reference, and of the shared assessments 
+    // those were published to. Identifiers and origin GUIDs can't be updated, so only publishing or a physical
+    // delete can change what an app config resolves an assessment reference to.
+    private void invalidateAppConfigs(String appId) {
+        cacheInvalidationBus.invalidate(AppConfigService.APP_CONFIG_CACHE_REGION, appId);
     }
 
     private Assessment createAssessmentInternal(String appId, Assessment assessment) {
@@ -2,23 +2,44 @@ package org.sagebionetworks.bridge.services;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
+import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
+import static org.sagebionetworks.bridge.BridgeConstants.PAGE_SIZE_ERROR;
+import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_KEY;
+import static org.sagebionetworks.bridge.models.ResourceList.PAGE_SIZE;
 
 import java.util.Set;
 
 import javax.annotation.Resource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.springframework.stereotype.Component;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 @Component
 public class CacheAdminService {
     
+    static final String INVALID_TYPE_ERROR = "Cache key type cannot be listed: ";
+    static final String INVALID_OFFSET_KEY_ERROR = "Invalid offsetKey: ";
+    /** Number of keys Redis examines in each SCAN call. */
+    static final int SCAN_COUNT = 1000;
+    /**
+     * Maximum number of SCAN calls for one page. When public keys are sparse, a page can come back with fewer than
+     * pageSize items (even none) and a nextPageOffsetKey, rather than scanning the whole keyspace in one request.
+     */
+    static final int MAX_SCANS_PER_PAGE = 100;
+    
     private JedisPool jedisPool;
 
     @Resource(name = "jedisPool")
@@ -27,20 +48,52 @@ public class CacheAdminService {
     }
 
     /**
-     * Returns all keys in the cache that are not user session keys.
-     * @return
+     * Returns a page of the keys in the cache that are public (see {@link CacheKey#isPublic(String)}). Keys are
+     * found with SCAN, so Redis is never blocked for the whole keyspace. SCAN returns keys in batches, so a page 
+     * can hold more than pageSize keys, and keys can be repeated across pages (Redis does not guarantee 
+     * otherwise).
+     * 
+     * @param type
+     *      optional, only list keys of this type (the last segment of the key, e.g. "App")
+     * @param offsetKey
+     *      optional, the nextPageOffsetKey of the previous page
+     * @param pageSize
+     *      the number of keys to look for before returning the page
      */
-    public Set<String> listItems() {
+    public ForwardCursorPagedResourceList<String> listItems(String type, String offsetKey, int pageSize) {
+        if (pageSize < API_MINIMUM_PAGE_SIZE || pageSize > API_MAXIMUM_PAGE_SIZE) {
+            throw new BadRequestException(PAGE_SIZE_ERROR);
+        }
+        if (type != null && !CacheKey.isPublicType(type)) {
+            throw new BadRequestException(INVALID_TYPE_ERROR + type);
+        }
+        if (offsetKey != null && !StringUtils.isNumeric(offsetKey)) {
+            throw new BadRequestException(INVALID_OFFSET_KEY_ERROR + offsetKey);
+        }
+        ScanParams params = new ScanParams().count(SCAN_COUNT);
+        if (type != null) {
+            params.match(CacheKey.typePattern(type));
+        }
+        String cursor = (offsetKey == null) ? ScanParams.SCAN_POINTER_START : offsetKey;
+        Set<String> keys = Sets.newLinkedHashSet();
         try (Jedis jedis = jedisPool.getResource()) {
-            Set<String> allKeys = jedis.keys("*");
-            Set<String> set = Sets.newHashSet();
-            for (String key : allKeys) {
-                if (CacheKey.isPublic(key)) {
-                    set.add(key);
+            int scans = 0;
+            do {
+                ScanResult<String> result = jedis.scan(cursor, params);
+                for (String key : result.getResult()) {
+                    if (CacheKey.isPublic(key)) {
+                        keys.add(key);
+                    }
                 }
-            }
-            return set;
+                cursor = result.getStringCursor();
+                scans++;
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor) && keys.size() < pageSize
+                    && scans < MAX_SCANS_PER_PAGE);
         }
+        String nextPageOffsetKey = ScanParams.SCAN_POINTER_START.equals(cursor) ? null : cursor;
+        return new ForwardCursorPagedResourceList<>(ImmutableList.copyOf(keys), nextPageOffsetKey, true)
+                .withRequestParam(OFFSET_KEY, offsetKey)
+                .withRequestParam(PAGE_SIZE, pageSize);
     }
 
     /**
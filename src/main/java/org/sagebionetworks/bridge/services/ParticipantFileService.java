@@ -8,6 +8,8 @@ import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.apache.http.HttpStatus;
 import org.joda.time.DateTime;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ParticipantFileDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -15,7 +17,6 @@ import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.LimitExceededException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.files.ParticipantFile;
-import org.sagebionetworks.bridge.util.ByteRateLimiter;
 import org.sagebionetworks.bridge.validators.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -24,8 +25,6 @@ import javax.annotation.Resource;
 
 import java.net.URL;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.amazonaws.HttpMethod.GET;
 import static com.amazonaws.HttpMethod.PUT;
@@ -45,6 +44,8 @@ public class ParticipantFileService {
 
     static final String PARTICIPANT_FILE_BUCKET = "participant-file.bucket";
 
+    static final String PARTICIPANT_FILE_RATE_LIMIT = "participant-file";
+
     private ParticipantFileDao participantFileDao;
 
     private AmazonS3 s3Client;
@@ -53,7 +54,7 @@ public class ParticipantFileService {
 
     private BridgeConfig config;
 
-    private Map<String, ByteRateLimiter> userByteRateLimiters = new ConcurrentHashMap<>();
+    private TokenBucketRateLimiter rateLimiter;
 
     @Autowired
     final void setParticipantFileDao(ParticipantFileDao dao) {
@@ -66,19 +67,24 @@ public class ParticipantFileService {
         this.config = config;
     }
 
+    @Autowired
+    final void setRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
     @Resource(name = "s3Client")
     final void setS3client(AmazonS3 s3) {
         this.s3Client = s3;
     }
 
     /**
-     * Creates and returns a ByteRateLimiter with different settings depending on
-     * the environment.
+     * Creates and returns a RateLimit with different settings depending on
+     * the environment. Tokens are bytes downloaded.
      * 
-     * @return a ByteRateLimiter
+     * @return a RateLimit
      */
-    private ByteRateLimiter createByteRateLimiter() {
-        return new ByteRateLimiter(config.getInt("participant-file.rate-limiter.initial-bytes"),
+    private RateLimit createByteRateLimit() {
+        return new RateLimit(PARTICIPANT_FILE_RATE_LIMIT, config.getInt("participant-file.rate-limiter.initial-bytes"),
                 config.getInt("participant-file.rate-limiter.maximum-bytes"),
                 config.getInt("participant-file.rate-limiter.refill-interval-seconds"),
                 config.getInt("participant-file.rate-limiter.refill-bytes"));
@@ -138,8 +144,7 @@ public class ParticipantFileService {
         for (ParticipantFile file : files.getItems()) {
             totalFileSizesBytes += getS3FileSize(file);
         }
-        ByteRateLimiter rateLimiter = userByteRateLimiters.computeIfAbsent(userId, (u) -> createByteRateLimiter());
-        if (!rateLimiter.tryConsumeBytes(totalFileSizesBytes)) {
+        if (!rateLimiter.tryConsume(createByteRateLimit(), userId, totalFileSizesBytes)) {
             throw new LimitExceededException(PARTICIPANT_FILE_RATE_LIMIT_ERROR);
         }
 
@@ -168,8 +173,7 @@ public class ParticipantFileService {
                 .orElseThrow(() -> new EntityNotFoundException(ParticipantFile.class));
 
         long fileSizeBytes = getS3FileSize(file);
-        ByteRateLimiter rateLimiter = userByteRateLimiters.computeIfAbsent(userId, (u) -> createByteRateLimiter());
-        if (!rateLimiter.tryConsumeBytes(fileSizeBytes)) {
+        if (!rateLimiter.tryConsume(createByteRateLimit(), userId, fileSizeBytes)) {
             throw new LimitExceededException(PARTICIPANT_FILE_RATE_LIMIT_ERROR);
         }
 
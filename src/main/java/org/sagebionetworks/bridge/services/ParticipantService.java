@@ -33,7 +33,6 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.SendMessageResult;
@@ -47,10 +46,11 @@ import com.google.common.collect.Sets;
 
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.ParticipantRosterRequest;
-import org.sagebionetworks.bridge.util.ByteRateLimiter;
 import org.sagebionetworks.bridge.validators.ParticipantRosterRequestValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +73,7 @@ import org.sagebionetworks.bridge.models.CriteriaContext;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.OperatingSystem;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -125,6 +126,7 @@ public class ParticipantService {
     static final String CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_REFILL_COUNT =
             "create-participant.rate-limiter.refill-count";
 
+    static final String CREATE_PARTICIPANT_RATE_LIMIT = "create-participant";
     private static final String CREATE_PARTICIPANT_RATE_LIMIT_ERROR =
             "You cannot create more than 3 accounts per 5 minutes";
     private static final Set<String> CREATE_PARTICIPANT_RATE_LIMIT_EXEMPT_APP_IDS = ImmutableSet.of(
@@ -174,9 +176,8 @@ public class ParticipantService {
     private TemplateService templateService;
     @Autowired
     private SendMailService sendMailService;
-
-    // These are byte rate limiters, but we can use them as count limiters. Key is the user ID of the caller.
-    private final Map<String, ByteRateLimiter> createParticipantRateLimiters = new ConcurrentHashMap<>();
+    @Autowired
+    private TokenBucketRateLimiter rateLimiter;
 
     // Accessor so we can mock the value
     protected DateTime getInstallDateTime() {
@@ -360,13 +361,32 @@ public class ParticipantService {
     public PagedResourceList<AccountSummary> getPagedAccountSummaries(App app, AccountSummarySearch search) {
         checkNotNull(app);
         
+        search = validateAccountSummarySearch(app, search);
+        return accountService.getPagedAccountSummaries(app.getIdentifier(), search);
+    }
+    
+    /**
+     * Search for account summaries. A search with an offset key returns a page that starts after the account 
+     * with that ID, and is not counted; otherwise the search is paged with offsetBy, and counted.
+     */
+    public ResourceList<AccountSummary> searchAccountSummaries(App app, AccountSummarySearch search) {
+        checkNotNull(app);
+        
+        search = validateAccountSummarySearch(app, search);
+        if (search.getOffsetKey() != null) {
+            return accountService.getAccountSummariesByOffsetKey(app.getIdentifier(), search);
+        }
+        return accountService.getPagedAccountSummaries(app.getIdentifier(), search);
+    }
+    
+    private AccountSummarySearch validateAccountSummarySearch(App app, AccountSummarySearch search) {
         Validate.entityThrowingException(new AccountSummarySearchValidator(app.getDataGroups()), search);
         
         if (CANNOT_ACCESS_PARTICIPANTS.check()) {
             Set<String> newDataGroups = addToSet(search.getAllOfGroups(), TEST_USER_GROUP);
             search = search.toBuilder().withAllOfGroups(newDataGroups).build();
         }
-        return accountService.getPagedAccountSummaries(app.getIdentifier(), search);
+        return search;
     }
 
     /**
@@ -403,9 +423,7 @@ public class ParticipantService {
         RequestContext requestContext = RequestContext.get();
         String userId = requestContext.getCallerUserId();
         if (!CREATE_PARTICIPANT_RATE_LIMIT_EXEMPT_APP_IDS.contains(app.getIdentifier()) && userId != null) {
-            ByteRateLimiter rateLimiter = createParticipantRateLimiters.computeIfAbsent(userId,
-                    (u) -> createParticipantRateLimiter());
-            if (!rateLimiter.tryConsumeBytes(1)) {
+            if (!rateLimiter.tryConsume(createParticipantRateLimit(), userId, 1)) {
                 throw new LimitExceededException(CREATE_PARTICIPANT_RATE_LIMIT_ERROR);
             }
         }
@@ -489,9 +507,11 @@ public class ParticipantService {
         return new IdentifierHolder(account.getId());
     }
 
-    // Creates and returns a RateLimiter with different settings depending on the environment.
-    private ByteRateLimiter createParticipantRateLimiter() {
-        return new ByteRateLimiter(bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_INITIAL_COUNT),
+    // Creates and returns a RateLimit with different settings depending on the environment. Tokens are accounts
+    // created, and each caller has their own bucket.
+    private RateLimit createParticipantRateLimit() {
+        return new RateLimit(CREATE_PARTICIPANT_RATE_LIMIT, 
+                bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_INITIAL_COUNT),
                 bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_MAXIMUM_COUNT),
                 bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_REFILL_INTERVAL),
                 bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_REFILL_COUNT));
@@ -3,19 +3,60 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
 import org.sagebionetworks.bridge.models.RequestInfo;
 
+/**
+ * Request info records when a user was last seen, and with what client. It is updated on many requests, so updates
+ * are written behind: they are merged in memory, one entry per user with the latest value of each field winning,
+ * and written to the database in batches on a short interval. Reads through this service include updates that
+ * have not been written yet.
+ *
+ * If the server stops abruptly, the updates made since the last flush (at most one flush interval of them) are
+ * lost. A normal shutdown flushes them. Memory is bounded by the number of users seen in one interval. A flush
+ * interval of zero writes each update on the request thread. An update that cannot be written after a few flushes
+ * (for example, because its account has been deleted) is dropped.
+ */
 @Component
 public class RequestInfoService {
-    
+    private static final Logger LOG = LoggerFactory.getLogger(RequestInfoService.class);
+
+    static final String CONFIG_KEY_FLUSH_INTERVAL_MILLIS = "request.info.flush.interval.millis";
+    static final int FLUSH_BATCH_SIZE = 100;
+    static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final ConcurrentMap<String, RequestInfo> pendingUpdates = new ConcurrentHashMap<>();
+    // Serializes writes, so that a flush in progress can't write a record back after it has been removed.
+    private final Object writeLock = new Object();
+    // Failed writes for each user since their last successful write. Guarded by writeLock.
+    private final Map<String, Integer> failedWrites = new HashMap<>();
     private CacheProvider cacheProvider;
     private RequestInfoDao requestInfoDao;
-    
+    private int flushIntervalMillis;
+    private ScheduledExecutorService flusher;
+
     @Autowired
     final void setCacheProvider(CacheProvider cacheProvider) {
         this.cacheProvider = cacheProvider;
@@ -24,16 +65,50 @@ public class RequestInfoService {
     final void setRequestInfoDao(RequestInfoDao requestInfoDao) {
         this.requestInfoDao = requestInfoDao;
     }
-    
+    /** Config, for the flush interval. */
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.flushIntervalMillis = bridgeConfig.getPropertyAsInt(CONFIG_KEY_FLUSH_INTERVAL_MILLIS);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (flushIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("request-info-flush").setDaemon(true).build());
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Don't lose the updates made since the last flush.
+        flush();
+    }
+
     public void updateRequestInfo(RequestInfo requestInfo) {
         checkNotNull(requestInfo);
-        
-        requestInfoDao.updateRequestInfo(requestInfo);
+
+        if (flushIntervalMillis <= 0 || requestInfo.getUserId() == null) {
+            requestInfoDao.updateRequestInfo(requestInfo);
+            return;
+        }
+        pendingUpdates.merge(requestInfo.getUserId(), requestInfo, RequestInfoService::merge);
     }
-    
+
     public RequestInfo getRequestInfo(String userId) {
         isNotBlank(userId);
-        
+
+        RequestInfo pending = pendingUpdates.get(userId);
         RequestInfo requestInfo = requestInfoDao.getRequestInfo(userId);
         if (requestInfo == null) {
             requestInfo = cacheProvider.getRequestInfo(userId);
@@ -41,13 +116,75 @@ public class RequestInfoService {
                 requestInfoDao.updateRequestInfo(requestInfo);
             }
         }
+        if (pending != null) {
+            return (requestInfo == null) ? pending : merge(requestInfo, pending);
+        }
         return requestInfo;
     }
-    
+
     public void removeRequestInfo(String userId) {
         isNotBlank(userId);
-        
-        requestInfoDao.removeRequestInfo(userId);
+
+        synchronized (writeLock) {
+            pendingUpdates.remove(userId);
+            failedWrites.remove(userId);
+            requestInfoDao.removeRequestInfo(userId);
+        }
         cacheProvider.removeRequestInfo(userId);
     }
+
+    /**
+     * Write all pending updates to the database. Updates made while this runs are written by the next flush. If a
+     * batch fails, its updates are written one at a time, so one bad update can't fail the others. An update that
+     * fails on its own is put back, under any update made since, to be retried by the next flush, until it has
+     * failed MAX_WRITE_ATTEMPTS times.
+     */
+    // Package-scoped so unit tests can call this directly.
+    void flush() {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            List<RequestInfo> updates = new ArrayList<>();
+            for (String userId : pendingUpdates.keySet()) {
+                RequestInfo update = pendingUpdates.remove(userId);
+                if (update != null) {
+                    updates.add(update);
+                }
+            }
+            for (List<RequestInfo> batch : Lists.partition(updates, FLUSH_BATCH_SIZE)) {
+                try {
+                    requestInfoDao.updateRequestInfos(batch);
+                    batch.forEach(update -> failedWrites.remove(update.getUserId()));
+                } catch (RuntimeException ex) {
+                    // An exception would cancel the scheduled flush, so log it and carry on.
+                    LOG.warn("Error writing " + batch.size() + " request infos, writing them one at a time: "
+                            + ex.getMessage(), ex);
+                    batch.forEach(this::writeOne);
+                }
+            }
+        }
+    }
+    
+    private void writeOne(RequestInfo update) {
+        String userId = update.getUserId();
+        try {
+            requestInfoDao.updateRequestInfo(update);
+            failedWrites.remove(userId);
+        } catch (RuntimeException ex) {
+            int failures = failedWrites.merge(userId, 1, Integer::sum);
+            if (failures >= MAX_WRITE_ATTEMPTS) {
+                failedWrites.remove(userId);
+                LOG.error("Error writing request info for user " + userId + ", dropping it after " + failures
+                        + " attempts: " + ex.getMessage(), ex);
+            } else {
+                pendingUpdates.merge(userId, update, (newer, failed) -> merge(failed, newer));
+            }
+        }
+    }
+
+    // Fields set in the later request info replace those in the earlier one.
+    private static RequestInfo merge(RequestInfo earlier, RequestInfo later) {
+        return new RequestInfo.Builder().copyOf(earlier).copyOf(later).build();
+    }
 }
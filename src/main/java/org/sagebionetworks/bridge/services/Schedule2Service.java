@@ -22,18 +22,26 @@ import static org.sagebionetworks.bridge.validators.Schedule2Validator.INSTANCE;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.Schedule2Dao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -67,6 +75,9 @@ import org.slf4j.LoggerFactory;
 public class Schedule2Service {
     private static final Logger LOG = LoggerFactory.getLogger(Schedule2Service.class);
 
+    static final String TIMELINE_CACHE_MAX_SIZE_PROPERTY = "schedule.timeline.cache.max.size";
+    static final String TIMELINE_CACHE_TTL_SECONDS_PROPERTY = "schedule.timeline.cache.ttl.seconds";
+
     @Autowired
     private OrganizationService organizationService;
     @Autowired
@@ -75,6 +86,24 @@ public class Schedule2Service {
     private StudyActivityEventService studyActivityEventService;
     @Autowired
     private Schedule2Dao dao;
+    @Autowired
+    private BridgeConfig bridgeConfig;
+    
+    /**
+     * Timelines and timeline metadata computed for a schedule, keyed by schedule GUID. Each entry is only
+     * used for the version of the schedule it was computed from (see {@link CachedTimelines}), so other
+     * servers updating the schedule never cause a stale timeline to be returned. Null until the cache is
+     * created, which disables caching.
+     */
+    private Cache<String, CachedTimelines> timelineCache;
+    
+    @PostConstruct
+    void createTimelineCache() {
+        int maxSize = bridgeConfig.getPropertyAsInt(TIMELINE_CACHE_MAX_SIZE_PROPERTY);
+        int ttlSeconds = bridgeConfig.getPropertyAsInt(TIMELINE_CACHE_TTL_SECONDS_PROPERTY);
+        timelineCache = (maxSize > 0) ? CacheBuilder.newBuilder().maximumSize(maxSize)
+                .expireAfterAccess(ttlSeconds, TimeUnit.SECONDS).build() : null;
+    }
     
     DateTime getCreatedOn() {
         return DateTime.now();
@@ -193,6 +222,7 @@ public class Schedule2Service {
             // we're talking about the same object.
             schedule.setGuid(study.getScheduleGuid());
             schedule = updateSchedule(study, existing, schedule);
+            invalidateTimelineCache(schedule.getGuid());
             
             studyService.updateStudyEtags(study.getAppId(), schedule.getGuid(), schedule.getModifiedOn());
 
@@ -299,7 +329,9 @@ public class Schedule2Service {
         
         studyService.updateStudyEtags(appId, guid, existing.getModifiedOn());
         
-        return dao.updateSchedule(existing);
+        Schedule2 updated = dao.updateSchedule(existing);
+        invalidateTimelineCache(guid);
+        return updated;
     }
     
     /**
@@ -320,6 +352,7 @@ public class Schedule2Service {
         studyService.removeStudyEtags(appId, guid);
         
         dao.deleteSchedule(existing);
+        invalidateTimelineCache(guid);
     }
     
     /**
@@ -339,14 +372,32 @@ public class Schedule2Service {
         studyService.removeStudyEtags(appId, guid);
         
         dao.deleteSchedulePermanently(existing);
+        invalidateTimelineCache(guid);
     }
     
     public Timeline getTimelineForSchedule(String appId, String guid) {
         Schedule2 schedule = dao.getSchedule(appId, guid)
                 .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
         
-        // This is calculated so quickly it is not worth caching
-        return Scheduler.INSTANCE.calculateTimeline(schedule);
+        return getTimeline(schedule);
+    }
+    
+    /**
+     * Get the timeline for this schedule. Large schedules with many study bursts are expensive to 
+     * calculate and the same schedule is used for every participant in a study, so timelines are 
+     * cached for each version of a schedule and the caller’s languages (which determine the language
+     * of the timeline’s labels). The timeline is shared and must not be modified.
+     */
+    public Timeline getTimeline(Schedule2 schedule) {
+        checkNotNull(schedule);
+        
+        CachedTimelines cached = getCachedTimelines(schedule);
+        if (cached == null) {
+            return Scheduler.INSTANCE.calculateTimeline(schedule);
+        }
+        String langKey = String.join(",", RequestContext.get().getCallerLanguages());
+        return cached.timelines.computeIfAbsent(langKey, 
+                (key) -> Scheduler.INSTANCE.calculateTimeline(schedule));
     }
     
     public List<TimelineMetadata> getScheduleMetadata(String guid) {
@@ -355,6 +406,46 @@ public class Schedule2Service {
         return dao.getScheduleMetadata(guid);
     }
     
+    /**
+     * Get the persisted timeline metadata for this schedule. This is the same for every participant
+     * in a study, so it is cached for each version of the schedule rather than being reloaded for 
+     * each participant’s adherence report. The list is shared and must not be modified.
+     */
+    public List<TimelineMetadata> getScheduleMetadata(Schedule2 schedule) {
+        checkNotNull(schedule);
+        
+        CachedTimelines cached = getCachedTimelines(schedule);
+        if (cached == null) {
+            return dao.getScheduleMetadata(schedule.getGuid());
+        }
+        List<TimelineMetadata> metadata = cached.metadata;
+        if (metadata == null) {
+            // Concurrent misses may both load the metadata; they load the same rows.
+            metadata = ImmutableList.copyOf(dao.getScheduleMetadata(schedule.getGuid()));
+            cached.metadata = metadata;
+        }
+        return metadata;
+    }
+    
+    /**
+     * Returns the cache entry for this version of the schedule, replacing an entry computed from 
+     * another version. Returns null if caching is disabled or the schedule has not been persisted.
+     */
+    private CachedTimelines getCachedTimelines(Schedule2 schedule) {
+        if (timelineCache == null || schedule.getGuid() == null || schedule.getModifiedOn() == null) {
+            return null;
+        }
+        long modifiedOn = schedule.getModifiedOn().getMillis();
+        return timelineCache.asMap().compute(schedule.getGuid(), (guid, existing) -> 
+            (existing != null && existing.modifiedOn == modifiedOn) ? existing : new CachedTimelines(modifiedOn));
+    }
+    
+    private void invalidateTimelineCache(String guid) {
+        if (timelineCache != null && guid != null) {
+            timelineCache.invalidate(guid);
+        }
+    }
+    
     public Optional<TimelineMetadata> getTimelineMetadata(String instanceGuid) {
         checkNotNull(instanceGuid);
         return dao.getTimelineMetadata(instanceGuid);
@@ -407,7 +498,7 @@ public class Schedule2Service {
                 .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
 
         List<StudyActivityEvent> events = studyActivityEventService.getRecentStudyActivityEvents(
-                account.getAppId(), studyId, account.getId()).getItems();
+                account.getAppId(), studyId, account).getItems();
         
         String zoneId = studyService.getZoneId(appId, studyId, account.getClientTimeZone());
 
@@ -417,7 +508,7 @@ public class Schedule2Service {
         builder.withClientTimeZone(zoneId);
         AdherenceState state = builder.build();
 
-        Timeline timeline = Scheduler.INSTANCE.calculateTimeline(schedule);
+        Timeline timeline = getTimeline(schedule);
         ParticipantSchedule participantSchedule = ParticipantScheduleGenerator.INSTANCE.generate(state, timeline);
         
         watch.stop();
@@ -425,4 +516,14 @@ public class Schedule2Service {
         return participantSchedule;
     }
 
+    /** The timelines (by caller languages) and metadata calculated from one version of a schedule. */
+    private static final class CachedTimelines {
+        private final long modifiedOn;
+        private final ConcurrentMap<String, Timeline> timelines = new ConcurrentHashMap<>();
+        private volatile List<TimelineMetadata> metadata;
+        
+        private CachedTimelines(long modifiedOn) {
+            this.modifiedOn = modifiedOn;
+        }
+    }
 }
@@ -3,10 +3,16 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
+
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.SchedulePlanDao;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
@@ -20,6 +26,7 @@ import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.validators.SchedulePlanValidator;
 import org.sagebionetworks.bridge.validators.Validate;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,10 +35,20 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class SchedulePlanService {
+    /**
+     * Near-cache region of each app's schedule plans (not including deleted plans), keyed by app ID. These are 
+     * read every time a participant's v3/v4 activities are scheduled. Every change to a plan invalidates the app's 
+     * key in this region.
+     */
+    static final String SCHEDULE_PLAN_CACHE_REGION = "scheduleplan";
     
     private SchedulePlanDao schedulePlanDao;
     private SurveyService surveyService;
     private StudyService studyService;
+    private BridgeConfig bridgeConfig;
+    private CacheInvalidationBus cacheInvalidationBus;
+    
+    private NearCache<List<SchedulePlan>> schedulePlanCache = NearCache.disabled();
 
     @Autowired
     public final void setSchedulePlanDao(SchedulePlanDao schedulePlanDao) {
@@ -45,10 +62,31 @@ public class SchedulePlanService {
     public final void setStudyService(StudyService studyService) {
         this.studyService = studyService;
     }
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+    }
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    
+    @PostConstruct
+    public void createSchedulePlanCache() {
+        // The plans are shared, not copied. Callers that don't include deleted plans only read them, to schedule 
+        // activities or to return them. Plans are updated through copies that are submitted by the caller.
+        this.schedulePlanCache = new NearCache<>(SCHEDULE_PLAN_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                plans -> new ArrayList<>(plans));
+    }
 
     public List<SchedulePlan> getSchedulePlans(ClientInfo clientInfo, String appId,
             boolean includeDeleted) {
-        return schedulePlanDao.getSchedulePlans(clientInfo, appId, includeDeleted);
+        if (includeDeleted) {
+            return schedulePlanDao.getSchedulePlans(clientInfo, appId, true);
+        }
+        // Client info is not used to select plans, so one list of plans serves every client.
+        return schedulePlanCache.get(appId,
+                () -> ImmutableList.copyOf(schedulePlanDao.getSchedulePlans(clientInfo, appId, false)));
     }
 
     public SchedulePlan getSchedulePlan(String appId, String guid) {
@@ -83,7 +121,9 @@ public class SchedulePlanService {
                 new SchedulePlanValidator(app.getDataGroups(), studyIds, app.getTaskIdentifiers()), plan);
 
         lookupSurveyReferenceIdentifiers(app.getIdentifier(), plan);
-        return schedulePlanDao.createSchedulePlan(app.getIdentifier(), plan);
+        SchedulePlan created = schedulePlanDao.createSchedulePlan(app.getIdentifier(), plan);
+        schedulePlanCache.invalidate(app.getIdentifier());
+        return created;
     }
     
     public SchedulePlan updateSchedulePlan(App app, SchedulePlan plan) {
@@ -117,7 +157,9 @@ public class SchedulePlanService {
                 new SchedulePlanValidator(app.getDataGroups(), studyIds, app.getTaskIdentifiers()), plan);
         
         lookupSurveyReferenceIdentifiers(plan.getAppId(), plan);
-        return schedulePlanDao.updateSchedulePlan(plan.getAppId(), plan);
+        SchedulePlan updated = schedulePlanDao.updateSchedulePlan(plan.getAppId(), plan);
+        schedulePlanCache.invalidate(plan.getAppId());
+        return updated;
     }
 
     public void deleteSchedulePlan(String appId, String guid) {
@@ -125,6 +167,7 @@ public class SchedulePlanService {
         checkNotNull(isNotBlank(guid));
         
         schedulePlanDao.deleteSchedulePlan(appId, guid);
+        schedulePlanCache.invalidate(appId);
     }
     
     public void deleteSchedulePlanPermanently(String appId, String guid) {
@@ -132,6 +175,7 @@ public class SchedulePlanService {
         checkNotNull(isNotBlank(guid));
         
         schedulePlanDao.deleteSchedulePlanPermanently(appId, guid);
+        schedulePlanCache.invalidate(appId);
     }
     
     /**
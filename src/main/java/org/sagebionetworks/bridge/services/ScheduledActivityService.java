@@ -7,6 +7,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.CLIENT_DATA_MAX_BYTES;
+import static org.sagebionetworks.bridge.BridgeUtils.getFutureResult;
 import static org.sagebionetworks.bridge.models.schedules.ScheduledActivityStatus.UPDATABLE_STATUSES;
 import static org.sagebionetworks.bridge.util.BridgeCollectors.toImmutableList;
 import static org.sagebionetworks.bridge.validators.ScheduleContextValidator.MAX_DATE_RANGE_IN_DAYS;
@@ -19,13 +20,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javax.annotation.Resource;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -87,6 +93,9 @@ public class ScheduledActivityService {
     
     private AppConfigService appConfigService;
     
+    // Runs on the calling thread until the pool is injected.
+    private ExecutorService activityQueryExecutorService = MoreExecutors.newDirectExecutorService();
+    
     @Autowired
     final void setScheduledActivityDao(ScheduledActivityDao activityDao) {
         this.activityDao = activityDao;
@@ -125,6 +134,12 @@ public class ScheduledActivityService {
     final void setAppConfigService(AppConfigService appConfigService) {
         this.appConfigService = appConfigService;
     }
+    
+    /** Pool used to run the activity history queries of a v4 request concurrently. */
+    @Resource(name = "activityQueryExecutorService")
+    final void setActivityQueryExecutorService(ExecutorService activityQueryExecutorService) {
+        this.activityQueryExecutorService = activityQueryExecutorService;
+    }
 
     public ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistory(String healthCode,
             String activityGuid, DateTime scheduledOnStart, DateTime scheduledOnEnd, String offsetKey,
@@ -256,13 +271,38 @@ public class ScheduledActivityService {
                 // activity guid concatenated with scheduled time. So when the scheduler regenerates the scheduled
                 // activity, it always has the same guid.
                 scheduledActivities.set(i, dbActivity);
-            } else if (activity.getStatus() != ScheduledActivityStatus.EXPIRED) {
+            } else if (activity.getStatus() != ScheduledActivityStatus.EXPIRED
+                    && (dbActivity == null || !isUnchanged(activity, dbActivity))) {
+                // Apps request activities whenever they come to the foreground, and most of the time the 
+                // regenerated activity is the one that was saved. Don't write it again.
                 saves.add(activity);
             }
         }
         return saves;
     }
     
+    /**
+     * Is the newly generated activity the same as the persisted activity, in all the fields that are persisted? 
+     * The GUIDs (and so the scheduled times) of the two activities are already known to match.
+     */
+    static boolean isUnchanged(ScheduledActivity activity, ScheduledActivity dbActivity) {
+        return Objects.equals(activity.getActivity(), dbActivity.getActivity())
+                && Objects.equals(activity.getSchedulePlanGuid(), dbActivity.getSchedulePlanGuid())
+                && Objects.equals(activity.getReferentGuid(), dbActivity.getReferentGuid())
+                && activity.getPersistent() == dbActivity.getPersistent()
+                && Objects.equals(activity.getStartedOn(), dbActivity.getStartedOn())
+                && Objects.equals(activity.getFinishedOn(), dbActivity.getFinishedOn())
+                && Objects.equals(activity.getClientData(), dbActivity.getClientData())
+                && isSameInstant(activity.getExpiresOn(), dbActivity.getExpiresOn());
+    }
+    
+    private static boolean isSameInstant(DateTime dateTime1, DateTime dateTime2) {
+        if (dateTime1 == null || dateTime2 == null) {
+            return dateTime1 == dateTime2;
+        }
+        return dateTime1.isEqual(dateTime2);
+    }
+    
     private Map<String, ScheduledActivity> retrieveAllPersistedActivitiesIntoMap(ScheduleContext context,
             List<ScheduledActivity> scheduledActivities) {
         
@@ -270,14 +310,19 @@ public class ScheduledActivityService {
             return activity.getGuid().split(":")[0];
         }).collect(Collectors.toSet());
         
+        String healthCode = context.getCriteriaContext().getHealthCode();
         Map<String,ScheduledActivity> dbMap = Maps.newHashMap();
         // IA-545: If a schedule has an identical activity but a new GUID (say if we change the schedule on the user), the user can 
         // lose existing activities. So during the time window the user is looking at, we will return any activities that exist.
+        // The range key starts with the activity GUID, so there is one query per activity GUID. These are independent, so 
+        // they are run concurrently rather than one after another.
+        List<Future<ForwardCursorPagedResourceList<ScheduledActivity>>> futures = new ArrayList<>();
         for (String activityGuid : activityGuids) {
-            ForwardCursorPagedResourceList<ScheduledActivity> list = activityDao.getActivityHistoryV2(
-                    context.getCriteriaContext().getHealthCode(), activityGuid,
-                    context.getStartsOn(), context.getEndsOn(), null,
-                    API_MAXIMUM_PAGE_SIZE);
+            futures.add(activityQueryExecutorService.submit(() -> activityDao.getActivityHistoryV2(healthCode,
+                    activityGuid, context.getStartsOn(), context.getEndsOn(), null, API_MAXIMUM_PAGE_SIZE)));
+        }
+        for (Future<ForwardCursorPagedResourceList<ScheduledActivity>> future : futures) {
+            ForwardCursorPagedResourceList<ScheduledActivity> list = getFutureResult(future);
             if (list != null) {
                 for(ScheduledActivity activity : list.getItems()) {
                     dbMap.put(activity.getGuid(), activity);
@@ -285,20 +330,20 @@ public class ScheduledActivityService {
             }
         }
         // IA-587: When a one-time task falls outside the schedule window, it's not returned by the 
-        // query above, so it is recreated, and it loses its finished state. Load all remaining scheduled activities.
-        String healthCode = context.getCriteriaContext().getHealthCode();
-        for (ScheduledActivity activity : scheduledActivities) {
-            if (!dbMap.containsKey(activity.getGuid())) {
-                ScheduledActivity dbActivity = activityDao.getActivity(context.getStartsOn().getZone(), healthCode,
-                        activity.getGuid(), false);
-                if (dbActivity != null) {
-                    dbMap.put(dbActivity.getGuid(), dbActivity);    
-                }
+        // query above, so it is recreated, and it loses its finished state. Load all remaining scheduled activities,
+        // in one batch load.
+        List<ScheduledActivity> remainingActivities = scheduledActivities.stream()
+                .filter(activity -> !dbMap.containsKey(activity.getGuid()))
+                .collect(Collectors.toList());
+        if (!remainingActivities.isEmpty()) {
+            for (ScheduledActivity dbActivity : activityDao.getActivities(context.getStartsOn().getZone(),
+                    remainingActivities)) {
+                dbMap.put(dbActivity.getGuid(), dbActivity);
             }
         }
         return dbMap;
     }
-
+    
     public void updateScheduledActivities(String healthCode, List<ScheduledActivity> scheduledActivities) {
         checkArgument(isNotBlank(healthCode));
         checkNotNull(scheduledActivities);
@@ -1,6 +1,8 @@
 package org.sagebionetworks.bridge.services;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sagebionetworks.bridge.AuthEvaluatorField.USER_ID;
+import static org.sagebionetworks.bridge.AuthUtils.IS_SELF;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.NEGATIVE_OFFSET_ERROR;
@@ -8,6 +10,8 @@ import static org.sagebionetworks.bridge.BridgeConstants.PAGE_SIZE_ERROR;
 import static org.sagebionetworks.bridge.BridgeUtils.COMMA_SPACE_JOINER;
 import static org.sagebionetworks.bridge.BridgeUtils.formatActivityEventId;
 import static org.sagebionetworks.bridge.BridgeUtils.getElement;
+import static org.sagebionetworks.bridge.BridgeUtils.getFutureResult;
+import static org.sagebionetworks.bridge.BridgeUtils.withRequestContext;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.CREATED_ON;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.ENROLLMENT;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.INSTALL_LINK_SENT;
@@ -17,17 +21,28 @@ import static org.sagebionetworks.bridge.validators.StudyActivityEventValidator.
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import javax.annotation.Resource;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.StudyActivityEventDao;
@@ -81,7 +96,9 @@ public class StudyActivityEventService {
     private ActivityEventService activityEventService;
     private Schedule2Service scheduleService;
     private CacheProvider cacheProvider;
+    private CacheInvalidationBus cacheInvalidationBus;
     private AlertService alertService;
+    private ExecutorService activityQueryExecutorService = MoreExecutors.newDirectExecutorService();
     
     @Autowired
     final void setStudyActivityEventDao(StudyActivityEventDao dao) {
@@ -108,9 +125,18 @@ public class StudyActivityEventService {
         this.cacheProvider = cacheProvider;
     }
     @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+    @Autowired
     final void setAlertService(AlertService alertService) {
         this.alertService = alertService;
     }
+    /** Runs the query for a participant's global events alongside the query for their study events. */
+    @Resource(name = "activityQueryExecutorService")
+    final void setActivityQueryExecutorService(ExecutorService activityQueryExecutorService) {
+        this.activityQueryExecutorService = activityQueryExecutorService;
+    }
     
     DateTime getCreatedOn() { 
         return DateTime.now();
@@ -144,6 +170,7 @@ public class StudyActivityEventService {
             }
             CacheKey cacheKey = CacheKey.etag(StudyActivityEvent.class, event.getUserId());
             cacheProvider.setObject(cacheKey, getCreatedOn());
+            invalidateAdherenceState(event);
         } else {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("User " + event.getUserId() + " failed to delete study event: " + event.getEventId());
@@ -218,6 +245,10 @@ public class StudyActivityEventService {
                 createStudyBurstEvents(schedule, event, failedEventIds);
             }
         }
+        // After the study burst events, so a report can't be cached without them.
+        if (!failedEventIds.contains(event.getEventId())) {
+            invalidateAdherenceState(event);
+        }
         if (!failedEventIds.isEmpty()) {
             String eventNames = COMMA_SPACE_JOINER.join(failedEventIds);
             if (LOG.isDebugEnabled()) {
@@ -229,6 +260,12 @@ public class StudyActivityEventService {
         }
     }
     
+    // Adherence reports are generated from the participant's events.
+    private void invalidateAdherenceState(StudyActivityEvent event) {
+        cacheInvalidationBus.invalidate(AdherenceService.ADHERENCE_STATE_CACHE_REGION,
+                AdherenceService.adherenceStateKey(event.getAppId(), event.getStudyId(), event.getUserId()));
+    }
+    
     /**
      * Get a complete set of all events for this user, where the timestamp of each entry is the most recent timestamp
      * as determined by the <code>createdOn</code> value of the record (in other words, the time of creation as measured
@@ -247,16 +284,47 @@ public class StudyActivityEventService {
         checkNotNull(userId);
         checkNotNull(studyId);
 
-        Account account = accountService.getAccount(AccountId.forId(appId, userId))
+        // Participants retrieving their own events (and the server) can access the account, so only the 
+        // health code and enrollment are needed, and they are looked up without loading the account. 
+        // Anyone else is authorized against the account.
+        if (!IS_SELF.check(USER_ID, userId)) {
+            Account account = accountService.getAccount(AccountId.forId(appId, userId))
+                    .orElseThrow(() -> new EntityNotFoundException(Account.class));
+            return getRecentStudyActivityEvents(appId, studyId, account);
+        }
+        String healthCode = accountService.getHealthCodeForUserId(appId, userId)
                 .orElseThrow(() -> new EntityNotFoundException(Account.class));
 
-        List<StudyActivityEvent> events = dao.getRecentStudyActivityEvents(userId, studyId);
-        addEnrollmentIfMissing(account, events, studyId);
+        return getRecentStudyActivityEvents(appId, studyId, userId, healthCode,
+                () -> accountService.getEnrolledOn(appId, studyId, userId).orElse(null));
+    }
+    
+    /**
+     * Get the recent study activity events for an account that the caller has already loaded, 
+     * such as when processing every participant in a study.
+     */
+    public ResourceList<StudyActivityEvent> getRecentStudyActivityEvents(String appId, String studyId, Account account) {
+        checkNotNull(account);
+        checkNotNull(studyId);
         
+        return getRecentStudyActivityEvents(appId, studyId, account.getId(), account.getHealthCode(),
+                () -> getElement(account.getEnrollments(), Enrollment::getStudyId, studyId)
+                        .map(Enrollment::getEnrolledOn).orElse(null));
+    }
+    
+    private ResourceList<StudyActivityEvent> getRecentStudyActivityEvents(String appId, String studyId, 
+            String userId, String healthCode, Supplier<DateTime> enrolledOnSupplier) {
         // There are some global events related to authentication and account creation that 
         // are useful when working with study-specific events, so add these from the global
-        // system.
-        Map<String, DateTime> map = activityEventService.getActivityEventMap(appId, account.getHealthCode());
+        // system. They are retrieved from DynamoDB while the study events are retrieved from 
+        // MySQL. The query runs on another thread, but must be authorized as the caller.
+        Future<Map<String, DateTime>> globalEvents = activityQueryExecutorService.submit(withRequestContext(
+                () -> activityEventService.getActivityEventMap(appId, healthCode)));
+        
+        List<StudyActivityEvent> events = dao.getRecentStudyActivityEvents(userId, studyId);
+        addEnrollmentIfMissing(events, enrolledOnSupplier);
+        
+        Map<String, DateTime> map = getFutureResult(globalEvents);
         for (String fieldName : GLOBAL_EVENTS_OF_INTEREST) {
             addIfPresent(events, map, fieldName, true);    
         }
@@ -342,8 +410,10 @@ public class StudyActivityEventService {
     }
     
     /**
-     * If the triggering event is mutable, study burst events can be created as well. Any errors
-     * that occur are collected in the list of failedEventIds.
+     * If the triggering event is mutable, study burst events can be created as well. The participant's 
+     * existing events are retrieved once to apply the update type of each study burst, and the events 
+     * that can be updated are then published together in one transaction. Any errors that occur are 
+     * collected in the list of failedEventIds.
      */
     private void createStudyBurstEvents(Schedule2 schedule, StudyActivityEvent event, List<String> failedEventIds) {
         String eventId = event.getEventId();
@@ -356,9 +426,13 @@ public class StudyActivityEventService {
             .withCreatedOn(event.getCreatedOn())
             .withObjectType(STUDY_BURST);
         
-        boolean createdBurstEvents = false;
+        Map<String, StudyActivityEvent> recentEvents = null;
+        List<StudyActivityEvent> burstEvents = new ArrayList<>();
         for(StudyBurst burst : schedule.getStudyBursts()) {
             if (burst.getOriginEventId().equals(eventId)) {
+                if (recentEvents == null) {
+                    recentEvents = getRecentEventsById(event.getUserId(), event.getStudyId());
+                }
                 builder.withUpdateType(burst.getUpdateType());
                 builder.withStudyBurstId(burst.getIdentifier());
                 builder.withOriginEventId(burst.getOriginEventId());
@@ -382,25 +456,27 @@ public class StudyActivityEventService {
                     }
                     periodFromOrigin = periodFromOrigin.plus(burst.getInterval());
                     
-                    StudyActivityEvent mostRecent = dao.getRecentStudyActivityEvent(
-                            burstEvent.getUserId(), burstEvent.getStudyId(), burstEvent.getEventId());
+                    StudyActivityEvent mostRecent = recentEvents.get(burstEvent.getEventId());
 
                     // Study bursts also have an update type that must be respected.
                     if (burst.getUpdateType().canUpdate(mostRecent, burstEvent)) {
-                        dao.publishEvent(burstEvent);
-                        createdBurstEvents = true;
+                        burstEvents.add(burstEvent);
                     }  else {
                         failedEventIds.add(burstEvent.getEventId());
                     } 
                 }
             }
         }
-        if (createdBurstEvents) {
+        if (!burstEvents.isEmpty()) {
+            dao.publishEvents(burstEvents);
             // trigger alert for study burst change if study burst events were created
             alertService.createAlert(Alert.studyBurstChange(event.getStudyId(), event.getAppId(), event.getUserId()));
         }
     }
     
+    /**
+     * Delete the study burst events triggered by this event, with one statement.
+     */
     private void deleteStudyBurstEvents(Schedule2 schedule, StudyActivityEvent event) {
         String eventId = event.getEventId();
         
@@ -410,6 +486,7 @@ public class StudyActivityEventService {
             .withStudyId(event.getStudyId())
             .withObjectType(STUDY_BURST);
         
+        Set<String> burstEventIds = new LinkedHashSet<>();
         for(StudyBurst burst : schedule.getStudyBursts()) {
             if (burst.getOriginEventId().equals(eventId)) {
                 int len =  burst.getOccurrences().intValue();
@@ -423,25 +500,36 @@ public class StudyActivityEventService {
                             .withAnswerValue(iteration)
                             .build();
                     
-                    dao.deleteEvent(burstEvent);
+                    burstEventIds.add(burstEvent.getEventId());
                 }
             }
         }
+        if (!burstEventIds.isEmpty()) {
+            dao.deleteEvents(event.getUserId(), event.getStudyId(), burstEventIds);
+        }
+    }
+    
+    private Map<String, StudyActivityEvent> getRecentEventsById(String userId, String studyId) {
+        Map<String, StudyActivityEvent> map = new HashMap<>();
+        for (StudyActivityEvent recent : dao.getRecentStudyActivityEvents(userId, studyId)) {
+            map.put(recent.getEventId(), recent);
+        }
+        return map;
     }
     
     /**
      * If events do not include enrollment, you can include it. This provides some migration support.
      */
-    private void addEnrollmentIfMissing(Account account, List<StudyActivityEvent> events, String studyId) {
+    private void addEnrollmentIfMissing(List<StudyActivityEvent> events, Supplier<DateTime> enrolledOnSupplier) {
         Optional<StudyActivityEvent> oneEvent = getElement(events, StudyActivityEvent::getEventId, ENROLLMENT_FIELD);
         if (oneEvent.isPresent()) {
             return;
         }
-        Enrollment en = getElement(account.getEnrollments(), Enrollment::getStudyId, studyId).orElse(null);
-        if (en != null) {
+        DateTime enrolledOn = enrolledOnSupplier.get();
+        if (enrolledOn != null) {
             StudyActivityEvent event = new StudyActivityEvent.Builder()
                     .withEventId(ENROLLMENT_FIELD)
-                    .withTimestamp(en.getEnrolledOn())
+                    .withTimestamp(enrolledOn)
                     .withRecordCount(ONE).build();
             events.add(event);
         }
@@ -32,11 +32,16 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.StudyDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
@@ -61,6 +66,7 @@ import com.google.common.collect.ImmutableMap;
 
 @Component
 public class StudyService {
+    static final String STUDY_CACHE_REGION = "study";
     
     @Autowired
     private StudyDao studyDao;
@@ -78,6 +84,23 @@ public class StudyService {
     private AlertService alertService;
     @Autowired
     private AssessmentService assessmentService;
+    @Autowired
+    private BridgeConfig bridgeConfig;
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+    /** In-process cache of studies, in front of the database. */
+    private NearCache<Study> studyCache = NearCache.disabled();
+    
+    @PostConstruct
+    public void createStudyCache() {
+        this.studyCache = new NearCache<>(STUDY_CACHE_REGION, bridgeConfig, cacheInvalidationBus, study -> {
+            Study copy = NearCache.copyOf(study, Study.class);
+            // These are not serialized to JSON.
+            copy.setAppId(study.getAppId());
+            copy.setLogoGuid(study.getLogoGuid());
+            return copy;
+        });
+    }
     
     protected String getDefaultTimeZoneId() { 
         return DateTimeZone.getDefault().getID();
@@ -114,6 +137,9 @@ public class StudyService {
             cacheProvider.removeObject(cacheKey);
         }
         studyDao.removeScheduleFromStudies(appId, scheduleGuid);
+        for (String studyId : studyIds) {
+            invalidateStudyCache(appId, studyId);
+        }
     }
     
     public void updateStudyEtags(String appId, String scheduleGuid, DateTime timestamp) {
@@ -132,17 +158,28 @@ public class StudyService {
         checkNotNull(appId);
         checkNotNull(studyId);
         
-        Study study = studyDao.getStudy(appId, studyId);
+        Study study = studyCache.get(studyCacheKey(appId, studyId), () -> {
+            Study loaded = studyDao.getStudy(appId, studyId);
+            if (loaded != null) {
+                CacheKey cacheKey = CacheKey.etag(Study.class, appId, studyId);
+                cacheProvider.setObject(cacheKey, loaded.getModifiedOn());
+            }
+            return loaded;
+        });
         if (throwsException && study == null) {
             throw new EntityNotFoundException(Study.class);
         }
-        if (study != null) {
-            CacheKey cacheKey = CacheKey.etag(Study.class, appId, studyId);
-            cacheProvider.setObject(cacheKey, study.getModifiedOn());
-        }
         return study;
     }
     
+    private static String studyCacheKey(String appId, String studyId) {
+        return appId + ":" + studyId;
+    }
+    
+    private void invalidateStudyCache(String appId, String studyId) {
+        studyCache.invalidate(studyCacheKey(appId, studyId));
+    }
+    
     /**
      * Get the list of active study IDs for this app (used to validate criteria 
      * objects throughout the system). Calling this method is preferred to getStudies() 
@@ -269,6 +306,7 @@ public class StudyService {
         Validate.entityThrowingException(validator, study);
         
         VersionHolder keys = studyDao.updateStudy(study);
+        invalidateStudyCache(appId, study.getIdentifier());
         
         CacheKey cacheKey = CacheKey.publicStudy(appId, study.getIdentifier());
         cacheProvider.removeObject(cacheKey);
@@ -293,6 +331,7 @@ public class StudyService {
         existing.setDeleted(true);
         existing.setModifiedOn(DateTime.now());
         studyDao.updateStudy(existing);
+        invalidateStudyCache(appId, studyId);
         
         CacheKey cacheKey = CacheKey.publicStudy(appId, studyId);
         cacheProvider.removeObject(cacheKey);
@@ -318,6 +357,7 @@ public class StudyService {
         String scheduleGuid = existing.getScheduleGuid();
         
         studyDao.deleteStudyPermanently(appId, studyId);
+        invalidateStudyCache(appId, studyId);
         if (scheduleGuid != null) {
             scheduleService.deleteSchedulePermanently(appId, scheduleGuid);    
         }
@@ -333,7 +373,11 @@ public class StudyService {
     public void deleteAllStudies(String appId) {
         checkNotNull(appId);
 
+        List<Study> studies = studyDao.getStudies(appId, null, null, null, true).getItems();
         studyDao.deleteAllStudies(appId);
+        for (Study study : studies) {
+            invalidateStudyCache(appId, study.getIdentifier());
+        }
     }
     
     public Study transitionToDesign(String appId, String studyId) {
@@ -416,6 +460,7 @@ public class StudyService {
         study.setPhase(DESIGN);
         study.setModifiedOn(getDateTime());
         studyDao.updateStudy(study);
+        invalidateStudyCache(appId, studyId);
     
         CacheKey cacheKey = CacheKey.publicStudy(appId, studyId);
         cacheProvider.removeObject(cacheKey);
@@ -451,6 +496,7 @@ public class StudyService {
         study.setPhase(targetPhase);
         study.setModifiedOn(getDateTime());
         studyDao.updateStudy(study);
+        invalidateStudyCache(appId, studyId);
         
         CacheKey cacheKey = CacheKey.publicStudy(appId, studyId);
         cacheProvider.removeObject(cacheKey);
@@ -13,6 +13,7 @@ import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConstraintViolationException;
@@ -49,6 +50,7 @@ public class SurveyService {
     private SchedulePlanService schedulePlanService;
     private SharedModuleMetadataService sharedModuleMetadataService;
     private AppService appService;
+    private CacheInvalidationBus cacheInvalidationBus;
 
     @Autowired
     final void setSurveyDao(SurveyDao surveyDao) {
@@ -74,6 +76,11 @@ public class SurveyService {
     public final void setAppService(AppService appService) {
         this.appService = appService;
     }
+
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
     
     public Survey getSurvey(String appId, GuidCreatedOnVersionHolder keys, boolean includeElements, boolean throwException) {
         Survey survey = surveyDao.getSurvey(appId, keys, includeElements);
@@ -150,7 +157,10 @@ public class SurveyService {
         }
         Validate.entityThrowingException(new SurveySaveValidator(dataGroups), survey);
         
-        return surveyDao.updateSurvey(appId, survey);
+        Survey updated = surveyDao.updateSurvey(appId, survey);
+        invalidateAppConfigs(appId);
+        invalidateUploadSchemas(appId);
+        return updated;
     }
 
     /**
@@ -168,7 +178,9 @@ public class SurveyService {
         }
         Validate.entityThrowingException(publishValidator, existing);
 
-        return surveyDao.publishSurvey(appId, existing, newSchemaRev);
+        Survey published = surveyDao.publishSurvey(appId, existing, newSchemaRev);
+        invalidateUploadSchemas(appId);
+        return published;
     }
 
     /**
@@ -227,6 +239,20 @@ public class SurveyService {
         }
         checkConstraintsBeforePhysicalDelete(appId, keys);
         surveyDao.deleteSurveyPermanently(appId, keys);
+        invalidateAppConfigs(appId);
+        invalidateUploadSchemas(appId);
+    }
+
+    // App configs include the identifiers of the surveys they reference. Only an update or a physical delete can 
+    // change what an app config resolves a survey reference to.
+    private void invalidateAppConfigs(String appId) {
+        cacheInvalidationBus.invalidate(AppConfigService.APP_CONFIG_CACHE_REGION, appId);
+    }
+
+    // Uploads are matched to a schema through the identifier and schema revision of a survey version. Publishing 
+    // sets the schema revision, after the schema itself has been saved.
+    private void invalidateUploadSchemas(String appId) {
+        cacheInvalidationBus.invalidate(UploadSchemaService.UPLOAD_SCHEMA_CACHE_REGION, appId);
     }
 
     // Helper method to verify if there is any shared module related to specified survey
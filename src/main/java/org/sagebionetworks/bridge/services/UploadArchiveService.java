@@ -4,19 +4,19 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.security.cert.CertificateEncodingException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -51,10 +51,16 @@ public class UploadArchiveService {
     private static final String CONFIG_KEY_MAX_NUM_ZIP_ENTRIES = "max.num.zip.entries";
     private static final String CONFIG_KEY_MAX_ZIP_ENTRY_SIZE = "max.zip.entry.size";
 
-    // Temporary buffer size for unzipping, in bytes. This is big enough that there should be no churn for most files,
-    // but small enough to have minimal memory overhead.
-    private static final int TEMP_BUFFER_SIZE = 4096;
+    // Size of the buffers used to copy decrypted and unzipped data, in bytes. Large enough that a sensor upload of
+    // tens of megabytes is copied in relatively few reads and writes.
+    static final int BUFFER_SIZE = 64 * 1024;
+    // Number of copy buffers kept for reuse. Each upload validation uses one buffer at a time, so this only needs
+    // to cover the number of uploads being validated concurrently.
+    static final int BUFFER_POOL_SIZE = 32;
 
+    // Memory used by decrypting and unzipping is bounded by the buffers in this pool, rather than by the size of
+    // the archive. If the pool is empty, a new buffer is allocated, and it is dropped on release if the pool is full.
+    private final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
     private int maxNumZipEntries;
     private int maxZipEntrySize;
     private LoadingCache<String, CmsEncryptor> cmsEncryptorCache;
@@ -148,11 +154,12 @@ public class UploadArchiveService {
         checkNotNull(from);
         checkNotNull(to);
 
-        // Decrypt.
-        try (InputStream fromStream = new BufferedInputStream(new FileInputStream(from));
+        // Decrypt. The decryptor reads the encrypted stream in small pieces, so that side is buffered. The decrypted
+        // stream is copied through a pooled buffer, so the output file needs no buffering of its own.
+        try (InputStream fromStream = new BufferedInputStream(Files.newInputStream(from.toPath()), BUFFER_SIZE);
                 InputStream decryptedStream = decrypt(appId, fromStream);
-                OutputStream toStream = new BufferedOutputStream(new FileOutputStream(to))) {
-            ByteStreams.copy(decryptedStream, toStream);
+                OutputStream toStream = Files.newOutputStream(to.toPath())) {
+            copy(decryptedStream, toStream);
         } catch (CertificateEncodingException | CMSException | IOException | WrongEncryptionKeyException ex) {
             // This is a workaround for DIAN-749, Android inv-arc app had wrong public key for encryption -nbrown 10/25/23
             if (ex instanceof WrongEncryptionKeyException && appId.equals("inv-arc")) {
@@ -303,6 +310,7 @@ public class UploadArchiveService {
 
         // Unzip
         Set<String> zipEntryNameSet = new HashSet<>();
+        byte[] buffer = borrowBuffer();
         try (ZipInputStream zis = new ZipInputStream(source)) {
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
@@ -321,7 +329,7 @@ public class UploadArchiveService {
                 }
                 zipEntryNameSet.add(entryName);
                 OutputStream outputStream = entryNameToOutpuStream.apply(entryName);
-                toByteArray(entryName, zis, outputStream);
+                toByteArray(entryName, zis, outputStream, buffer);
                 outputStreamFinalizer.accept(entryName, outputStream);
                 zipEntry = zis.getNextEntry();
             }
@@ -329,24 +337,48 @@ public class UploadArchiveService {
             throw new BadRequestException(ex);
         } catch (IOException ex) {
             throw new BridgeServiceException(ex);
+        } finally {
+            releaseBuffer(buffer);
         }
     }
 
-    private void toByteArray(String entryName, InputStream inputStream, OutputStream outputStream)
+    private void toByteArray(String entryName, InputStream inputStream, OutputStream outputStream, byte[] buffer)
             throws IOException, ZipOverflowException {
         // We want copy data from the stream to a byte array manually, so we can count the bytes and protect against
         // zip bombs.
-        byte[] tempBuffer = new byte[TEMP_BUFFER_SIZE];
-        int totalBytes = 0;
+        long totalBytes = 0;
         int bytesRead;
-        while ((bytesRead = inputStream.read(tempBuffer, 0, TEMP_BUFFER_SIZE)) >= 0) {
+        while ((bytesRead = inputStream.read(buffer, 0, buffer.length)) >= 0) {
             totalBytes += bytesRead;
             if (totalBytes > maxZipEntrySize) {
                 throw new ZipOverflowException("Zip entry size is over the max allowed size. The entry " + entryName +
                         " has size more than " + totalBytes + ". The max allowed size is" + maxZipEntrySize + ".");
             }
 
-            outputStream.write(tempBuffer, 0, bytesRead);
+            outputStream.write(buffer, 0, bytesRead);
         }
     }
+
+    private void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = borrowBuffer();
+        try {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer, 0, buffer.length)) >= 0) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    // Package-scoped for unit tests.
+    byte[] borrowBuffer() {
+        byte[] buffer = bufferPool.poll();
+        return (buffer != null) ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    // Package-scoped for unit tests.
+    void releaseBuffer(byte[] buffer) {
+        bufferPool.offer(buffer);
+    }
 }
@@ -9,9 +9,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
@@ -21,11 +26,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.sharedmodules.SharedModuleMetadata;
 import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.models.upload.UploadFieldDefinition;
@@ -41,8 +50,20 @@ import org.sagebionetworks.bridge.validators.Validate;
  */
 @Component
 public class UploadSchemaService {
+    /**
+     * Near-cache region of the schemas looked up while validating uploads, keyed by app ID. Every change to a schema 
+     * or to a survey's schema in an app invalidates the app's key in this region.
+     */
+    static final String UPLOAD_SCHEMA_CACHE_REGION = "uploadschema";
+
     private SharedModuleMetadataService sharedModuleMetadataService;
     private UploadSchemaDao uploadSchemaDao;
+    private SurveyService surveyService;
+    private BridgeConfig bridgeConfig;
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    /** In-process cache of the schemas each app's uploads are validated against, including schemas not found. */
+    private NearCache<UploadSchemas> uploadSchemaCache = NearCache.disabled();
 
     /** DAO for upload schemas. This is configured by Spring. */
     @Autowired
@@ -55,6 +76,28 @@ public class UploadSchemaService {
         this.sharedModuleMetadataService = sharedModuleMetadataService;
     }
 
+    @Autowired
+    final void setSurveyService(SurveyService surveyService) {
+        this.surveyService = surveyService;
+    }
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.bridgeConfig = bridgeConfig;
+    }
+
+    @Autowired
+    final void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    @PostConstruct
+    public void createUploadSchemaCache() {
+        // Cached schemas are shared, not copied. See getUploadSchemaForUpload().
+        this.uploadSchemaCache = new NearCache<>(UPLOAD_SCHEMA_CACHE_REGION, bridgeConfig, cacheInvalidationBus,
+                schemas -> schemas);
+    }
+
     /**
      * Creates a schema revision using the new V4 semantics. The schema ID and revision will be taken from the
      * UploadSchema object. If the revision isn't specified, we'll get the latest schema rev for the schema ID and use
@@ -80,7 +123,9 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema created = uploadSchemaDao.createSchemaRevision(schema);
+        uploadSchemaCache.invalidate(appId);
+        return created;
     }
 
     /**
@@ -116,7 +161,9 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema created = uploadSchemaDao.createSchemaRevision(schema);
+        uploadSchemaCache.invalidate(appId);
+        return created;
     }
 
     /**
@@ -220,6 +267,7 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemas(schemaList);
+        uploadSchemaCache.invalidate(appId);
     }
 
     public void deleteUploadSchemaByIdPermanently(String appId, String schemaId) {
@@ -227,6 +275,7 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemasPermanently(schemaList);
+        uploadSchemaCache.invalidate(appId);
     }
 
     protected List<UploadSchema> getSchemaRevisionsForDelete(String appId, String schemaId) {
@@ -260,7 +309,8 @@ public class UploadSchemaService {
         if (schema == null || schema.isDeleted()) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));
+        uploadSchemaCache.invalidate(appId);
     }
     
     public void deleteUploadSchemaByIdAndRevisionPermanently(String appId, String schemaId, int rev) {
@@ -270,7 +320,8 @@ public class UploadSchemaService {
         if (schema == null) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));
+        uploadSchemaCache.invalidate(appId);
     }
 
     /** Returns all revisions of all schemas. */
@@ -282,6 +333,7 @@ public class UploadSchemaService {
     public void deleteAllUploadSchemasAllRevisionsPermanently(String appId) {
         List<UploadSchema> schemaList = uploadSchemaDao.getAllUploadSchemasAllRevisions(appId, true);
         uploadSchemaDao.deleteUploadSchemasPermanently(schemaList);
+        uploadSchemaCache.invalidate(appId);
     }
 
     /** Service handler for fetching the most recent revision of all upload schemas in a app. */
@@ -398,6 +450,45 @@ public class UploadSchemaService {
         return uploadSchemaDao.getUploadSchemaByIdAndRevision(appId, schemaId, revision);
     }
 
+    /**
+     * Fetches the upload schema for the specified app, schema ID, and revision, for validating an upload. Returns null
+     * if there is no such schema. Schemas, and schemas that were not found, are cached per app until a schema in the 
+     * app changes on this server, or for the cache TTL if it changed on another server. The returned schema is shared 
+     * by all callers and must not be modified.
+     */
+    public UploadSchema getUploadSchemaForUpload(String appId, String schemaId, int revision) {
+        UploadSchemas schemas = uploadSchemaCache.get(appId, UploadSchemas::new);
+        return schemas.byIdAndRev.computeIfAbsent(schemaId + ":" + revision,
+                key -> Optional.ofNullable(getUploadSchemaByIdAndRevNoThrow(appId, schemaId, revision)))
+                .orElse(null);
+    }
+
+    /**
+     * Fetches the upload schema of the specified survey version, for validating an upload. The survey's identifier 
+     * and schema revision are the schema ID and revision. Returns null if the survey has no schema, and throws an 
+     * EntityNotFoundException if the survey does not exist. Cached the same way as 
+     * {@link #getUploadSchemaForUpload(String, String, int)}.
+     */
+    public UploadSchema getUploadSchemaBySurveyForUpload(String appId, String surveyGuid, long surveyCreatedOn) {
+        UploadSchemas schemas = uploadSchemaCache.get(appId, UploadSchemas::new);
+        return schemas.bySurvey.computeIfAbsent(surveyGuid + ":" + surveyCreatedOn, key -> {
+            Survey survey = surveyService.getSurvey(appId,
+                    new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOn), false, true);
+            String schemaId = survey.getIdentifier();
+            Integer schemaRev = survey.getSchemaRevision();
+            if (StringUtils.isBlank(schemaId) || schemaRev == null) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(getUploadSchemaForUpload(appId, schemaId, schemaRev));
+        }).orElse(null);
+    }
+
+    // The upload schemas of one app that have been looked up since the app's cache entry was created.
+    private static class UploadSchemas {
+        private final ConcurrentMap<String, Optional<UploadSchema>> byIdAndRev = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Optional<UploadSchema>> bySurvey = new ConcurrentHashMap<>();
+    }
+
     /**
      * Gets the latest available revision of the specified schema for the specified client. This API fetches every
      * schema revision for the specified schema ID, then checks the schema's min/maxAppVersion against the clientInfo.
@@ -519,7 +610,9 @@ public class UploadSchemaService {
         }
 
         // Call through to the DAO
-        return uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        UploadSchema updated = uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        uploadSchemaCache.invalidate(appId);
+        return updated;
     }
 
     // Helper method to get a map of fields by name for an Upload Schema. Returns a TreeMap so our error messaging has
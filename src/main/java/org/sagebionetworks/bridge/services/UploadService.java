@@ -519,6 +519,10 @@ public class UploadService {
             return;
         }
 
+        // Turn the upload away while validation is backed up. This must happen before the upload is marked complete,
+        // since a completed upload cannot be completed (and validated) again.
+        uploadValidationService.checkCapacity();
+
         final String objectId = upload.getObjectId();
         ObjectMetadata obj;
         try {
@@ -1,26 +1,52 @@
 package org.sagebionetworks.bridge.services;
 
 import javax.annotation.Nonnull;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.dao.UploadDao;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.upload.UploadValidationTask;
 import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
 
 /** Service handler for upload validation. */
 @Component
 public class UploadValidationService {
-    private ExecutorService asyncExecutorService;
+    private static final Logger LOG = LoggerFactory.getLogger(UploadValidationService.class);
+
+    static final String CONFIG_KEY_DRAIN_SECONDS = "upload.validation.drain.seconds";
+    static final String QUEUE_FULL_ERROR = "Too many uploads are waiting to be validated. Please try again later.";
+    static final String REJECTED_MESSAGE = "Upload validation could not be started because the server was busy or "
+            + "shutting down. The upload can be redriven.";
+
+    private ThreadPoolExecutor uploadValidationExecutorService;
     private UploadValidationTaskFactory taskFactory;
+    private UploadDao uploadDao;
+    private int drainSeconds;
+
+    /** Config, for how long to wait for queued validations on shutdown. */
+    @Autowired
+    public final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.drainSeconds = bridgeConfig.getPropertyAsInt(CONFIG_KEY_DRAIN_SECONDS);
+    }
 
-    /** Async thread pool. This is configured by Spring. */
-    @Resource(name = "asyncExecutorService")
-    public void setAsyncExecutorService(ExecutorService asyncExecutorService) {
-        this.asyncExecutorService = asyncExecutorService;
+    /** Bounded thread pool dedicated to upload validation. This is configured by Spring. */
+    @Resource(name = "uploadValidationExecutorService")
+    public void setUploadValidationExecutorService(ThreadPoolExecutor uploadValidationExecutorService) {
+        this.uploadValidationExecutorService = uploadValidationExecutorService;
     }
 
     /** Task factory. This is configured by Spring. */
@@ -29,6 +55,25 @@ public class UploadValidationService {
         this.taskFactory = taskFactory;
     }
 
+    /** Upload DAO, used to fail validation that could not be started. This is configured by Spring. */
+    @Autowired
+    public final void setUploadDao(UploadDao uploadDao) {
+        this.uploadDao = uploadDao;
+    }
+
+    /**
+     * Throws a ServiceUnavailableException (503) if the validation queue is full. Called before an upload is
+     * marked complete, so the caller can retry uploadComplete later rather than leave an upload that is complete
+     * but will never be validated.
+     */
+    public void checkCapacity() {
+        if (uploadValidationExecutorService.getQueue().remainingCapacity() == 0) {
+            LOG.warn("Upload validation queue is full, active threads: "
+                    + uploadValidationExecutorService.getActiveCount());
+            throw new ServiceUnavailableException(QUEUE_FULL_ERROR);
+        }
+    }
+
     /**
      * <p>
      * Kick off upload validation. Since upload validation can take some time, we handle this asynchronously. This
@@ -38,6 +83,12 @@ public class UploadValidationService {
      * App and user comes from the controller and upload comes from UploadService.getUpload(), so none of the fields
      * are user input, so validation is not needed.
      * </p>
+     * <p>
+     * If the queue filled up after {@link #checkCapacity} was called, or the server is shutting down, the upload
+     * fails validation. It has already been marked complete, so it cannot be turned away at this point, and it is
+     * not validated on the calling thread, which would tie up request threads when the server is overloaded.
+     * Uploads that fail this way can be redriven.
+     * </p>
      *
      * @param appId
      *         app this upload lives in
@@ -46,6 +97,43 @@ public class UploadValidationService {
      */
     public void validateUpload(@Nonnull String appId, @Nonnull Upload upload) {
         UploadValidationTask task = taskFactory.newTask(appId, upload);
-        asyncExecutorService.execute(task);
+        Runnable instrumentedTask = instrument(upload.getUploadId(), task);
+        try {
+            uploadValidationExecutorService.execute(instrumentedTask);
+        } catch (RejectedExecutionException ex) {
+            LOG.error("Upload validation queue rejected upload " + upload.getUploadId() + ", failing validation");
+            try {
+                uploadDao.writeValidationStatus(upload, UploadStatus.VALIDATION_FAILED,
+                        ImmutableList.of(REJECTED_MESSAGE), null);
+            } catch (RuntimeException writeEx) {
+                LOG.error("Error failing validation for upload " + upload.getUploadId() + ": "
+                        + writeEx.getMessage(), writeEx);
+            }
+        }
+    }
+
+    // Logs how long the task waited in the queue, and the state of the pool when it starts.
+    private Runnable instrument(String uploadId, UploadValidationTask task) {
+        long enqueuedNanos = System.nanoTime();
+        return () -> {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedNanos);
+            LOG.info("Upload validation for upload " + uploadId + " started after waiting " + waitMillis
+                    + " ms, queue depth: " + uploadValidationExecutorService.getQueue().size()
+                    + ", active threads: " + uploadValidationExecutorService.getActiveCount());
+            task.run();
+        };
+    }
+
+    /**
+     * Stop accepting uploads and give queued validations time to finish before the executor is shut down, so a
+     * deployment does not leave uploads stuck in validation.
+     */
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        uploadValidationExecutorService.shutdown();
+        if (!uploadValidationExecutorService.awaitTermination(drainSeconds, TimeUnit.SECONDS)) {
+            LOG.warn("Upload validation did not drain in " + drainSeconds + " seconds, abandoning "
+                    + uploadValidationExecutorService.getQueue().size() + " queued uploads");
+        }
     }
 }
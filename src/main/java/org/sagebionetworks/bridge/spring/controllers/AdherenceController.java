@@ -18,10 +18,12 @@ import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherencePostProcessingAttributes;
 import org.sagebionetworks.bridge.models.schedules2.adherence.detailed.DetailedAdherenceReport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -48,6 +50,7 @@ public class AdherenceController extends BaseController {
     
     static final StatusMessage SAVED_MSG = new StatusMessage("Adherence records saved.");
     static final StatusMessage DELETED_MSG = new StatusMessage("Adherence record deleted");
+    static final StatusMessage UPDATING_WEEKLY_REPORTS_MSG = new StatusMessage("Updating weekly adherence reports.");
     
     private AdherenceService service;
 
@@ -125,6 +128,16 @@ public class AdherenceController extends BaseController {
         return service.getWeeklyAdherenceReportForWorker(appId, studyId, account);
     }
     
+    @PostMapping("/v1/apps/{appId}/studies/{studyId}/adherence/weekly")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public StatusMessage updateWeeklyAdherenceReportsForWorker(@PathVariable String appId,
+            @PathVariable String studyId) {
+        getAuthenticatedSession(WORKER);
+        
+        service.updateWeeklyAdherenceReports(appId, studyId);
+        return UPDATING_WEEKLY_REPORTS_MSG;
+    }
+    
     @PostMapping("/v5/studies/{studyId}/adherence/weekly")    
     public PagedResourceList<WeeklyAdherenceReport> getWeeklyAdherenceReports(@PathVariable String studyId) {
         UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER, STUDY_DESIGNER, STUDY_COORDINATOR);
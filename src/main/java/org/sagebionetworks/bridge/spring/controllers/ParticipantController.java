@@ -301,13 +301,13 @@ public class ParticipantController extends BaseController {
     }
 
     @PostMapping("/v3/participants/search")
-    public PagedResourceList<AccountSummary> searchForAccountSummaries() {
+    public ResourceList<AccountSummary> searchForAccountSummaries() {
         UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER);
         App app = appService.getApp(session.getAppId());
         
         AccountSummarySearch search = parseJson(AccountSummarySearch.class);
 
-        return participantService.getPagedAccountSummaries(app, search);
+        return participantService.searchAccountSummaries(app, search);
     }
     
     @Deprecated
@@ -325,12 +325,12 @@ public class ParticipantController extends BaseController {
     }
 
     @PostMapping(path = {"/v1/apps/{appId}/participants/search", "/v3/studies/{appId}/participants/search"})
-    public PagedResourceList<AccountSummary> searchForAccountSummariesForWorker(@PathVariable String appId) {
+    public ResourceList<AccountSummary> searchForAccountSummariesForWorker(@PathVariable String appId) {
         getAuthenticatedSession(WORKER);
         App app = appService.getApp(appId);
         
         AccountSummarySearch search = parseJson(AccountSummarySearch.class);
-        return participantService.getPagedAccountSummaries(app, search);
+        return participantService.searchAccountSummaries(app, search);
     }
 
     @PostMapping("/v3/participants")
@@ -336,7 +336,7 @@ public class StudyParticipantController extends BaseController {
     }
     
     @PostMapping("/v5/studies/{studyId}/participants/search")
-    public PagedResourceList<AccountSummary> searchForAccountSummaries(@PathVariable String studyId) {
+    public ResourceList<AccountSummary> searchForAccountSummaries(@PathVariable String studyId) {
         UserSession session = getAdministrativeSession();
         
         CAN_EDIT_STUDY_PARTICIPANTS.checkAndThrow(STUDY_ID, studyId);
@@ -346,7 +346,7 @@ public class StudyParticipantController extends BaseController {
         
         search = search.toBuilder().withEnrolledInStudyId(studyId).build();
         
-        return participantService.getPagedAccountSummaries(app, search);
+        return participantService.searchAccountSummaries(app, search);
     }
     
     @PostMapping("/v5/studies/{studyId}/participants")
@@ -583,7 +583,7 @@ public class StudyParticipantController extends BaseController {
         
         Account account = getValidAccountInStudy(session.getAppId(), studyId, userId);
         
-        return studyActivityEventService.getRecentStudyActivityEvents(session.getAppId(), studyId, account.getId());
+        return studyActivityEventService.getRecentStudyActivityEvents(session.getAppId(), studyId, account);
     }
     
     @GetMapping("/v5/studies/{studyId}/participants/{userId}/activityevents/{eventId}")
@@ -6,6 +6,9 @@ import static org.sagebionetworks.bridge.BridgeConstants.X_FORWARDED_FOR_HEADER;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -16,15 +19,19 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
 
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.models.Metrics;
@@ -36,9 +43,32 @@ public class MetricsFilter implements Filter {
     
     public static final String X_PASSTHROUGH = "X-Passthrough";
 
+    static final String CONFIG_KEY_LOG_SAMPLE_PERCENT = "request.metrics.log.sample.percent";
+    /** Route recorded for requests that were not handled by a controller method (404s, for example). */
+    static final String UNMATCHED_ROUTE = "UNMATCHED";
+
     // Allow-list for query parameters metrics logging.
-    private static final List<String> ALLOW_LIST =
-            BridgeConfigFactory.getConfig().getList("query.param.allowlist");
+    private static final Set<String> ALLOW_LIST =
+            ImmutableSet.copyOf(BridgeConfigFactory.getConfig().getList("query.param.allowlist"));
+    
+    private RequestMetrics requestMetrics;
+    // Log every request until the config says otherwise.
+    private int logSamplePercent = 100;
+    
+    /** Aggregated request metrics. This is configured by Spring. */
+    @Autowired
+    final void setRequestMetrics(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+    
+    /**
+     * Config, for the percentage of requests that are logged individually. Every request is still counted in the
+     * aggregated metrics, and server errors are always logged.
+     */
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.logSamplePercent = bridgeConfig.getPropertyAsInt(CONFIG_KEY_LOG_SAMPLE_PERCENT);
+    }
     
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
@@ -53,18 +83,13 @@ public class MetricsFilter implements Filter {
         metrics.setRemoteAddress(header(request, X_FORWARDED_FOR_HEADER, request.getRemoteAddr()));
         metrics.setUserAgent(header(request, USER_AGENT, null));
 
-        // Process the query parameters, and append them to the metrics.
-        List<NameValuePair> params = URLEncodedUtils.parse(request.getQueryString(), StandardCharsets.UTF_8);
-
-        Multimap<String, String> paramsMap = MultimapBuilder.linkedHashKeys().linkedListValues().build();
-        params.stream().filter(i -> ALLOW_LIST.contains(i.getName()))
-                .forEach(i -> paramsMap.put(i.getName(), i.getValue()));
-
-        metrics.setQueryParams(paramsMap);
-
+        long startNanos = System.nanoTime();
+        // If the chain throws, the exception escapes to the container, which responds with a 500.
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
         try {
             chain.doFilter(req, res);
-            metrics.setStatus(response.getStatus());
+            status = response.getStatus();
+            metrics.setStatus(status);
         } finally {
             // Log session info when a session is present
             UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
@@ -73,11 +98,47 @@ public class MetricsFilter implements Filter {
                 writeSessionInfoToMetrics(metrics, session);
             }
             if (response.getHeader(X_PASSTHROUGH) == null) {
-                metrics.end();
-                LOG.info(metrics.toJsonString());
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                String appId = (session != null) ? session.getAppId() : null;
+                requestMetrics.recordRequest(route(request), appId, status, elapsedMillis);
+                
+                if (shouldLog(status)) {
+                    // Query parameters are only parsed for requests that are logged.
+                    metrics.setQueryParams(allowedQueryParams(request));
+                    metrics.end();
+                    LOG.info(metrics.toJsonString());
+                }
             }
         }
     }
+    
+    // Package-scoped so unit tests can call this directly.
+    boolean shouldLog(int status) {
+        if (status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR || logSamplePercent >= 100) {
+            return true;
+        }
+        return logSamplePercent > 0 && ThreadLocalRandom.current().nextInt(100) < logSamplePercent;
+    }
+    
+    /**
+     * The method and path pattern of the controller method that handled this request, e.g. 
+     * "GET /v3/participants/{userId}", so that requests for different IDs are aggregated together.
+     */
+    private String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return (pattern != null) ? request.getMethod() + " " + pattern : UNMATCHED_ROUTE;
+    }
+    
+    private Multimap<String, String> allowedQueryParams(HttpServletRequest request) {
+        Multimap<String, String> paramsMap = MultimapBuilder.linkedHashKeys().linkedListValues().build();
+        String queryString = request.getQueryString();
+        if (queryString != null) {
+            List<NameValuePair> params = URLEncodedUtils.parse(queryString, StandardCharsets.UTF_8);
+            params.stream().filter(i -> ALLOW_LIST.contains(i.getName()))
+                    .forEach(i -> paramsMap.put(i.getName(), i.getValue()));
+        }
+        return paramsMap;
+    }
 
     private String header(HttpServletRequest request, String name, String defaultVal) {
         final String value = request.getHeader(name);
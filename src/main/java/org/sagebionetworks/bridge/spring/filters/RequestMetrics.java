@@ -0,0 +1,137 @@
+package org.sagebionetworks.bridge.spring.filters;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.util.LatencyHistogram;
+import org.sagebionetworks.bridge.util.PeriodicJsonReporter;
+
+/**
+ * Aggregates request metrics on this server: a latency histogram and status counts for each route (HTTP method
+ * and the controller's path pattern), and the number of requests for each app. Metrics cover one reporting
+ * interval; at the end of each interval they are logged as a single JSON line and the next interval starts from
+ * zero, so the percentiles and counts in each line are for that interval alone.
+ */
+@Component
+public class RequestMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestMetrics.class);
+
+    static final String CONFIG_KEY_REPORT_INTERVAL_SECONDS = "request.metrics.report.interval.seconds";
+    static final String LOG_PREFIX = "Request metrics: ";
+    /** Used in place of the app ID for requests without a session. */
+    static final String NO_APP = "NONE";
+
+    private final AtomicReference<Interval> currentInterval = new AtomicReference<>(new Interval());
+    private int reportIntervalSeconds;
+    private final PeriodicJsonReporter reporter = new PeriodicJsonReporter(LOG, "request-metrics",
+            LOG_PREFIX, this::snapshotAndReset);
+
+    /** Config, for the report interval. A non-positive interval disables the periodic report. */
+    @Autowired
+    public final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.reportIntervalSeconds = bridgeConfig.getPropertyAsInt(CONFIG_KEY_REPORT_INTERVAL_SECONDS);
+    }
+
+    @PostConstruct
+    public void start() {
+        reporter.start(reportIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reporter.stop();
+    }
+
+    /**
+     * Records one completed request.
+     *
+     * @param route
+     *         HTTP method and path pattern of the controller method that handled the request
+     * @param appId
+     *         app of the caller, or null if the request had no session
+     * @param status
+     *         HTTP status of the response
+     * @param elapsedMillis
+     *         time taken to handle the request
+     */
+    public void recordRequest(String route, String appId, int status, long elapsedMillis) {
+        Interval interval = currentInterval.get();
+        interval.routes.computeIfAbsent(route, k -> new RouteMetrics()).record(status, elapsedMillis);
+        interval.appRequests.computeIfAbsent((appId != null) ? appId : NO_APP, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Ends the current interval, and returns its metrics as JSON. Keys are sorted so that consecutive reports are
+     * easy to compare.
+     */
+    public ObjectNode snapshotAndReset() {
+        Interval interval = currentInterval.getAndSet(new Interval());
+        long endMillis = DateTimeUtils.currentTimeMillis();
+
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+        node.put("start", new DateTime(interval.startMillis).toString());
+        node.put("end", new DateTime(endMillis).toString());
+        node.put("elapsedSeconds", TimeUnit.MILLISECONDS.toSeconds(endMillis - interval.startMillis));
+
+        ObjectNode routesNode = node.putObject("routes");
+        for (Map.Entry<String, RouteMetrics> entry : new TreeMap<>(interval.routes).entrySet()) {
+            routesNode.set(entry.getKey(), entry.getValue().toJson());
+        }
+
+        ObjectNode appsNode = node.putObject("appRequests");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(interval.appRequests).entrySet()) {
+            appsNode.put(entry.getKey(), entry.getValue().sum());
+        }
+        return node;
+    }
+
+    // Package-scoped so unit tests can call this directly.
+    void report() {
+        reporter.report();
+    }
+
+    // A request that read the interval just before it was replaced may be recorded after that interval was
+    // reported. That request is not counted, which is an acceptable cost for not locking on every request.
+    private static class Interval {
+        private final long startMillis = DateTimeUtils.currentTimeMillis();
+        private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, LongAdder> appRequests = new ConcurrentHashMap<>();
+    }
+
+    private static class RouteMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+        void record(int status, long elapsedMillis) {
+            latency.record(elapsedMillis);
+            statusCounts.computeIfAbsent(status, k -> new LongAdder()).increment();
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = latency.toJson();
+            ObjectNode statusNode = node.putObject("status");
+            for (Map.Entry<Integer, LongAdder> entry : new TreeMap<>(statusCounts).entrySet()) {
+                statusNode.put(String.valueOf(entry.getKey()), entry.getValue().sum());
+            }
+            return node;
+        }
+    }
+}
@@ -21,14 +21,10 @@ import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.json.JsonUtils;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
-import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.models.upload.UploadFieldDefinition;
 import org.sagebionetworks.bridge.models.upload.UploadFieldType;
 import org.sagebionetworks.bridge.models.upload.UploadSchema;
-import org.sagebionetworks.bridge.services.SurveyService;
 import org.sagebionetworks.bridge.services.UploadSchemaService;
 
 /**
@@ -53,7 +49,6 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
 
     private int dataFileSizeLimit = UploadUtil.FILE_SIZE_LIMIT_DATA_FILE;
     private FileHelper fileHelper;
-    private SurveyService surveyService;
     private UploadFileHelper uploadFileHelper;
     private UploadSchemaService uploadSchemaService;
 
@@ -77,12 +72,6 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         this.uploadFileHelper = uploadFileHelper;
     }
 
-    /** Survey service, to get the survey if this upload is a survey. Configured by Spring. */
-    @Autowired
-    public final void setSurveyService(SurveyService surveyService) {
-        this.surveyService = surveyService;
-    }
-
     /** Upload Schema Service, used to get the schema corresponding to the upload. This is configured by Spring. */
     @Autowired
     public final void setUploadSchemaService(UploadSchemaService uploadSchemaService) {
@@ -120,23 +109,12 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         String surveyGuid = JsonUtils.asText(infoJson, UploadUtil.FIELD_SURVEY_GUID);
         String surveyCreatedOn = JsonUtils.asText(infoJson, UploadUtil.FIELD_SURVEY_CREATED_ON);
         if (StringUtils.isNotBlank(surveyGuid) && StringUtils.isNotBlank(surveyCreatedOn)) {
-            // surveyCreatedOn is a timestamp. SurveyService takes long epoch millis. Convert.
+            // surveyCreatedOn is a timestamp. Surveys are keyed by long epoch millis. Convert.
             long surveyCreatedOnMillis= DateUtils.convertToMillisFromEpoch(surveyCreatedOn);
 
-            // Get survey. We use the survey identifier as the schema ID and the schema revision. Both of these must be
-            // specified.
-            GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
-            Survey survey = surveyService.getSurvey(appId, surveyKeys, false, true);
-            String surveySchemaId = survey.getIdentifier();
-            Integer surveySchemaRev = survey.getSchemaRevision();
-            if (StringUtils.isBlank(surveySchemaId) || surveySchemaRev == null) {
-                // Schemaless.
-                return null;
-            }
-
-            // Get the schema with the schema ID and rev.
-            // Note that if there's no schema, we treat this like schemaless.
-            return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, surveySchemaId, surveySchemaRev);
+            // The survey identifier and schema revision are the schema ID and revision. If either is missing, or
+            // there's no schema, we treat this like schemaless.
+            return uploadSchemaService.getUploadSchemaBySurveyForUpload(appId, surveyGuid, surveyCreatedOnMillis);
         }
 
         // Fall back to getting by schema.
@@ -148,7 +126,7 @@ public class GenericUploadFormatHandler implements UploadValidationHandler {
         }
         if (StringUtils.isNotBlank(schemaId)) {
             // Note that if there's no schema, we treat this like schemaless.
-            return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev);
+            return uploadSchemaService.getUploadSchemaForUpload(appId, schemaId, schemaRev);
         } else {
             // Schemaless.
             return null;
@@ -28,16 +28,12 @@ import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.json.JsonUtils;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
-import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.models.upload.Upload;
 import org.sagebionetworks.bridge.models.upload.UploadFieldDefinition;
 import org.sagebionetworks.bridge.models.upload.UploadFieldType;
 import org.sagebionetworks.bridge.models.upload.UploadSchema;
 import org.sagebionetworks.bridge.models.upload.UploadSchemaType;
-import org.sagebionetworks.bridge.services.SurveyService;
 import org.sagebionetworks.bridge.services.UploadSchemaService;
 
 /**
@@ -84,7 +80,6 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
 
     private Map<String, Map<String, Integer>> defaultSchemaRevisionMap;
     private FileHelper fileHelper;
-    private SurveyService surveyService;
     private UploadFileHelper uploadFileHelper;
     private UploadSchemaService uploadSchemaService;
 
@@ -99,12 +94,6 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
         this.fileHelper = fileHelper;
     }
 
-    /** Survey service, to get the survey if this upload is a survey. Configured by Spring. */
-    @Autowired
-    public final void setSurveyService(SurveyService surveyService) {
-        this.surveyService = surveyService;
-    }
-
     /**
      * Upload file helper, used to find upload fields in a list of files, and parse files and upload attachments as
      * needed.
@@ -193,23 +182,12 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
     }
 
     private UploadSchema getUploadSchemaBySurvey(String appId, String surveyGuid, String surveyCreatedOn) {
-        // surveyCreatedOn is a timestamp. SurveyService takes long epoch millis. Convert.
+        // surveyCreatedOn is a timestamp. Surveys are keyed by long epoch millis. Convert.
         long surveyCreatedOnMillis= DateUtils.convertToMillisFromEpoch(surveyCreatedOn);
 
-        // Get survey. We use the survey identifier as the schema ID and the schema revision. Both of these must be
-        // specified.
-        GuidCreatedOnVersionHolder surveyKeys = new GuidCreatedOnVersionHolderImpl(surveyGuid, surveyCreatedOnMillis);
-        Survey survey = surveyService.getSurvey(appId, surveyKeys, false, true);
-        String schemaId = survey.getIdentifier();
-        Integer schemaRev = survey.getSchemaRevision();
-        if (StringUtils.isBlank(schemaId) || schemaRev == null) {
-            // Schemaless.
-            return null;
-        }
-
-        // Get the schema with the schema ID and rev.
-        // Note that if there's no schema, we treat this like schemaless.
-        return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, schemaId, schemaRev);
+        // The survey identifier and schema revision are the schema ID and revision. If either is missing, or there's
+        // no schema, we treat this like schemaless.
+        return uploadSchemaService.getUploadSchemaBySurveyForUpload(appId, surveyGuid, surveyCreatedOnMillis);
     }
 
     private UploadSchema getUploadSchemaByItemAndRev(String appId, String item, Integer schemaRev) {
@@ -229,7 +207,7 @@ public class IosSchemaValidationHandler2 implements UploadValidationHandler {
 
         // get schema
         // Note that if there's no schema, we treat this like schemaless.
-        return uploadSchemaService.getUploadSchemaByIdAndRevNoThrow(appId, item, schemaRev);
+        return uploadSchemaService.getUploadSchemaForUpload(appId, item, schemaRev);
     }
 
     private static void validateInfoJsonFileList(UploadValidationContext context, String uploadId,
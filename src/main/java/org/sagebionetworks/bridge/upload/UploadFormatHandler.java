@@ -56,6 +56,7 @@ public class UploadFormatHandler implements UploadValidationHandler {
             // uppercase.
             format = UploadFormat.valueOf(formatString.toUpperCase());
         }
+        context.setUploadFormat(format);
 
         // Choose handler based on format.
         switch (format) {
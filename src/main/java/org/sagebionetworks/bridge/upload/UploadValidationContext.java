@@ -23,6 +23,7 @@ public class UploadValidationContext {
     private File decryptedDataFile;
     private Map<String, File> unzippedDataFileMap;
     private JsonNode infoJsonNode;
+    private UploadFormat uploadFormat;
     private HealthDataRecord healthDataRecord;
     private String recordId;
 
@@ -155,6 +156,19 @@ public class UploadValidationContext {
         this.infoJsonNode = infoJsonNode;
     }
 
+    /**
+     * Upload format, parsed from info.json by UploadFormatHandler. Null if the upload has no info.json, or if
+     * validation failed before it was parsed.
+     */
+    public UploadFormat getUploadFormat() {
+        return uploadFormat;
+    }
+
+    /** @see #getUploadFormat */
+    public void setUploadFormat(UploadFormat uploadFormat) {
+        this.uploadFormat = uploadFormat;
+    }
+
     /**
      * Health Data Record, created from the uploaded data. This is initially created by InitRecordHandler, is further
      * updated by UploadFormatHandler and its inner handlers and by TranscribeConsentHandler, and is finalized and
@@ -206,6 +220,7 @@ public class UploadValidationContext {
         copy.decryptedDataFile = this.decryptedDataFile;
         copy.unzippedDataFileMap = this.unzippedDataFileMap;
         copy.infoJsonNode = this.infoJsonNode;
+        copy.uploadFormat = this.uploadFormat;
         copy.healthDataRecord = this.healthDataRecord;
         copy.recordId = this.recordId;
 
@@ -0,0 +1,119 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+import org.sagebionetworks.bridge.models.upload.UploadStatus;
+import org.sagebionetworks.bridge.util.LatencyHistogram;
+import org.sagebionetworks.bridge.util.PeriodicJsonReporter;
+
+/**
+ * Aggregates upload validation metrics on this server: latency histograms for each validation handler, outcome
+ * counts by app, upload format and status, and the bytes uploaded and temp disk used. All values are cumulative
+ * since the server started. A snapshot is logged as a single JSON line on a fixed interval, so it can be graphed
+ * from the logs without parsing the per-upload log lines.
+ */
+@Component
+public class UploadValidationMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(UploadValidationMetrics.class);
+
+    static final String CONFIG_KEY_REPORT_INTERVAL_MINUTES = "upload.validation.metrics.report.interval.minutes";
+    static final String LOG_PREFIX = "Upload validation metrics: ";
+    /** Used in place of the upload format for uploads without an info.json, or that failed before it was read. */
+    static final String NO_FORMAT = "NONE";
+
+    private final ConcurrentMap<String, LatencyHistogram> handlerLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> outcomeCounts = new ConcurrentHashMap<>();
+    private final LongAdder bytesProcessed = new LongAdder();
+    private final LongAdder tempDiskBytes = new LongAdder();
+    private final LongAccumulator maxTempDiskBytes = new LongAccumulator(Long::max, 0L);
+    private int reportIntervalMinutes;
+    private final PeriodicJsonReporter reporter = new PeriodicJsonReporter(LOG, "upload-validation-metrics",
+            LOG_PREFIX, this::snapshot);
+
+    /** Config, for the report interval. A non-positive interval disables the periodic report. */
+    @Autowired
+    public final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.reportIntervalMinutes = bridgeConfig.getPropertyAsInt(CONFIG_KEY_REPORT_INTERVAL_MINUTES);
+    }
+
+    @PostConstruct
+    public void start() {
+        reporter.start(reportIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reporter.stop();
+    }
+
+    /** Records how long one validation handler took for one upload. */
+    public void recordHandlerLatency(String handlerName, long elapsedMillis) {
+        handlerLatencies.computeIfAbsent(handlerName, k -> new LatencyHistogram()).record(elapsedMillis);
+    }
+
+    /**
+     * Records the outcome of validating one upload.
+     *
+     * @param appId
+     *         app the upload lives in
+     * @param format
+     *         upload format, or null if it was never determined
+     * @param status
+     *         final validation status
+     * @param uploadBytes
+     *         size of the upload, as uploaded
+     * @param tempBytes
+     *         total size of the temp files written while validating the upload
+     */
+    public void recordValidation(String appId, UploadFormat format, UploadStatus status, long uploadBytes,
+            long tempBytes) {
+        String formatName = (format != null) ? format.name() : NO_FORMAT;
+        outcomeCounts.computeIfAbsent(appId + "." + formatName + "." + status.name(), k -> new LongAdder())
+                .increment();
+        bytesProcessed.add(uploadBytes);
+        tempDiskBytes.add(tempBytes);
+        maxTempDiskBytes.accumulate(tempBytes);
+    }
+
+    /** A JSON snapshot of all metrics. Keys are sorted so that consecutive reports are easy to compare. */
+    public ObjectNode snapshot() {
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+
+        ObjectNode latencyNode = node.putObject("handlerLatencyMillis");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(handlerLatencies).entrySet()) {
+            latencyNode.set(entry.getKey(), entry.getValue().toJson());
+        }
+
+        ObjectNode outcomeNode = node.putObject("validations");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(outcomeCounts).entrySet()) {
+            outcomeNode.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        node.put("bytesProcessed", bytesProcessed.sum());
+        node.put("tempDiskBytes", tempDiskBytes.sum());
+        node.put("maxTempDiskBytes", maxTempDiskBytes.get());
+        return node;
+    }
+
+    // Package-scoped so unit tests can call this directly.
+    void report() {
+        reporter.report();
+    }
+}
@@ -3,7 +3,9 @@ package org.sagebionetworks.bridge.upload;
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
@@ -29,6 +31,7 @@ public class UploadValidationTask implements Runnable {
     private List<UploadValidationHandler> handlerList;
     private UploadDao uploadDao;
     private HealthDataService healthDataService;
+    private UploadValidationMetrics metrics;
 
     public final void setHealthDataService(HealthDataService healthDataService) {
         this.healthDataService = healthDataService;
@@ -82,6 +85,16 @@ public class UploadValidationTask implements Runnable {
         return uploadDao;
     }
 
+    /** Metrics for handler latency and validation outcomes. This is configured by Spring through the task factory. */
+    public final void setMetrics(UploadValidationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ UploadValidationMetrics getMetrics() {
+        return metrics;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void run() {
@@ -122,7 +135,7 @@ public class UploadValidationTask implements Runnable {
             } finally {
                 long elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
                 stopwatch.reset();
-                // TODO: send this to somewhere other than the logs
+                metrics.recordHandlerLatency(oneHandler.getClass().getSimpleName(), elapsedMillis);
                 logger.info(String.format("Upload validation handler %s took %d ms", handlerName, elapsedMillis));
             }
         }
@@ -143,6 +156,15 @@ public class UploadValidationTask implements Runnable {
 
         // TODO: if validation fails, wipe the files from S3
 
+        // Metrics are best effort. Don't let them keep the temp dir from being deleted.
+        try {
+            metrics.recordValidation(context.getAppId(), context.getUploadFormat(), status,
+                    context.getUpload().getContentLength(), getTempFileBytes());
+        } catch (RuntimeException ex) {
+            logger.error("Error recording upload validation metrics for upload " + context.getUpload().getUploadId()
+                    + ": " + ex.getMessage(), ex);
+        }
+
         // Finally, delete the temp dir.
         try {
             fileHelper.deleteDirRecursively(tempDir);
@@ -152,6 +174,25 @@ public class UploadValidationTask implements Runnable {
         }
     }
 
+    // Total size of the files written to the temp dir by the handlers. The data file, decrypted file and unzipped files
+    // may be the same file (for unencrypted or unzipped uploads), so each file is only counted once.
+    private long getTempFileBytes() {
+        Set<File> files = new HashSet<>();
+        files.add(context.getDataFile());
+        files.add(context.getDecryptedDataFile());
+        if (context.getUnzippedDataFileMap() != null) {
+            files.addAll(context.getUnzippedDataFileMap().values());
+        }
+
+        long bytes = 0;
+        for (File file : files) {
+            if (file != null && fileHelper.fileExists(file)) {
+                bytes += fileHelper.fileSize(file);
+            }
+        }
+        return bytes;
+    }
+
     // Log helper. Unit tests will mock (spy) this, so we verify that we're catching and logging the exception.
     // Package-scoped so unit tests have access to this.
     void logWriteValidationStatusException(UploadStatus status, Exception ex) {
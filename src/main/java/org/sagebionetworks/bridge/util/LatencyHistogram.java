@@ -0,0 +1,85 @@
+package org.sagebionetworks.bridge.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+/**
+ * Fixed-bucket latency histogram, safe for concurrent updates. Percentiles are estimated as the upper bound of
+ * the bucket that contains them (or the maximum, if that is lower), so they are never under-reported.
+ */
+public class LatencyHistogram {
+    /** Upper bounds of the buckets, in milliseconds. The last bucket has no upper bound. */
+    public static final long[] BUCKET_BOUNDS_MILLIS = { 10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000,
+            60000 };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long elapsedMillis) {
+        int i = 0;
+        while (i < BUCKET_BOUNDS_MILLIS.length && elapsedMillis > BUCKET_BOUNDS_MILLIS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        sum.add(elapsedMillis);
+        max.accumulate(elapsedMillis);
+    }
+
+    /**
+     * Estimate the given percentile, from 0 (exclusive) to 100 (inclusive), in milliseconds. Returns 0 if nothing
+     * has been recorded.
+     */
+    public long percentile(double percentile) {
+        checkArgument(percentile > 0 && percentile <= 100, "percentile must be in (0, 100]");
+
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+        node.put("count", count.sum());
+        node.put("sum", sum.sum());
+        node.put("max", max.get());
+        node.put("p50", percentile(50));
+        node.put("p90", percentile(90));
+        node.put("p99", percentile(99));
+        ObjectNode bucketNode = node.putObject("buckets");
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            bucketNode.put("le" + BUCKET_BOUNDS_MILLIS[i], buckets[i].sum());
+        }
+        bucketNode.put("inf", buckets[BUCKET_BOUNDS_MILLIS.length].sum());
+        return node;
+    }
+}
@@ -0,0 +1,70 @@
+package org.sagebionetworks.bridge.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+
+/**
+ * Logs a JSON snapshot of a component's metrics as a single line on a fixed interval, so the metrics can be graphed
+ * from the logs. Reports are logged with the component's own logger, from a daemon thread named for the metrics.
+ * A final report is logged when the reporter is stopped, so nothing recorded since the last report is lost.
+ */
+public class PeriodicJsonReporter {
+    private final Logger logger;
+    private final String name;
+    private final String logPrefix;
+    private final Supplier<ObjectNode> snapshotSupplier;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param logger
+     *         logger of the component whose metrics are reported
+     * @param name
+     *         name of the metrics, used for the reporting thread and in error messages
+     * @param logPrefix
+     *         prefix of each logged report, so the reports can be found in the logs
+     * @param snapshotSupplier
+     *         returns the metrics to report. It is called on the reporting thread.
+     */
+    public PeriodicJsonReporter(Logger logger, String name, String logPrefix,
+            Supplier<ObjectNode> snapshotSupplier) {
+        this.logger = checkNotNull(logger);
+        this.name = checkNotNull(name);
+        this.logPrefix = checkNotNull(logPrefix);
+        this.snapshotSupplier = checkNotNull(snapshotSupplier);
+    }
+
+    /** Report every interval, starting one interval from now. A non-positive interval disables the report. */
+    public void start(long interval, TimeUnit unit) {
+        if (interval > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat(name).setDaemon(true).build());
+            executor.scheduleAtFixedRate(this::report, interval, interval, unit);
+        }
+    }
+
+    /** Stop reporting, and log one final report. */
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        report();
+    }
+
+    /** Log a report now. Never throws. */
+    public void report() {
+        try {
+            logger.info(logPrefix + snapshotSupplier.get().toString());
+        } catch (RuntimeException ex) {
+            // An exception would cancel the scheduled report, so log it and carry on.
+            logger.error("Error reporting " + name + ": " + ex.getMessage(), ex);
+        }
+    }
+}
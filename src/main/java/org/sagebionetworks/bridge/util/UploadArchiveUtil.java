@@ -30,25 +30,22 @@ public class UploadArchiveUtil {
         ApplicationContext springCtx = new ClassPathXmlApplicationContext("application-context.xml");
         UploadArchiveService uploadArchiveService = springCtx.getBean(UploadArchiveService.class);
 
-        // read input file
         File inFile = new File(inFilename);
-        byte[] inData = Files.toByteArray(inFile);
+        File outFile = new File(outFilename);
 
         // encrypt / decrypt
-        byte[] outData;
         switch (method) {
             case "encrypt":
-                outData = uploadArchiveService.encrypt(appId, inData);
+                // Encryption is only done on byte arrays. This is only used to make test uploads.
+                byte[] outData = uploadArchiveService.encrypt(appId, Files.toByteArray(inFile));
+                Files.write(outData, outFile);
                 break;
             case "decrypt":
-                outData = uploadArchiveService.decrypt(appId, inData);
+                // Stream from file to file, so that archives of any size can be decrypted.
+                uploadArchiveService.decrypt(appId, inFile, outFile);
                 break;
             default:
                 throw new IllegalArgumentException(String.format("Invalid method %s", method));
         }
-
-        // write output file
-        File outFile = new File(outFilename);
-        Files.write(outData, outFile);
     }
 }
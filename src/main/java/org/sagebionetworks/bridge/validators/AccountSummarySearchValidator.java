@@ -13,6 +13,7 @@ import org.springframework.validation.Validator;
 
 public class AccountSummarySearchValidator implements Validator {
     public static final String DATE_RANGE_ERROR = "startDate should be before endDate";
+    public static final String OFFSET_KEY_AND_OFFSET_BY_ERROR = "cannot be combined with offsetBy";
     public static final String PAGE_RANGE_ERROR = "must be from "+API_MINIMUM_PAGE_SIZE+"-"+API_MAXIMUM_PAGE_SIZE+" records";
 
     private Set<String> appDataGroups;
@@ -33,6 +34,9 @@ public class AccountSummarySearchValidator implements Validator {
         if (search.getOffsetBy() < 0) {
             errors.rejectValue("offsetBy", "cannot be less than 0");
         }
+        if (search.getOffsetKey() != null && search.getOffsetBy() > 0) {
+            errors.rejectValue("offsetKey", OFFSET_KEY_AND_OFFSET_BY_ERROR);
+        }
         // Just set a sane upper limit on this.
         if (search.getPageSize() < API_MINIMUM_PAGE_SIZE || search.getPageSize() > API_MAXIMUM_PAGE_SIZE) {
             errors.rejectValue("pageSize", PAGE_RANGE_ERROR);
@@ -1137,3 +1137,28 @@ CREATE TABLE IF NOT EXISTS `UploadTableJobs` (
     CONSTRAINT `UploadTableJobs-Study-Constraint` FOREIGN KEY (`studyId`, `appId`) REFERENCES `Substudies` (`id`, `studyId`) ON DELETE CASCADE ON UPDATE CASCADE,
     INDEX (`appId`, `studyId`, `requestedOn`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
+
+-- changeset bridge:84
+
+CREATE TABLE IF NOT EXISTS `WeeklyAdherencePercentCounts` (
+    `appId` varchar(60) NOT NULL,
+    `studyId` varchar(60) NOT NULL,
+    `weeklyAdherencePercent` int(3) signed NOT NULL,
+    `participants` int(10) NOT NULL DEFAULT 0,
+    PRIMARY KEY (`appId`, `studyId`, `weeklyAdherencePercent`),
+    CONSTRAINT `WeeklyAdherencePercentCounts-Study-Constraint` FOREIGN KEY (`studyId`, `appId`) REFERENCES `Substudies` (`id`, `studyId`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS `WeeklyAdherenceLabelCounts` (
+    `appId` varchar(60) NOT NULL,
+    `studyId` varchar(60) NOT NULL,
+    `searchableLabel` varchar(2048) NOT NULL,
+    `label` varchar(2048),
+    `sessionName` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci,
+    `weekInStudy` int(10),
+    `studyBurstId` varchar(255),
+    `studyBurstNum` int(10),
+    `participants` int(10) NOT NULL DEFAULT 0,
+    PRIMARY KEY (`appId`, `studyId`, `searchableLabel`(255)),
+    CONSTRAINT `WeeklyAdherenceLabelCounts-Study-Constraint` FOREIGN KEY (`studyId`, `appId`) REFERENCES `Substudies` (`id`, `studyId`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
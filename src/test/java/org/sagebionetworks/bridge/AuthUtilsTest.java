@@ -848,6 +848,19 @@ public class AuthUtilsTest extends Mockito {
         AuthUtils.CAN_EDIT_ORG.checkAndThrow(ORG_ID, TEST_ORG_ID);
     }
     
+    @Test
+    public void isSelf() {
+        RequestContext.set(new RequestContext.Builder().withCallerUserId(TEST_USER_ID)
+                .withCallerRoles(ImmutableSet.of(ADMIN)).build());
+        assertTrue(AuthUtils.IS_SELF.check(USER_ID, TEST_USER_ID));
+        assertFalse(AuthUtils.IS_SELF.check(USER_ID, "otherUserId"));
+    }
+    
+    @Test
+    public void isSelf_noCaller() {
+        RequestContext.set(RequestContext.NULL_INSTANCE);
+        assertTrue(AuthUtils.IS_SELF.check(USER_ID, TEST_USER_ID));
+    }
     
     @Test
     public void canAccessAccount_nullFails() {
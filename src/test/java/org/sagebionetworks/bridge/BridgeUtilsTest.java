@@ -35,6 +35,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -55,6 +59,7 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.models.Label;
 import org.sagebionetworks.bridge.models.RequestInfo;
@@ -1325,6 +1330,43 @@ public class BridgeUtilsTest extends Mockito {
         assertSame(retValue, en1);
     }
     
+    @Test
+    public void withRequestContext() throws Exception {
+        RequestContext context = new RequestContext.Builder().withCallerUserId(TEST_USER_ID).build();
+        RequestContext.set(context);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> future = executor.submit(BridgeUtils.withRequestContext(
+                    () -> RequestContext.get().getCallerUserId()));
+            assertEquals(future.get(), TEST_USER_ID);
+            
+            // The worker thread's own context is restored afterward.
+            assertSame(executor.submit(() -> RequestContext.get()).get(), NULL_INSTANCE);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void getFutureResult() {
+        assertEquals(BridgeUtils.getFutureResult(CompletableFuture.completedFuture("value")), "value");
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class, expectedExceptionsMessageRegExp = "bad request")
+    public void getFutureResult_rethrowsRuntimeException() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new BadRequestException("bad request"));
+        BridgeUtils.getFutureResult(future);
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void getFutureResult_wrapsCheckedException() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new IOException("io"));
+        BridgeUtils.getFutureResult(future);
+    }
+    
     // assertEquals with two sets doesn't verify the order is the same... hence this test method.
     private <T> void orderedSetsEqual(Set<T> first, Set<T> second) {
         assertEquals(second.size(), first.size());
@@ -0,0 +1,114 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class CacheInvalidationBusTest extends Mockito {
+    private static final String REGION = "region";
+    private static final String KEY = "appId:schemaId:3";
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    @Mock
+    CacheInvalidationBus.Listener mockListener;
+
+    @InjectMocks
+    CacheInvalidationBus bus;
+
+    Cache<String, String> cache;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        cache = CacheBuilder.newBuilder().build();
+        cache.put(KEY, "value");
+        cache.put("otherKey", "otherValue");
+        bus.register(REGION, cache);
+    }
+
+    @Test
+    public void invalidate() {
+        bus.invalidate(REGION, KEY);
+
+        assertNull(cache.getIfPresent(KEY));
+        assertEquals(cache.getIfPresent("otherKey"), "otherValue");
+        verify(mockJedis).publish(CacheInvalidationBus.CHANNEL, bus.getNodeId() + "|" + REGION + "|" + KEY);
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void invalidatePublishFailureIsNotThrown() {
+        when(mockJedis.publish(anyString(), anyString())).thenThrow(new RuntimeException());
+
+        bus.invalidate(REGION, KEY);
+
+        assertNull(cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void onMessageFromOtherNodeEvicts() {
+        bus.onMessage("otherNode|" + REGION + "|" + KEY);
+
+        assertNull(cache.getIfPresent(KEY));
+        assertEquals(cache.getIfPresent("otherKey"), "otherValue");
+    }
+
+    @Test
+    public void onMessageFromThisNodeIgnored() {
+        bus.onMessage(bus.getNodeId() + "|" + REGION + "|" + KEY);
+
+        assertEquals(cache.getIfPresent(KEY), "value");
+    }
+
+    @Test
+    public void onMessageForUnknownRegionIgnored() {
+        bus.onMessage("otherNode|otherRegion|" + KEY);
+
+        assertEquals(cache.getIfPresent(KEY), "value");
+    }
+
+    @Test
+    public void onMessageMalformedIgnored() {
+        bus.onMessage("otherNode|" + REGION);
+
+        assertEquals(cache.getIfPresent(KEY), "value");
+    }
+
+    @Test
+    public void onMessageToListener() {
+        bus.register("listenerRegion", mockListener);
+
+        bus.onMessage("otherNode|listenerRegion|" + KEY);
+
+        verify(mockListener).evict(KEY);
+    }
+
+    @Test
+    public void invalidateAll() {
+        bus.register("listenerRegion", mockListener);
+
+        bus.invalidateAll();
+
+        assertEquals(cache.size(), 0L);
+        verify(mockListener).evictAll();
+    }
+}
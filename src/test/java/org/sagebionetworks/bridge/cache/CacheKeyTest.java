@@ -10,7 +10,6 @@ import static org.testng.Assert.assertTrue;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestConstants;
-import org.sagebionetworks.bridge.models.ThrottleRequestType;
 import org.sagebionetworks.bridge.models.accounts.SignIn;
 import org.sagebionetworks.bridge.models.schedules2.timelines.Timeline;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
@@ -75,12 +74,6 @@ public class CacheKeyTest {
                 "ABC:channel-signin-to-session-token");
     }
 
-    @Test
-    public void channelThrottling() {
-        assertEquals(CacheKey.channelThrottling(ThrottleRequestType.EMAIL_SIGNIN, "userId").toString(),
-                "userId:email_signin:channel-throttling");
-    }
-    
     @Test
     public void emailSignInRequest() {
         SignIn signIn = new SignIn.Builder().withAppId(TEST_APP_ID)
@@ -180,6 +173,25 @@ public class CacheKeyTest {
         assertTrue(CacheKey.isPublic(publicKey.toString()));
     }
     
+    @Test
+    public void isPublicType() {
+        assertTrue(CacheKey.isPublicType("App"));
+        assertTrue(CacheKey.isPublicType("view"));
+        assertFalse(CacheKey.isPublicType("session"));
+        assertFalse(CacheKey.isPublicType("ReauthToken"));
+        assertFalse(CacheKey.isPublicType(null));
+    }
+    
+    @Test
+    public void typePattern() {
+        assertEquals(CacheKey.typePattern("App"), "*:App");
+    }
+    
+    @Test
+    public void rateLimit() {
+        assertEquals(CacheKey.rateLimit("email_signin", "userId").toString(), "userId:email_signin:rateLimit");
+    }
+    
     @Test
     public void publicStudy() {
         String key = TEST_APP_ID + ":" + TEST_STUDY_ID + ":PublicStudy";
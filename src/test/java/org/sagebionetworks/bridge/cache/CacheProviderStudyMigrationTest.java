@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.cache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 
 import java.util.List;
@@ -23,12 +24,24 @@ import org.sagebionetworks.bridge.models.subpopulations.Subpopulation;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.redis.JedisOps;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
 public class CacheProviderStudyMigrationTest extends Mockito {
     private static final TypeReference<List<Subpopulation>> SURVEY_LIST_REF = new TypeReference<List<Subpopulation>>() {};
     
     @Mock
     JedisOps mockJedisOps;
     
+    @Mock
+    CacheInvalidationBus mockInvalidationBus;
+    
+    @Mock
+    JedisPool mockJedisPool;
+    
+    @Mock
+    Jedis mockJedis;
+    
     @InjectMocks
     CacheProvider provider;
     
@@ -36,6 +49,7 @@ public class CacheProviderStudyMigrationTest extends Mockito {
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
         provider.setSessionExpireInSeconds(10);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
     }
 
     @Test
@@ -67,8 +81,8 @@ public class CacheProviderStudyMigrationTest extends Mockito {
         String json = TestUtils.createJson(
                 "{'studyIdentifier':'"+TEST_APP_ID+"','sessionToken':'aToken'}");
 
-        doReturn("aUser").when(mockJedisOps).get("aToken:session2");
-        doReturn(json).when(mockJedisOps).get("aUser:session2:user");
+        when(mockJedis.get("aToken:session2".getBytes(UTF_8))).thenReturn("aUser".getBytes(UTF_8));
+        when(mockJedis.get("aUser:session2:user".getBytes(UTF_8))).thenReturn(json.getBytes(UTF_8));
         
         UserSession session = provider.getUserSession("aToken");
         assertEquals(session.getAppId(), TEST_APP_ID);
@@ -79,8 +93,8 @@ public class CacheProviderStudyMigrationTest extends Mockito {
         String json = TestUtils.createJson(
                 "{'appId':'"+TEST_APP_ID+"','sessionToken':'aToken'}");
 
-        doReturn("aUser").when(mockJedisOps).get("aToken:session2");
-        doReturn(json).when(mockJedisOps).get("aUser:session2:user");
+        when(mockJedis.get("aToken:session2".getBytes(UTF_8))).thenReturn("aUser".getBytes(UTF_8));
+        when(mockJedis.get("aUser:session2:user".getBytes(UTF_8))).thenReturn(json.getBytes(UTF_8));
         
         UserSession session = provider.getUserSession("aToken");
         assertEquals(session.getAppId(), TEST_APP_ID);
@@ -1,19 +1,22 @@
 package org.sagebionetworks.bridge.cache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -37,6 +40,7 @@ import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.config.Environment;
 import org.sagebionetworks.bridge.crypto.AesGcmEncryptor;
 import org.sagebionetworks.bridge.crypto.Encryptor;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.accounts.ConsentStatus;
@@ -49,7 +53,9 @@ import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Transaction;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableList;
@@ -76,9 +82,30 @@ public class CacheProviderTest {
     @Mock
     private JedisOps jedisOps;
 
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private JedisPool jedisPool;
+
+    @Mock
+    private Jedis jedis;
+
+    @Mock
+    private Transaction jedisTransaction;
+
+    @Captor
+    private ArgumentCaptor<List<byte[]>> keysCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<byte[]>> argsCaptor;
+
     @Captor
     private ArgumentCaptor<String> stringCaptor;
 
+    @Captor
+    private ArgumentCaptor<CacheInvalidationBus.Listener> listenerCaptor;
+
     @Test
     public void addAndRemoveViewFromCacheProvider() throws Exception {
         final CacheProvider simpleCacheProvider = new CacheProvider();
@@ -115,12 +142,7 @@ public class CacheProviderTest {
     }
 
     private void assertSession(String json) {
-        JedisOps jedisOps = mock(JedisOps.class);
-        
-        when(jedisOps.get(TOKEN_TO_USER_ID.toString())).thenReturn(USER_ID);
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(json);
-        
-        cacheProvider.setJedisOps(jedisOps);
+        when(jedis.get(bytes(USER_ID_TO_SESSION))).thenReturn(bytes(json));
         
         UserSession session = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
 
@@ -159,10 +181,20 @@ public class CacheProviderTest {
 
         mockTransaction(transaction);
         when(jedisOps.getTransaction()).thenReturn(transaction);
-        when(jedisOps.get(TOKEN_TO_USER_ID.toString())).thenReturn(USER_ID);
 
         cacheProvider = new CacheProvider();
         cacheProvider.setJedisOps(jedisOps);
+        cacheProvider.setCacheInvalidationBus(invalidationBus);
+        
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.get(bytes(TOKEN_TO_USER_ID))).thenReturn(bytes(USER_ID));
+        when(jedis.multi()).thenReturn(jedisTransaction);
+        when(jedisTransaction.exec()).thenReturn(Arrays.asList((Object)"OK", "OK"));
+        cacheProvider.setJedisPool(jedisPool);
+    }
+    
+    private static byte[] bytes(Object value) {
+        return value.toString().getBytes(UTF_8);
     }
 
     private UserSession createUserSession() {
@@ -335,8 +367,8 @@ public class CacheProviderTest {
     public void getUserSessionByUserIdNewVersionUserHasSession() throws Exception {
         UserSession session = new UserSession();
         session.setSessionToken(DECRYPTED_SESSION_TOKEN);
-        String ser = BridgeObjectMapper.get().writeValueAsString(session);
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(ser);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
+        when(jedis.get(bytes(USER_ID_TO_SESSION))).thenReturn(ser);
         
         UserSession retrieved = cacheProvider.getUserSessionByUserId(USER_ID);
         assertEquals(retrieved.getSessionToken(), DECRYPTED_SESSION_TOKEN);
@@ -347,8 +379,8 @@ public class CacheProviderTest {
         UserSession session = new UserSession(new StudyParticipant.Builder().build());
         session.setSessionToken("notTheSessionTokenWereLookingFor");
         
-        when(jedisOps.get(USER_ID_TO_SESSION.toString()))
-                .thenReturn(BridgeObjectMapper.get().writeValueAsString(session));
+        when(jedis.get(bytes(USER_ID_TO_SESSION)))
+                .thenReturn(BridgeObjectMapper.get().writeValueAsBytes(session));
 
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertNull(retrieved);
@@ -359,17 +391,156 @@ public class CacheProviderTest {
         UserSession session = new UserSession(new StudyParticipant.Builder().build());
         session.setSessionToken(DECRYPTED_SESSION_TOKEN);
         
-        when(jedisOps.get(USER_ID_TO_SESSION.toString()))
-                .thenReturn(BridgeObjectMapper.get().writeValueAsString(session));
+        when(jedis.get(bytes(USER_ID_TO_SESSION)))
+                .thenReturn(BridgeObjectMapper.get().writeValueAsBytes(session));
 
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertEquals(retrieved.getSessionToken(), session.getSessionToken());
     }
     
+    @Test
+    public void getUserSessionServedFromNearCache() throws Exception {
+        UserSession session = new UserSession(new StudyParticipant.Builder().build());
+        session.setSessionToken(DECRYPTED_SESSION_TOKEN);
+        
+        when(jedis.get(bytes(USER_ID_TO_SESSION)))
+                .thenReturn(BridgeObjectMapper.get().writeValueAsBytes(session));
+
+        UserSession first = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        UserSession second = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        assertEquals(second.getSessionToken(), DECRYPTED_SESSION_TOKEN);
+        // Callers mutate sessions, so they must not share an instance
+        assertNotSame(first, second);
+        
+        verify(jedis, times(1)).get(bytes(TOKEN_TO_USER_ID));
+        verify(jedis, times(1)).get(bytes(USER_ID_TO_SESSION));
+    }
+    
+    @Test
+    public void getUserSessionNearCacheEvictedByInvalidation() throws Exception {
+        cacheProvider.registerNearCaches();
+        verify(invalidationBus).register(eq(CacheProvider.SESSION_REGION), listenerCaptor.capture());
+        
+        UserSession session = new UserSession(new StudyParticipant.Builder().build());
+        session.setSessionToken(DECRYPTED_SESSION_TOKEN);
+        when(jedis.get(bytes(USER_ID_TO_SESSION)))
+                .thenReturn(BridgeObjectMapper.get().writeValueAsBytes(session));
+        
+        cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        listenerCaptor.getValue().evict(USER_ID);
+        cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        
+        verify(jedis, times(2)).get(bytes(USER_ID_TO_SESSION));
+    }
+    
+    @Test
+    public void getUserSessionNearCacheEvictedByInvalidateAll() throws Exception {
+        cacheProvider.registerNearCaches();
+        verify(invalidationBus).register(eq(CacheProvider.SESSION_REGION), listenerCaptor.capture());
+        
+        UserSession session = new UserSession(new StudyParticipant.Builder().build());
+        session.setSessionToken(DECRYPTED_SESSION_TOKEN);
+        when(jedis.get(bytes(USER_ID_TO_SESSION)))
+                .thenReturn(BridgeObjectMapper.get().writeValueAsBytes(session));
+        
+        cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        listenerCaptor.getValue().evictAll();
+        cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        
+        verify(jedis, times(2)).get(bytes(USER_ID_TO_SESSION));
+    }
+    
+    @Test
+    public void getUserSessionWithScript() throws Exception {
+        cacheProvider.setSessionStorageMode(CacheProvider.SessionStorageMode.SCRIPT);
+        
+        UserSession session = new UserSession(new StudyParticipant.Builder().build());
+        session.setSessionToken(DECRYPTED_SESSION_TOKEN);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
+        when(jedis.evalsha(eq(bytes(CacheProvider.GET_SESSION_SCRIPT.getSha1())), anyList(), anyList()))
+                .thenReturn(ImmutableList.of(bytes(USER_ID), ser));
+        
+        UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        assertEquals(retrieved.getSessionToken(), DECRYPTED_SESSION_TOKEN);
+        
+        verify(jedis).evalsha(eq(bytes(CacheProvider.GET_SESSION_SCRIPT.getSha1())), keysCaptor.capture(),
+                argsCaptor.capture());
+        assertEquals(keysCaptor.getValue().size(), 1);
+        assertEquals(keysCaptor.getValue().get(0), bytes(TOKEN_TO_USER_ID));
+        assertEquals(argsCaptor.getValue().size(), 1);
+        assertEquals(argsCaptor.getValue().get(0), bytes(":session2:user"));
+        verify(jedis).close();
+        verify(jedis, never()).get(any(byte[].class));
+    }
+    
+    @Test
+    public void getSessionScriptKeyMatchesUserIdToSessionKey() {
+        // GET_SESSION_SCRIPT concatenates the userId with this suffix to build an undeclared key; 
+        // it must be exactly the key that setUserSession writes.
+        assertEquals(USER_ID + CacheProvider.USER_ID_TO_SESSION_SUFFIX,
+                CacheKey.userIdToSession(USER_ID).toString());
+        assertEquals(CacheProvider.USER_ID_TO_SESSION_SUFFIX, ":session2:user");
+    }
+    
+    @Test
+    public void getUserSessionWithScriptNotFound() throws Exception {
+        cacheProvider.setSessionStorageMode(CacheProvider.SessionStorageMode.SCRIPT);
+        
+        UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        assertNull(retrieved);
+    }
+    
+    @Test
+    public void getUserSessionWithScriptSessionTokenMismatch() throws Exception {
+        cacheProvider.setSessionStorageMode(CacheProvider.SessionStorageMode.SCRIPT);
+        
+        UserSession session = new UserSession(new StudyParticipant.Builder().build());
+        session.setSessionToken("notTheSessionTokenWereLookingFor");
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
+        when(jedis.evalsha(eq(bytes(CacheProvider.GET_SESSION_SCRIPT.getSha1())), anyList(), anyList()))
+                .thenReturn(ImmutableList.of(bytes(USER_ID), ser));
+        
+        UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        assertNull(retrieved);
+        verify(jedisOps).del(TOKEN_TO_USER_ID.toString());
+    }
+    
+    @Test
+    public void setUserSessionWithScript() throws Exception {
+        cacheProvider.setSessionStorageMode(CacheProvider.SessionStorageMode.SCRIPT);
+        cacheProvider.setSessionExpireInSeconds(100);
+        when(jedis.evalsha(eq(bytes(CacheProvider.SET_SESSION_SCRIPT.getSha1())), anyList(), anyList()))
+                .thenReturn(100L);
+        
+        UserSession session = createUserSession();
+        cacheProvider.setUserSession(session);
+        
+        verify(jedis).evalsha(eq(bytes(CacheProvider.SET_SESSION_SCRIPT.getSha1())), keysCaptor.capture(),
+                argsCaptor.capture());
+        List<byte[]> keys = keysCaptor.getValue();
+        assertEquals(keys.size(), 2);
+        assertEquals(keys.get(0), bytes(TOKEN_TO_USER_ID));
+        assertEquals(keys.get(1), bytes(USER_ID_TO_SESSION));
+        List<byte[]> args = argsCaptor.getValue();
+        assertEquals(args.size(), 3);
+        assertEquals(args.get(0), bytes(USER_ID));
+        assertEquals(args.get(1), StudyParticipant.CACHE_WRITER.writeValueAsBytes(session));
+        assertEquals(args.get(2), bytes("100"));
+        verify(jedis, never()).multi();
+        verify(invalidationBus).invalidate(CacheProvider.SESSION_REGION, USER_ID);
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void setUserSessionWithScriptFails() throws Exception {
+        cacheProvider.setSessionStorageMode(CacheProvider.SessionStorageMode.SCRIPT);
+        
+        cacheProvider.setUserSession(createUserSession());
+    }
+    
     @Test
     public void getUserSessionTokenNotFound() {
         // When nothing is mocked, the session token is not found
-        reset(jedisOps);
+        reset(jedis);
         
         UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
         assertNull(retrieved);
@@ -383,7 +554,6 @@ public class CacheProviderTest {
     }
     
     private void mockTransaction(JedisTransaction trans) {
-        when(trans.setex(any(String.class), anyInt(), any(String.class))).thenReturn(trans);
         // */when(trans.expire(any(String.class), anyInt())).thenReturn(trans);
         when(trans.del(any(String.class))).thenReturn(trans);
         when(trans.exec()).thenReturn(Arrays.asList((Object)"OK", "OK"));
@@ -486,7 +656,7 @@ public class CacheProviderTest {
         CacheProvider mockCacheProvider = spy(cacheProvider);
         mockCacheProvider.getUserSessionByUserId(USER_ID);
         
-        verify(jedisOps).get("userId:session2:user");
+        verify(jedis).get(bytes("userId:session2:user"));
     }
     
     @Test
@@ -502,14 +672,15 @@ public class CacheProviderTest {
         verify(transaction).del(TOKEN_TO_USER_ID.toString());
         verify(transaction).del(USER_ID_TO_SESSION.toString());
         verify(transaction).exec();
+        verify(invalidationBus).invalidate(CacheProvider.SESSION_REGION, USER_ID);
     }
 
     @Test
     public void testRemoveSessionByUserId() throws Exception {
         UserSession session = createUserSession();
-        String ser = BridgeObjectMapper.get().writeValueAsString(session);
+        byte[] ser = BridgeObjectMapper.get().writeValueAsBytes(session);
 
-        when(jedisOps.get(USER_ID_TO_SESSION.toString())).thenReturn(ser);
+        when(jedis.get(bytes(USER_ID_TO_SESSION))).thenReturn(ser);
         
         cacheProvider.removeSessionByUserId(USER_ID);
         
@@ -523,9 +694,64 @@ public class CacheProviderTest {
         UserSession session = createUserSession();
         cacheProvider.setUserSession(session);
         
-        verify(transaction).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), eq(USER_ID));
-        verify(transaction).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), anyString());
-        verify(transaction).exec();
+        verify(jedisTransaction).setex(eq(bytes(TOKEN_TO_USER_ID)), anyInt(), eq(bytes(USER_ID)));
+        verify(jedisTransaction).setex(eq(bytes(USER_ID_TO_SESSION)), anyInt(),
+                eq(StudyParticipant.CACHE_WRITER.writeValueAsBytes(session)));
+        verify(jedisTransaction).exec();
+        verify(jedis).close();
+        verify(invalidationBus).invalidate(CacheProvider.SESSION_REGION, USER_ID);
+    }
+    
+    @Test
+    public void testSetUserSessionExistingSessionKeepsExpiration() throws Exception {
+        when(jedis.ttl(bytes(USER_ID_TO_SESSION))).thenReturn(50L);
+        
+        cacheProvider.setUserSession(createUserSession());
+        
+        verify(jedisTransaction).setex(eq(bytes(TOKEN_TO_USER_ID)), eq(50), any(byte[].class));
+        verify(jedisTransaction).setex(eq(bytes(USER_ID_TO_SESSION)), eq(50), any(byte[].class));
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class)
+    public void testSetUserSessionTransactionFails() throws Exception {
+        when(jedisTransaction.exec()).thenReturn(Arrays.asList((Object)"OK", "ERROR"));
+        
+        cacheProvider.setUserSession(createUserSession());
+    }
+    
+    @Test
+    public void testSetUserSessionAsSmile() throws Exception {
+        cacheProvider.setSessionFormat(CacheProvider.SessionFormat.SMILE);
+        
+        UserSession session = createUserSession();
+        session.setAppId(TEST_APP_ID);
+        cacheProvider.setUserSession(session);
+        
+        ArgumentCaptor<byte[]> serCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(jedisTransaction).setex(eq(bytes(USER_ID_TO_SESSION)), anyInt(), serCaptor.capture());
+        
+        byte[] ser = serCaptor.getValue();
+        assertEquals(ser, StudyParticipant.SMILE_CACHE_WRITER.writeValueAsBytes(session));
+        assertTrue(ser.length < StudyParticipant.CACHE_WRITER.writeValueAsBytes(session).length);
+        
+        // And it can be read back
+        when(jedis.get(bytes(USER_ID_TO_SESSION))).thenReturn(ser);
+        UserSession retrieved = cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN);
+        assertEquals(retrieved.getSessionToken(), DECRYPTED_SESSION_TOKEN);
+        assertEquals(retrieved.getAppId(), TEST_APP_ID);
+        assertEquals(retrieved.getId(), USER_ID);
+        assertEquals(retrieved.getHealthCode(), "healthCode");
+        assertEquals(retrieved.getParticipant().getEmail(), "userEmail");
+    }
+    
+    @Test
+    public void deserializeSessionJsonWithStudyIdentifier() throws Exception {
+        String json = TestUtils.createJson("{'sessionToken':'"+DECRYPTED_SESSION_TOKEN+"',"+
+                "'studyIdentifier':{'identifier':'"+TEST_APP_ID+"', 'type':'StudyIdentifier'},"+
+                "'type':'UserSession'}");
+        
+        UserSession session = CacheProvider.deserializeSession(bytes(json));
+        assertEquals(session.getAppId(), TEST_APP_ID);
     }
     
     @Test
@@ -543,9 +769,8 @@ public class CacheProviderTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedisTransaction, never()).setex(any(byte[].class), anyInt(), any(byte[].class));
+        verify(jedisTransaction, never()).exec();
     }
     
     @Test
@@ -559,9 +784,8 @@ public class CacheProviderTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedisTransaction, never()).setex(any(byte[].class), anyInt(), any(byte[].class));
+        verify(jedisTransaction, never()).exec();
     }
     
     @Test
@@ -579,9 +803,8 @@ public class CacheProviderTest {
         } catch(Throwable e) {
             fail(e.getMessage());
         }
-        verify(transaction, never()).setex(eq(TOKEN_TO_USER_ID.toString()), anyInt(), anyString());
-        verify(transaction, never()).setex(eq(USER_ID_TO_SESSION.toString()), anyInt(), eq(DECRYPTED_SESSION_TOKEN));
-        verify(transaction, never()).exec();
+        verify(jedisTransaction, never()).setex(any(byte[].class), anyInt(), any(byte[].class));
+        verify(jedisTransaction, never()).exec();
     }
 
     @Test
@@ -0,0 +1,172 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.models.studies.Study;
+
+public class NearCacheTest extends Mockito {
+    private static final String REGION = "foo";
+    private static final String KEY = "key";
+
+    @Mock
+    BridgeConfig mockBridgeConfig;
+
+    @Mock
+    CacheInvalidationBus mockInvalidationBus;
+
+    AtomicInteger loads;
+
+    NearCache<StringBuilder> cache;
+
+    CacheInvalidationBus.Listener listener;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        loads = new AtomicInteger();
+        cache = createCache(10);
+    }
+
+    private NearCache<StringBuilder> createCache(int maxSize) {
+        AtomicReference<NearCache<StringBuilder>> nearCache = new AtomicReference<>();
+        listener = createNearCache(mockBridgeConfig, mockInvalidationBus, REGION, maxSize, () -> nearCache.set(
+                new NearCache<>(REGION, mockBridgeConfig, mockInvalidationBus, StringBuilder::new)));
+        return nearCache.get();
+    }
+
+    private StringBuilder load() {
+        return new StringBuilder("value" + loads.incrementAndGet());
+    }
+
+    @Test
+    public void getLoadsOnceAndReturnsCopies() {
+        StringBuilder first = cache.get(KEY, this::load);
+        first.append("-modified");
+        StringBuilder second = cache.get(KEY, this::load);
+
+        assertEquals(first.toString(), "value1-modified");
+        assertEquals(second.toString(), "value1");
+        assertNotSame(first, second);
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        assertNull(cache.get(KEY, () -> null));
+        assertEquals(cache.get(KEY, this::load).toString(), "value1");
+    }
+
+    @Test
+    public void loaderExceptionIsRethrown() {
+        try {
+            cache.get(KEY, () -> {
+                throw new EntityNotFoundException(Study.class);
+            });
+            fail("Should have thrown exception");
+        } catch (EntityNotFoundException e) {
+            // expected
+        }
+        assertEquals(cache.get(KEY, this::load).toString(), "value1");
+    }
+
+    @Test
+    public void invalidatePublishes() {
+        cache.invalidate(KEY);
+
+        verify(mockInvalidationBus).invalidate(REGION, KEY);
+    }
+
+    @Test
+    public void evictReloads() {
+        cache.get(KEY, this::load);
+        listener.evict(KEY);
+
+        assertEquals(cache.get(KEY, this::load).toString(), "value2");
+    }
+
+    @Test
+    public void evictAllReloads() {
+        cache.get(KEY, this::load);
+        listener.evictAll();
+
+        assertEquals(cache.get(KEY, this::load).toString(), "value2");
+    }
+
+    @Test
+    public void loadRacingEvictionIsNotCached() {
+        StringBuilder value = cache.get(KEY, () -> {
+            // The entity is updated on another node while it is being loaded here.
+            listener.evict(KEY);
+            return load();
+        });
+        assertEquals(value.toString(), "value1");
+
+        assertEquals(cache.get(KEY, this::load).toString(), "value2");
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<StringBuilder> first = executor.submit(() -> cache.get(KEY, () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return load();
+            }));
+            loading.await();
+            Future<StringBuilder> second = executor.submit(() -> cache.get(KEY, this::load));
+            release.countDown();
+
+            assertEquals(first.get(5, TimeUnit.SECONDS).toString(), "value1");
+            assertEquals(second.get(5, TimeUnit.SECONDS).toString(), "value1");
+            assertEquals(loads.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void zeroSizeDisablesCache() {
+        cache = createCache(0);
+
+        cache.get(KEY, this::load);
+        assertEquals(cache.get(KEY, this::load).toString(), "value2");
+    }
+
+    @Test
+    public void disabledCacheAlwaysLoads() {
+        NearCache<StringBuilder> disabled = NearCache.disabled();
+
+        disabled.get(KEY, this::load);
+        assertEquals(disabled.get(KEY, this::load).toString(), "value2");
+        disabled.invalidate(KEY);
+
+        verify(mockInvalidationBus, never()).invalidate(any(), any());
+    }
+}
@@ -0,0 +1,34 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mockito.ArgumentCaptor;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class NearCacheTestUtils {
+
+    static final int TTL_SECONDS = 60;
+
+    /**
+     * Configure the near cache for a region with the given max size, and call the service's hook to create it. The
+     * service should already have the mock config and invalidation bus. Returns the listener the cache registered,
+     * so tests can evict entries as another server would.
+     */
+    public static CacheInvalidationBus.Listener createNearCache(BridgeConfig mockBridgeConfig,
+            CacheInvalidationBus mockCacheInvalidationBus, String region, int maxSize, Runnable createCache) {
+        when(mockBridgeConfig.getPropertyAsInt(String.format(NearCache.MAX_SIZE_PROPERTY, region)))
+                .thenReturn(maxSize);
+        when(mockBridgeConfig.getPropertyAsInt(String.format(NearCache.TTL_SECONDS_PROPERTY, region)))
+                .thenReturn(TTL_SECONDS);
+        createCache.run();
+
+        ArgumentCaptor<CacheInvalidationBus.Listener> captor = ArgumentCaptor
+                .forClass(CacheInvalidationBus.Listener.class);
+        verify(mockCacheInvalidationBus, atLeastOnce()).register(eq(region), captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,59 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+public class RedisScriptTest extends Mockito {
+    private static final String SCRIPT = "return redis.call('GET', KEYS[1])";
+    private static final List<String> KEYS = ImmutableList.of("key");
+    private static final List<String> ARGS = ImmutableList.of("arg");
+
+    @Mock
+    Jedis mockJedis;
+
+    RedisScript script;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        script = new RedisScript(SCRIPT);
+    }
+
+    @Test
+    public void evalBySha() {
+        when(mockJedis.evalsha(DigestUtils.sha1Hex(SCRIPT), KEYS, ARGS)).thenReturn("value");
+
+        assertEquals(script.eval(mockJedis, KEYS, ARGS), "value");
+        verify(mockJedis, never()).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    public void evalLoadsScriptWhenNotCached() {
+        when(mockJedis.evalsha(DigestUtils.sha1Hex(SCRIPT), KEYS, ARGS))
+                .thenThrow(new JedisDataException("NOSCRIPT No matching script. Please use EVAL."));
+        when(mockJedis.eval(SCRIPT, KEYS, ARGS)).thenReturn("value");
+
+        assertEquals(script.eval(mockJedis, KEYS, ARGS), "value");
+    }
+
+    @Test(expectedExceptions = JedisDataException.class)
+    public void evalRethrowsOtherErrors() {
+        when(mockJedis.evalsha(DigestUtils.sha1Hex(SCRIPT), KEYS, ARGS))
+                .thenThrow(new JedisDataException("ERR Error running script"));
+
+        script.eval(mockJedis, KEYS, ARGS);
+    }
+}
@@ -0,0 +1,156 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTimeUtils;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class TokenBucketRateLimiterTest extends Mockito {
+    private static final long NOW_SECONDS = 1_600_000_000L;
+    private static final RateLimit LIMIT = new RateLimit("participant-file", 1000, 10000, 3600, 1000);
+    private static final String KEY = "userId:participant-file:rateLimit";
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    TokenBucketRateLimiter limiter;
+
+    @BeforeMethod
+    public void before() {
+        MockitoAnnotations.initMocks(this);
+        DateTimeUtils.setCurrentMillisFixed(NOW_SECONDS * 1000L + 500L);
+
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt(TokenBucketRateLimiter.CONFIG_KEY_REPORT_INTERVAL_MINUTES)).thenReturn(0);
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        limiter = new TokenBucketRateLimiter();
+        limiter.setBridgeConfig(mockConfig);
+        limiter.setJedisPool(mockJedisPool);
+        limiter.start();
+    }
+
+    @AfterMethod
+    public void after() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    private void mockScriptResult(Object result) {
+        when(mockJedis.evalsha(eq(TokenBucketRateLimiter.CONSUME_SCRIPT.getSha1()), anyList(), anyList()))
+                .thenReturn(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void tryConsumePassesLimitToScript() {
+        mockScriptResult(1L);
+
+        assertTrue(limiter.tryConsume(LIMIT, "userId", 250));
+
+        verify(mockJedis).evalsha(TokenBucketRateLimiter.CONSUME_SCRIPT.getSha1(), ImmutableList.of(KEY),
+                ImmutableList.of("1000", "10000", "3600", "1000", "250", String.valueOf(NOW_SECONDS), "39600"));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void tryConsumeRejected() {
+        mockScriptResult(0L);
+
+        assertFalse(limiter.tryConsume(LIMIT, "userId", 250));
+        verify(mockJedis).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void tryConsumeAllowsWhenRedisFails() {
+        when(mockJedis.evalsha(anyString(), anyList(), anyList()))
+                .thenThrow(new JedisConnectionException("connection refused"));
+
+        assertTrue(limiter.tryConsume(LIMIT, "userId", 250));
+        assertEquals(limiter.snapshot().get("participant-file").get("errors").longValue(), 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void tryConsumeRejectsWhenRedisFailsForFailClosedLimit() {
+        when(mockJedis.evalsha(anyString(), anyList(), anyList()))
+                .thenThrow(new JedisConnectionException("connection refused"));
+        RateLimit failClosedLimit = new RateLimit("verify_email", 2, 2, 150, 1, false);
+
+        assertFalse(limiter.tryConsume(failClosedLimit, "userId", 1));
+        assertEquals(limiter.snapshot().get("verify_email").get("errors").longValue(), 1L);
+    }
+
+    @Test
+    public void snapshot() {
+        RateLimit otherLimit = new RateLimit("create-participant", 3, 3, 100, 1);
+        when(mockJedis.evalsha(eq(TokenBucketRateLimiter.CONSUME_SCRIPT.getSha1()), anyList(), anyList()))
+                .thenReturn(1L, 1L, 0L, 1L);
+
+        limiter.tryConsume(LIMIT, "userA", 10);
+        limiter.tryConsume(LIMIT, "userB", 10);
+        limiter.tryConsume(LIMIT, "userA", 10);
+        limiter.tryConsume(otherLimit, "userA", 1);
+
+        ObjectNode node = limiter.snapshot();
+        // Limits are sorted by name.
+        List<String> names = Lists.newArrayList(node.fieldNames());
+        assertEquals(names, ImmutableList.of("create-participant", "participant-file"));
+
+        JsonNode fileNode = node.get("participant-file");
+        assertEquals(fileNode.get("allowed").longValue(), 2L);
+        assertEquals(fileNode.get("rejected").longValue(), 1L);
+        assertEquals(fileNode.get("errors").longValue(), 0L);
+
+        JsonNode createNode = node.get("create-participant");
+        assertEquals(createNode.get("allowed").longValue(), 1L);
+        assertEquals(createNode.get("rejected").longValue(), 0L);
+    }
+
+    @Test
+    public void reportDoesNotThrow() {
+        mockScriptResult(1L);
+        limiter.tryConsume(LIMIT, "userId", 1);
+        limiter.report();
+    }
+
+    @Test
+    public void expirationCoversRefillToMaximum() {
+        // 10 refills of 1000 to reach 10000, plus one more interval.
+        assertEquals(LIMIT.getExpirationSeconds(), 11 * 3600L);
+        // Partial refills round up.
+        assertEquals(new RateLimit("limit", 1, 5, 10, 2).getExpirationSeconds(), 40L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void refillIntervalMustBePositive() {
+        new RateLimit("limit", 1, 1, 0, 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void negativeTokensRejected() {
+        limiter.tryConsume(LIMIT, "userId", -1);
+    }
+}
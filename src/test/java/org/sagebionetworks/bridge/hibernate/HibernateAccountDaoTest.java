@@ -58,6 +58,7 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -167,6 +168,44 @@ public class HibernateAccountDaoTest extends Mockito {
         assertEquals(account, hibernateAccount);
     }
 
+    @Test
+    public void getHealthCode() {
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(String.class)))
+                .thenReturn(ImmutableList.of(HEALTH_CODE));
+        
+        assertEquals(dao.getHealthCode(TEST_APP_ID, TEST_USER_ID).get(), HEALTH_CODE);
+        
+        verify(mockHibernateHelper).queryGet(eq(HibernateAccountDao.HEALTH_CODE_QUERY), paramCaptor.capture(),
+                isNull(), isNull(), eq(String.class));
+        assertEquals(paramCaptor.getValue().get("appId"), TEST_APP_ID);
+        assertEquals(paramCaptor.getValue().get("userId"), TEST_USER_ID);
+    }
+    
+    @Test
+    public void getHealthCodeNoAccount() {
+        assertFalse(dao.getHealthCode(TEST_APP_ID, TEST_USER_ID).isPresent());
+    }
+    
+    @Test
+    public void getEnrolledOn() {
+        DateTime enrolledOn = DateTime.now();
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(DateTime.class)))
+                .thenReturn(ImmutableList.of(enrolledOn));
+        
+        assertEquals(dao.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID).get(), enrolledOn);
+        
+        verify(mockHibernateHelper).queryGet(eq(HibernateAccountDao.ENROLLED_ON_QUERY), paramCaptor.capture(),
+                isNull(), isNull(), eq(DateTime.class));
+        assertEquals(paramCaptor.getValue().get("appId"), TEST_APP_ID);
+        assertEquals(paramCaptor.getValue().get("studyId"), TEST_STUDY_ID);
+        assertEquals(paramCaptor.getValue().get("userId"), TEST_USER_ID);
+    }
+    
+    @Test
+    public void getEnrolledOnNotEnrolled() {
+        assertFalse(dao.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID).isPresent());
+    }
+
     @Test
     public void createAccountSuccess() {
         Account account = makeValidGenericAccount();
@@ -468,7 +507,7 @@ public class HibernateAccountDaoTest extends Mockito {
         String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN "
                 + "acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
                 + "WHERE acct.appId = :appId AND admin = 1 AND acct.orgMembership = "
-                + ":orgId GROUP BY acct.id";
+                + ":orgId GROUP BY acct.id ORDER BY acct.id";
 
         String expCountQuery = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct "
                 + "LEFT JOIN acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
@@ -618,7 +657,7 @@ public class HibernateAccountDaoTest extends Mockito {
                 +":endTime AND :language IN ELEMENTS(acct.languages) AND (:IN1 IN elements(acct.dataGroups) "
                 +"AND :IN2 IN elements(acct.dataGroups)) AND (:NOTIN1 NOT IN elements(acct.dataGroups) AND "
                 +":NOTIN2 NOT IN elements(acct.dataGroups)) AND ri.signedInOn IS NOT NULL";
-        String expQuery = "SELECT acct.id " + expBaseQuery + " GROUP BY acct.id";
+        String expQuery = "SELECT acct.id " + expBaseQuery + " GROUP BY acct.id ORDER BY acct.id";
         String expCountQuery = "SELECT COUNT(DISTINCT acct.id) " + expBaseQuery;
 
         // Setup start and end dates.
@@ -734,7 +773,7 @@ public class HibernateAccountDaoTest extends Mockito {
                 + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId AND "
                 + "acct.email LIKE :email AND acct.phone.number LIKE :number AND acct.createdOn >= "
                 + ":startTime AND acct.createdOn <= :endTime AND :language IN ELEMENTS(acct.languages) "
-                + "GROUP BY acct.id";
+                + "GROUP BY acct.id ORDER BY acct.id";
 
         String expCountQuery = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct LEFT JOIN "
                 + "acct.enrollments AS enrollment WITH acct.id = enrollment.accountId WHERE "
@@ -810,7 +849,7 @@ public class HibernateAccountDaoTest extends Mockito {
     public void getPagedScopedToOrgStudies() {
         String queryExpr = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments "
                 + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId AND "
-                + "enrollment.studyId IN (:studies) GROUP BY acct.id";
+                + "enrollment.studyId IN (:studies) GROUP BY acct.id ORDER BY acct.id";
         
         RequestContext.set(new RequestContext.Builder()
                 .withCallerRoles(ImmutableSet.of(STUDY_COORDINATOR))
@@ -828,7 +867,7 @@ public class HibernateAccountDaoTest extends Mockito {
     public void getPagedNotScopedToOrgStudiesForAdmin() {
         String queryExpr = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments "
                 + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId "
-                + "GROUP BY acct.id";
+                + "GROUP BY acct.id ORDER BY acct.id";
         
         RequestContext.set(new RequestContext.Builder()
                 .withCallerRoles(ImmutableSet.of(ADMIN))
@@ -842,6 +881,80 @@ public class HibernateAccountDaoTest extends Mockito {
         assertNull(paramCaptor.getValue().get("studies"));
     }
     
+    @Test
+    public void getAccountSummariesByOffsetKey() throws Exception {
+        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments "
+                + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId AND "
+                + "acct.id > :afterId GROUP BY acct.id ORDER BY acct.id";
+        
+        mockAccounts("account-3", "account-4");
+        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), any()))
+                .thenReturn(ImmutableList.of("account-3", "account-4", "account-5"));
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetKey("account-2")
+                .withPageSize(2).build();
+        ForwardCursorPagedResourceList<AccountSummary> page = dao.getAccountSummariesByOffsetKey(TEST_APP_ID,
+                search);
+        
+        assertEquals(page.getItems().size(), 2);
+        assertEquals(page.getItems().get(0).getId(), "account-3");
+        assertEquals(page.getItems().get(1).getId(), "account-4");
+        assertEquals(page.getNextPageOffsetKey(), "account-4");
+        assertEquals(page.getRequestParams().get("offsetKey"), "account-2");
+        assertEquals(page.getRequestParams().get("pageSize"), 2);
+        
+        // One more than the page is read to know if there's another page, and the search is not counted.
+        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), isNull(), eq(3), eq(String.class));
+        assertEquals(paramCaptor.getValue().get("afterId"), "account-2");
+        verify(mockHibernateHelper, never()).getById(HibernateAccount.class, "account-5");
+        verify(mockHibernateHelper, never()).queryCount(any(), any());
+    }
+    
+    @Test
+    public void getAccountSummariesByOffsetKeyFirstPage() throws Exception {
+        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN acct.enrollments "
+                + "AS enrollment WITH acct.id = enrollment.accountId WHERE acct.appId = :appId "
+                + "GROUP BY acct.id ORDER BY acct.id";
+        
+        mockAccounts("account-1", "account-2");
+        when(mockHibernateHelper.queryGet(eq(expQuery), any(), any(), any(), any()))
+                .thenReturn(ImmutableList.of("account-1", "account-2", "account-3"));
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withPageSize(2).build();
+        ForwardCursorPagedResourceList<AccountSummary> page = dao.getAccountSummariesByOffsetKey(TEST_APP_ID,
+                search);
+        
+        assertEquals(page.getItems().size(), 2);
+        assertEquals(page.getNextPageOffsetKey(), "account-2");
+        
+        verify(mockHibernateHelper).queryGet(eq(expQuery), paramCaptor.capture(), isNull(), eq(3), eq(String.class));
+        assertNull(paramCaptor.getValue().get("afterId"));
+    }
+    
+    @Test
+    public void getAccountSummariesByOffsetKeyLastPage() throws Exception {
+        mockAccounts("account-11", "account-12");
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), any()))
+                .thenReturn(ImmutableList.of("account-11", "account-12"));
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withOffsetKey("account-10").withPageSize(2).build();
+        ForwardCursorPagedResourceList<AccountSummary> page = dao.getAccountSummariesByOffsetKey(TEST_APP_ID,
+                search);
+        
+        assertEquals(page.getItems().size(), 2);
+        assertNull(page.getNextPageOffsetKey());
+        assertFalse(page.hasNext());
+    }
+    
+    private void mockAccounts(String... ids) throws Exception {
+        for (String id : ids) {
+            HibernateAccount account = makeValidHibernateAccount(false);
+            account.setId(id);
+            when(mockHibernateHelper.getById(HibernateAccount.class, id)).thenReturn(account);
+        }
+    }
+    
     @Test
     public void unmarshallAccountSummarySuccess() {
         RequestContext.set(new RequestContext.Builder()
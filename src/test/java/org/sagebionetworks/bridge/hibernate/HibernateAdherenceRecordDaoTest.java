@@ -85,6 +85,9 @@ public class HibernateAdherenceRecordDaoTest extends Mockito {
     @Captor
     ArgumentCaptor<AdherenceRecordId> idCaptor;
 
+    @Captor
+    ArgumentCaptor<Map<String, Object>> paramsCaptor;
+
     @InjectMocks
     HibernateAdherenceRecordDao dao;
 
@@ -624,6 +627,87 @@ public class HibernateAdherenceRecordDaoTest extends Mockito {
         verifyNoMoreInteractions(mockHelper);
     }
 
+    private AdherenceRecord record(String instanceGuid, DateTime startedOn) {
+        AdherenceRecord record = new AdherenceRecord();
+        record.setAppId(TEST_APP_ID);
+        record.setStudyId(TEST_STUDY_ID);
+        record.setUserId(TEST_USER_ID);
+        record.setInstanceGuid(instanceGuid);
+        record.setEventTimestamp(MODIFIED_ON);
+        record.setInstanceTimestamp(MODIFIED_ON.plusHours(1));
+        record.setStartedOn(startedOn);
+        return record;
+    }
+    
+    @Test
+    public void updateAdherenceRecords() {
+        AdherenceRecord saved = record("AAA", MODIFIED_ON.plusHours(2));
+        saved.setUploadedOn(UPLOADED_ON.plusHours(1));
+        saved.setUploadIds(ImmutableSet.of("upload-id-2"));
+        AdherenceRecord deleted = record("BBB", null);
+        AdherenceRecord neverSaved = record("CCC", null);
+        
+        AdherenceRecord persistedSaved = record("AAA", MODIFIED_ON);
+        persistedSaved.setUploadedOn(UPLOADED_ON);
+        persistedSaved.setUploadIds(ImmutableSet.of("upload-id-1"));
+        AdherenceRecord persistedDeleted = record("BBB", MODIFIED_ON);
+        when(mockHelper.nativeQueryGet(any(), any(), any(), any(), eq(AdherenceRecord.class)))
+                .thenReturn(ImmutableList.of(persistedSaved, persistedDeleted));
+        
+        dao.updateAdherenceRecords(ImmutableList.of(saved, deleted, neverSaved));
+        
+        // Existing records are retrieved in one query...
+        verify(mockHelper).nativeQueryGet(eq(HibernateAdherenceRecordDao.SELECT_RECORDS_FOR_INSTANCES), 
+                paramsCaptor.capture(), isNull(), isNull(), eq(AdherenceRecord.class));
+        Map<String, Object> params = paramsCaptor.getValue();
+        assertEquals(params.get("userId"), TEST_USER_ID);
+        assertEquals(params.get("studyId"), TEST_STUDY_ID);
+        assertEquals(params.get("instanceGuids"), ImmutableSet.of("AAA", "BBB", "CCC"));
+        
+        // ...and written in one transaction, merged with the existing records.
+        verify(mockHelper).saveOrUpdateAndDeleteAll(ImmutableList.of(saved), ImmutableList.of(persistedDeleted));
+        verify(mockHelper, never()).getById(any(), any());
+        assertEquals(saved.getUploadedOn(), UPLOADED_ON);
+        assertEquals(saved.getUploadIds(), ImmutableSet.of("upload-id-1", "upload-id-2"));
+    }
+    
+    @Test
+    public void updateAdherenceRecords_laterRecordsAreAppliedToEarlierRecords() {
+        AdherenceRecord first = record(GUID, MODIFIED_ON);
+        first.setUploadIds(ImmutableSet.of("upload-id-1"));
+        AdherenceRecord second = record(GUID, MODIFIED_ON.plusHours(2));
+        second.setUploadIds(ImmutableSet.of("upload-id-2"));
+        AdherenceRecord other = record(GUID, MODIFIED_ON);
+        other.setInstanceTimestamp(MODIFIED_ON.plusHours(3));
+        when(mockHelper.nativeQueryGet(any(), any(), any(), any(), eq(AdherenceRecord.class)))
+                .thenReturn(ImmutableList.of());
+        
+        dao.updateAdherenceRecords(ImmutableList.of(first, second, other));
+        
+        verify(mockHelper).saveOrUpdateAndDeleteAll(ImmutableList.of(second, other), ImmutableList.of());
+        assertEquals(second.getUploadIds(), ImmutableSet.of("upload-id-1", "upload-id-2"));
+    }
+    
+    @Test
+    public void updateAdherenceRecords_recordSavedThenDeletedInBatch() {
+        AdherenceRecord first = record(GUID, MODIFIED_ON);
+        AdherenceRecord second = record(GUID, null);
+        AdherenceRecord persisted = record(GUID, MODIFIED_ON);
+        when(mockHelper.nativeQueryGet(any(), any(), any(), any(), eq(AdherenceRecord.class)))
+                .thenReturn(ImmutableList.of(persisted));
+        
+        dao.updateAdherenceRecords(ImmutableList.of(first, second));
+        
+        verify(mockHelper).saveOrUpdateAndDeleteAll(ImmutableList.of(), ImmutableList.of(persisted));
+    }
+    
+    @Test
+    public void updateAdherenceRecords_emptyList() {
+        dao.updateAdherenceRecords(ImmutableList.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+
     private AdherenceRecordsSearch.Builder search() {
         return new AdherenceRecordsSearch.Builder().withUserId(TEST_USER_ID).withStudyId(TEST_STUDY_ID);
     }
@@ -5,30 +5,50 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ADHERENCE_MAX_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ADHERENCE_MIN_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.COUNTED_MARKER_PERCENT;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.COUNT_PERCENT_REPORTS_QUERY;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.DECREMENT_LABEL_COUNT_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.DELETE_LABEL_COUNTS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.DELETE_PERCENT_COUNTS_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ID_FILTER_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.INCREMENT_LABEL_COUNT_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.LABEL_FILTER_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.LOCK_COUNTS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.MAX_SAVE_ATTEMPTS;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.PERCENT_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.PREVIOUS_REPORTS_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.PROGRESSION_FILTER_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_COUNT;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_DISTINCT;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_LABEL_COUNTS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_PERCENT_COUNTS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.STATISTICS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.UPDATE_PERCENT_COUNT_SQL;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.BOTH;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.PRODUCTION;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.TEST;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress.DONE;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress.IN_PROGRESS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.hibernate.Session;
-import org.hibernate.SessionFactory;
+import org.hibernate.exception.LockAcquisitionException;
 import org.hibernate.query.NativeQuery;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -40,12 +60,14 @@ import com.google.common.collect.ImmutableSet;
 
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistics;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatisticsEntry;
 import org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportRow;
 
 public class HibernateAdherenceReportDaoTest extends Mockito {
 
@@ -89,10 +111,10 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     HibernateHelper mockHelper;
     
     @Mock
-    NativeQuery<Integer> mockQuery;
+    NativeQuery<Object[]> mockQuery;
     
     @Mock
-    SessionFactory mockSessionFactory;
+    NativeQuery<Object[]> mockLockQuery;
     
     @Mock
     Session mockSession;
@@ -109,13 +131,222 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
+        
+        when(mockSession.createNativeQuery(any())).thenReturn(mockQuery);
+        // By default, the study's counts have been calculated.
+        when(mockSession.createNativeQuery(LOCK_COUNTS_SQL)).thenReturn(mockLockQuery);
+        when(mockLockQuery.list()).thenReturn(ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0}));
+        when(mockHelper.executeWithExceptionHandling(any(), any())).thenAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            func.apply(mockSession);
+            return args.getArgument(0);
+        });
+    }
+    
+    private WeeklyAdherenceReport report(String userId, Integer percent, String... labels) {
+        WeeklyAdherenceReport report = new WeeklyAdherenceReport();
+        report.setAppId(TEST_APP_ID);
+        report.setStudyId(TEST_STUDY_ID);
+        report.setUserId(userId);
+        report.setWeeklyAdherencePercent(percent);
+        report.setSearchableLabels(ImmutableSet.copyOf(labels));
+        
+        List<WeeklyAdherenceReportRow> rows = new ArrayList<>();
+        for (String label : labels) {
+            WeeklyAdherenceReportRow row = new WeeklyAdherenceReportRow();
+            row.setSearchableLabel(label);
+            row.setLabel("Label " + label);
+            row.setSessionName("Session");
+            row.setWeekInStudy(2);
+            rows.add(row);
+        }
+        report.setRows(rows);
+        return report;
     }
     
     @Test
     public void saveWeeklyAdherenceReport() {
-        WeeklyAdherenceReport report = new WeeklyAdherenceReport();
+        WeeklyAdherenceReport report = report("userId", 50, ":a:");
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        
+        dao.saveWeeklyAdherenceReport(report);
+        
+        verify(mockSession).saveOrUpdate(report);
+        verify(mockSession).createNativeQuery(PREVIOUS_REPORTS_SQL);
+        verify(mockQuery).setParameter("userIds", ImmutableSet.of("userId"));
+        verify(mockSession).createNativeQuery(UPDATE_PERCENT_COUNT_SQL);
+        verify(mockQuery).setParameter("percent", 50);
+        verify(mockSession).createNativeQuery(INCREMENT_LABEL_COUNT_SQL);
+        verify(mockQuery).setParameter("searchableLabel", ":a:");
+        verify(mockQuery).setParameter("label", "Label :a:");
+        verify(mockQuery).setParameter("sessionName", "Session");
+        verify(mockQuery).setParameter("weekInStudy", 2);
+        verify(mockQuery, times(2)).setParameter("delta", 1);
+        verify(mockQuery, times(2)).executeUpdate();
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportLocksCountsFirst() {
+        WeeklyAdherenceReport report = report("userId", 50, ":a:");
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        
+        dao.saveWeeklyAdherenceReport(report);
+        
+        InOrder inOrder = inOrder(mockSession, mockLockQuery);
+        inOrder.verify(mockSession).createNativeQuery(LOCK_COUNTS_SQL);
+        inOrder.verify(mockLockQuery).setParameter("percent", COUNTED_MARKER_PERCENT);
+        inOrder.verify(mockLockQuery).list();
+        inOrder.verify(mockSession).createNativeQuery(PREVIOUS_REPORTS_SQL);
+        inOrder.verify(mockSession).saveOrUpdate(report);
+        verify(mockSession, never()).createNativeQuery(DELETE_PERCENT_COUNTS_SQL);
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportCalculatesMissingCountsFirst() {
+        // The study's counts have never been calculated, so deltas alone would leave them incomplete.
+        when(mockLockQuery.list()).thenReturn(ImmutableList.of());
+        WeeklyAdherenceReport report = report("userId", 50, ":a:");
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        
+        dao.saveWeeklyAdherenceReport(report);
+        
+        InOrder inOrder = inOrder(mockSession);
+        inOrder.verify(mockSession).createNativeQuery(LOCK_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(DELETE_PERCENT_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(DELETE_LABEL_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(PERCENT_SQL);
+        inOrder.verify(mockSession).createNativeQuery(STATISTICS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(PREVIOUS_REPORTS_SQL);
+        inOrder.verify(mockSession).saveOrUpdate(report);
+        verify(mockQuery).setParameter("percent", COUNTED_MARKER_PERCENT);
+        verify(mockHelper).executeWithExceptionHandling(any(), any());
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsUpdatesCounts() {
+        // user1's report moves from 50% to 80%, and adds label b. user2 is new.
+        List<WeeklyAdherenceReport> reports = ImmutableList.of(report("user1", 80, ":a:", ":b:"), 
+                report("user2", 80, ":b:"));
+        when(mockQuery.list()).thenReturn(ImmutableList.of(
+                new Object[] {"user1", 50, ":a:"}));
+        
+        dao.saveWeeklyAdherenceReports(reports);
+        
+        verify(mockSession).saveOrUpdate(reports.get(0));
+        verify(mockSession).saveOrUpdate(reports.get(1));
+        verify(mockQuery).setParameter("userIds", ImmutableSet.of("user1", "user2"));
+        
+        // One statement for each percentage that changed...
+        verify(mockSession, times(2)).createNativeQuery(UPDATE_PERCENT_COUNT_SQL);
+        verify(mockQuery).setParameter("percent", 50);
+        verify(mockQuery).setParameter("delta", -1);
+        verify(mockQuery).setParameter("percent", 80);
+        verify(mockQuery, times(2)).setParameter("delta", 2);
+        
+        // ...and each label that changed. Label a has the same count as before.
+        verify(mockSession).createNativeQuery(INCREMENT_LABEL_COUNT_SQL);
+        verify(mockQuery).setParameter("searchableLabel", ":b:");
+        verify(mockSession, never()).createNativeQuery(DECREMENT_LABEL_COUNT_SQL);
+        verify(mockQuery, times(3)).executeUpdate();
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsRemovesLabels() {
+        List<WeeklyAdherenceReport> reports = ImmutableList.of(report("user1", null));
+        when(mockQuery.list()).thenReturn(ImmutableList.of(
+                new Object[] {"user1", 50, ":a:"}, 
+                new Object[] {"user1", 50, ":b:"}));
+        
+        dao.saveWeeklyAdherenceReports(reports);
+        
+        // The percentage is removed once, although there are two rows for the previous report.
+        verify(mockSession).createNativeQuery(UPDATE_PERCENT_COUNT_SQL);
+        verify(mockQuery).setParameter("percent", 50);
+        verify(mockSession, times(2)).createNativeQuery(DECREMENT_LABEL_COUNT_SQL);
+        verify(mockQuery).setParameter("searchableLabel", ":a:");
+        verify(mockQuery).setParameter("searchableLabel", ":b:");
+        verify(mockQuery, times(3)).setParameter("delta", -1);
+        verify(mockSession, never()).createNativeQuery(INCREMENT_LABEL_COUNT_SQL);
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsUpdatesCountsInOrder() {
+        List<WeeklyAdherenceReport> reports = ImmutableList.of(report("user2", 80, ":c:", ":a:"), 
+                report("user1", 20, ":b:"));
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        
+        dao.saveWeeklyAdherenceReports(reports);
+        
+        InOrder inOrder = inOrder(mockSession, mockQuery);
+        inOrder.verify(mockSession).saveOrUpdate(reports.get(1));
+        inOrder.verify(mockSession).saveOrUpdate(reports.get(0));
+        inOrder.verify(mockQuery).setParameter("percent", 20);
+        inOrder.verify(mockQuery).setParameter("percent", 80);
+        inOrder.verify(mockQuery).setParameter("searchableLabel", ":a:");
+        inOrder.verify(mockQuery).setParameter("searchableLabel", ":b:");
+        inOrder.verify(mockQuery).setParameter("searchableLabel", ":c:");
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsRetriesDeadlock() {
+        WeeklyAdherenceReport report = report("userId", 50, ":a:");
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        doThrow(new BridgeServiceException(deadlock())).doAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            func.apply(mockSession);
+            return args.getArgument(0);
+        }).when(mockHelper).executeWithExceptionHandling(any(), any());
+        
         dao.saveWeeklyAdherenceReport(report);
-        verify(mockHelper).saveOrUpdate(report);
+        
+        verify(mockHelper, times(2)).executeWithExceptionHandling(any(), any());
+        verify(mockSession).saveOrUpdate(report);
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsStopsRetryingDeadlock() {
+        BridgeServiceException e = new BridgeServiceException(deadlock());
+        doThrow(e).when(mockHelper).executeWithExceptionHandling(any(), any());
+        
+        try {
+            dao.saveWeeklyAdherenceReport(report("userId", 50, ":a:"));
+            fail("Should have thrown exception");
+        } catch (BridgeServiceException thrown) {
+            assertSame(thrown, e);
+        }
+        verify(mockHelper, times(MAX_SAVE_ATTEMPTS)).executeWithExceptionHandling(any(), any());
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsDoesNotRetryOtherErrors() {
+        BridgeServiceException e = new BridgeServiceException("Something else went wrong");
+        doThrow(e).when(mockHelper).executeWithExceptionHandling(any(), any());
+        
+        try {
+            dao.saveWeeklyAdherenceReport(report("userId", 50, ":a:"));
+            fail("Should have thrown exception");
+        } catch (BridgeServiceException thrown) {
+            assertSame(thrown, e);
+        }
+        verify(mockHelper).executeWithExceptionHandling(any(), any());
+    }
+    
+    @Test
+    public void isDeadlock() {
+        assertTrue(HibernateAdherenceReportDao.isDeadlock(deadlock()));
+        assertTrue(HibernateAdherenceReportDao.isDeadlock(new BridgeServiceException(deadlock())));
+        assertFalse(HibernateAdherenceReportDao.isDeadlock(new BridgeServiceException("Not a deadlock")));
+    }
+    
+    private static LockAcquisitionException deadlock() {
+        return new LockAcquisitionException("Deadlock found when trying to get lock", 
+                new SQLException("Deadlock found when trying to get lock", "40001", 1213));
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsEmpty() {
+        dao.saveWeeklyAdherenceReports(ImmutableList.of());
+        verify(mockHelper, never()).executeWithExceptionHandling(any(), any());
     }
     
     @Test
@@ -311,39 +542,172 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     
     @Test
     public void getWeeklyAdherenceStatistics_noData() throws Exception {
-        when(mockSessionFactory.openSession()).thenReturn(mockSession);
-        when(mockSession.createNativeQuery(any())).thenReturn(mockQuery);
+        when(mockHelper.nativeQuery(any(), any())).thenReturn(ImmutableList.of());
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
         
         AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
         assertEquals(stats.getAdherenceThresholdPercentage(), Integer.valueOf(22));
+        assertEquals(stats.getTotalActive(), Integer.valueOf(0));
+        assertEquals(stats.getCompliant(), Integer.valueOf(0));
+        assertEquals(stats.getNoncompliant(), Integer.valueOf(0));
         assertTrue(stats.getEntries().isEmpty());
     }
 
     @Test
     public void getWeeklyAdherenceStatistics() throws Exception {
-        when(mockSessionFactory.openSession()).thenReturn(mockSession);
-        when(mockSession.createNativeQuery(any())).thenReturn(mockQuery);
+        List<Object[]> percentCounts = ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0}, 
+                new Object[] {10, 3}, new Object[] {22, 4}, new Object[] {90, 5});
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(percentCounts);
         
-        String json = TestUtils.createJson("[{'label':'Session #2 / Week 10',"
-                +"'searchableLabel':':label1:','sessionGuid':'lgjaORpbvHSMvmGWPaHxJy9v',"
-                +"'startEventId':'custom:event1','sessionName':'Session #2',"
-                +"'weekInStudy':10,'type':'WeeklyAdherenceReportRow'},{'label':'Session #4 / Week 1',"
-                +"'searchableLabel':':label2:','sessionGuid':'aaaa','startEventId':'custom:event2',"
-                +"'sessionName':'Session #4','weekInStudy':1,'type':'WeeklyAdherenceReportRow'}]");
-        
-        Object[] row = new Object[] {":label1:", BigInteger.valueOf(10), json};
-        List<Object[]> results = ImmutableList.of(row);
-        when(mockHelper.nativeQuery(stringCaptor.capture(), paramsCaptor.capture()))
-            .thenReturn(results);
+        List<Object[]> labelCounts = ImmutableList.of(
+                new Object[] {":label2:", "Session #4 / Week 1", "Session #4", 1, null, null, 2},
+                new Object[] {":label1:", "Session #2 / Week 10", "Session #2", 10, null, null, 10});
+        when(mockHelper.nativeQuery(eq(SELECT_LABEL_COUNTS_SQL), paramsCaptor.capture())).thenReturn(labelCounts);
         
         AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
         assertEquals(stats.getAdherenceThresholdPercentage(), Integer.valueOf(22));
-        assertEquals(stats.getEntries().size(), 1);
+        assertEquals(stats.getTotalActive(), Integer.valueOf(12));
+        assertEquals(stats.getNoncompliant(), Integer.valueOf(3));
+        assertEquals(stats.getCompliant(), Integer.valueOf(9));
+        assertEquals(paramsCaptor.getValue().get("appId"), TEST_APP_ID);
+        assertEquals(paramsCaptor.getValue().get("studyId"), TEST_STUDY_ID);
+        
+        assertEquals(stats.getEntries().size(), 2);
         AdherenceStatisticsEntry entry = stats.getEntries().get(0);
         assertEquals(entry.getLabel(), "Session #2 / Week 10");
         assertEquals(entry.getSearchableLabel(), ":label1:");
         assertEquals(entry.getSessionName(), "Session #2");
         assertEquals(entry.getWeekInStudy(), Integer.valueOf(10));
         assertEquals(entry.getTotalActive(), Integer.valueOf(10));
+        assertEquals(stats.getEntries().get(1).getSearchableLabel(), ":label2:");
+        
+        // Counts exist, so they are not recalculated.
+        verify(mockHelper, never()).executeWithExceptionHandling(any(), any());
+    }
+    
+    @Test
+    public void getWeeklyAdherenceStatisticsCountedWithoutPercentages() throws Exception {
+        // The study's counts have been calculated, but none of its reports has a percentage.
+        List<Object[]> percentCounts = ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0});
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(percentCounts);
+        when(mockHelper.nativeQuery(eq(SELECT_LABEL_COUNTS_SQL), any())).thenReturn(ImmutableList.of());
+        
+        AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
+        assertEquals(stats.getTotalActive(), Integer.valueOf(0));
+        assertEquals(stats.getNoncompliant(), Integer.valueOf(0));
+        assertEquals(stats.getCompliant(), Integer.valueOf(0));
+        
+        verify(mockHelper, never()).executeWithExceptionHandling(any(), any());
+    }
+    
+    @Test
+    public void getWeeklyAdherenceStatisticsRecalculatesMissingCounts() throws Exception {
+        when(mockLockQuery.list()).thenReturn(ImmutableList.of());
+        List<Object[]> percentCounts = ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0}, 
+                new Object[] {10, 3});
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any()))
+                .thenReturn(ImmutableList.of(), percentCounts);
+        when(mockHelper.nativeQuery(eq(SELECT_LABEL_COUNTS_SQL), any())).thenReturn(ImmutableList.of());
+        when(mockQuery.list()).thenReturn(ImmutableList.of(new Object[] {10, BigInteger.valueOf(3)}), 
+                ImmutableList.of());
+        
+        AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
+        assertEquals(stats.getTotalActive(), Integer.valueOf(3));
+        
+        verify(mockHelper).executeWithExceptionHandling(any(), any());
+        verify(mockSession).createNativeQuery(PERCENT_SQL);
+        verify(mockSession, times(2)).createNativeQuery(UPDATE_PERCENT_COUNT_SQL);
+        verify(mockQuery).setParameter("percent", COUNTED_MARKER_PERCENT);
+        verify(mockQuery).setParameter("delta", 0);
+        verify(mockQuery).setParameter("percent", 10);
+        verify(mockQuery).setParameter("delta", 3);
+    }
+    
+    @Test
+    public void getWeeklyAdherenceStatisticsRecalculatesCountsWithoutMarker() throws Exception {
+        // Counts without the marker row were not calculated from the study's reports.
+        when(mockLockQuery.list()).thenReturn(ImmutableList.of());
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(
+                ImmutableList.of(new Object[] {10, 1}), 
+                ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0}, new Object[] {10, 3}));
+        when(mockHelper.nativeQuery(eq(SELECT_LABEL_COUNTS_SQL), any())).thenReturn(ImmutableList.of());
+        when(mockQuery.list()).thenReturn(ImmutableList.of());
+        
+        AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
+        assertEquals(stats.getTotalActive(), Integer.valueOf(3));
+        
+        verify(mockSession).createNativeQuery(DELETE_PERCENT_COUNTS_SQL);
+        verify(mockSession).createNativeQuery(PERCENT_SQL);
+    }
+    
+    @Test
+    public void getWeeklyAdherenceStatisticsDoesNotRecalculateCountsCalculatedConcurrently() throws Exception {
+        // Another request calculated the counts while this one waited for the lock.
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(
+                ImmutableList.of(), ImmutableList.of(new Object[] {COUNTED_MARKER_PERCENT, 0}));
+        when(mockHelper.nativeQuery(eq(SELECT_LABEL_COUNTS_SQL), any())).thenReturn(ImmutableList.of());
+        
+        dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
+        
+        verify(mockSession).createNativeQuery(LOCK_COUNTS_SQL);
+        verify(mockSession, never()).createNativeQuery(DELETE_PERCENT_COUNTS_SQL);
+        verify(mockSession, never()).createNativeQuery(PERCENT_SQL);
+    }
+    
+    @Test
+    public void haveAdherenceStatisticsDrifted() throws Exception {
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(ImmutableList.of(
+                new Object[] {COUNTED_MARKER_PERCENT, 0}, new Object[] {10, 3}, new Object[] {90, 5}));
+        when(mockHelper.queryCount(eq(COUNT_PERCENT_REPORTS_QUERY), paramsCaptor.capture())).thenReturn(7);
+        
+        assertTrue(dao.haveAdherenceStatisticsDrifted(TEST_APP_ID, TEST_STUDY_ID));
+        assertEquals(paramsCaptor.getValue().get("appId"), TEST_APP_ID);
+        assertEquals(paramsCaptor.getValue().get("studyId"), TEST_STUDY_ID);
+    }
+    
+    @Test
+    public void haveAdherenceStatisticsDriftedWhenCountsMatch() throws Exception {
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(ImmutableList.of(
+                new Object[] {COUNTED_MARKER_PERCENT, 0}, new Object[] {10, 3}, new Object[] {90, 5}));
+        when(mockHelper.queryCount(eq(COUNT_PERCENT_REPORTS_QUERY), any())).thenReturn(8);
+        
+        assertFalse(dao.haveAdherenceStatisticsDrifted(TEST_APP_ID, TEST_STUDY_ID));
+    }
+    
+    @Test
+    public void haveAdherenceStatisticsDriftedWhenNeverCounted() throws Exception {
+        when(mockHelper.nativeQuery(eq(SELECT_PERCENT_COUNTS_SQL), any())).thenReturn(ImmutableList.of());
+        
+        assertTrue(dao.haveAdherenceStatisticsDrifted(TEST_APP_ID, TEST_STUDY_ID));
+        verify(mockHelper, never()).queryCount(any(), any());
+    }
+    
+    @Test
+    public void recalculateAdherenceStatistics() throws Exception {
+        String json = TestUtils.createJson("[{'label':'Session #2 / Week 10',"
+                +"'searchableLabel':':label1:','sessionGuid':'lgjaORpbvHSMvmGWPaHxJy9v',"
+                +"'startEventId':'custom:event1','sessionName':'Session #2',"
+                +"'weekInStudy':10,'type':'WeeklyAdherenceReportRow'},{'label':'Session #4 / Week 1',"
+                +"'searchableLabel':':label2:','sessionGuid':'aaaa','startEventId':'custom:event2',"
+                +"'sessionName':'Session #4','weekInStudy':1,'type':'WeeklyAdherenceReportRow'}]");
+        Object[] row = new Object[] {":label1:", BigInteger.valueOf(10), json};
+        when(mockQuery.list()).thenReturn(ImmutableList.of(), ImmutableList.of(row));
+        
+        dao.recalculateAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID);
+        
+        InOrder inOrder = inOrder(mockSession);
+        inOrder.verify(mockSession).createNativeQuery(LOCK_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(DELETE_PERCENT_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(DELETE_LABEL_COUNTS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(UPDATE_PERCENT_COUNT_SQL);
+        inOrder.verify(mockSession).createNativeQuery(PERCENT_SQL);
+        inOrder.verify(mockSession).createNativeQuery(STATISTICS_SQL);
+        inOrder.verify(mockSession).createNativeQuery(INCREMENT_LABEL_COUNT_SQL);
+        
+        verify(mockQuery).setParameter("searchableLabel", ":label1:");
+        verify(mockQuery).setParameter("label", "Session #2 / Week 10");
+        verify(mockQuery).setParameter("sessionName", "Session #2");
+        verify(mockQuery).setParameter("weekInStudy", 10);
+        verify(mockQuery).setParameter("delta", 10);
     }
 }
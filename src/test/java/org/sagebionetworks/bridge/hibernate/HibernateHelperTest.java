@@ -338,6 +338,49 @@ public class HibernateHelperTest {
         verify(mockSession).saveOrUpdate(testObj);
     }
 
+    @Test
+    public void saveOrUpdateAll() {
+        List<Object> objs = new ArrayList<>();
+        for (int i = 0; i < HibernateHelper.BATCH_SIZE + 1; i++) {
+            objs.add(new Object());
+        }
+        List<Object> received = helper.saveOrUpdateAll(objs);
+        assertSame(received, objs);
+        
+        // All objects are saved in one session, which is flushed and cleared after each batch.
+        verify(helper).execute(any());
+        InOrder inOrder = inOrder(mockSession);
+        for (int i = 0; i < HibernateHelper.BATCH_SIZE; i++) {
+            inOrder.verify(mockSession).saveOrUpdate(objs.get(i));
+        }
+        inOrder.verify(mockSession).flush();
+        inOrder.verify(mockSession).clear();
+        inOrder.verify(mockSession).saveOrUpdate(objs.get(HibernateHelper.BATCH_SIZE));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void saveOrUpdateAndDeleteAll() {
+        List<Object> objsToDelete = ImmutableList.of(new Object());
+        List<Object> objsToSave = new ArrayList<>();
+        for (int i = 0; i < HibernateHelper.BATCH_SIZE; i++) {
+            objsToSave.add(new Object());
+        }
+        helper.saveOrUpdateAndDeleteAll(objsToSave, objsToDelete);
+        
+        // Deletes and saves are in one session, which is flushed and cleared after each batch.
+        verify(helper).execute(any());
+        InOrder inOrder = inOrder(mockSession);
+        inOrder.verify(mockSession).delete(objsToDelete.get(0));
+        for (int i = 0; i < HibernateHelper.BATCH_SIZE - 1; i++) {
+            inOrder.verify(mockSession).saveOrUpdate(objsToSave.get(i));
+        }
+        inOrder.verify(mockSession).flush();
+        inOrder.verify(mockSession).clear();
+        inOrder.verify(mockSession).saveOrUpdate(objsToSave.get(HibernateHelper.BATCH_SIZE - 1));
+        inOrder.verifyNoMoreInteractions();
+    }
+
     @Test
     public void update() {
         Object testObj = new Object();
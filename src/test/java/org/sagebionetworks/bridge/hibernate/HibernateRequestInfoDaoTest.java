@@ -1,8 +1,15 @@
 package org.sagebionetworks.bridge.hibernate;
 
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import org.hibernate.Session;
 import org.joda.time.DateTime;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -26,9 +33,23 @@ public class HibernateRequestInfoDaoTest extends Mockito {
     @Captor
     ArgumentCaptor<RequestInfo> requestInfoCaptor;
     
+    @Captor
+    ArgumentCaptor<List<RequestInfo>> requestInfoListCaptor;
+    
+    @Captor
+    ArgumentCaptor<Map<String, Object>> paramsCaptor;
+    
+    @Mock
+    Session mockSession;
+    
     @BeforeMethod
     public void beforeMethod() { 
         MockitoAnnotations.initMocks(this);
+        
+        when(mockHelper.executeWithExceptionHandling(any(), any())).thenAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            return func.apply(mockSession);
+        });
     }
     
     @Test
@@ -58,6 +79,42 @@ public class HibernateRequestInfoDaoTest extends Mockito {
         assertNotNull(captured.getSignedInOn());
     }
 
+    @Test
+    public void updateRequestInfos() {
+        DateTime signedInOn = DateTime.now();
+        RequestInfo existingInfo = new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withSignedInOn(signedInOn).build();
+        when(mockHelper.queryGet(eq(HibernateRequestInfoDao.GET_BY_USER_IDS), any(), isNull(), isNull(),
+                eq(RequestInfo.class))).thenReturn(ImmutableList.of(existingInfo));
+        
+        RequestInfo updateInfo = new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withActivitiesAccessedOn(signedInOn.plusMinutes(1)).build();
+        RequestInfo newInfo = new RequestInfo.Builder().withUserId("otherUser").build();
+        dao.updateRequestInfos(ImmutableList.of(updateInfo, newInfo));
+        
+        verify(mockHelper).queryGet(eq(HibernateRequestInfoDao.GET_BY_USER_IDS), paramsCaptor.capture(),
+                isNull(), isNull(), eq(RequestInfo.class));
+        assertEquals(paramsCaptor.getValue().get("userIds"), ImmutableList.of(TEST_USER_ID, "otherUser"));
+        
+        verify(mockHelper).executeWithExceptionHandling(requestInfoListCaptor.capture(), any());
+        List<RequestInfo> saved = requestInfoListCaptor.getValue();
+        assertEquals(saved.size(), 2);
+        assertEquals(saved.get(0).getSignedInOn(), signedInOn);
+        assertEquals(saved.get(0).getActivitiesAccessedOn(), signedInOn.plusMinutes(1));
+        assertEquals(saved.get(1).getUserId(), "otherUser");
+        
+        // The existing row is updated and the new one is inserted, without selecting either again.
+        verify(mockSession).update(saved.get(0));
+        verify(mockSession).save(saved.get(1));
+        verify(mockSession, never()).saveOrUpdate(any());
+    }
+    
+    @Test
+    public void updateRequestInfosEmpty() {
+        dao.updateRequestInfos(ImmutableList.of());
+        verifyZeroInteractions(mockHelper);
+    }
+
     @Test
     public void getRequestInfo() {
         dao.getRequestInfo(TEST_USER_ID);
@@ -5,7 +5,9 @@ import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
 import static org.sagebionetworks.bridge.TestConstants.MODIFIED_ON;
 import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.DELETE_ALL_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.DELETE_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.EVENT_IDS_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.EVENT_ID_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.GET_RECENT_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.HISTORY_SQL;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -76,6 +79,43 @@ public class HibernateStudyActivityEventDaoTest extends Mockito {
         verify(mockHelper).saveOrUpdate(event);
     }
     
+    @Test
+    public void deleteEvents() {
+        dao.deleteEvents(TEST_USER_ID, TEST_STUDY_ID, 
+                ImmutableSet.of("study_burst:foo:01", "study_burst:foo:02"));
+        
+        verify(mockHelper).nativeQueryUpdate(eq(DELETE_ALL_SQL), paramsCaptor.capture());
+        Map<String,Object> params = paramsCaptor.getValue();
+        assertEquals(params.get(USER_ID_FIELD), TEST_USER_ID);
+        assertEquals(params.get(STUDY_ID_FIELD), TEST_STUDY_ID);
+        assertEquals(params.get(EVENT_IDS_FIELD), 
+                ImmutableSet.of("study_burst:foo:01", "study_burst:foo:02"));
+    }
+    
+    @Test
+    public void deleteEventsEmpty() {
+        dao.deleteEvents(TEST_USER_ID, TEST_STUDY_ID, ImmutableSet.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+    
+    @Test
+    public void publishEvents() {
+        List<StudyActivityEvent> events = ImmutableList.of(
+                new StudyActivityEvent.Builder().build(), new StudyActivityEvent.Builder().build());
+        
+        dao.publishEvents(events);
+        
+        verify(mockHelper).saveOrUpdateAll(events);
+    }
+    
+    @Test
+    public void publishEventsEmpty() {
+        dao.publishEvents(ImmutableList.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+    
     @Test
     public void getRecentStudyActivityEvents() { 
         List<Object[]> list = ImmutableList.of(new Object[12], new Object[12]);
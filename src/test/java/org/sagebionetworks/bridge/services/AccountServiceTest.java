@@ -23,6 +23,7 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_NOTE;
 import static org.sagebionetworks.bridge.TestConstants.TEST_CLIENT_TIME_ZONE;
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
 import static org.sagebionetworks.bridge.dao.AccountDao.MIGRATION_VERSION;
 import static org.sagebionetworks.bridge.models.AccountSummarySearch.EMPTY_SEARCH;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.UNVERIFIED;
@@ -59,13 +60,16 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.ReportTypeResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -159,6 +163,12 @@ public class AccountServiceTest extends Mockito {
 
     @Mock
     AlertService mockAlertService;
+    
+    @Mock
+    BridgeConfig mockBridgeConfig;
+    
+    @Mock
+    CacheInvalidationBus mockCacheInvalidationBus;
 
     @InjectMocks
     @Spy
@@ -494,6 +504,17 @@ public class AccountServiceTest extends Mockito {
         assertEquals(returnVal, mockAccountSummaries);
         verify(mockAccountDao).getPagedAccountSummaries(TEST_APP_ID, EMPTY_SEARCH);
     }
+    
+    @Test
+    public void getAccountSummariesByOffsetKey() {
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(), null);
+        when(mockAccountDao.getAccountSummariesByOffsetKey(TEST_APP_ID, EMPTY_SEARCH)).thenReturn(page);
+
+        ForwardCursorPagedResourceList<AccountSummary> returnVal = service.getAccountSummariesByOffsetKey(
+                TEST_APP_ID, EMPTY_SEARCH);
+        assertSame(returnVal, page);
+    }
 
     @Test
     public void getAccountHealthCode() throws Exception {
@@ -514,6 +535,53 @@ public class AccountServiceTest extends Mockito {
         verify(mockAccountDao).getAccount(ACCOUNT_ID);
     }    
 
+    @Test
+    public void getHealthCodeForUserId() {
+        when(mockAccountDao.getHealthCode(TEST_APP_ID, TEST_USER_ID)).thenReturn(Optional.of(HEALTH_CODE));
+        
+        Optional<String> healthCode = service.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID);
+        assertEquals(healthCode.get(), HEALTH_CODE);
+        verify(mockAccountDao, never()).getAccount(any());
+    }
+    
+    @Test
+    public void getHealthCodeForUserIdIsCached() {
+        createNearCache(mockBridgeConfig, mockCacheInvalidationBus, AccountService.HEALTH_CODE_CACHE_REGION, 10,
+                service::createHealthCodeCache);
+        when(mockAccountDao.getHealthCode(TEST_APP_ID, TEST_USER_ID)).thenReturn(Optional.of(HEALTH_CODE));
+        
+        assertEquals(service.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID).get(), HEALTH_CODE);
+        assertEquals(service.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID).get(), HEALTH_CODE);
+        
+        verify(mockAccountDao, times(1)).getHealthCode(TEST_APP_ID, TEST_USER_ID);
+    }
+    
+    @Test
+    public void getHealthCodeForUserIdLoadsAccountWithoutHealthCode() throws Exception {
+        // Loading the account assigns the health code.
+        Account account = mockGetAccountById(ACCOUNT_ID, false);
+        account.setHealthCode(HEALTH_CODE);
+        
+        Optional<String> healthCode = service.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID);
+        assertEquals(healthCode.get(), HEALTH_CODE);
+        verify(mockAccountDao).getHealthCode(TEST_APP_ID, TEST_USER_ID);
+        verify(mockAccountDao).getAccount(ACCOUNT_ID);
+    }
+    
+    @Test
+    public void getHealthCodeForUserIdNoAccount() {
+        Optional<String> healthCode = service.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID);
+        assertFalse(healthCode.isPresent());
+    }
+    
+    @Test
+    public void getEnrolledOn() {
+        DateTime enrolledOn = DateTime.now();
+        when(mockAccountDao.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)).thenReturn(Optional.of(enrolledOn));
+        
+        assertEquals(service.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID).get(), enrolledOn);
+    }
+
     @Test
     public void getAccountId() throws Exception {
         Account account = mockGetAccountById(ACCOUNT_ID, false);
@@ -533,6 +601,15 @@ public class AccountServiceTest extends Mockito {
         verify(mockAccountDao).getAccount(ACCOUNT_ID);
     }
     
+    @Test
+    public void getAccountForInternalUse() throws Exception {
+        Account account = mockGetAccountById(ACCOUNT_ID, false);
+        
+        Optional<Account> retValue = service.getAccountForInternalUse(TEST_APP_ID, TEST_USER_ID);
+        assertSame(retValue.get(), account);
+        verify(mockAccountDao).getAccount(ACCOUNT_ID);
+    }
+    
     
     @Test
     public void getByEmail() throws Exception {
@@ -1007,6 +1084,8 @@ public class AccountServiceTest extends Mockito {
         doReturn(new ReportTypeResourceList<>(ImmutableList.of(reportIndex1, reportIndex2))).when(mockReportService)
                 .getReportIndices(TEST_APP_ID, ReportType.PARTICIPANT);
 
+        service.createHealthCodeCache();
+
         // Delete account.
         service.deleteAccount(accountId);
         
@@ -1026,6 +1105,8 @@ public class AccountServiceTest extends Mockito {
         verify(mockAccountDao).deleteAccount(TEST_USER_ID);
         verify(mockCacheProvider).removeObject(CacheKey.etag(DateTimeZone.class, TEST_USER_ID));
         verify(mockCacheProvider).removeObject(CacheKey.etag(StudyActivityEvent.class, TEST_USER_ID));
+        verify(mockCacheInvalidationBus).invalidate(AccountService.HEALTH_CODE_CACHE_REGION, 
+                TEST_APP_ID + ":" + TEST_USER_ID);
 
         verify(mockReportService).getReportIndices(TEST_APP_ID, ReportType.PARTICIPANT);
         verify(mockReportService).deleteParticipantReport(TEST_APP_ID, TEST_USER_ID, REPORT_ID_1, HEALTH_CODE);
@@ -55,13 +55,14 @@ import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
-import org.sagebionetworks.bridge.models.ThrottleRequestType;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountStatus;
@@ -109,14 +110,6 @@ public class AccountWorkflowServiceTest extends Mockito {
     private static final CacheKey PASSWORD_RESET_FOR_EMAIL = CacheKey.passwordResetForEmail(SPTOKEN, TEST_APP_ID);
     private static final CacheKey PASSWORD_RESET_FOR_PHONE = CacheKey.passwordResetForPhone(SPTOKEN, TEST_APP_ID);
 
-    private static final CacheKey EMAIL_SIGNIN_THROTTLE_CACHE_KEY = CacheKey.channelThrottling(
-            ThrottleRequestType.EMAIL_SIGNIN, USER_ID);
-    private static final CacheKey PHONE_SIGNIN_THROTTLE_CACHE_KEY = CacheKey.channelThrottling(
-            ThrottleRequestType.PHONE_SIGNIN, USER_ID);
-    private static final CacheKey VERIFY_EMAIL_THROTTLE_CACHE_KEY = CacheKey.channelThrottling(
-            ThrottleRequestType.VERIFY_EMAIL, USER_ID);
-    private static final CacheKey VERIFY_PHONE_THROTTLE_CACHE_KEY = CacheKey.channelThrottling(
-            ThrottleRequestType.VERIFY_PHONE, USER_ID);
 
     @Mock
     private BridgeConfig mockBridgeConfig;
@@ -139,6 +132,9 @@ public class AccountWorkflowServiceTest extends Mockito {
     @Mock
     private TemplateService mockTemplateService;
     
+    @Mock
+    private TokenBucketRateLimiter mockRateLimiter;
+    
     @Mock
     private Account mockAccount;
     
@@ -154,6 +150,9 @@ public class AccountWorkflowServiceTest extends Mockito {
     @Captor
     private ArgumentCaptor<SmsMessageProvider> smsMessageProviderCaptor;
     
+    @Captor
+    private ArgumentCaptor<RateLimit> rateLimitCaptor;
+    
     private App app;
     
     @Spy
@@ -161,6 +160,8 @@ public class AccountWorkflowServiceTest extends Mockito {
     private AccountWorkflowService service;
 
     private Map<String, Object> mockCacheProviderMap;
+    
+    private Map<String, Long> mockRateLimiterMap;
 
     @SuppressWarnings("unchecked")
     @BeforeMethod
@@ -210,6 +211,21 @@ public class AccountWorkflowServiceTest extends Mockito {
             return null;
         }).when(mockCacheProvider).removeObject(any());
 
+        // Mock rate limiter with buckets that are never refilled.
+        mockRateLimiterMap = new HashMap<>();
+        when(mockRateLimiter.tryConsume(any(), any(), anyLong())).thenAnswer(invocation -> {
+            RateLimit limit = invocation.getArgument(0);
+            String key = CacheKey.rateLimit(limit.getName(), invocation.getArgument(1)).toString();
+            long tokens = mockRateLimiterMap.getOrDefault(key, limit.getInitialTokens());
+            long cost = invocation.getArgument(2);
+            if (tokens < cost) {
+                return false;
+            }
+            mockRateLimiterMap.put(key, tokens - cost);
+            return true;
+        });
+        service.setRateLimiter(mockRateLimiter);
+
         // Add params to mock account.
         when(mockAccount.getId()).thenReturn(USER_ID);
         when(service.getDateTimeInMillis()).thenReturn(TIMESTAMP.getMillis());
@@ -220,6 +236,16 @@ public class AccountWorkflowServiceTest extends Mockito {
         RequestContext.set(NULL_INSTANCE);
     }
     
+    private void verifyThrottled(String limitName) {
+        verify(mockRateLimiter).tryConsume(rateLimitCaptor.capture(), eq(USER_ID), eq(1L));
+        RateLimit limit = rateLimitCaptor.getValue();
+        assertEquals(limit.getName(), limitName);
+        assertEquals(limit.getMaximumTokens(), 2L);
+        assertEquals(limit.getRefillIntervalSeconds(), 150L);
+        assertEquals(limit.getRefillTokens(), 1L);
+        assertFalse(limit.isFailOpen());
+    }
+    
     private void mockRevision(TemplateType templateType, String subject, String body, MimeType type) {
         TemplateRevision revision = TemplateRevision.create();
         revision.setSubject(subject);
@@ -261,9 +287,8 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertTrue(bodyString.contains("/ve?appId=" + TEST_APP_ID + "&sptoken="+SPTOKEN));
         assertEquals(email.getType(), EmailType.VERIFY_EMAIL);
 
-        // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(VERIFY_EMAIL_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(VERIFY_EMAIL_THROTTLE_CACHE_KEY), any(), anyInt());
+        // Verify throttling.
+        verifyThrottled("verify_email");
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -311,9 +336,8 @@ public class AccountWorkflowServiceTest extends Mockito {
         String message = provider.getSmsRequest().getMessage();
         assertTrue(message.contains("012-345"));
 
-        // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(VERIFY_PHONE_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(VERIFY_PHONE_THROTTLE_CACHE_KEY), any(), anyInt());
+        // Verify throttling.
+        verifyThrottled("verify_phone");
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -968,9 +992,8 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertEquals(provider.getMimeTypeEmail().getMessageParts().get(0).getContent(), "Body " + provider.getTokenMap().get("token"));
         assertEquals(provider.getType(), EmailType.EMAIL_SIGN_IN);
 
-        // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(EMAIL_SIGNIN_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(EMAIL_SIGNIN_THROTTLE_CACHE_KEY), any(), anyInt());
+        // Verify throttling.
+        verifyThrottled("email_signin");
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -1108,9 +1131,8 @@ public class AccountWorkflowServiceTest extends Mockito {
         String message = smsMessageProviderCaptor.getValue().getSmsRequest().getMessage();
         assertEquals(message, "Enter 123-456 to sign in to AppName");
 
-        // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(PHONE_SIGNIN_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(PHONE_SIGNIN_THROTTLE_CACHE_KEY), any(), anyInt());
+        // Verify throttling.
+        verifyThrottled("phone_signin");
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -11,7 +11,11 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.HEALTH_CODE;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
+import static org.sagebionetworks.bridge.services.ActivityEventService.PUBLISHED_EVENTS_CACHE_REGION;
+import static org.sagebionetworks.bridge.services.AdherenceService.ADHERENCE_STATE_CACHE_REGION;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.FUTURE_ONLY;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.IMMUTABLE;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.MUTABLE;
@@ -24,6 +28,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
@@ -38,16 +43,20 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ActivityEventDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.activities.ActivityEvent;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.ScheduledActivity;
+import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.sagebionetworks.bridge.models.subpopulations.ConsentSignature;
 import org.sagebionetworks.bridge.models.surveys.SurveyAnswer;
+import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 
 import com.google.common.collect.Lists;
@@ -78,6 +87,12 @@ public class ActivityEventServiceTest {
     @Mock
     private CacheProvider mockCacheProvider;
     
+    @Mock
+    private BridgeConfig mockBridgeConfig;
+    
+    @Mock
+    private CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     private ArgumentCaptor<ActivityEvent> eventCaptor;
     
@@ -86,8 +101,11 @@ public class ActivityEventServiceTest {
         MockitoAnnotations.initMocks(this);
         when(activityEventService.getDateTime()).thenReturn(CREATED_ON);
         
-        when(mockAccountService.getAccountId(TEST_APP_ID, "healthcode:"+HEALTH_CODE))
-            .thenReturn(Optional.of(TEST_USER_ID));
+        Account account = Account.create();
+        account.setId(TEST_USER_ID);
+        account.setEnrollments(ImmutableSet.of(Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)));
+        when(mockAccountService.getAccountForInternalUse(TEST_APP_ID, "healthcode:"+HEALTH_CODE))
+            .thenReturn(Optional.of(account));
     }
 
     @Test
@@ -442,6 +460,98 @@ public class ActivityEventServiceTest {
         verify(activityEventDao, times(1)).publishEvent(any());
     }
     
+    @Test
+    public void publishActivitiesRetrieved_onlyOnceWhenCached() {
+        createPublishedEventsCache(10);
+        App app = App.create();
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        activityEventService.publishActivitiesRetrieved(app, "AAA-BBB-CCC", DateTime.now());
+        
+        // Once per participant.
+        verify(activityEventDao, times(2)).publishEvent(eventCaptor.capture());
+        assertEquals(eventCaptor.getAllValues().get(0).getHealthCode(), HEALTH_CODE);
+        assertEquals(eventCaptor.getAllValues().get(1).getHealthCode(), "AAA-BBB-CCC");
+    }
+    
+    @Test
+    public void publishActivitiesRetrieved_alreadyPersistedIsCached() {
+        createPublishedEventsCache(10);
+        App app = App.create();
+        // The event was published by an earlier request, possibly on another server.
+        when(activityEventDao.publishEvent(any())).thenReturn(false);
+        
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        
+        verify(activityEventDao, times(1)).publishEvent(any());
+    }
+    
+    @Test
+    public void publishActivitiesRetrieved_notCachedWhenDisabled() {
+        createPublishedEventsCache(0);
+        App app = App.create();
+        
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        
+        verify(activityEventDao, times(2)).publishEvent(any());
+    }
+    
+    @Test
+    public void publishEnrollmentEvent_onlyOnceWhenCached() {
+        createPublishedEventsCache(10);
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        
+        activityEventService.publishEnrollmentEvent(app, HEALTH_CODE, ENROLLMENT);
+        activityEventService.publishEnrollmentEvent(app, HEALTH_CODE, ENROLLMENT);
+        
+        verify(activityEventDao, times(1)).publishEvent(any());
+    }
+    
+    @Test
+    public void publishInstallLinkSent_invalidatesAdherenceState() {
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        
+        activityEventService.publishInstallLinkSent(app, HEALTH_CODE, CREATED_ON);
+        
+        verify(mockCacheInvalidationBus).invalidate(ADHERENCE_STATE_CACHE_REGION,
+                TEST_APP_ID + ":" + TEST_STUDY_ID + ":" + TEST_USER_ID);
+    }
+    
+    @Test
+    public void deleteActivityEvents_invalidatesPublishedEvents() {
+        createPublishedEventsCache(10);
+        
+        activityEventService.deleteActivityEvents(TEST_APP_ID, HEALTH_CODE);
+        
+        verify(mockCacheInvalidationBus).invalidate(PUBLISHED_EVENTS_CACHE_REGION, HEALTH_CODE);
+    }
+    
+    @Test
+    public void publishActivitiesRetrieved_invalidationRepublishes() {
+        CacheInvalidationBus.Listener listener = createPublishedEventsCache(10);
+        App app = App.create();
+        when(activityEventDao.publishEvent(any())).thenReturn(true);
+        
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        listener.evict(HEALTH_CODE);
+        activityEventService.publishActivitiesRetrieved(app, HEALTH_CODE, DateTime.now());
+        
+        verify(activityEventDao, times(2)).publishEvent(any());
+    }
+    
+    private CacheInvalidationBus.Listener createPublishedEventsCache(int maxSize) {
+        return createNearCache(mockBridgeConfig, mockCacheInvalidationBus, PUBLISHED_EVENTS_CACHE_REGION, maxSize,
+                activityEventService::createPublishedEventsCache);
+    }
+    
     @Test
     public void publishCustomEvent_noEventPublishesNoAutomaticEvents() {
         // Configure app with automatic custom events
@@ -690,8 +800,6 @@ public class ActivityEventServiceTest {
                 .put("5-years-after", "not_enrollment:P5Y")
                 .put("10-years-after", "not_entrollment:P10Y").build());
         
-        when(mockAccountService.getAccountId(TEST_APP_ID, "healthcode:"+HEALTH_CODE))
-            .thenReturn(Optional.of(TEST_USER_ID));
         
         when(activityEventDao.publishEvent(any())).thenReturn(false);
         
@@ -721,8 +829,6 @@ public class ActivityEventServiceTest {
         
         when(activityEventDao.publishEvent(any())).thenReturn(true);
 
-        when(mockAccountService.getAccountId(TEST_APP_ID, "healthcode:"+HEALTH_CODE))
-            .thenReturn(Optional.of(TEST_USER_ID));
 
         // Execute
         activityEventService.publishInstallLinkSent(app, HEALTH_CODE, retrieved);
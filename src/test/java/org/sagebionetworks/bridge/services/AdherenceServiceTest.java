@@ -1,7 +1,10 @@
 package org.sagebionetworks.bridge.services;
 
 import static java.lang.Boolean.TRUE;
+import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.Roles.ADMIN;
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
+import static org.sagebionetworks.bridge.services.AdherenceService.ADHERENCE_STATE_CACHE_REGION;
 import static org.sagebionetworks.bridge.Roles.RESEARCHER;
 import static org.sagebionetworks.bridge.Roles.STUDY_COORDINATOR;
 import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
@@ -49,6 +52,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -57,6 +62,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -89,17 +95,23 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.AdherenceRecordDao;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
+import org.sagebionetworks.bridge.models.AccountSummarySearch;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
+import org.sagebionetworks.bridge.models.accounts.AccountId;
+import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEventIdsMap;
 import org.sagebionetworks.bridge.models.schedules2.Schedule2;
@@ -122,6 +134,7 @@ import org.sagebionetworks.bridge.models.schedules2.timelines.Timeline;
 import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
 import org.sagebionetworks.bridge.models.studies.Alert;
 import org.sagebionetworks.bridge.models.studies.Enrollment;
+import org.sagebionetworks.bridge.models.studies.EnrollmentFilter;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.studies.StudyCustomEvent;
 import org.sagebionetworks.bridge.models.studies.Alert.AlertCategory;
@@ -160,6 +173,12 @@ public class AdherenceServiceTest extends Mockito {
     @Mock
     AlertService alertService;
     
+    @Mock
+    AccountService mockAccountService;
+    
+    @Mock
+    CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     ArgumentCaptor<AdherenceRecordsSearch> searchCaptor;
     
@@ -174,6 +193,15 @@ public class AdherenceServiceTest extends Mockito {
 
     @Captor
     ArgumentCaptor<Alert> alertCaptor;
+    
+    @Captor
+    ArgumentCaptor<List<WeeklyAdherenceReport>> weeklyReportsCaptor;
+    
+    @Captor
+    ArgumentCaptor<List<AdherenceRecord>> recordsCaptor;
+    
+    @Captor
+    ArgumentCaptor<AccountSummarySearch> accountSearchCaptor;
 
     @InjectMocks
     @Spy
@@ -204,10 +232,13 @@ public class AdherenceServiceTest extends Mockito {
         
         service.updateAdherenceRecords(TEST_APP_ID, records);
         
-        verify(mockRecordDao, times(3)).updateAdherenceRecord(recordCaptor.capture());
-        assertEquals(recordCaptor.getAllValues().get(0).getInstanceGuid(), "AAA");
-        assertEquals(recordCaptor.getAllValues().get(1).getInstanceGuid(), "BBB");
-        assertEquals(recordCaptor.getAllValues().get(2).getInstanceGuid(), "sessionInstanceGuid");
+        // All records are written together
+        verify(mockRecordDao).updateAdherenceRecords(recordsCaptor.capture());
+        verify(mockRecordDao, never()).updateAdherenceRecord(any());
+        assertEquals(recordsCaptor.getValue().size(), 3);
+        assertEquals(recordsCaptor.getValue().get(0).getInstanceGuid(), "AAA");
+        assertEquals(recordsCaptor.getValue().get(1).getInstanceGuid(), "BBB");
+        assertEquals(recordsCaptor.getValue().get(2).getInstanceGuid(), "sessionInstanceGuid");
         
         // Nothing is finished, nothing is published.
         verify(mockStudyActivityEventService, never()).publishEvent(any(), eq(false), eq(true));
@@ -242,14 +273,15 @@ public class AdherenceServiceTest extends Mockito {
                 .withCallerEnrolledStudies(ImmutableSet.of(TEST_STUDY_ID)).build());
         
         AdherenceRecordList list = mockRecordUpdate(
-                ar(null, FINISHED_ON, "AAA", false), 
+                ar(STARTED_ON, FINISHED_ON, "AAA", false), 
                 ar(CREATED_ON, FINISHED_ON, "BBB", false), 
                 null);
         
         service.updateAdherenceRecords(TEST_APP_ID, list);
         
-        verify(mockRecordDao).updateAdherenceRecord(list.getRecords().get(0));
-        verify(mockRecordDao).updateAdherenceRecord(list.getRecords().get(1));
+        verify(mockRecordDao).updateAdherenceRecords(recordsCaptor.capture());
+        assertEquals(recordsCaptor.getValue().get(0), list.getRecords().get(0));
+        assertEquals(recordsCaptor.getValue().get(1), list.getRecords().get(1));
         verify(mockStudyActivityEventService, times(3)).publishEvent(eventCaptor.capture(), eq(false), eq(true));
         
         StudyActivityEvent event = eventCaptor.getAllValues().get(2);
@@ -273,8 +305,9 @@ public class AdherenceServiceTest extends Mockito {
         
         service.updateAdherenceRecords(TEST_APP_ID, list);
         
-        verify(mockRecordDao).updateAdherenceRecord(list.getRecords().get(0));
-        verify(mockRecordDao).updateAdherenceRecord(list.getRecords().get(1));
+        verify(mockRecordDao).updateAdherenceRecords(recordsCaptor.capture());
+        assertEquals(recordsCaptor.getValue().get(0), list.getRecords().get(0));
+        assertEquals(recordsCaptor.getValue().get(1), list.getRecords().get(1));
         verify(mockStudyActivityEventService, times(1)).publishEvent(eventCaptor.capture(), eq(false), eq(true));
         
         StudyActivityEvent event = eventCaptor.getValue();
@@ -568,15 +601,96 @@ public class AdherenceServiceTest extends Mockito {
         
         service.updateAdherenceRecords(TEST_APP_ID, list);
         
-        verify(mockRecordDao, times(3)).updateAdherenceRecord(recordCaptor.capture());
+        verify(mockRecordDao).updateAdherenceRecords(recordsCaptor.capture());
+        assertEquals(recordsCaptor.getValue().size(), 3);
         
-        AdherenceRecord session = recordCaptor.getAllValues().get(2);
+        AdherenceRecord session = recordsCaptor.getValue().get(2);
         assertEquals(session.getStartedOn(), STARTED_ON);
         // based on the assessment records, any value submitted for session is ignored
         assertEquals(session.getFinishedOn(), FINISHED_ON);
         assertFalse(session.isDeclined());
     }
     
+    @Test
+    public void updateAdherenceRecords_sessionStateCalculatedOnce() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId(TEST_USER_ID)
+                .withCallerEnrolledStudies(ImmutableSet.of(TEST_STUDY_ID)).build());
+        
+        AdherenceRecordList list = mockRecordUpdate(
+                ar(STARTED_ON, FINISHED_ON, "AAA", false), 
+                ar(STARTED_ON, FINISHED_ON, "BBB", false), 
+                null);
+        
+        service.updateAdherenceRecords(TEST_APP_ID, list);
+        
+        verify(mockScheduleService, times(1)).getSessionAssessmentMetadata("sessionInstanceGuid");
+        verify(mockRecordDao, times(1)).getAdherenceRecords(any());
+        
+        verify(mockRecordDao).updateAdherenceRecords(recordsCaptor.capture());
+        AdherenceRecord session = recordsCaptor.getValue().get(2);
+        assertEquals(session.getInstanceGuid(), "sessionInstanceGuid");
+        assertEquals(session.getStartedOn(), STARTED_ON);
+        assertEquals(session.getFinishedOn(), FINISHED_ON);
+    }
+    
+    @Test
+    public void updateAdherenceRecords_publishesLatestFinishedEventOnly() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId(TEST_USER_ID)
+                .withCallerEnrolledStudies(ImmutableSet.of(TEST_STUDY_ID)).build());
+        
+        // The same assessment is finished twice in the batch.
+        AdherenceRecordList list = mockRecordUpdate(
+                ar(STARTED_ON, FINISHED_ON.plusHours(1), "AAA", false), 
+                ar(STARTED_ON, FINISHED_ON, "AAA", false), 
+                null);
+        
+        service.updateAdherenceRecords(TEST_APP_ID, list);
+        
+        verify(mockStudyActivityEventService, times(1)).publishEvent(eventCaptor.capture(), eq(false), eq(true));
+        StudyActivityEvent event = eventCaptor.getValue();
+        assertEquals(event.getEventId(), "assessment:idAAA:finished");
+        assertEquals(event.getTimestamp(), FINISHED_ON.plusHours(1));
+    }
+    
+    @Test
+    public void updateSessionState_ignoresAssessmentsThatWillBeDeleted() {
+        // AAA has no startedOn value, so it will be deleted rather than saved.
+        AdherenceRecordList list = mockRecordUpdate(
+                ar(null, FINISHED_ON, "AAA", false), 
+                ar(STARTED_ON, FINISHED_ON, "BBB", false), 
+                sar(null, null, false));
+        
+        MetadataContainer container = new MetadataContainer(mockScheduleService, list.getRecords());
+        service.updateSessionState(TEST_APP_ID, container, list.getRecords().get(0));
+        
+        AdherenceRecord captured = Iterables.getFirst(container.getSessionUpdates(), null);
+        assertEquals(captured.getStartedOn(), STARTED_ON);
+        assertNull(captured.getFinishedOn());
+    }
+    
+    @Test
+    public void updateSessionState_submittedAssessmentsReplacePersistedRecords() {
+        AdherenceRecordList list = mockRecordUpdate(
+                ar(STARTED_ON, FINISHED_ON, "AAA", false), 
+                ar(STARTED_ON, FINISHED_ON, "BBB", false), 
+                null);
+        
+        // The persisted copy of BBB has not been finished yet.
+        AdherenceRecord persistedBBB = ar(STARTED_ON, null, "BBB", false);
+        persistedBBB.setInstanceTimestamp(EVENT_TS);
+        when(mockRecordDao.getAdherenceRecords(any())).thenReturn(
+                new PagedResourceList<>(ImmutableList.of(persistedBBB), 1, true));
+        
+        MetadataContainer container = new MetadataContainer(mockScheduleService, list.getRecords());
+        service.updateSessionState(TEST_APP_ID, container, list.getRecords().get(0));
+        
+        AdherenceRecord captured = Iterables.getFirst(container.getSessionUpdates(), null);
+        assertEquals(captured.getStartedOn(), STARTED_ON);
+        assertEquals(captured.getFinishedOn(), FINISHED_ON);
+    }
+    
     @Test
     public void getAdherenceRecords() {
         RequestContext.set(new RequestContext.Builder()
@@ -1068,7 +1182,7 @@ public class AdherenceServiceTest extends Mockito {
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
         List<TimelineMetadata> metadata = Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata();
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(metadata);
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class))).thenReturn(metadata);
         
         ResourceList<StudyActivityEvent> events = new ResourceList<>(ImmutableList.of(), true);
         when(mockStudyActivityEventService.getRecentStudyActivityEvents(
@@ -1092,6 +1206,86 @@ public class AdherenceServiceTest extends Mockito {
         assertEquals(search.getUserId(), TEST_USER_ID);
     }
     
+    @Test
+    public void adherenceStateIsCachedBetweenReports() { 
+        CacheInvalidationBus.Listener listener = createAdherenceStateCache();
+        mockEventStreamReport();
+        
+        service.getEventStreamAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID, EVENT_TS, 
+                TEST_CLIENT_TIME_ZONE, true);
+        EventStreamAdherenceReport report = service.getEventStreamAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, 
+                TEST_USER_ID, EVENT_TS.plusDays(1), TEST_CLIENT_TIME_ZONE, true);
+        
+        // The second report is for a different time, but from the same state.
+        assertEquals(report.getTimestamp(), EVENT_TS.plusDays(1).withZone(DateTimeZone.forID(TEST_CLIENT_TIME_ZONE)));
+        verify(mockStudyService, times(1)).getStudy(TEST_APP_ID, TEST_STUDY_ID, true);
+        verify(mockScheduleService, times(1)).getScheduleMetadata(any(Schedule2.class));
+        verify(mockStudyActivityEventService, times(1)).getRecentStudyActivityEvents(
+                TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        verify(mockRecordDao, times(1)).getAdherenceRecords(any());
+        
+        // The participant's records or events changed.
+        listener.evict(TEST_STUDY_ID + ":" + TEST_USER_ID);
+        service.getEventStreamAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID, EVENT_TS, 
+                TEST_CLIENT_TIME_ZONE, true);
+        verify(mockStudyService, times(2)).getStudy(TEST_APP_ID, TEST_STUDY_ID, true);
+        verify(mockRecordDao, times(2)).getAdherenceRecords(any());
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void cachedAdherenceStateChecksAccess() { 
+        createAdherenceStateCache();
+        mockEventStreamReport();
+        service.getEventStreamAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID, EVENT_TS, 
+                TEST_CLIENT_TIME_ZONE, true);
+        
+        RequestContext.set(new RequestContext.Builder().withCallerUserId("otherUserId").build());
+        service.getEventStreamAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID, EVENT_TS, 
+                TEST_CLIENT_TIME_ZONE, true);
+    }
+    
+    @Test
+    public void updateAdherenceRecordsInvalidatesAdherenceState() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId(TEST_USER_ID)
+                .withCallerEnrolledStudies(ImmutableSet.of(TEST_STUDY_ID)).build());
+        createAdherenceStateCache();
+        
+        AdherenceRecordList records = mockRecordUpdate(ar(STARTED_ON, null, "AAA", false), null, null);
+        service.updateAdherenceRecords(TEST_APP_ID, records);
+        
+        verify(mockCacheInvalidationBus).invalidate(ADHERENCE_STATE_CACHE_REGION,
+                TEST_APP_ID + ":" + TEST_STUDY_ID + ":" + TEST_USER_ID);
+    }
+    
+    private CacheInvalidationBus.Listener createAdherenceStateCache() {
+        BridgeConfig mockBridgeConfig = mock(BridgeConfig.class);
+        service.setBridgeConfig(mockBridgeConfig);
+        service.setCacheInvalidationBus(mockCacheInvalidationBus);
+        return createNearCache(mockBridgeConfig, mockCacheInvalidationBus, ADHERENCE_STATE_CACHE_REGION, 10,
+                service::createAdherenceStateCache);
+    }
+    
+    private void mockEventStreamReport() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId(TEST_USER_ID)
+                .withCallerEnrolledStudies(ImmutableSet.of(TEST_STUDY_ID)).build());
+        
+        Study study = Study.create();
+        study.setScheduleGuid(SCHEDULE_GUID);
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        when(mockStudyService.getZoneId(TEST_APP_ID, TEST_STUDY_ID, TEST_CLIENT_TIME_ZONE)).thenReturn(TEST_CLIENT_TIME_ZONE);
+        
+        Schedule2 schedule = createValidSchedule();
+        when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        List<TimelineMetadata> metadata = Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata();
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class))).thenReturn(metadata);
+        
+        when(mockStudyActivityEventService.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID))
+                .thenReturn(new ResourceList<>(ImmutableList.of(), true));
+        when(mockRecordDao.getAdherenceRecords(any())).thenReturn(new PagedResourceList<>(ImmutableList.of(), 0));
+    }
+    
     @Test
     public void getWeeklyAdherenceReport() throws Exception {
         RequestContext.set(new RequestContext.Builder().withCallerRoles(ImmutableSet.of(ADMIN)).build());
@@ -1119,7 +1313,7 @@ public class AdherenceServiceTest extends Mockito {
         when(mockRecordDao.getAdherenceRecords(any())).thenReturn(page2);
 
         Schedule2 schedule = createValidSchedule();
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID))
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class)))
             .thenReturn(Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata());
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
@@ -1161,7 +1355,7 @@ public class AdherenceServiceTest extends Mockito {
         when(mockStudyService.getZoneId(TEST_APP_ID, TEST_STUDY_ID, null)).thenReturn(TEST_CLIENT_TIME_ZONE);
         
         Schedule2 schedule = createValidSchedule();
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID))
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class)))
             .thenReturn(Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata());
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
@@ -1240,7 +1434,7 @@ public class AdherenceServiceTest extends Mockito {
         // Add a schedule so we can see "UNSTARTED" as the state of this report
         Schedule2 schedule = createValidSchedule();
         Timeline timeline = Scheduler.INSTANCE.calculateTimeline(schedule);
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(timeline.getMetadata());
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class))).thenReturn(timeline.getMetadata());
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
         WeeklyAdherenceReport retValue = service.getWeeklyAdherenceReport(
@@ -1277,7 +1471,7 @@ public class AdherenceServiceTest extends Mockito {
         }
         Timeline timeline = Scheduler.INSTANCE.calculateTimeline(schedule);
         
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID))
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class)))
             .thenReturn(timeline.getMetadata());
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
@@ -1379,6 +1573,184 @@ public class AdherenceServiceTest extends Mockito {
         verifyZeroInteractions(alertService);
     }
 
+    private Study mockStudyForBatch() {
+        Study study = Study.create();
+        study.setAppId(TEST_APP_ID);
+        study.setIdentifier(TEST_STUDY_ID);
+        study.setScheduleGuid(SCHEDULE_GUID);
+        study.setAdherenceThresholdPercentage(60);
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        
+        Schedule2 schedule = createValidSchedule();
+        when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getScheduleMetadata(schedule))
+            .thenReturn(Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata());
+        when(mockStudyService.getStudyActivityEventIdsMap(TEST_APP_ID, TEST_STUDY_ID))
+            .thenReturn(new StudyActivityEventIdsMap());
+        
+        service.setAdherenceExecutorService(MoreExecutors.newDirectExecutorService());
+        service.setAsyncExecutorService(MoreExecutors.newDirectExecutorService());
+        return study;
+    }
+    
+    private ForwardCursorPagedResourceList<AccountSummary> summaries(String nextPageOffsetKey, String... userIds) {
+        List<AccountSummary> list = new ArrayList<>();
+        for (String userId : userIds) {
+            list.add(new AccountSummary.Builder().withId(userId).build());
+        }
+        return new ForwardCursorPagedResourceList<>(list, nextPageOffsetKey);
+    }
+    
+    private WeeklyAdherenceReport weeklyReport(String userId, Integer percent) {
+        WeeklyAdherenceReport report = new WeeklyAdherenceReport();
+        report.setUserId(userId);
+        report.setWeeklyAdherencePercent(percent);
+        return report;
+    }
+    
+    @Test
+    public void updateWeeklyAdherenceReports() {
+        mockStudyForBatch();
+        
+        when(mockAccountService.getAccountSummariesByOffsetKey(eq(TEST_APP_ID), any()))
+            .thenReturn(summaries(null, "user1", "user2"));
+        when(mockReportDao.haveAdherenceStatisticsDrifted(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(true);
+        
+        Account account = Account.create();
+        account.setAppId(TEST_APP_ID);
+        account.setId("user1");
+        account.setClientTimeZone(TEST_CLIENT_TIME_ZONE);
+        when(mockAccountService.getAccount(AccountId.forId(TEST_APP_ID, "user1"))).thenReturn(Optional.of(account));
+        // user2 was deleted after the page was retrieved
+        when(mockAccountService.getAccount(AccountId.forId(TEST_APP_ID, "user2"))).thenReturn(Optional.empty());
+        when(mockStudyService.getZoneId(TEST_APP_ID, TEST_STUDY_ID, TEST_CLIENT_TIME_ZONE))
+            .thenReturn(TEST_CLIENT_TIME_ZONE);
+        
+        StudyActivityEvent event = new StudyActivityEvent.Builder()
+                .withEventId("enrollment").withTimestamp(EVENT_TS).build();
+        when(mockStudyActivityEventService.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, account))
+            .thenReturn(new ResourceList<>(ImmutableList.of(event), true));
+        when(mockRecordDao.getAdherenceRecords(any())).thenReturn(new PagedResourceList<>(ImmutableList.of(), 0));
+        
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+        
+        verify(mockAccountService).getAccountSummariesByOffsetKey(eq(TEST_APP_ID), accountSearchCaptor.capture());
+        AccountSummarySearch accountSearch = accountSearchCaptor.getValue();
+        assertEquals(accountSearch.getEnrolledInStudyId(), TEST_STUDY_ID);
+        assertEquals(accountSearch.getEnrollment(), EnrollmentFilter.ENROLLED);
+        assertNull(accountSearch.getOffsetKey());
+        assertEquals(accountSearch.getPageSize(), API_MAXIMUM_PAGE_SIZE);
+        
+        // The participant's events are used for the current timestamps, without loading them a second time
+        verify(mockRecordDao).getAdherenceRecords(searchCaptor.capture());
+        AdherenceRecordsSearch search = searchCaptor.getValue();
+        assertEquals(search.getUserId(), "user1");
+        assertEquals(search.getStudyId(), TEST_STUDY_ID);
+        assertEquals(search.getEventTimestamps(), ImmutableMap.of("enrollment", EVENT_TS));
+        assertEquals(search.getAdherenceRecordType(), AdherenceRecordType.SESSION);
+        verify(mockStudyActivityEventService, never()).getRecentStudyActivityEvents(any(), any(), any(String.class));
+        
+        verify(mockReportDao).saveWeeklyAdherenceReports(weeklyReportsCaptor.capture());
+        verify(mockReportDao).recalculateAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID);
+        List<WeeklyAdherenceReport> reports = weeklyReportsCaptor.getValue();
+        assertEquals(reports.size(), 1);
+        assertEquals(reports.get(0).getUserId(), "user1");
+        assertEquals(reports.get(0).getStudyId(), TEST_STUDY_ID);
+        assertEquals(reports.get(0).getClientTimeZone(), TEST_CLIENT_TIME_ZONE);
+        assertEquals(reports.get(0).getCreatedOn(), MOCK_NOW);
+        verify(mockReportDao, never()).saveWeeklyAdherenceReport(any());
+        
+        // Study-wide data is only loaded once.
+        verify(mockScheduleService).getScheduleMetadata(any(Schedule2.class));
+        verify(mockScheduleService).getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID);
+    }
+    
+    @Test
+    public void updateWeeklyAdherenceReportsPagesAndAlerts() {
+        Study study = mockStudyForBatch();
+        
+        when(mockAccountService.getAccountSummariesByOffsetKey(eq(TEST_APP_ID), any()))
+            .thenReturn(summaries("user2", "user1", "user2"))
+            .thenReturn(summaries(null, "user3"));
+        
+        WeeklyAdherenceReport report1 = weeklyReport("user1", 50);
+        WeeklyAdherenceReport report3 = weeklyReport("user3", 90);
+        doReturn(report1).when(service).calculateWeeklyAdherenceReport(eq(TEST_APP_ID), eq(TEST_STUDY_ID),
+                eq(study), any(), any(), any(), eq(MOCK_NOW), eq("user1"));
+        doThrow(new IllegalStateException()).when(service).calculateWeeklyAdherenceReport(eq(TEST_APP_ID), 
+                eq(TEST_STUDY_ID), eq(study), any(), any(), any(), eq(MOCK_NOW), eq("user2"));
+        doReturn(report3).when(service).calculateWeeklyAdherenceReport(eq(TEST_APP_ID), eq(TEST_STUDY_ID),
+                eq(study), any(), any(), any(), eq(MOCK_NOW), eq("user3"));
+        
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+        
+        verify(mockAccountService, times(2)).getAccountSummariesByOffsetKey(eq(TEST_APP_ID),
+                accountSearchCaptor.capture());
+        assertNull(accountSearchCaptor.getAllValues().get(0).getOffsetKey());
+        assertEquals(accountSearchCaptor.getAllValues().get(1).getOffsetKey(), "user2");
+        
+        // A participant that fails is skipped; the rest of the page is still saved.
+        verify(mockReportDao, times(2)).saveWeeklyAdherenceReports(weeklyReportsCaptor.capture());
+        assertEquals(weeklyReportsCaptor.getAllValues().get(0), ImmutableList.of(report1));
+        assertEquals(weeklyReportsCaptor.getAllValues().get(1), ImmutableList.of(report3));
+        
+        verify(alertService).createAlert(alertCaptor.capture());
+        assertEquals(alertCaptor.getValue().getUserId(), "user1");
+        assertEquals(alertCaptor.getValue().getCategory(), AlertCategory.LOW_ADHERENCE);
+        
+        // The counts still match the reports, so they are not recalculated.
+        verify(mockReportDao).haveAdherenceStatisticsDrifted(TEST_APP_ID, TEST_STUDY_ID);
+        verify(mockReportDao, never()).recalculateAdherenceStatistics(any(), any());
+    }
+    
+    @Test
+    public void updateWeeklyAdherenceReportsNoParticipants() {
+        mockStudyForBatch();
+        when(mockAccountService.getAccountSummariesByOffsetKey(eq(TEST_APP_ID), any())).thenReturn(summaries(null));
+        
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+        
+        verify(mockAccountService, times(1)).getAccountSummariesByOffsetKey(eq(TEST_APP_ID), any());
+        verify(mockReportDao).saveWeeklyAdherenceReports(ImmutableList.of());
+        verifyZeroInteractions(alertService);
+    }
+    
+    @Test
+    public void updateWeeklyAdherenceReportsRunsInBackground() {
+        mockStudyForBatch();
+        ExecutorService mockExecutor = mock(ExecutorService.class);
+        service.setAsyncExecutorService(mockExecutor);
+        
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+        
+        // The study and schedule are checked before returning, but no reports are updated yet.
+        verify(mockExecutor).submit(any(Callable.class));
+        verify(mockScheduleService).getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID);
+        verify(mockAccountService, never()).getAccountSummariesByOffsetKey(any(), any());
+        verify(mockReportDao, never()).saveWeeklyAdherenceReports(any());
+    }
+    
+    @Test
+    public void updateWeeklyAdherenceReportsLogsBackgroundErrors() {
+        mockStudyForBatch();
+        when(mockAccountService.getAccountSummariesByOffsetKey(eq(TEST_APP_ID), any()))
+            .thenThrow(new IllegalStateException());
+        
+        // Does not throw, as the caller has already been answered.
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+        
+        verify(mockReportDao, never()).saveWeeklyAdherenceReports(any());
+        verify(mockReportDao, never()).recalculateAdherenceStatistics(any(), any());
+    }
+    
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void updateWeeklyAdherenceReportsNoSchedule() {
+        Study study = Study.create();
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        
+        service.updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+    }
+    
     @Test(expectedExceptions = EntityNotFoundException.class)
     public void getWeeklyAdherenceReportForWorker_studyDoesNotExist() {
         Account account = Account.create();
@@ -1476,7 +1848,7 @@ public class AdherenceServiceTest extends Mockito {
         when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
         when(mockStudyService.getZoneId(TEST_APP_ID, TEST_STUDY_ID, null)).thenReturn("America/Chicago");
         
-        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID))
+        when(mockScheduleService.getScheduleMetadata(any(Schedule2.class)))
             .thenReturn(StudyAdherenceReportGeneratorTest.createTimelineMetadata());        
         
         RequestInfo info = new RequestInfo.Builder().withSignedInOn(CREATED_ON).build();
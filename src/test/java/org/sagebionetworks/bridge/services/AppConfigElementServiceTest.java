@@ -1,14 +1,18 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.services.AppConfigService.APP_CONFIG_CACHE_REGION;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.List;
 
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -25,6 +29,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.AppConfigElementDao;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -44,6 +49,9 @@ public class AppConfigElementServiceTest {
     @Mock
     private AppConfigElementDao dao;
     
+    @Mock
+    private CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     private ArgumentCaptor<AppConfigElement> elementCaptor;
     
@@ -55,6 +63,7 @@ public class AppConfigElementServiceTest {
         MockitoAnnotations.initMocks(this);
         DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.getMillis());
         service.setAppConfigElementDao(dao);
+        service.setCacheInvalidationBus(mockCacheInvalidationBus);
         elements = ImmutableList.of(AppConfigElement.create(), AppConfigElement.create());
     }
     
@@ -105,6 +114,7 @@ public class AppConfigElementServiceTest {
         assertEquals(captured.getKey(), TEST_APP_ID + ":id");
         assertEquals(captured.getCreatedOn(), TIMESTAMP.getMillis());
         assertEquals(captured.getModifiedOn(), TIMESTAMP.getMillis());
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = InvalidEntityException.class)
@@ -208,6 +218,7 @@ public class AppConfigElementServiceTest {
         assertEquals(captured.getKey(), TEST_APP_ID + ":id");
         assertNotEquals(captured.getCreatedOn(), TIMESTAMP.getMillis());
         assertEquals(captured.getModifiedOn(), TIMESTAMP.getMillis());
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = InvalidEntityException.class)
@@ -245,6 +256,7 @@ public class AppConfigElementServiceTest {
         
         verify(dao).saveElementRevision(elementCaptor.capture());
         assertTrue(elementCaptor.getValue().isDeleted());
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -276,6 +288,7 @@ public class AppConfigElementServiceTest {
         verify(dao, times(2)).saveElementRevision(elementCaptor.capture());
         assertTrue(elementCaptor.getAllValues().get(0).isDeleted());
         assertTrue(elementCaptor.getAllValues().get(1).isDeleted());
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -291,6 +304,7 @@ public class AppConfigElementServiceTest {
         verify(dao).getElementRevisions(TEST_APP_ID, "id", true);
         verify(dao).deleteElementRevisionPermanently(TEST_APP_ID, "id", 1);
         verify(dao).deleteElementRevisionPermanently(TEST_APP_ID, "id", 2);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -306,6 +320,7 @@ public class AppConfigElementServiceTest {
         assertNotEquals(captured.getCreatedOn(), TIMESTAMP.getMillis());
         assertEquals(captured.getModifiedOn(), TIMESTAMP.getMillis());
         assertTrue(elementCaptor.getValue().isDeleted());
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -322,10 +337,17 @@ public class AppConfigElementServiceTest {
         service.deleteElementRevisionPermanently(TEST_APP_ID, "id", 3L);
         
         verify(dao).deleteElementRevisionPermanently(TEST_APP_ID, "id", 3L);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
-    @Test(expectedExceptions = EntityNotFoundException.class)
+    @Test
     public void deleteElementRevisionPermanentlyThatDoesNotExist() {
-        service.deleteElementRevisionPermanently(TEST_APP_ID, "id", 3L);
+        try {
+            service.deleteElementRevisionPermanently(TEST_APP_ID, "id", 3L);
+            fail("Should have thrown exception");
+        } catch(EntityNotFoundException e) {
+            // expected
+        }
+        verify(mockCacheInvalidationBus, never()).invalidate(any(), any());
     }    
 }
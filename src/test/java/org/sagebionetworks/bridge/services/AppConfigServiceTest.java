@@ -1,6 +1,8 @@
 package org.sagebionetworks.bridge.services;
 
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
@@ -8,10 +10,12 @@ import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.BridgeConstants.SHARED_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.services.AppConfigService.APP_CONFIG_CACHE_REGION;
 
 import java.util.List;
 import java.util.Optional;
@@ -31,6 +35,8 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.AppConfigDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
@@ -108,6 +114,12 @@ public class AppConfigServiceTest {
     @Mock
     private ReferenceResolver mockReferenceResolver;
     
+    @Mock
+    private BridgeConfig mockBridgeConfig;
+    
+    @Mock
+    private CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     private ArgumentCaptor<AppConfig> appConfigCaptor;
     
@@ -130,6 +142,9 @@ public class AppConfigServiceTest {
         when(service.getCurrentTimestamp()).thenReturn(TIMESTAMP.getMillis());
         when(service.getGUID()).thenReturn(GUID);
         
+        // The service is reused between tests, so reset the cache. Tests enable it as needed.
+        createAppConfigCache(0);
+        
         AppConfig savedAppConfig = AppConfig.create();
         savedAppConfig.setLabel("AppConfig");
         savedAppConfig.setGuid(GUID);
@@ -184,6 +199,13 @@ public class AppConfigServiceTest {
         return appConfig2;
     }
     
+    private CacheInvalidationBus.Listener createAppConfigCache(int maxSize) {
+        service.setBridgeConfig(mockBridgeConfig);
+        service.setCacheInvalidationBus(mockCacheInvalidationBus);
+        return createNearCache(mockBridgeConfig, mockCacheInvalidationBus, APP_CONFIG_CACHE_REGION, maxSize,
+                service::createAppConfigCache);
+    }
+    
     private AppConfig setupAppConfig() {
         AppConfig config = AppConfig.create();
         config.setLabel("AppConfig");
@@ -224,6 +246,52 @@ public class AppConfigServiceTest {
         assertEquals(retValue, appConfig2);
     }
     
+    @Test
+    public void getAppConfigForUserIsCached() {
+        CacheInvalidationBus.Listener listener = createAppConfigCache(10);
+        
+        CriteriaContext context = new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("app/7 (Motorola Flip-Phone; Android/14) BridgeJavaSDK/10"))
+                .withAppId(TEST_APP_ID).build();
+        AppConfig appConfig2 = setupConfigsForUser();
+        
+        AppConfig first = setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        AppConfig second = service.getAppConfigForUser(context, true);
+        
+        // The second call is served from memory, but as a copy.
+        assertEquals(first, appConfig2);
+        assertEquals(second, appConfig2);
+        assertNotSame(first, second);
+        assertEquals(second.getConfigElements().get("clientData"), TestUtils.getClientData());
+        verify(mockDao, times(1)).getAppConfigs(TEST_APP_ID, false);
+        verify(mockSurveyService, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEY, false, false);
+        verify(mockAppConfigElementService, times(1)).getElementRevision(TEST_APP_ID, "clientData", 1);
+        
+        // Another node changed an app config or something it references.
+        listener.evict(TEST_APP_ID);
+        
+        service.getAppConfigForUser(context, true);
+        verify(mockDao, times(2)).getAppConfigs(TEST_APP_ID, false);
+    }
+    
+    @Test
+    public void getAppConfigForUserCopyCanBeModified() {
+        createAppConfigCache(10);
+        
+        CriteriaContext context = new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("app/7 (Motorola Flip-Phone; Android/14) BridgeJavaSDK/10"))
+                .withAppId(TEST_APP_ID).build();
+        setupConfigsForUser();
+        
+        AppConfig first = service.getAppConfigForUser(context, true);
+        first.setLabel("Changed");
+        first.setSurveyReferences(ImmutableList.of());
+        
+        AppConfig second = service.getAppConfigForUser(context, true);
+        assertEquals(second.getLabel(), "AppConfig2");
+        assertEquals(second.getSurveyReferences().size(), 1);
+    }
+    
     private AppConfig setupAndTestConfigResolution(Supplier<AppConfig> supplier) {
         Survey survey = Survey.create();
         survey.setIdentifier("theIdentifier");
@@ -498,6 +566,7 @@ public class AppConfigServiceTest {
         assertEquals(returnValue.getCreatedOn(), TIMESTAMP.getMillis());
         assertEquals(returnValue.getModifiedOn(), TIMESTAMP.getMillis());
         assertEquals(returnValue.getGuid(), GUID);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
         assertEquals(returnValue.getLabel(), newConfig.getLabel());
         assertEquals(returnValue.getAppId(), TEST_APP_ID);
         assertEquals(returnValue.getClientData(), TestUtils.getClientData());
@@ -544,6 +613,7 @@ public class AppConfigServiceTest {
         verify(mockStudyService).getStudyIds(TEST_APP_ID);
 
         assertEquals(oldConfig, returnValue);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = InvalidEntityException.class)
@@ -566,6 +636,7 @@ public class AppConfigServiceTest {
         service.deleteAppConfig(TEST_APP_ID,  GUID);
         
         verify(mockDao).deleteAppConfig(TEST_APP_ID, GUID);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -573,6 +644,7 @@ public class AppConfigServiceTest {
         service.deleteAppConfigPermanently(TEST_APP_ID, GUID);
         
         verify(mockDao).deleteAppConfigPermanently(TEST_APP_ID, GUID);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
 
     @Test
@@ -20,6 +20,7 @@ import static org.sagebionetworks.bridge.TestConstants.STRING_TAGS;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.models.OperatingSystem.ANDROID;
 import static org.sagebionetworks.bridge.models.OperatingSystem.UNIVERSAL;
+import static org.sagebionetworks.bridge.services.AppConfigService.APP_CONFIG_CACHE_REGION;
 import static org.sagebionetworks.bridge.services.AssessmentService.IDENTIFIER_REQUIRED;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -51,6 +52,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.AssessmentDao;
 import org.sagebionetworks.bridge.dao.AssessmentResourceDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -86,6 +88,9 @@ public class AssessmentServiceTest extends Mockito {
     @Mock
     Organization mockOrganization;
     
+    @Mock
+    CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     ArgumentCaptor<Assessment> assessmentCaptor;
     
@@ -1113,6 +1118,8 @@ public class AssessmentServiceTest extends Mockito {
         assertEquals(assessmentToPublish.getVersion(), 0);
         // verify that a fuller copy also occurred
         assertEquals(assessmentToPublish.getTitle(), existing.getTitle());
+        
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
         assertEquals(assessmentToPublish.getTags(), existing.getTags());
         assertEquals(assessmentToPublish.getPhase(), AssessmentPhase.PUBLISHED);
     }
@@ -1410,6 +1417,7 @@ public class AssessmentServiceTest extends Mockito {
         service.deleteAssessmentPermanently(TEST_APP_ID, TEST_OWNER_ID, GUID);
         
         verify(mockDao).deleteAssessment(TEST_APP_ID, ASSESSMENT);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -1417,6 +1425,7 @@ public class AssessmentServiceTest extends Mockito {
         when(mockDao.getAssessment(TEST_APP_ID, TEST_OWNER_ID, GUID)).thenReturn(Optional.empty());
         service.deleteAssessmentPermanently(TEST_APP_ID, TEST_OWNER_ID, GUID);
         verify(mockDao, never()).deleteAssessment(any(), any());
+        verify(mockCacheInvalidationBus, never()).invalidate(any(), any());
     }
         
     // OWNERSHIP VERIFICATION
@@ -1510,6 +1519,7 @@ public class AssessmentServiceTest extends Mockito {
     public void deleteAllAssessments() {
         service.deleteAllAssessments(TEST_APP_ID);
         verify(mockDao).deleteAllAssessments(TEST_APP_ID);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = UnauthorizedException.class)
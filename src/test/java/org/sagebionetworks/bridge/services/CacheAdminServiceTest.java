@@ -3,22 +3,28 @@ package org.sagebionetworks.bridge.services;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
-import java.util.Set;
+import java.util.List;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.surveys.Survey;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 
 public class CacheAdminServiceTest {
 
@@ -26,6 +32,10 @@ public class CacheAdminServiceTest {
     
     private CacheAdminService adminService;
     
+    private List<String> keys;
+    
+    private List<ScanParams> scanParams;
+    
     @BeforeMethod
     public void before() {
         adminService = new CacheAdminService();
@@ -38,18 +48,81 @@ public class CacheAdminServiceTest {
     
     @Test
     public void listsItemsWithoutSessions() {
-        Set<String> set = adminService.listItems();
-        assertEquals(set.size(), 2);
-        assertTrue(set.contains("foo:App"));
-        assertTrue(set.contains("baz:Survey:view"));
+        ForwardCursorPagedResourceList<String> page = adminService.listItems(null, null, 50);
+        assertEquals(page.getItems(), ImmutableList.of("foo:App", "baz:Survey:view"));
+        assertNull(page.getNextPageOffsetKey());
+        assertEquals(page.getRequestParams().get("pageSize"), 50);
+        
+        // The whole (stub) keyspace was scanned, without a MATCH pattern.
+        assertEquals(scanParams.size(), 2);
+        assertFalse(scanParams.get(0).getParams().stream().anyMatch(b -> new String(b).equalsIgnoreCase("match")));
+    }
+    
+    @Test
+    public void listItemsPages() {
+        keys.add(0, CacheKey.app("a").toString());
+        keys.add(1, CacheKey.app("b").toString());
+        keys.add(2, CacheKey.app("c").toString());
+        keys.add(3, CacheKey.app("d").toString());
+        keys.add(4, CacheKey.app("e").toString());
+        
+        // SCAN returns two keys at a time, so the page stops once it has at least 5 keys.
+        ForwardCursorPagedResourceList<String> page = adminService.listItems(null, null, 5);
+        assertEquals(page.getItems(), ImmutableList.of("a:App", "b:App", "c:App", "d:App", "e:App", "foo:App"));
+        assertEquals(page.getNextPageOffsetKey(), "6");
+        
+        page = adminService.listItems(null, page.getNextPageOffsetKey(), 5);
+        assertEquals(page.getItems(), ImmutableList.of("baz:Survey:view"));
+        assertNull(page.getNextPageOffsetKey());
+        assertEquals(page.getRequestParams().get("offsetKey"), "6");
+    }
+    
+    @Test
+    public void listItemsOfType() {
+        ForwardCursorPagedResourceList<String> page = adminService.listItems("App", null, 50);
+        assertEquals(page.getItems(), ImmutableList.of("foo:App"));
+        
+        List<byte[]> params = Lists.newArrayList(scanParams.get(0).getParams());
+        assertTrue(params.stream().anyMatch(b -> new String(b).equals("*:App")));
+    }
+    
+    @Test
+    public void listItemsStopsAfterMaxScans() {
+        keys.clear();
+        for (int i=0; i < CacheAdminService.MAX_SCANS_PER_PAGE * 2 + 10; i++) {
+            keys.add(CacheKey.requestInfo("user" + i).toString());
+        }
+        ForwardCursorPagedResourceList<String> page = adminService.listItems(null, null, 50);
+        assertTrue(page.getItems().isEmpty());
+        assertEquals(page.getNextPageOffsetKey(), String.valueOf(CacheAdminService.MAX_SCANS_PER_PAGE * 2));
+        assertEquals(scanParams.size(), CacheAdminService.MAX_SCANS_PER_PAGE);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void listItemsRejectsPrivateType() {
+        adminService.listItems("session", null, 50);
     }
     
+    @Test(expectedExceptions = BadRequestException.class)
+    public void listItemsRejectsInvalidOffsetKey() {
+        adminService.listItems(null, "not-a-cursor", 50);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void listItemsRejectsPageSizeTooSmall() {
+        adminService.listItems(null, null, 1);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void listItemsRejectsPageSizeTooLarge() {
+        adminService.listItems(null, null, 1000);
+    }
     
     @Test
     public void canRemoveItem() {
         adminService.removeItem("foo:App");
-        Set<String> set = adminService.listItems();
-        assertEquals(set.size(), 1);
+        ForwardCursorPagedResourceList<String> page = adminService.listItems(null, null, 50);
+        assertEquals(page.getItems().size(), 1);
     }
     
     @Test(expectedExceptions = BridgeServiceException.class)
@@ -82,17 +155,36 @@ public class CacheAdminServiceTest {
         adminService.removeItem(REQUEST_INFO_KEY);
     }
     
+    // SCAN over a list, two keys at a time. The cursor is the index of the next key.
     private Jedis createStubJedis() {
-        Set<String> KEYS = Sets.newHashSet(CacheKey.app("foo").toString(),
-                CacheKey.viewKey(Survey.class, "baz").toString());
+        keys = Lists.newArrayList(CacheKey.app("foo").toString(), "bar:session", 
+                CacheKey.viewKey(Survey.class, "baz").toString(), REQUEST_INFO_KEY);
+        scanParams = Lists.newArrayList();
         return new Jedis("") {
             @Override
-            public Set<String> keys(String pattern) {
-                return ImmutableSet.copyOf(KEYS);
+            public ScanResult<String> scan(String cursor, ScanParams params) {
+                scanParams.add(params);
+                List<byte[]> paramList = Lists.newArrayList(params.getParams());
+                String pattern = null;
+                for (int i=0; i < paramList.size(); i++) {
+                    if (new String(paramList.get(i)).equalsIgnoreCase("match")) {
+                        pattern = new String(paramList.get(i+1));
+                    }
+                }
+                int start = Integer.parseInt(cursor);
+                int end = Math.min(start + 2, keys.size());
+                List<String> batch = Lists.newArrayList();
+                for (String key : keys.subList(start, end)) {
+                    if (pattern == null || key.endsWith(pattern.substring(1))) {
+                        batch.add(key);
+                    }
+                }
+                String next = (end == keys.size()) ? ScanParams.SCAN_POINTER_START : String.valueOf(end);
+                return new ScanResult<>(next, batch);
             }
             @Override
             public Long del(String key) {
-                return (KEYS.remove(key)) ? 1L : 0L;
+                return (keys.remove(key)) ? 1L : 0L;
             }
         };
     }
@@ -14,6 +14,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ParticipantFileDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -28,10 +31,13 @@ import org.testng.annotations.Test;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -56,12 +62,21 @@ public class ParticipantFileServiceTest {
     @Mock
     AmazonS3 mockS3Client;
 
+    @Mock
+    TokenBucketRateLimiter mockRateLimiter;
+
     @InjectMocks
     ParticipantFileService service;
 
     @Captor
     ArgumentCaptor<GeneratePresignedUrlRequest> requestCaptor;
 
+    @Captor
+    ArgumentCaptor<RateLimit> rateLimitCaptor;
+
+    // Tokens left in each bucket. Buckets are never refilled.
+    Map<String, Long> mockRateLimiterMap;
+
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
@@ -73,6 +88,20 @@ public class ParticipantFileServiceTest {
         when(mockConfig.getInt("participant-file.rate-limiter.refill-bytes")).thenReturn(1000);
         service.setConfig(mockConfig);
 
+        mockRateLimiterMap = new HashMap<>();
+        when(mockRateLimiter.tryConsume(any(), any(), anyLong())).thenAnswer(invocation -> {
+            RateLimit limit = invocation.getArgument(0);
+            String key = CacheKey.rateLimit(limit.getName(), invocation.getArgument(1)).toString();
+            long tokens = mockRateLimiterMap.getOrDefault(key, limit.getInitialTokens());
+            long cost = invocation.getArgument(2);
+            if (tokens < cost) {
+                return false;
+            }
+            mockRateLimiterMap.put(key, tokens - cost);
+            return true;
+        });
+        service.setRateLimiter(mockRateLimiter);
+
         when(mockS3Client.generatePresignedUrl(any())).thenAnswer(i -> {
             GeneratePresignedUrlRequest request = i.getArgument(0);
             String filePath = request.getKey();
@@ -98,6 +127,23 @@ public class ParticipantFileServiceTest {
         verify(mockFileDao).getParticipantFiles("test_user", "dummy-key", 20);
     }
 
+    @Test
+    public void getParticipantFilesConsumesTotalBytes() {
+        List<ParticipantFile> files = ImmutableList.of(ParticipantFile.create(), ParticipantFile.create());
+        when(mockFileDao.getParticipantFiles("userid", null, 20))
+                .thenReturn(new ForwardCursorPagedResourceList<>(files, null, true));
+
+        service.getParticipantFiles("userid", null, 20);
+
+        verify(mockRateLimiter).tryConsume(rateLimitCaptor.capture(), eq("userid"), eq(200L));
+        RateLimit limit = rateLimitCaptor.getValue();
+        assertEquals(limit.getName(), ParticipantFileService.PARTICIPANT_FILE_RATE_LIMIT);
+        assertEquals(limit.getInitialTokens(), 1000L);
+        assertEquals(limit.getMaximumTokens(), 1000L);
+        assertEquals(limit.getRefillIntervalSeconds(), 5L);
+        assertEquals(limit.getRefillTokens(), 1000L);
+    }
+
     @Test
     public void getParticipantFilesNullDao() {
         when(mockFileDao.getParticipantFiles("test_user", "dummy-key", 20)).thenReturn(null);
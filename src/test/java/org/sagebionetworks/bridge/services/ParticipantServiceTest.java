@@ -42,6 +42,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -74,7 +75,10 @@ import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -263,6 +267,9 @@ public class ParticipantServiceTest extends Mockito {
     @Mock
     private AuthenticationService authenticationService;
     
+    @Mock
+    private TokenBucketRateLimiter rateLimiter;
+    
     @Captor
     ArgumentCaptor<StudyParticipant> participantCaptor;
     
@@ -290,7 +297,13 @@ public class ParticipantServiceTest extends Mockito {
     @Captor
     ArgumentCaptor<Enrollment> enrollmentCaptor;
     
+    @Captor
+    ArgumentCaptor<RateLimit> rateLimitCaptor;
+    
     private Account account;
+    
+    // Tokens left in each rate limit bucket. Buckets are never refilled.
+    private Map<String, Long> rateLimiterMap;
 
     @BeforeMethod
     public void before() {
@@ -309,6 +322,19 @@ public class ParticipantServiceTest extends Mockito {
         when(bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_MAXIMUM_COUNT)).thenReturn(100);
         when(bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_REFILL_INTERVAL)).thenReturn(1);
         when(bridgeConfig.getInt(CONFIG_KEY_CREATE_PARTICIPANT_RATE_LIMIT_REFILL_COUNT)).thenReturn(100);
+        
+        rateLimiterMap = new HashMap<>();
+        when(rateLimiter.tryConsume(any(), any(), anyLong())).thenAnswer(invocation -> {
+            RateLimit limit = invocation.getArgument(0);
+            String key = CacheKey.rateLimit(limit.getName(), invocation.getArgument(1)).toString();
+            long tokens = rateLimiterMap.getOrDefault(key, limit.getInitialTokens());
+            long cost = invocation.getArgument(2);
+            if (tokens < cost) {
+                return false;
+            }
+            rateLimiterMap.put(key, tokens - cost);
+            return true;
+        });
 
         RequestContext.set(new RequestContext.Builder()
                 .withCallerUserId(ADMIN_USER_ID).withCallerAppId(TEST_APP_ID)
@@ -432,7 +458,14 @@ public class ParticipantServiceTest extends Mockito {
             // expected exception
         }
 
-        // Don't need to test restocking the Rate Limiter. This is tested in ByteRateLimiterTest.
+        // Restocking the bucket is done by the limiter's script in Redis, so just verify the limit's settings.
+        verify(rateLimiter, times(2)).tryConsume(rateLimitCaptor.capture(), eq("rate-limiting-user"), eq(1L));
+        RateLimit limit = rateLimitCaptor.getValue();
+        assertEquals(limit.getName(), ParticipantService.CREATE_PARTICIPANT_RATE_LIMIT);
+        assertEquals(limit.getInitialTokens(), 1L);
+        assertEquals(limit.getMaximumTokens(), 1L);
+        assertEquals(limit.getRefillIntervalSeconds(), 1000L);
+        assertEquals(limit.getRefillTokens(), 1L);
     }
 
     @Test
@@ -463,6 +496,7 @@ public class ParticipantServiceTest extends Mockito {
         StudyParticipant participant = withParticipant().build();
         participantService.createParticipant(app, participant, false);
         participantService.createParticipant(app, participant, false);
+        verify(rateLimiter, never()).tryConsume(any(), any(), anyLong());
     }
 
     @Test(expectedExceptions = InvalidEntityException.class)
@@ -844,6 +878,49 @@ public class ParticipantServiceTest extends Mockito {
         verify(accountService).getPagedAccountSummaries(TEST_APP_ID, search); 
     }
     
+    @Test
+    public void searchAccountSummaries() {
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withOffsetBy(1100).withPageSize(50).build();
+        
+        participantService.searchAccountSummaries(APP, search);
+        
+        verify(accountService).getPagedAccountSummaries(TEST_APP_ID, search);
+        verify(accountService, never()).getAccountSummariesByOffsetKey(any(), any());
+    }
+    
+    @Test
+    public void searchAccountSummariesWithOffsetKey() {
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withOffsetKey("offsetKey").withPageSize(50).build();
+        
+        participantService.searchAccountSummaries(APP, search);
+        
+        verify(accountService).getAccountSummariesByOffsetKey(TEST_APP_ID, search);
+        verify(accountService, never()).getPagedAccountSummaries(any(), any());
+    }
+    
+    @Test
+    public void searchAccountSummariesWithOffsetKeyAddsTestFlagForDevelopers() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId("some-id")
+                .withCallerRoles(ImmutableSet.of(Roles.DEVELOPER)).build());
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetKey("offsetKey").build();
+        
+        participantService.searchAccountSummaries(APP, search);
+        
+        verify(accountService).getAccountSummariesByOffsetKey(eq(TEST_APP_ID), searchCaptor.capture());
+        assertEquals(searchCaptor.getValue().getAllOfGroups(), ImmutableSet.of(TEST_USER_GROUP));
+    }
+    
+    @Test(expectedExceptions = InvalidEntityException.class)
+    public void searchAccountSummariesWithOffsetKeyAndOffsetBy() {
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withOffsetKey("offsetKey").withOffsetBy(10).build();
+        participantService.searchAccountSummaries(APP, search);
+    }
+    
     @Test(expectedExceptions = NullPointerException.class)
     public void getPagedAccountSummariesWithBadStudy() {
         participantService.getPagedAccountSummaries(null, AccountSummarySearch.EMPTY_SEARCH);
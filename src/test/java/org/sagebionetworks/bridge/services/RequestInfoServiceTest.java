@@ -1,9 +1,18 @@
 package org.sagebionetworks.bridge.services;
 
+import static java.util.stream.Collectors.toMap;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import org.joda.time.DateTime;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -12,6 +21,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
 import org.sagebionetworks.bridge.models.RequestInfo;
 
@@ -26,6 +36,9 @@ public class RequestInfoServiceTest extends Mockito {
     @Mock
     RequestInfoDao mockRequestInfoDao;
     
+    @Captor
+    ArgumentCaptor<List<RequestInfo>> requestInfosCaptor;
+    
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
@@ -77,4 +90,148 @@ public class RequestInfoServiceTest extends Mockito {
         verify(mockRequestInfoDao).removeRequestInfo(TEST_USER_ID);
         verify(mockCacheProvider).removeRequestInfo(TEST_USER_ID);
     }
+    
+    @Test
+    public void updateRequestInfoIsWrittenBehind() {
+        startWriteBehind();
+        DateTime signedInOn = DateTime.now();
+        DateTime uploadedOn = signedInOn.plusMinutes(1);
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withSignedInOn(signedInOn).withUserAgent("agent1").build());
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withUploadedOn(uploadedOn).withUserAgent("agent2").build());
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId("otherUser").build());
+        verify(mockRequestInfoDao, never()).updateRequestInfo(any());
+        
+        service.flush();
+        
+        // One batch, with one merged record per user.
+        verify(mockRequestInfoDao).updateRequestInfos(requestInfosCaptor.capture());
+        Map<String, RequestInfo> written = requestInfosCaptor.getValue().stream()
+                .collect(toMap(RequestInfo::getUserId, info -> info));
+        assertEquals(written.size(), 2);
+        RequestInfo info = written.get(TEST_USER_ID);
+        assertEquals(info.getSignedInOn(), signedInOn);
+        assertEquals(info.getUploadedOn(), uploadedOn);
+        assertEquals(info.getUserAgent(), "agent2");
+        
+        // Nothing left to write.
+        service.flush();
+        verify(mockRequestInfoDao, times(1)).updateRequestInfos(any());
+    }
+    
+    @Test
+    public void getRequestInfoIncludesPendingUpdates() {
+        startWriteBehind();
+        DateTime signedInOn = DateTime.now();
+        RequestInfo persisted = new RequestInfo.Builder().withUserId(TEST_USER_ID).withUserAgent("agent1")
+                .withSignedInOn(signedInOn.minusDays(1)).build();
+        when(mockRequestInfoDao.getRequestInfo(TEST_USER_ID)).thenReturn(persisted);
+        
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withSignedInOn(signedInOn).build());
+        
+        RequestInfo retrieved = service.getRequestInfo(TEST_USER_ID);
+        assertEquals(retrieved.getUserAgent(), "agent1");
+        assertEquals(retrieved.getSignedInOn(), signedInOn);
+    }
+    
+    @Test
+    public void getRequestInfoOnlyPending() {
+        startWriteBehind();
+        RequestInfo info = new RequestInfo.Builder().withUserId(TEST_USER_ID).build();
+        service.updateRequestInfo(info);
+        
+        assertSame(service.getRequestInfo(TEST_USER_ID), info);
+    }
+    
+    @Test
+    public void removeRequestInfoDropsPendingUpdate() {
+        startWriteBehind();
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID).build());
+        
+        service.removeRequestInfo(TEST_USER_ID);
+        service.flush();
+        
+        verify(mockRequestInfoDao).removeRequestInfo(TEST_USER_ID);
+        verify(mockRequestInfoDao, never()).updateRequestInfos(any());
+    }
+    
+    @Test
+    public void failedFlushWritesUpdatesOneAtATime() {
+        startWriteBehind();
+        doThrow(new RuntimeException()).when(mockRequestInfoDao).updateRequestInfos(any());
+        RequestInfo info1 = new RequestInfo.Builder().withUserId("user1").build();
+        RequestInfo info2 = new RequestInfo.Builder().withUserId("user2").build();
+        doThrow(new RuntimeException()).when(mockRequestInfoDao).updateRequestInfo(info1);
+        service.updateRequestInfo(info1);
+        service.updateRequestInfo(info2);
+        
+        service.flush();
+        
+        verify(mockRequestInfoDao).updateRequestInfo(info1);
+        verify(mockRequestInfoDao).updateRequestInfo(info2);
+        
+        // Only the update that failed on its own is retried.
+        doNothing().when(mockRequestInfoDao).updateRequestInfos(any());
+        service.flush();
+        
+        verify(mockRequestInfoDao, times(2)).updateRequestInfos(requestInfosCaptor.capture());
+        assertEquals(requestInfosCaptor.getValue(), ImmutableList.of(info1));
+    }
+    
+    @Test
+    public void failedFlushIsRetried() {
+        startWriteBehind();
+        doThrow(new RuntimeException()).doNothing().when(mockRequestInfoDao).updateRequestInfos(any());
+        doThrow(new RuntimeException()).when(mockRequestInfoDao).updateRequestInfo(any());
+        DateTime signedInOn = DateTime.now();
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withSignedInOn(signedInOn).withUserAgent("agent1").build());
+        
+        service.flush();
+        
+        // An update made after the failure wins over the failed one.
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID).withUserAgent("agent2").build());
+        service.flush();
+        
+        verify(mockRequestInfoDao, times(2)).updateRequestInfos(requestInfosCaptor.capture());
+        RequestInfo info = requestInfosCaptor.getValue().get(0);
+        assertEquals(info.getSignedInOn(), signedInOn);
+        assertEquals(info.getUserAgent(), "agent2");
+    }
+    
+    @Test
+    public void failingUpdateIsDropped() {
+        startWriteBehind();
+        doThrow(new RuntimeException()).when(mockRequestInfoDao).updateRequestInfos(any());
+        doThrow(new RuntimeException()).when(mockRequestInfoDao).updateRequestInfo(any());
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID).build());
+        
+        for (int i = 0; i < RequestInfoService.MAX_WRITE_ATTEMPTS + 1; i++) {
+            service.flush();
+        }
+        
+        verify(mockRequestInfoDao, times(RequestInfoService.MAX_WRITE_ATTEMPTS)).updateRequestInfos(any());
+        verify(mockRequestInfoDao, times(RequestInfoService.MAX_WRITE_ATTEMPTS)).updateRequestInfo(any());
+        assertNull(service.getRequestInfo(TEST_USER_ID));
+    }
+    
+    @Test
+    public void stopFlushesPendingUpdates() {
+        startWriteBehind();
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID).build());
+        
+        service.stop();
+        
+        verify(mockRequestInfoDao).updateRequestInfos(any());
+    }
+    
+    // The interval is long enough that the scheduled flush never runs during a test.
+    private void startWriteBehind() {
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt(RequestInfoService.CONFIG_KEY_FLUSH_INTERVAL_MILLIS)).thenReturn(60000);
+        service.setBridgeConfig(mockConfig);
+        service.start();
+    }
 }
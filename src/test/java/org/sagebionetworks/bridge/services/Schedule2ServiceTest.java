@@ -22,6 +22,7 @@ import static org.sagebionetworks.bridge.models.studies.StudyPhase.DESIGN;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -48,6 +49,7 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.Schedule2Dao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -90,6 +92,9 @@ public class Schedule2ServiceTest extends Mockito {
     
     @Mock
     StudyActivityEventService mockStudyActivityEventService;
+    
+    @Mock
+    BridgeConfig mockBridgeConfig;
 
     @InjectMocks
     @Spy
@@ -105,6 +110,8 @@ public class Schedule2ServiceTest extends Mockito {
         doReturn(CREATED_ON).when(service).getCreatedOn();
         doReturn(MODIFIED_ON).when(service).getModifiedOn();
         doReturn(GUID).when(service).generateGuid();
+        // The spy is reused between tests, so start each test with the timeline cache disabled.
+        service.createTimelineCache();
     }
     
     @AfterMethod
@@ -1064,6 +1071,97 @@ public class Schedule2ServiceTest extends Mockito {
         assertSame(retValue, list);
     }
     
+    private Schedule2 enableTimelineCache() {
+        when(mockBridgeConfig.getPropertyAsInt(Schedule2Service.TIMELINE_CACHE_MAX_SIZE_PROPERTY)).thenReturn(10);
+        when(mockBridgeConfig.getPropertyAsInt(Schedule2Service.TIMELINE_CACHE_TTL_SECONDS_PROPERTY)).thenReturn(60);
+        service.createTimelineCache();
+        
+        Schedule2 schedule = Schedule2Test.createValidSchedule();
+        schedule.setGuid(SCHEDULE_GUID);
+        schedule.setModifiedOn(MODIFIED_ON);
+        return schedule;
+    }
+    
+    @Test
+    public void getTimelineCachedForScheduleVersion() {
+        Schedule2 schedule = enableTimelineCache();
+        
+        Timeline timeline = service.getTimeline(schedule);
+        assertSame(service.getTimeline(schedule), timeline);
+        
+        schedule.setModifiedOn(MODIFIED_ON.plusMinutes(1));
+        Timeline updated = service.getTimeline(schedule);
+        assertNotSame(updated, timeline);
+        assertSame(service.getTimeline(schedule), updated);
+    }
+    
+    @Test
+    public void getTimelineCachedForCallerLanguages() {
+        Schedule2 schedule = enableTimelineCache();
+        
+        Timeline english = service.getTimeline(schedule);
+        
+        RequestContext.set(new RequestContext.Builder().withCallerLanguages(ImmutableList.of("fr")).build());
+        Timeline french = service.getTimeline(schedule);
+        assertNotSame(french, english);
+        assertEquals(french.getLang(), "fr");
+        assertSame(service.getTimeline(schedule), french);
+    }
+    
+    @Test
+    public void getTimelineNotCachedWhenCacheDisabled() {
+        Schedule2 schedule = Schedule2Test.createValidSchedule();
+        schedule.setGuid(SCHEDULE_GUID);
+        schedule.setModifiedOn(MODIFIED_ON);
+        
+        assertNotSame(service.getTimeline(schedule), service.getTimeline(schedule));
+    }
+    
+    @Test
+    public void getScheduleMetadataForScheduleCachedForScheduleVersion() {
+        Schedule2 schedule = enableTimelineCache();
+        TimelineMetadata meta = new TimelineMetadata();
+        when(mockDao.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(ImmutableList.of(meta));
+        
+        assertEquals(service.getScheduleMetadata(schedule), ImmutableList.of(meta));
+        assertEquals(service.getScheduleMetadata(schedule), ImmutableList.of(meta));
+        verify(mockDao, times(1)).getScheduleMetadata(SCHEDULE_GUID);
+        
+        schedule.setModifiedOn(MODIFIED_ON.plusMinutes(1));
+        assertEquals(service.getScheduleMetadata(schedule), ImmutableList.of(meta));
+        verify(mockDao, times(2)).getScheduleMetadata(SCHEDULE_GUID);
+    }
+    
+    @Test
+    public void getScheduleMetadataForScheduleNotCachedWhenCacheDisabled() {
+        Schedule2 schedule = Schedule2Test.createValidSchedule();
+        schedule.setGuid(SCHEDULE_GUID);
+        schedule.setModifiedOn(MODIFIED_ON);
+        List<TimelineMetadata> list = ImmutableList.of();
+        when(mockDao.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(list);
+        
+        assertSame(service.getScheduleMetadata(schedule), list);
+        service.getScheduleMetadata(schedule);
+        verify(mockDao, times(2)).getScheduleMetadata(SCHEDULE_GUID);
+    }
+    
+    @Test
+    public void publishScheduleInvalidatesTimelineCache() {
+        Schedule2 schedule = enableTimelineCache();
+        permitToAccess();
+        
+        when(mockDao.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(ImmutableList.of());
+        service.getScheduleMetadata(schedule);
+        
+        Schedule2 existing = new Schedule2();
+        existing.setGuid(SCHEDULE_GUID);
+        when(mockDao.getSchedule(TEST_APP_ID, SCHEDULE_GUID)).thenReturn(Optional.of(existing));
+        service.publishSchedule(TEST_APP_ID, SCHEDULE_GUID);
+        
+        service.getScheduleMetadata(schedule);
+        verify(mockDao, times(2)).getScheduleMetadata(SCHEDULE_GUID);
+    }
+    
     @Test
     public void getSessionAssessmentMetadata() {
         List<TimelineMetadata> results = ImmutableList.of();
@@ -1176,7 +1274,7 @@ public class Schedule2ServiceTest extends Mockito {
         
         ResourceList<StudyActivityEvent> events = new ResourceList<>(ImmutableList.of());
         when(mockStudyActivityEventService.getRecentStudyActivityEvents(
-                TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)).thenReturn(events);
+                TEST_APP_ID, TEST_STUDY_ID, account)).thenReturn(events);
         
         ParticipantSchedule retValue = service.getParticipantSchedule(TEST_APP_ID, TEST_STUDY_ID, account);
         assertEquals(retValue.getClientTimeZone(), "America/Chicago");
@@ -1193,7 +1291,7 @@ public class Schedule2ServiceTest extends Mockito {
         
         ResourceList<StudyActivityEvent> events = new ResourceList<>(ImmutableList.of());
         when(mockStudyActivityEventService.getRecentStudyActivityEvents(
-                TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)).thenReturn(events);
+                TEST_APP_ID, TEST_STUDY_ID, account)).thenReturn(events);
         
         Study study = Study.create();
         when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
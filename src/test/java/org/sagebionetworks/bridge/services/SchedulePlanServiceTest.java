@@ -4,9 +4,12 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
+import static org.sagebionetworks.bridge.services.SchedulePlanService.SCHEDULE_PLAN_CACHE_REGION;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
@@ -23,6 +26,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.SchedulePlanDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoApp;
@@ -54,6 +59,7 @@ public class SchedulePlanServiceTest {
     private SchedulePlanDao mockSchedulePlanDao;
     private SurveyService mockSurveyService;
     private StudyService mockStudyService;
+    private CacheInvalidationBus mockCacheInvalidationBus;
     
     @BeforeMethod
     public void before() {
@@ -65,6 +71,7 @@ public class SchedulePlanServiceTest {
         mockSchedulePlanDao = mock(SchedulePlanDao.class);
         mockSurveyService = mock(SurveyService.class);
         mockStudyService = mock(StudyService.class);
+        mockCacheInvalidationBus = mock(CacheInvalidationBus.class);
         
         service = new SchedulePlanService();
         service.setSchedulePlanDao(mockSchedulePlanDao);
@@ -305,6 +312,49 @@ public class SchedulePlanServiceTest {
         verify(mockSchedulePlanDao).deleteSchedulePlanPermanently(TEST_APP_ID, "planGuid");
     }
     
+    @Test
+    public void getSchedulePlansIsCached() {
+        CacheInvalidationBus.Listener listener = createSchedulePlanCache(10);
+        List<SchedulePlan> plans = Lists.newArrayList(SchedulePlan.create());
+        when(mockSchedulePlanDao.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(plans);
+        
+        // The second call is served from memory.
+        assertEquals(service.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false), plans);
+        assertEquals(service.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false), plans);
+        verify(mockSchedulePlanDao, times(1)).getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false);
+        
+        // A plan in this app changed on another node.
+        listener.evict(TEST_APP_ID);
+        service.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false);
+        verify(mockSchedulePlanDao, times(2)).getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false);
+    }
+    
+    @Test
+    public void getSchedulePlansIncludingDeletedIsNotCached() {
+        createSchedulePlanCache(10);
+        
+        service.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, true);
+        service.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, true);
+        verify(mockSchedulePlanDao, times(2)).getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, true);
+    }
+    
+    @Test
+    public void writesInvalidateSchedulePlanCache() {
+        createSchedulePlanCache(10);
+        
+        service.deleteSchedulePlan(TEST_APP_ID, "planGuid");
+        service.deleteSchedulePlanPermanently(TEST_APP_ID, "planGuid");
+        verify(mockCacheInvalidationBus, times(2)).invalidate(SCHEDULE_PLAN_CACHE_REGION, TEST_APP_ID);
+    }
+    
+    private CacheInvalidationBus.Listener createSchedulePlanCache(int maxSize) {
+        BridgeConfig mockBridgeConfig = mock(BridgeConfig.class);
+        service.setBridgeConfig(mockBridgeConfig);
+        service.setCacheInvalidationBus(mockCacheInvalidationBus);
+        return createNearCache(mockBridgeConfig, mockCacheInvalidationBus, SCHEDULE_PLAN_CACHE_REGION, maxSize,
+                service::createSchedulePlanCache);
+    }
+    
     private SchedulePlan constructorInvalidSchedulePlan() {
         Schedule schedule = new Schedule();
         schedule.addActivity(new Activity.Builder().withTask("DDD").build());
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -25,6 +26,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
@@ -71,6 +74,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -580,6 +584,40 @@ public class ScheduledActivityServiceTest {
         assertActivityGuids(saves, "BBB");
     }
     
+    @Test
+    public void unchangedActivitiesAreNotSavedAgain() {
+        SchedulePlan aaa = schedulePlan("AAA");
+        when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa));
+        ScheduleContext context = createScheduleContext(NOW).build();
+        
+        service.getScheduledActivities(app, context);
+        verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
+        List<ScheduledActivity> firstSaves = scheduledActivityListCaptor.getValue();
+        assertActivityGuids(firstSaves, "AAA");
+        
+        // The next request generates the same activity, and finds it persisted but not yet started.
+        when(activityDao.getActivities(eq(TIME_ZONE), any())).thenReturn(firstSaves);
+        List<ScheduledActivity> returnedActivities = service.getScheduledActivities(app, context);
+        assertActivityGuids(returnedActivities, "AAA");
+        
+        verify(activityDao, times(2)).saveActivities(scheduledActivityListCaptor.capture());
+        assertTrue(scheduledActivityListCaptor.getValue().isEmpty());
+    }
+    
+    @Test
+    public void isUnchangedComparesExpiration() {
+        ScheduledActivity activity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        activity.setActivity(TestUtils.getActivity1());
+        activity.setLocalExpiresOn(LocalDateTime.parse("2017-02-24T10:00:00.000"));
+        ScheduledActivity dbActivity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        dbActivity.setActivity(TestUtils.getActivity1());
+        dbActivity.setLocalExpiresOn(LocalDateTime.parse("2017-02-24T10:00:00.000"));
+        assertTrue(ScheduledActivityService.isUnchanged(activity, dbActivity));
+        
+        dbActivity.setLocalExpiresOn(LocalDateTime.parse("2017-02-25T10:00:00.000"));
+        assertFalse(ScheduledActivityService.isUnchanged(activity, dbActivity));
+    }
+    
     private ScheduledActivity getByGuidPrefix(List<ScheduledActivity> activities, String prefix) {
         for (ScheduledActivity activity : activities) {
             if (activity.getGuid().startsWith(prefix)) {
@@ -805,8 +843,8 @@ public class ScheduledActivityServiceTest {
         oneTimeActivity.setFinishedOn(NOW.plusMinutes(5).getMillis());
         
         mockAllCallsForDbActivities(ImmutableList.of());
-        when(activityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false))
-                .thenReturn(oneTimeActivity);
+        when(activityDao.getActivities(eq(context.getStartsOn().getZone()), any()))
+                .thenReturn(ImmutableList.of(oneTimeActivity));
         
         List<ScheduledActivity> scheduledActivities = service.getScheduledActivitiesV4(app, context);
         assertEquals(scheduledActivities.size(), 1);
@@ -817,7 +855,9 @@ public class ScheduledActivityServiceTest {
         verify(activityDao, times(1)).getActivityHistoryV2(HEALTH_CODE, "guidForCCC", context.getStartsOn(), context.getEndsOn(),
                 null, BridgeConstants.API_MAXIMUM_PAGE_SIZE);
         // Retrieve any remaining scheduled activity from the DB to ensure state is maintained. 
-        verify(activityDao, times(1)).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false);
+        verify(activityDao, times(1)).getActivities(eq(context.getStartsOn().getZone()),
+                scheduledActivityListCaptor.capture());
+        assertEquals(toGuids(scheduledActivityListCaptor.getValue()), ImmutableSet.of(guid));
         
         verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
         
@@ -1165,6 +1205,48 @@ public class ScheduledActivityServiceTest {
         assertEquals(toGuids(activitiesOnSave), toGuids(activities));
     }
     
+    @Test
+    public void getActivitiesV4QueriesConcurrentlyAndBatchLoadsTheRest() {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        service.setActivityQueryExecutorService(executorService);
+        try {
+            SchedulePlan aaa = schedulePlan("AAA");
+            SchedulePlan bbb = schedulePlan("BBB");
+            when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false))
+                    .thenReturn(Lists.newArrayList(aaa, bbb));
+            
+            // AAA is found by the query over the time window, BBB (scheduled outside of it) by the batch load.
+            mockGetActivitiesV2("AAA", createStartedActivities("AAA"+TIME_PORTION));
+            when(activityDao.getActivities(eq(TIME_ZONE), any()))
+                    .thenReturn(createFinishedActivities("BBB"+TIME_PORTION));
+            
+            List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app,
+                    createScheduleContext(NOW).build());
+            assertActivityGuids(returnedActivities, "AAA", "BBB");
+            assertNotNull(getByGuidPrefix(returnedActivities, "AAA").getStartedOn());
+            assertNotNull(getByGuidPrefix(returnedActivities, "BBB").getFinishedOn());
+            
+            verify(activityDao).getActivityHistoryV2(eq(HEALTH_CODE), eq("AAA"), any(), any(), eq(null),
+                    eq(API_MAXIMUM_PAGE_SIZE));
+            verify(activityDao).getActivityHistoryV2(eq(HEALTH_CODE), eq("BBB"), any(), any(), eq(null),
+                    eq(API_MAXIMUM_PAGE_SIZE));
+            // Only the activity that wasn't found by the queries is loaded, and in one call.
+            verify(activityDao).getActivities(eq(TIME_ZONE), scheduledActivityListCaptor.capture());
+            assertActivityGuids(scheduledActivityListCaptor.getValue(), "BBB");
+            verify(activityDao, never()).getActivity(any(), any(), any(), eq(false));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getActivitiesV4RethrowsQueryException() {
+        when(activityDao.getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt()))
+                .thenThrow(new BadRequestException("bad request"));
+        
+        service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
+    }
+    
     /** 
      * The v4 API is used to store client data, and must return finished activities. Instead of retrieving 
      * activities as found by the scheduler (v3 API), we retrieve all activities in the time range, then 
@@ -1284,10 +1366,10 @@ public class ScheduledActivityServiceTest {
         dbActivity.setLocalScheduledOn(LocalDateTime.parse("2017-02-23T13:00:00.000"));
         // This is the critical line. Without this, the service fails. Also tested in DAO code.
         dbActivity.setTimeZone(context.getStartsOn().getZone());
-        when(mockedActivityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false)).thenReturn(dbActivity);
+        when(mockedActivityDao.getActivities(eq(context.getStartsOn().getZone()), any())).thenReturn(ImmutableList.of(dbActivity));
         
         service.getScheduledActivitiesV4(app, context);
-        verify(mockedActivityDao).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false);
+        verify(mockedActivityDao).getActivities(eq(context.getStartsOn().getZone()), any());
     }
     
     private void mockAllCallsForDbActivities(List<ScheduledActivity> dbActivities) {
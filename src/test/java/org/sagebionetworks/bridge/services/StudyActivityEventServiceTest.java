@@ -2,8 +2,10 @@ package org.sagebionetworks.bridge.services;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static java.util.stream.Collectors.toList;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
+import static org.sagebionetworks.bridge.Roles.RESEARCHER;
 import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
 import static org.sagebionetworks.bridge.TestConstants.HEALTH_CODE;
 import static org.sagebionetworks.bridge.TestConstants.MODIFIED_ON;
@@ -15,16 +17,17 @@ import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectTy
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.CUSTOM;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.ENROLLMENT;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.INSTALL_LINK_SENT;
-import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.STUDY_BURST;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.TIMELINE_RETRIEVED;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventType.FINISHED;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.IMMUTABLE;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.MUTABLE;
+import static org.sagebionetworks.bridge.services.AdherenceService.ADHERENCE_STATE_CACHE_REGION;
 import static org.sagebionetworks.bridge.services.StudyActivityEventService.CREATED_ON_FIELD;
 import static org.sagebionetworks.bridge.services.StudyActivityEventService.ENROLLMENT_FIELD;
 import static org.sagebionetworks.bridge.services.StudyActivityEventService.INSTALL_LINK_SENT_FIELD;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -33,6 +36,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -48,11 +53,14 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.StudyActivityEventDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -100,6 +108,9 @@ public class StudyActivityEventServiceTest extends Mockito {
     
     @Mock
     CacheProvider mockCacheProvider;
+    
+    @Mock
+    CacheInvalidationBus mockCacheInvalidationBus;
 
     @Mock
     AlertService alertService;
@@ -111,11 +122,19 @@ public class StudyActivityEventServiceTest extends Mockito {
     @Captor
     ArgumentCaptor<StudyActivityEvent> eventCaptor;
 
+    @Captor
+    ArgumentCaptor<List<StudyActivityEvent>> eventListCaptor;
+    
     @Captor
     ArgumentCaptor<Alert> alertCaptor;
     
     Study study;
     
+    @AfterMethod
+    public void afterMethod() {
+        RequestContext.set(RequestContext.NULL_INSTANCE);
+    }
+    
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
@@ -136,6 +155,11 @@ public class StudyActivityEventServiceTest extends Mockito {
                 .withUserId(TEST_USER_ID);
     }
     
+    private StudyActivityEvent persistedEvent(String eventId, ActivityEventUpdateType updateType) {
+        return makeBuilder().withEventId(eventId).withTimestamp(ENROLLMENT_TS)
+                .withUpdateType(updateType).build();
+    }
+    
     @Test
     public void deleteEvent() {
         StudyActivityEvent originEvent = makeBuilder().withObjectType(CUSTOM).withObjectId("event1")
@@ -154,6 +178,8 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         verify(mockCacheProvider).setObject(
                 ETAG_KEY, CREATED_ON);
+        verify(mockCacheInvalidationBus).invalidate(ADHERENCE_STATE_CACHE_REGION,
+                TEST_APP_ID + ":" + TEST_STUDY_ID + ":" + TEST_USER_ID);
     }
     
     @Test
@@ -228,22 +254,37 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         service.deleteEvent(event, false);
         
-        verify(mockDao, times(4)).deleteEvent(eventCaptor.capture());
+        verify(mockDao).deleteEvent(eventCaptor.capture());
         
-        StudyActivityEvent origin = eventCaptor.getAllValues().get(0);
+        StudyActivityEvent origin = eventCaptor.getValue();
         assertEquals(origin.getEventId(), "custom:foo");
         
-        StudyActivityEvent sb1 = eventCaptor.getAllValues().get(1);
-        assertEquals(sb1.getEventId(), "study_burst:foo:01");
-        assertEquals(sb1.getAppId(), TEST_APP_ID);
-        assertEquals(sb1.getStudyId(), TEST_STUDY_ID);
-        assertEquals(sb1.getUserId(), TEST_USER_ID);
+        // The study burst events are deleted together.
+        verify(mockDao).deleteEvents(TEST_USER_ID, TEST_STUDY_ID, 
+                ImmutableSet.of("study_burst:foo:01", "study_burst:foo:02", "study_burst:foo:03"));
+    }
+    
+    @Test
+    public void deleteEvent_noStudyBurstEvents() {
+        StudyActivityEvent event = makeBuilder().withObjectId("foo")
+                .withTimestamp(ENROLLMENT_TS).withObjectType(CUSTOM)
+                .withUpdateType(MUTABLE).build();
         
-        StudyActivityEvent sb2 = eventCaptor.getAllValues().get(2);
-        assertEquals(sb2.getEventId(), "study_burst:foo:02");
+        StudyBurst burst = new StudyBurst();
+        burst.setOriginEventId("custom:other");
         
-        StudyActivityEvent sb3 = eventCaptor.getAllValues().get(3);
-        assertEquals(sb3.getEventId(), "study_burst:foo:03");
+        Schedule2 schedule = new Schedule2();
+        schedule.setStudyBursts(ImmutableList.of(burst));
+        
+        when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID))
+                .thenReturn(Optional.of(schedule));
+        when(mockDao.getRecentStudyActivityEvent(TEST_USER_ID, TEST_STUDY_ID, "custom:foo"))
+            .thenReturn(new StudyActivityEvent());
+        
+        service.deleteEvent(event, false);
+        
+        verify(mockDao).deleteEvent(any());
+        verify(mockDao, never()).deleteEvents(any(), any(), any());
     }
     
     @Test
@@ -277,6 +318,8 @@ public class StudyActivityEventServiceTest extends Mockito {
         assertEquals(event.getClientTimeZone(), "America/Los_Angeles");
         
         verify(mockCacheProvider).setObject(ETAG_KEY, CREATED_ON);
+        verify(mockCacheInvalidationBus).invalidate(ADHERENCE_STATE_CACHE_REGION,
+                TEST_APP_ID + ":" + TEST_STUDY_ID + ":" + TEST_USER_ID);
     }
     
     @Test
@@ -311,6 +354,7 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         verify(mockDao, never()).publishEvent(any());
         verify(mockCacheProvider, never()).setObject(any(), any());
+        verify(mockCacheInvalidationBus, never()).invalidate(any(), any());
     }
     
     @Test
@@ -350,8 +394,8 @@ public class StudyActivityEventServiceTest extends Mockito {
                 .withTimestamp(ENROLLMENT_TS).withObjectType(ENROLLMENT).build();
 
         when(mockDao.getRecentStudyActivityEvent(TEST_USER_ID, TEST_STUDY_ID, "enrollment")).thenReturn(null);
-        when(mockDao.getRecentStudyActivityEvent(TEST_USER_ID, TEST_STUDY_ID, "study_burst:foo:01")).thenReturn(PERSISTED_EVENT);
-        when(mockDao.getRecentStudyActivityEvent(TEST_USER_ID, TEST_STUDY_ID, "study_burst:foo:02")).thenReturn(PERSISTED_EVENT);
+        when(mockDao.getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID)).thenReturn(ImmutableList.of(
+                persistedEvent("study_burst:foo:01", IMMUTABLE), persistedEvent("study_burst:foo:02", IMMUTABLE)));
         
         StudyBurst burst = new StudyBurst();
         burst.setOriginEventId(ENROLLMENT_FIELD);
@@ -373,6 +417,7 @@ public class StudyActivityEventServiceTest extends Mockito {
             assertTrue(e.getMessage().contains("Study event(s) failed to publish: study_burst:foo:01, study_burst:foo:02"));
         }
 
+        verify(mockDao, never()).publishEvents(any());
         // verify no study burst alerts created
         verifyZeroInteractions(alertService);
     }
@@ -398,7 +443,8 @@ public class StudyActivityEventServiceTest extends Mockito {
                 .thenReturn(Optional.of(schedule));
         
         // The existence of the first event will be enough to throw an error
-        when(mockDao.getRecentStudyActivityEvent(any(), any(), eq("study_burst:foo:01"))).thenReturn(PERSISTED_EVENT);
+        when(mockDao.getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID))
+            .thenReturn(ImmutableList.of(persistedEvent("study_burst:foo:01", IMMUTABLE)));
         
         try {
             service.publishEvent(event, true, true);
@@ -406,6 +452,11 @@ public class StudyActivityEventServiceTest extends Mockito {
         } catch(BadRequestException e) {
             assertEquals(e.getMessage(), "Study event(s) failed to publish: study_burst:foo:01.");
         }
+        
+        // The other study burst events are still published, together.
+        verify(mockDao).publishEvents(eventListCaptor.capture());
+        assertEquals(eventListCaptor.getValue().stream().map(StudyActivityEvent::getEventId).collect(toList()),
+                ImmutableList.of("study_burst:foo:02", "study_burst:foo:03"));
 
         // verify study burst alert created
         verify(alertService).createAlert(alertCaptor.capture());
@@ -436,12 +487,17 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         service.publishEvent(event, false, true);
         
-        verify(mockDao, times(4)).publishEvent(eventCaptor.capture());
+        verify(mockDao).publishEvent(eventCaptor.capture());
         
-        StudyActivityEvent origin = eventCaptor.getAllValues().get(0);
+        StudyActivityEvent origin = eventCaptor.getValue();
         assertEquals(origin.getEventId(), "enrollment");
         
-        StudyActivityEvent sb1 = eventCaptor.getAllValues().get(1);
+        // All the study burst events are published with one call, after one lookup of existing events.
+        verify(mockDao).getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID);
+        verify(mockDao).publishEvents(eventListCaptor.capture());
+        assertEquals(eventListCaptor.getValue().size(), 3);
+        
+        StudyActivityEvent sb1 = eventListCaptor.getValue().get(0);
         assertEquals(sb1.getEventId(), "study_burst:foo:01");
         assertEquals(sb1.getAppId(), TEST_APP_ID);
         assertEquals(sb1.getStudyId(), TEST_STUDY_ID);
@@ -453,12 +509,12 @@ public class StudyActivityEventServiceTest extends Mockito {
         assertEquals(sb1.getOriginEventId(), "enrollment");
         assertEquals(sb1.getPeriodFromOrigin(), Period.parse("P1W"));
         
-        StudyActivityEvent sb2 = eventCaptor.getAllValues().get(2);
+        StudyActivityEvent sb2 = eventListCaptor.getValue().get(1);
         assertEquals(sb2.getEventId(), "study_burst:foo:02");
         assertEquals(sb2.getTimestamp(), ENROLLMENT_TS.plusWeeks(2));
         assertEquals(sb2.getPeriodFromOrigin(), Period.parse("P2W"));
         
-        StudyActivityEvent sb3 = eventCaptor.getAllValues().get(3);
+        StudyActivityEvent sb3 = eventListCaptor.getValue().get(2);
         assertEquals(sb3.getEventId(), "study_burst:foo:03");
         assertEquals(sb3.getTimestamp(), ENROLLMENT_TS.plusWeeks(3));
         assertEquals(sb3.getPeriodFromOrigin(), Period.parse("P3W"));
@@ -493,22 +549,27 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         service.publishEvent(event, false, true);
         
-        verify(mockDao, times(4)).publishEvent(eventCaptor.capture());
+        verify(mockDao).publishEvent(eventCaptor.capture());
         
-        StudyActivityEvent origin = eventCaptor.getAllValues().get(0);
+        StudyActivityEvent origin = eventCaptor.getValue();
         assertEquals(origin.getEventId(), "enrollment");
         
-        StudyActivityEvent sb1 = eventCaptor.getAllValues().get(1);
+        // All the study burst events are published with one call, after one lookup of existing events.
+        verify(mockDao).getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID);
+        verify(mockDao).publishEvents(eventListCaptor.capture());
+        assertEquals(eventListCaptor.getValue().size(), 3);
+        
+        StudyActivityEvent sb1 = eventListCaptor.getValue().get(0);
         assertEquals(sb1.getEventId(), "study_burst:foo:01");
         assertEquals(sb1.getTimestamp(), ENROLLMENT_TS);
         assertNull(sb1.getPeriodFromOrigin());
         
-        StudyActivityEvent sb2 = eventCaptor.getAllValues().get(2);
+        StudyActivityEvent sb2 = eventListCaptor.getValue().get(1);
         assertEquals(sb2.getEventId(), "study_burst:foo:02");
         assertEquals(sb2.getTimestamp(), ENROLLMENT_TS.plusWeeks(1));
         assertEquals(sb2.getPeriodFromOrigin(), Period.parse("P1W"));
         
-        StudyActivityEvent sb3 = eventCaptor.getAllValues().get(3);
+        StudyActivityEvent sb3 = eventListCaptor.getValue().get(2);
         assertEquals(sb3.getEventId(), "study_burst:foo:03");
         assertEquals(sb3.getTimestamp(), ENROLLMENT_TS.plusWeeks(2));
         assertEquals(sb3.getPeriodFromOrigin(), Period.parse("P2W"));
@@ -570,7 +631,9 @@ public class StudyActivityEventServiceTest extends Mockito {
         
         service.publishEvent(event, false, false);
         
-        verify(mockDao, times(4)).publishEvent(eventCaptor.capture());
+        verify(mockDao).publishEvent(any());
+        verify(mockDao).publishEvents(eventListCaptor.capture());
+        assertEquals(eventListCaptor.getValue().size(), 3);
 
         // verify study burst alert created
         verify(alertService).createAlert(alertCaptor.capture());
@@ -685,16 +748,15 @@ public class StudyActivityEventServiceTest extends Mockito {
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID))
                 .thenReturn(Optional.of(schedule));
         
-        when(mockDao.getRecentStudyActivityEvent(any(), any(), eq("study_burst:foo:01")))
-            .thenReturn(PERSISTED_EVENT);
-        when(mockDao.getRecentStudyActivityEvent(any(), any(), eq("study_burst:foo:03")))
-            .thenReturn(PERSISTED_EVENT);
+        when(mockDao.getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID)).thenReturn(ImmutableList.of(
+                persistedEvent("study_burst:foo:01", IMMUTABLE), persistedEvent("study_burst:foo:03", IMMUTABLE)));
         
         service.publishEvent(event, false, true);
         
         // As per BRIDGE-3120 and MTB-496, nothing is updated, not even the missing study burst.
         // The intention (we believe) was to remove the study burst, so it will stay removed.
         verify(mockDao, never()).publishEvent(eventCaptor.capture());
+        verify(mockDao, never()).publishEvents(any());
     }
     
     @DataProvider(name = "eventUpdates")
@@ -748,18 +810,18 @@ public class StudyActivityEventServiceTest extends Mockito {
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID))
             .thenReturn(Optional.of(schedule));
 
-        StudyActivityEvent persistedBurst = null;
         if (burstPersisted) {
-            persistedBurst = makeBuilder().withObjectId("study_burst:foo:01")
-                    .withTimestamp(ENROLLMENT_TS).withObjectType(STUDY_BURST)
-                    .withUpdateType(burstType).build();
+            when(mockDao.getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID))
+                .thenReturn(ImmutableList.of(persistedEvent("study_burst:foo:01", burstType)));
         }
-        when(mockDao.getRecentStudyActivityEvent(TEST_USER_ID, TEST_STUDY_ID, 
-                "study_burst:foo:01")).thenReturn(persistedBurst);
         
         service.publishEvent(event, false, true);
         
-        verify(mockDao, times(count)).publishEvent(eventCaptor.capture());
+        verify(mockDao, atMost(1)).publishEvent(eventCaptor.capture());
+        verify(mockDao, atMost(1)).publishEvents(eventListCaptor.capture());
+        int published = eventCaptor.getAllValues().size() + 
+                eventListCaptor.getAllValues().stream().mapToInt(List::size).sum();
+        assertEquals(published, count);
     }
     
     @Test
@@ -776,14 +838,17 @@ public class StudyActivityEventServiceTest extends Mockito {
                 INSTALL_LINK_SENT_FIELD, INSTALL_LINK_SENT_TS, "custom:event1", CREATED_ON);
         when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE)).thenReturn(map);
         
-        Account account = Account.create();
-        account.setHealthCode(HEALTH_CODE);
-        when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(HEALTH_CODE));
         
         ResourceList<StudyActivityEvent> retValue = service
                 .getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
         assertEquals(retValue.getItems().size(), 5);
         
+        // The participant's own events are retrieved without loading the account.
+        verify(mockAccountService, never()).getAccount(any());
+        verify(mockAccountService, never()).getEnrolledOn(any(), any(), any());
+        
         StudyActivityEvent createdOn = TestUtils.findByEventId(
                 retValue.getItems(), ActivityEventObjectType.CREATED_ON);
         assertEquals(createdOn.getTimestamp(), CREATED_ON);
@@ -805,6 +870,97 @@ public class StudyActivityEventServiceTest extends Mockito {
         service.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
     }
     
+    @Test
+    public void getRecentStudyActivityEvents_otherCallerLoadsAccount() {
+        RequestContext.set(new RequestContext.Builder().withCallerUserId("otherUserId")
+                .withCallerRoles(ImmutableSet.of(RESEARCHER)).build());
+        
+        Enrollment en = Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        en.setEnrolledOn(MODIFIED_ON);
+        Account account = Account.create();
+        account.setId(TEST_USER_ID);
+        account.setHealthCode(HEALTH_CODE);
+        account.setEnrollments(ImmutableSet.of(en));
+        when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        
+        Map<String, DateTime> map = ImmutableMap.of(CREATED_ON_FIELD, CREATED_ON);
+        when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE)).thenReturn(map);
+        
+        ResourceList<StudyActivityEvent> retValue = service.getRecentStudyActivityEvents(
+                TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        assertEquals(retValue.getItems().size(), 2);
+        assertEquals(retValue.getItems().get(1).getEventId(), ENROLLMENT_FIELD);
+        assertEquals(retValue.getItems().get(1).getTimestamp(), MODIFIED_ON);
+        
+        // The caller is authorized against the account.
+        verify(mockAccountService, never()).getHealthCodeForUserId(any(), any());
+        verify(mockAccountService, never()).getEnrolledOn(any(), any(), any());
+    }
+    
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void getRecentStudyActivityEvents_otherCallerCannotAccessAccount() {
+        RequestContext.set(new RequestContext.Builder().withCallerUserId("otherUserId").build());
+        
+        service.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+    }
+    
+    @Test
+    public void getRecentStudyActivityEvents_queriesConcurrently() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            service.setActivityQueryExecutorService(executor);
+            RequestContext context = new RequestContext.Builder().withCallerUserId(TEST_USER_ID).build();
+            RequestContext.set(context);
+            when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                    .thenReturn(Optional.of(HEALTH_CODE));
+            
+            // The global events query runs on another thread, as the caller.
+            Thread requestThread = Thread.currentThread();
+            when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE)).thenAnswer(invocation -> {
+                assertNotSame(Thread.currentThread(), requestThread);
+                assertSame(RequestContext.get(), context);
+                return ImmutableMap.of(CREATED_ON_FIELD, CREATED_ON);
+            });
+            
+            ResourceList<StudyActivityEvent> retValue = service.getRecentStudyActivityEvents(
+                    TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+            assertEquals(retValue.getItems().size(), 1);
+            assertEquals(retValue.getItems().get(0).getEventId(), CREATED_ON_FIELD);
+            assertSame(RequestContext.get(), context);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getRecentStudyActivityEvents_rethrowsGlobalEventsException() {
+        when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(HEALTH_CODE));
+        when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE))
+                .thenThrow(new BadRequestException("Bad request"));
+        
+        service.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+    }
+    
+    @Test
+    public void getRecentStudyActivityEvents_accountAlreadyLoaded() {
+        Enrollment en = Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        en.setEnrolledOn(MODIFIED_ON);
+        Account account = Account.create();
+        account.setId(TEST_USER_ID);
+        account.setHealthCode(HEALTH_CODE);
+        account.setEnrollments(ImmutableSet.of(en));
+        
+        ResourceList<StudyActivityEvent> retValue = service.getRecentStudyActivityEvents(
+                TEST_APP_ID, TEST_STUDY_ID, account);
+        assertEquals(retValue.getItems().size(), 1);
+        assertEquals(retValue.getItems().get(0).getTimestamp(), MODIFIED_ON);
+        
+        verify(mockDao).getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID);
+        verify(mockActivityEventService).getActivityEventMap(TEST_APP_ID, HEALTH_CODE);
+        verifyZeroInteractions(mockAccountService);
+    }
+    
     @Test
     public void getStudyActivityEventHistory() {
         List<StudyActivityEvent> list = new ArrayList<>();
@@ -947,12 +1103,10 @@ public class StudyActivityEventServiceTest extends Mockito {
     
     @Test
     public void addEnrollmentToRecentIfMissing() {
-        Enrollment en = Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
-        en.setEnrolledOn(MODIFIED_ON);
-        Account account = Account.create();
-        account.setHealthCode(HEALTH_CODE);
-        account.setEnrollments(ImmutableSet.of(en));
-        when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(HEALTH_CODE));
+        when(mockAccountService.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(MODIFIED_ON));
         
         Map<String, DateTime> map = ImmutableMap.of(CREATED_ON_FIELD, CREATED_ON);
         when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE)).thenReturn(map);
@@ -975,12 +1129,10 @@ public class StudyActivityEventServiceTest extends Mockito {
 
     @Test
     public void doNotAddEnrollmentToRecentIfNotMissing() { 
-        Enrollment en = Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
-        en.setEnrolledOn(MODIFIED_ON);
-        Account account = Account.create();
-        account.setCreatedOn(CREATED_ON);
-        account.setEnrollments(ImmutableSet.of(en));
-        when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(HEALTH_CODE));
+        when(mockAccountService.getEnrolledOn(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(MODIFIED_ON));
         
         List<StudyActivityEvent> list = Lists.newArrayList(createEvent(ENROLLMENT_FIELD, CREATED_ON, null));
         when(mockDao.getRecentStudyActivityEvents(TEST_USER_ID, TEST_STUDY_ID))
@@ -989,6 +1141,9 @@ public class StudyActivityEventServiceTest extends Mockito {
         ResourceList<StudyActivityEvent> retValue = service.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
         assertEquals(retValue.getItems().get(0).getEventId(), ENROLLMENT_FIELD);
         assertEquals(retValue.getItems().get(0).getTimestamp(), CREATED_ON); // not modifiedOn
+        
+        // The enrollment is only looked up when it is missing.
+        verify(mockAccountService, never()).getEnrolledOn(any(), any(), any());
     }
 
     @Test
@@ -1039,10 +1194,8 @@ public class StudyActivityEventServiceTest extends Mockito {
     // BRIDGE-3179
     @Test
     public void getRecentStudyActivityEvents_noDuplicationError() {
-        Account account = Account.create();
-        account.setAppId(TEST_APP_ID);
-        account.setHealthCode(HEALTH_CODE);
-        when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(mockAccountService.getHealthCodeForUserId(TEST_APP_ID, TEST_USER_ID))
+                .thenReturn(Optional.of(HEALTH_CODE));
         
         StudyActivityEvent event = new StudyActivityEvent.Builder().withEventId(CREATED_ON_FIELD)
                 .withTimestamp(CREATED_ON).build();        
@@ -744,6 +744,9 @@ public class StudyServiceTest extends Mockito {
     
     @Test
     public void deleteAllStudies() {
+        when(mockStudyDao.getStudies(TEST_APP_ID, null, null, null, true))
+                .thenReturn(new PagedResourceList<>(ImmutableList.of(), 0));
+        
         service.deleteAllStudies(TEST_APP_ID);
         verify(mockStudyDao).deleteAllStudies(TEST_APP_ID);
     }
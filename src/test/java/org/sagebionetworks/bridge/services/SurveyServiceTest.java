@@ -9,6 +9,8 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.services.AppConfigService.APP_CONFIG_CACHE_REGION;
+import static org.sagebionetworks.bridge.services.UploadSchemaService.UPLOAD_SCHEMA_CACHE_REGION;
 import static org.sagebionetworks.bridge.services.SharedModuleMetadataServiceTest.makeValidMetadata;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -35,6 +37,7 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
@@ -90,6 +93,9 @@ public class SurveyServiceTest {
     @Mock
     AppService mockAppService;
     
+    @Mock
+    CacheInvalidationBus mockCacheInvalidationBus;
+    
     @Captor
     ArgumentCaptor<GuidCreatedOnVersionHolder> keysCaptor;
     
@@ -122,6 +128,7 @@ public class SurveyServiceTest {
         service.setSchedulePlanService(mockSchedulePlanService);
         service.setSharedModuleMetadataService(mockSharedModuleMetadataService);
         service.setPublishValidator(mockSurveyPublishValidator);
+        service.setCacheInvalidationBus(mockCacheInvalidationBus);
     }
 
     @Test
@@ -261,6 +268,7 @@ public class SurveyServiceTest {
         // execute and validate
         Survey retval = service.publishSurvey(TEST_APP_ID, SURVEY_KEYS, true);
         assertSame(retval, survey);
+        verify(mockCacheInvalidationBus).invalidate(UPLOAD_SCHEMA_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -486,6 +494,9 @@ public class SurveyServiceTest {
         
         //Does not throw an exception
         service.deleteSurveyPermanently(TEST_APP_ID, survey1);
+        
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
+        verify(mockCacheInvalidationBus).invalidate(UPLOAD_SCHEMA_CACHE_REGION, TEST_APP_ID);
     }
     
     @Test
@@ -561,6 +572,22 @@ public class SurveyServiceTest {
         service.deleteSurveyPermanently(TEST_APP_ID, survey);
     }   
     
+    @Test
+    public void updateSurveyInvalidatesAppConfigs() {
+        Survey existing = Survey.create();
+        existing.setAppId(TEST_APP_ID);
+        when(mockSurveyDao.getSurvey(any(), any(), eq(false))).thenReturn(existing);
+        
+        Survey update = new TestSurvey(SurveyServiceTest.class, true);
+        update.setAppId(TEST_APP_ID);
+        
+        service.updateSurvey(TEST_APP_ID, update);
+        
+        verify(mockSurveyDao).updateSurvey(TEST_APP_ID, update);
+        verify(mockCacheInvalidationBus).invalidate(APP_CONFIG_CACHE_REGION, TEST_APP_ID);
+        verify(mockCacheInvalidationBus).invalidate(UPLOAD_SCHEMA_CACHE_REGION, TEST_APP_ID);
+    }
+    
     @Test(expectedExceptions = EntityNotFoundException.class)
     public void updateSurveyFailsOnDeletedSurvey() throws Exception {
         Survey existing = Survey.create();
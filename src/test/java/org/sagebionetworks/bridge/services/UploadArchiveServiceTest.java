@@ -6,6 +6,7 @@ import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -163,4 +164,28 @@ public class UploadArchiveServiceTest {
             assertTrue(oneData.length > 0);
         }
     }
+
+    @Test
+    public void decryptFileToFile() throws Exception {
+        File encryptedFile = File.createTempFile("encrypted", ".bin");
+        File decryptedFile = File.createTempFile("decrypted", ".bin");
+        try {
+            Files.write(encryptedFile.toPath(), encryptedData);
+
+            archiveService.decrypt(TEST_APP_ID, encryptedFile, decryptedFile);
+            assertEquals(Files.readAllBytes(decryptedFile.toPath()), PLAIN_TEXT_DATA);
+        } finally {
+            encryptedFile.delete();
+            decryptedFile.delete();
+        }
+    }
+
+    @Test
+    public void buffersAreReused() {
+        byte[] buffer = archiveService.borrowBuffer();
+        assertEquals(buffer.length, UploadArchiveService.BUFFER_SIZE);
+        archiveService.releaseBuffer(buffer);
+
+        assertSame(archiveService.borrowBuffer(), buffer);
+    }
 }
@@ -3,13 +3,17 @@ package org.sagebionetworks.bridge.services;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.cache.NearCacheTestUtils.createNearCache;
+import static org.sagebionetworks.bridge.services.UploadSchemaService.UPLOAD_SCHEMA_CACHE_REGION;
 import static org.sagebionetworks.bridge.services.SharedModuleMetadataServiceTest.makeValidMetadata;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -30,12 +34,16 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.CacheInvalidationBus;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.models.ClientInfo;
+import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
+import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.models.upload.UploadFieldDefinition;
 import org.sagebionetworks.bridge.models.upload.UploadFieldType;
 import org.sagebionetworks.bridge.models.upload.UploadSchema;
@@ -49,11 +57,15 @@ public class UploadSchemaServiceTest {
     private static final String SCHEMA_ID = "test-schema";
     private static final String SCHEMA_NAME = "My Schema";
     private static final int SCHEMA_REV = 1;
+    private static final String SURVEY_GUID = "test-survey-guid";
+    private static final long SURVEY_CREATED_ON = 1337L;
 
     private UploadSchema svcInputSchema;
     private UploadSchemaDao dao;
     private UploadSchemaService svc;
     private SharedModuleMetadataService mockSharedModuleMetadataService;
+    private SurveyService mockSurveyService;
+    private CacheInvalidationBus mockCacheInvalidationBus;
 
     @Captor
     ArgumentCaptor<String> queryCaptor;
@@ -71,6 +83,10 @@ public class UploadSchemaServiceTest {
         svc = new UploadSchemaService();
         svc.setUploadSchemaDao(dao);
         svc.setSharedModuleMetadataService(mockSharedModuleMetadataService);
+
+        mockSurveyService = mock(SurveyService.class);
+        mockCacheInvalidationBus = mock(CacheInvalidationBus.class);
+        svc.setSurveyService(mockSurveyService);
     }
 
     @Test(expectedExceptions = BadRequestException.class)
@@ -677,6 +693,103 @@ public class UploadSchemaServiceTest {
         assertSame(svcOutputSchema, daoOutputSchema);
     }
 
+    @Test
+    public void getForUploadIsCached() {
+        CacheInvalidationBus.Listener listener = createUploadSchemaCache(10);
+        UploadSchema daoOutputSchema = makeSimpleSchema();
+        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
+                daoOutputSchema);
+
+        // The second call is served from memory.
+        assertSame(svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV), daoOutputSchema);
+        assertSame(svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV), daoOutputSchema);
+        verify(dao, times(1)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+
+        // A schema in this app changed on another node.
+        listener.evict(TEST_APP_ID);
+        svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        verify(dao, times(2)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+    }
+
+    @Test
+    public void getForUploadCachesNotFound() {
+        createUploadSchemaCache(10);
+
+        assertNull(svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV));
+        assertNull(svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV));
+        verify(dao, times(1)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+    }
+
+    @Test
+    public void getForUploadCacheDisabled() {
+        createUploadSchemaCache(0);
+
+        svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        verify(dao, times(2)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+    }
+
+    @Test
+    public void getBySurveyForUploadIsCached() {
+        createUploadSchemaCache(10);
+        mockSurvey(SCHEMA_ID, SCHEMA_REV);
+        UploadSchema daoOutputSchema = makeSimpleSchema();
+        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
+                daoOutputSchema);
+
+        assertSame(svc.getUploadSchemaBySurveyForUpload(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON),
+                daoOutputSchema);
+        assertSame(svc.getUploadSchemaBySurveyForUpload(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON),
+                daoOutputSchema);
+        verify(mockSurveyService, times(1)).getSurvey(TEST_APP_ID,
+                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, SURVEY_CREATED_ON), false, true);
+        verify(dao, times(1)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+
+        // The schema is also cached for lookups by ID and revision.
+        assertSame(svc.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV), daoOutputSchema);
+        verify(dao, times(1)).getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+    }
+
+    @Test
+    public void getBySurveyForUploadNoIdentifier() {
+        mockSurvey(null, SCHEMA_REV);
+        assertNull(svc.getUploadSchemaBySurveyForUpload(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON));
+        verify(dao, never()).getUploadSchemaByIdAndRevision(any(), any(), anyInt());
+    }
+
+    @Test
+    public void getBySurveyForUploadNoSchemaRev() {
+        mockSurvey(SCHEMA_ID, null);
+        assertNull(svc.getUploadSchemaBySurveyForUpload(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON));
+        verify(dao, never()).getUploadSchemaByIdAndRevision(any(), any(), anyInt());
+    }
+
+    @Test
+    public void writesInvalidateUploadSchemaCache() {
+        createUploadSchemaCache(10);
+        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
+                makeSimpleSchema());
+
+        svc.deleteUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        verify(mockCacheInvalidationBus).invalidate(UPLOAD_SCHEMA_CACHE_REGION, TEST_APP_ID);
+    }
+
+    private CacheInvalidationBus.Listener createUploadSchemaCache(int maxSize) {
+        BridgeConfig mockBridgeConfig = mock(BridgeConfig.class);
+        svc.setBridgeConfig(mockBridgeConfig);
+        svc.setCacheInvalidationBus(mockCacheInvalidationBus);
+        return createNearCache(mockBridgeConfig, mockCacheInvalidationBus, UPLOAD_SCHEMA_CACHE_REGION, maxSize,
+                svc::createUploadSchemaCache);
+    }
+
+    private void mockSurvey(String identifier, Integer schemaRev) {
+        Survey survey = Survey.create();
+        survey.setIdentifier(identifier);
+        survey.setSchemaRevision(schemaRev);
+        when(mockSurveyService.getSurvey(TEST_APP_ID,
+                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, SURVEY_CREATED_ON), false, true)).thenReturn(survey);
+    }
+
     @Test(expectedExceptions = BadRequestException.class)
     public void getLatestNullId() {
         svc.getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, null, ClientInfo.UNKNOWN_CLIENT);
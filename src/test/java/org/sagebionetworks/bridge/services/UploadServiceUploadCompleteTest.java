@@ -32,6 +32,7 @@ import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.NotFoundException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.upload.Upload;
 import org.sagebionetworks.bridge.models.upload.UploadStatus;
@@ -201,6 +202,30 @@ public class UploadServiceUploadCompleteTest {
         verify(svc, never()).updateAdherenceWithUploadInfo(any(), any());
     }
 
+    @Test
+    public void validationQueueFull() throws Exception {
+        // set up input
+        DynamoUpload2 upload = new DynamoUpload2();
+        upload.setUploadId(TEST_UPLOAD_ID);
+        upload.setStatus(UploadStatus.REQUESTED);
+
+        // mock validation service
+        doThrow(new ServiceUnavailableException(UploadValidationService.QUEUE_FULL_ERROR))
+                .when(mockUploadValidationService).checkCapacity();
+
+        // execute
+        try {
+            svc.uploadComplete(TEST_APP_ID, APP, upload, false);
+            fail("expected exception");
+        } catch (ServiceUnavailableException ex) {
+            // expected exception
+        }
+
+        // The upload is not marked complete, so the caller can retry.
+        verifyZeroInteractions(mockS3Client, mockUploadDao);
+        verify(mockUploadValidationService, never()).validateUpload(any(String.class), any(Upload.class));
+    }
+
     @Test
     public void normalCase() throws Exception {
         // set up input
@@ -1,49 +1,146 @@
 package org.sagebionetworks.bridge.services;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.collect.ImmutableList;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.dao.UploadDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.upload.UploadValidationTask;
 import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
 
 public class UploadValidationServiceTest {
-    @Test
-    public void test() {
-        // UploadValidationService is a simple call-through to the task factory and the async thread pool. As such, our
-        // test strategy is to verify that execution flows through to these dependencies.
+    private App app;
+    private Upload upload;
+    private UploadValidationTask mockTask;
+    private ThreadPoolExecutor mockExecutor;
+    private UploadDao mockUploadDao;
+    private UploadValidationService svc;
 
+    @BeforeMethod
+    public void before() {
         // inputs
-        App app = TestUtils.getValidApp(UploadValidationServiceTest.class);
-        Upload upload = new DynamoUpload2();
+        app = TestUtils.getValidApp(UploadValidationServiceTest.class);
+        upload = new DynamoUpload2();
+        upload.setUploadId("test-upload");
 
         // mock task
-        UploadValidationTask mockTask = mock(UploadValidationTask.class);
+        mockTask = mock(UploadValidationTask.class);
 
         // mock task factory
         UploadValidationTaskFactory mockTaskFactory = mock(UploadValidationTaskFactory.class);
         when(mockTaskFactory.newTask(app.getIdentifier(), upload)).thenReturn(mockTask);
 
-        // mock async thread pool
-        ExecutorService mockExecutor = mock(ExecutorService.class);
+        // mock upload validation thread pool
+        mockExecutor = mock(ThreadPoolExecutor.class);
+        when(mockExecutor.getQueue()).thenReturn(new ArrayBlockingQueue<>(1));
+
+        // mock config
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt(UploadValidationService.CONFIG_KEY_DRAIN_SECONDS)).thenReturn(30);
+
+        mockUploadDao = mock(UploadDao.class);
 
         // set up service
-        UploadValidationService svc = new UploadValidationService();
-        svc.setAsyncExecutorService(mockExecutor);
+        svc = new UploadValidationService();
+        svc.setBridgeConfig(mockConfig);
+        svc.setUploadValidationExecutorService(mockExecutor);
         svc.setTaskFactory(mockTaskFactory);
+        svc.setUploadDao(mockUploadDao);
+    }
+
+    @Test
+    public void test() {
+        // UploadValidationService is a simple call-through to the task factory and the upload validation thread pool.
+        // As such, our test strategy is to verify that execution flows through to these dependencies.
 
         // execute
         svc.validateUpload(app.getIdentifier(), upload);
 
-        // validate
-        verify(mockExecutor).execute(mockTask);
+        // validate - the task is wrapped to record how long it waited in the queue
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockExecutor).execute(runnableCaptor.capture());
+        verify(mockTask, never()).run();
+
+        runnableCaptor.getValue().run();
+        verify(mockTask).run();
+    }
+
+    @Test
+    public void rejectedTaskFailsValidation() {
+        doThrow(new RejectedExecutionException()).when(mockExecutor).execute(any());
+
+        svc.validateUpload(app.getIdentifier(), upload);
+
+        // The task is not run on the calling thread.
+        verify(mockTask, never()).run();
+        verify(mockUploadDao).writeValidationStatus(upload, UploadStatus.VALIDATION_FAILED,
+                ImmutableList.of(UploadValidationService.REJECTED_MESSAGE), null);
+    }
+
+    @Test
+    public void rejectedTaskStatusWriteFails() {
+        doThrow(new RejectedExecutionException()).when(mockExecutor).execute(any());
+        doThrow(new RuntimeException()).when(mockUploadDao).writeValidationStatus(any(), any(), any(), any());
+
+        // Logs and returns, since the upload has already been marked complete.
+        svc.validateUpload(app.getIdentifier(), upload);
+
+        verify(mockTask, never()).run();
+    }
+
+    @Test
+    public void checkCapacity() {
+        // The queue has space, does not throw.
+        svc.checkCapacity();
+    }
+
+    @Test(expectedExceptions = ServiceUnavailableException.class)
+    public void checkCapacityQueueFull() {
+        ArrayBlockingQueue<Runnable> fullQueue = new ArrayBlockingQueue<>(1);
+        fullQueue.add(mockTask);
+        when(mockExecutor.getQueue()).thenReturn(fullQueue);
+
+        svc.checkCapacity();
+    }
+
+    @Test
+    public void drain() throws Exception {
+        when(mockExecutor.awaitTermination(30, TimeUnit.SECONDS)).thenReturn(true);
+
+        svc.drain();
+
+        verify(mockExecutor).shutdown();
+        verify(mockExecutor).awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void drainTimesOut() throws Exception {
+        when(mockExecutor.awaitTermination(30, TimeUnit.SECONDS)).thenReturn(false);
+
+        svc.drain();
+
+        // Logs and returns rather than blocking shutdown.
+        verify(mockExecutor).shutdown();
+        verify(mockExecutor).awaitTermination(30, TimeUnit.SECONDS);
     }
 }
@@ -13,6 +13,7 @@ import static org.sagebionetworks.bridge.TestConstants.MODIFIED_ON;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.sagebionetworks.bridge.TestUtils.assertAccept;
 import static org.sagebionetworks.bridge.TestUtils.assertCrossOrigin;
 import static org.sagebionetworks.bridge.TestUtils.assertPost;
 import static org.sagebionetworks.bridge.TestUtils.assertDelete;
@@ -141,6 +142,7 @@ public class AdherenceControllerTest extends Mockito {
         assertDelete(AdherenceController.class, "deleteAdherenceRecord");
         assertPost(AdherenceController.class, "updateAdherencePostProcessingAttributes");
         assertGet(AdherenceController.class, "getDetailedParticipantAdherenceReport");
+        assertAccept(AdherenceController.class, "updateWeeklyAdherenceReportsForWorker");
     }
     
     @Test
@@ -735,6 +737,23 @@ public class AdherenceControllerTest extends Mockito {
         controller.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
     }
     
+    @Test
+    public void updateWeeklyAdherenceReportsForWorker() {
+        doReturn(session).when(controller).getAuthenticatedSession(WORKER);
+        
+        StatusMessage retValue = controller.updateWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID);
+        assertSame(retValue, AdherenceController.UPDATING_WEEKLY_REPORTS_MSG);
+        
+        verify(mockService).updateWeeklyAdherenceReports(TEST_APP_ID, TEST_STUDY_ID);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void updateWeeklyAdherenceReportsForWorker_rejectsNonWorker() {
+        doThrow(new UnauthorizedException()).when(controller).getAuthenticatedSession(WORKER);
+        
+        controller.updateWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID);
+    }
+    
     @Test
     public void getStudyAdherenceReport() {
         doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER, RESEARCHER, STUDY_DESIGNER, STUDY_COORDINATOR);
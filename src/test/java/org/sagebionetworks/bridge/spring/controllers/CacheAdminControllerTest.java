@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.spring.controllers;
 
+import static org.sagebionetworks.bridge.BridgeConstants.API_DEFAULT_PAGE_SIZE;
 import static org.sagebionetworks.bridge.Roles.ADMIN;
 import static org.sagebionetworks.bridge.Roles.SUPERADMIN;
 import static org.sagebionetworks.bridge.TestConstants.ACCOUNT_ID;
@@ -11,11 +12,11 @@ import static org.sagebionetworks.bridge.TestUtils.assertGet;
 import static org.testng.Assert.assertEquals;
 
 import java.util.Optional;
-import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import org.mockito.InjectMocks;
@@ -27,6 +28,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.StatusMessage;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
@@ -84,14 +86,24 @@ public class CacheAdminControllerTest extends Mockito {
         session.setAppId(TEST_APP_ID);
         when(mockAccountService.getAccount(ACCOUNT_ID)).thenReturn(Optional.of(Account.create()));
         
-        Set<String> items = ImmutableSet.of("A", "B", "C");
-        when(mockCacheAdminService.listItems()).thenReturn(items);
+        ForwardCursorPagedResourceList<String> items = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of("A", "B", "C"), "1234", true);
+        when(mockCacheAdminService.listItems("App", "5678", 20)).thenReturn(items);
         
-        // This should be a ResourceList, but it's not currently, so we're maintaining that.
-        Set<String> cacheItems = controller.listItems();
-        assertEquals(items, cacheItems);
+        ForwardCursorPagedResourceList<String> cacheItems = controller.listItems("App", "5678", "20");
+        assertEquals(cacheItems, items);
         
-        verify(mockCacheAdminService).listItems();
+        verify(mockCacheAdminService).listItems("App", "5678", 20);
+    }
+    
+    @Test
+    public void listItemsDefaults() throws Exception {
+        ForwardCursorPagedResourceList<String> items = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of("A", "B", "C"), null, true);
+        when(mockCacheAdminService.listItems(null, null, API_DEFAULT_PAGE_SIZE)).thenReturn(items);
+        
+        ForwardCursorPagedResourceList<String> cacheItems = controller.listItems(null, null, null);
+        assertEquals(cacheItems, items);
     }
     
     @Test(expectedExceptions = UnauthorizedException.class)
@@ -99,11 +111,7 @@ public class CacheAdminControllerTest extends Mockito {
         session.setParticipant(new StudyParticipant.Builder()
                 .withRoles(ImmutableSet.of(ADMIN)).withId(TEST_USER_ID).build());
         
-        Set<String> items = ImmutableSet.of("A", "B", "C");
-        when(mockCacheAdminService.listItems()).thenReturn(items);
-        
-        // This should be a ResourceList, but it's not currently, so we're maintaining that.
-        controller.listItems();
+        controller.listItems(null, null, null);
     }
     
     @Test
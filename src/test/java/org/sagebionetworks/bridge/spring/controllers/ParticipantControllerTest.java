@@ -298,6 +298,7 @@ public class ParticipantControllerTest extends Mockito {
                 .withRequestParam("endTime", END_TIME).withRequestParam("emailFilter", "foo");
 
         when(mockParticipantService.getPagedAccountSummaries(eq(app), any())).thenReturn(page);
+        when(mockParticipantService.searchAccountSummaries(eq(app), any())).thenReturn(page);
 
         SessionUpdateService sessionUpdateService = new SessionUpdateService();
         sessionUpdateService.setCacheProvider(mockCacheProvider);
@@ -1620,11 +1621,11 @@ public class ParticipantControllerTest extends Mockito {
     public void searchForAccountSummaries() throws Exception {
         AccountSummarySearch payload = setAccountSummarySearch();
 
-        PagedResourceList<AccountSummary> result = controller.searchForAccountSummaries();
+        ResourceList<AccountSummary> result = controller.searchForAccountSummaries();
 
         assertEquals(result.getItems().size(), 3);
 
-        verify(mockParticipantService).getPagedAccountSummaries(eq(app), searchCaptor.capture());
+        verify(mockParticipantService).searchAccountSummaries(eq(app), searchCaptor.capture());
 
         AccountSummarySearch search = searchCaptor.getValue();
 
@@ -1638,11 +1639,11 @@ public class ParticipantControllerTest extends Mockito {
 
         AccountSummarySearch payload = setAccountSummarySearch();
 
-        PagedResourceList<AccountSummary> result = controller.searchForAccountSummariesForWorker(app.getIdentifier());
+        ResourceList<AccountSummary> result = controller.searchForAccountSummariesForWorker(app.getIdentifier());
 
         assertEquals(result.getItems().size(), 3);
 
-        verify(mockParticipantService).getPagedAccountSummaries(eq(app), searchCaptor.capture());
+        verify(mockParticipantService).searchAccountSummaries(eq(app), searchCaptor.capture());
 
         AccountSummarySearch search = searchCaptor.getValue();
         assertEquals(search, payload);
@@ -335,7 +335,7 @@ public class StudyParticipantControllerTest extends Mockito {
         List<StudyActivityEvent> list = ImmutableList.of(new StudyActivityEvent.Builder().build());
         ResourceList<StudyActivityEvent> page = new ResourceList<>(list);
         when(mockStudyActivityEventService.getRecentStudyActivityEvents(
-                TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)).thenReturn(page);
+                TEST_APP_ID, TEST_STUDY_ID, account)).thenReturn(page);
         
         mockAccountInStudy();
         
@@ -593,22 +593,25 @@ public class StudyParticipantControllerTest extends Mockito {
                 .withCallerRoles(ImmutableSet.of(ADMIN))
                 .build());
         
-        PagedResourceList<AccountSummary> page = new PagedResourceList<>(ImmutableList.of(), 0);
-        when(mockParticipantService.getPagedAccountSummaries(eq(app), any())).thenReturn(page);
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(), null);
+        when(mockParticipantService.searchAccountSummaries(eq(app), any())).thenReturn(page);
         
         AccountSummarySearch search = new AccountSummarySearch.Builder()
                 .withAdminOnly(TRUE)
+                .withOffsetKey("offsetKey")
                 .withEmailFilter("emailFilter").build();
         mockRequestBody(mockRequest, search);
         
-        PagedResourceList<AccountSummary> retValue = controller.searchForAccountSummaries(TEST_STUDY_ID);
+        ResourceList<AccountSummary> retValue = controller.searchForAccountSummaries(TEST_STUDY_ID);
         assertSame(retValue, page);
         
-        verify(mockParticipantService).getPagedAccountSummaries(eq(app), searchCaptor.capture());
+        verify(mockParticipantService).searchAccountSummaries(eq(app), searchCaptor.capture());
         
         AccountSummarySearch captured = searchCaptor.getValue();
         assertEquals(captured.getEnrolledInStudyId(), TEST_STUDY_ID);
         assertEquals(captured.getEmailFilter(), "emailFilter");
+        assertEquals(captured.getOffsetKey(), "offsetKey");
     }
     
     @Test
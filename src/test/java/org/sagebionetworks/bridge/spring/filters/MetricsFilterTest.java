@@ -6,9 +6,11 @@ import static org.sagebionetworks.bridge.BridgeConstants.X_REQUEST_ID_HEADER;
 import static org.sagebionetworks.bridge.TestConstants.TIMESTAMP;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -19,10 +21,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.accounts.UserSession;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.springframework.web.servlet.HandlerMapping;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
@@ -40,6 +44,12 @@ public class MetricsFilterTest extends Mockito {
     @Mock
     private FilterChain mockFilterChain;
     
+    @Mock
+    private RequestMetrics mockRequestMetrics;
+    
+    @Mock
+    private BridgeConfig mockBridgeConfig;
+    
     @InjectMocks
     private MetricsFilter filter = new MetricsFilter();
 
@@ -47,6 +57,7 @@ public class MetricsFilterTest extends Mockito {
     private void before() {
         DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.getMillis());
         RequestContext.set(new RequestContext.Builder().withRequestId("request-id").build());
+        filter = new MetricsFilter();
         MockitoAnnotations.initMocks(this);
     }
     
@@ -123,4 +134,81 @@ public class MetricsFilterTest extends Mockito {
         
         assertEquals("5.6.7.8", node.get("remote_address").textValue());
     }
+
+    @Test
+    public void recordsRouteInAggregatedMetrics() throws Exception {
+        StudyParticipant participant = new StudyParticipant.Builder().withId("participant").build();
+        UserSession session =  new UserSession(participant);
+        session.setAppId("app_ID");
+        when(mockRequest.getAttribute("CreatedUserSession")).thenReturn(session);
+        when(mockRequest.getMethod()).thenReturn("GET");
+        when(mockRequest.getServletPath()).thenReturn("/v3/participants/userId");
+        when(mockRequest.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))
+                .thenReturn("/v3/participants/{userId}");
+        when(mockResponse.getStatus()).thenReturn(200);
+
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+
+        verify(mockRequestMetrics).recordRequest(eq("GET /v3/participants/{userId}"), eq("app_ID"), eq(200),
+                anyLong());
+    }
+
+    @Test
+    public void recordsUnmatchedRoute() throws Exception {
+        when(mockResponse.getStatus()).thenReturn(404);
+
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+
+        verify(mockRequestMetrics).recordRequest(eq(MetricsFilter.UNMATCHED_ROUTE), isNull(), eq(404), anyLong());
+    }
+
+    @Test
+    public void recordsExceptionAsServerError() throws Exception {
+        doThrow(new ServletException()).when(mockFilterChain).doFilter(mockRequest, mockResponse);
+        try {
+            filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        } catch (ServletException e) {
+            // expected
+        }
+        verify(mockRequestMetrics).recordRequest(eq(MetricsFilter.UNMATCHED_ROUTE), isNull(), eq(500),
+                anyLong());
+    }
+
+    @Test
+    public void passthroughIsNotRecorded() throws Exception {
+        when(mockResponse.getHeader(MetricsFilter.X_PASSTHROUGH)).thenReturn("true");
+
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+
+        verify(mockRequestMetrics, never()).recordRequest(any(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void unsampledRequestIsNotLogged() throws Exception {
+        when(mockBridgeConfig.getPropertyAsInt(MetricsFilter.CONFIG_KEY_LOG_SAMPLE_PERCENT)).thenReturn(0);
+        filter.setBridgeConfig(mockBridgeConfig);
+        when(mockResponse.getStatus()).thenReturn(200);
+
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+
+        // The request is still counted, but the query string is never parsed and the request is not ended.
+        verify(mockRequestMetrics).recordRequest(any(), any(), eq(200), anyLong());
+        verify(mockRequest, never()).getQueryString();
+        assertNull(RequestContext.get().getMetrics().getJson().get("end"));
+    }
+
+    @Test
+    public void shouldLog() {
+        when(mockBridgeConfig.getPropertyAsInt(MetricsFilter.CONFIG_KEY_LOG_SAMPLE_PERCENT)).thenReturn(0);
+        filter.setBridgeConfig(mockBridgeConfig);
+        assertFalse(filter.shouldLog(200));
+        assertFalse(filter.shouldLog(404));
+        // Server errors are always logged.
+        assertTrue(filter.shouldLog(500));
+        assertTrue(filter.shouldLog(503));
+
+        when(mockBridgeConfig.getPropertyAsInt(MetricsFilter.CONFIG_KEY_LOG_SAMPLE_PERCENT)).thenReturn(100);
+        filter.setBridgeConfig(mockBridgeConfig);
+        assertTrue(filter.shouldLog(200));
+    }
 }
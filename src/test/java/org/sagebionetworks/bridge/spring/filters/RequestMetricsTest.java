@@ -0,0 +1,110 @@
+package org.sagebionetworks.bridge.spring.filters;
+
+import static org.sagebionetworks.bridge.TestConstants.TIMESTAMP;
+import static org.testng.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTimeUtils;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+public class RequestMetricsTest extends Mockito {
+    private static final String ROUTE_A = "GET /v3/participants/{userId}";
+    private static final String ROUTE_B = "POST /v3/auth/signIn";
+
+    private RequestMetrics metrics;
+
+    @BeforeMethod
+    public void before() {
+        DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.getMillis());
+
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt(RequestMetrics.CONFIG_KEY_REPORT_INTERVAL_SECONDS)).thenReturn(0);
+
+        metrics = new RequestMetrics();
+        metrics.setBridgeConfig(mockConfig);
+        metrics.start();
+    }
+
+    @AfterMethod
+    public void after() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void emptySnapshot() {
+        DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.plusSeconds(60).getMillis());
+
+        ObjectNode node = metrics.snapshotAndReset();
+        assertEquals(node.get("start").textValue(), TIMESTAMP.toString());
+        assertEquals(node.get("end").textValue(), TIMESTAMP.plusSeconds(60).toString());
+        assertEquals(node.get("elapsedSeconds").longValue(), 60L);
+        assertEquals(node.get("routes").size(), 0);
+        assertEquals(node.get("appRequests").size(), 0);
+    }
+
+    @Test
+    public void recordRequests() {
+        metrics.recordRequest(ROUTE_A, "app1", 200, 5);
+        metrics.recordRequest(ROUTE_A, "app1", 200, 40);
+        metrics.recordRequest(ROUTE_A, "app2", 404, 8);
+        metrics.recordRequest(ROUTE_B, null, 201, 300);
+
+        ObjectNode node = metrics.snapshotAndReset();
+
+        JsonNode routesNode = node.get("routes");
+        // Routes are sorted.
+        assertEquals(Lists.newArrayList(routesNode.fieldNames()), ImmutableList.of(ROUTE_A, ROUTE_B));
+
+        JsonNode routeA = routesNode.get(ROUTE_A);
+        assertEquals(routeA.get("count").longValue(), 3L);
+        assertEquals(routeA.get("sum").longValue(), 53L);
+        assertEquals(routeA.get("max").longValue(), 40L);
+        assertEquals(routeA.get("p99").longValue(), 40L);
+        assertEquals(routeA.get("buckets").get("le10").longValue(), 2L);
+        assertEquals(routeA.get("status").get("200").longValue(), 2L);
+        assertEquals(routeA.get("status").get("404").longValue(), 1L);
+
+        JsonNode routeB = routesNode.get(ROUTE_B);
+        assertEquals(routeB.get("count").longValue(), 1L);
+        assertEquals(routeB.get("status").get("201").longValue(), 1L);
+
+        JsonNode appsNode = node.get("appRequests");
+        assertEquals(appsNode.size(), 3);
+        assertEquals(appsNode.get("app1").longValue(), 2L);
+        assertEquals(appsNode.get("app2").longValue(), 1L);
+        assertEquals(appsNode.get(RequestMetrics.NO_APP).longValue(), 1L);
+    }
+
+    @Test
+    public void snapshotStartsNewInterval() {
+        metrics.recordRequest(ROUTE_A, "app1", 200, 5);
+        metrics.snapshotAndReset();
+
+        DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.plusSeconds(30).getMillis());
+        metrics.recordRequest(ROUTE_B, "app1", 200, 5);
+        DateTimeUtils.setCurrentMillisFixed(TIMESTAMP.plusSeconds(60).getMillis());
+
+        ObjectNode node = metrics.snapshotAndReset();
+        assertEquals(node.get("start").textValue(), TIMESTAMP.toString());
+        assertEquals(node.get("routes").size(), 1);
+        assertEquals(node.get("routes").get(ROUTE_B).get("count").longValue(), 1L);
+        assertEquals(node.get("appRequests").get("app1").longValue(), 1L);
+    }
+
+    @Test
+    public void stopReports() {
+        metrics.recordRequest(ROUTE_A, "app1", 200, 5);
+
+        // Stopping when the report is disabled still logs the final interval, and doesn't throw.
+        metrics.stop();
+        assertEquals(metrics.snapshotAndReset().get("routes").size(), 0);
+    }
+}
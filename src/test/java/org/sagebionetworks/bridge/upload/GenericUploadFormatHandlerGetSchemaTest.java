@@ -13,10 +13,7 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
-import org.sagebionetworks.bridge.models.surveys.Survey;
 import org.sagebionetworks.bridge.models.upload.UploadSchema;
-import org.sagebionetworks.bridge.services.SurveyService;
 import org.sagebionetworks.bridge.services.UploadSchemaService;
 
 public class GenericUploadFormatHandlerGetSchemaTest {
@@ -30,30 +27,23 @@ public class GenericUploadFormatHandlerGetSchemaTest {
     private static final UploadSchema DUMMY_SCHEMA = UploadSchema.create();
 
     private GenericUploadFormatHandler handler;
-    private SurveyService mockSurveyService;
+    private UploadSchemaService mockSchemaService;
 
     @BeforeMethod
     public void setup() {
-        UploadSchemaService mockSchemaService = mock(UploadSchemaService.class);
-        when(mockSchemaService.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
+        mockSchemaService = mock(UploadSchemaService.class);
+        when(mockSchemaService.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
                 DUMMY_SCHEMA);
 
-        mockSurveyService = mock(SurveyService.class);
-
         handler = new GenericUploadFormatHandler();
-        handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mockSchemaService);
     }
 
     @Test
     public void schemaFromSurvey() {
-        // mock survey service
-        Survey survey = Survey.create();
-        survey.setIdentifier(SCHEMA_ID);
-        survey.setSchemaRevision(SCHEMA_REV);
-        when(mockSurveyService.getSurvey(TEST_APP_ID,
-                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, SURVEY_CREATED_ON_MILLIS), false, true))
-                        .thenReturn(survey);
+        // mock schema service
+        when(mockSchemaService.getUploadSchemaBySurveyForUpload(TEST_APP_ID, SURVEY_GUID, SURVEY_CREATED_ON_MILLIS))
+                .thenReturn(DUMMY_SCHEMA);
 
         // make info.json
         ObjectNode infoJsonNode = BridgeObjectMapper.get().createObjectNode();
@@ -65,36 +55,9 @@ public class GenericUploadFormatHandlerGetSchemaTest {
         assertSame(retVal, DUMMY_SCHEMA);
     }
 
-    @Test
-    public void surveyWithoutSchema() {
-        // mock survey service - A survey always has an identifier, but if it doesn't have a schema, then it doesn't
-        // have a schema rev.
-        Survey survey = Survey.create();
-        survey.setIdentifier(SCHEMA_ID);
-        survey.setSchemaRevision(null);
-        when(mockSurveyService.getSurvey(TEST_APP_ID,
-                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, SURVEY_CREATED_ON_MILLIS), false, true))
-                        .thenReturn(survey);
-
-        // make info.json
-        ObjectNode infoJsonNode = BridgeObjectMapper.get().createObjectNode();
-        infoJsonNode.put(UploadUtil.FIELD_SURVEY_GUID, SURVEY_GUID);
-        infoJsonNode.put(UploadUtil.FIELD_SURVEY_CREATED_ON, SURVEY_CREATED_ON_STRING);
-
-        // Execute. Returns null.
-        UploadSchema retVal = handler.getUploadSchema(TEST_APP_ID, infoJsonNode);
-        assertNull(retVal);
-    }
-
     @Test
     public void surveySchemaNotFound() {
-        // Mock survey service.
-        Survey survey = Survey.create();
-        survey.setIdentifier("missing-schema");
-        survey.setSchemaRevision(SCHEMA_REV);
-        when(mockSurveyService.getSurvey(TEST_APP_ID,
-                new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, SURVEY_CREATED_ON_MILLIS), false, true))
-                .thenReturn(survey);
+        // The schema service returns null if the survey has no schema, or the schema doesn't exist.
 
         // Make info.json.
         ObjectNode infoJsonNode = BridgeObjectMapper.get().createObjectNode();
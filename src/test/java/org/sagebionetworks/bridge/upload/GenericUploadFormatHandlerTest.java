@@ -126,7 +126,7 @@ public class GenericUploadFormatHandlerTest {
         schema.setName(SCHEMA_NAME);
         schema.setRevision(1);
         schema.setFieldDefinitions(ImmutableList.of(sanitizeAttachmentTxtField));
-        when(mockSchemaService.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, 1)).thenReturn(schema);
+        when(mockSchemaService.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, 1)).thenReturn(schema);
 
         // Setup inputs.
         File sanitizeAttachmentTxtFile = makeFileWithContent("sanitize!@#$attachment.txt",
@@ -502,7 +502,7 @@ public class GenericUploadFormatHandlerTest {
         schema.setRevision(SCHEMA_REV);
         schema.setFieldDefinitions(ImmutableList.copyOf(fieldDefVarargs));
 
-        when(mockSchemaService.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(schema);
+        when(mockSchemaService.getUploadSchemaForUpload(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(schema);
     }
 
     // Makes a realistic info.json for the test.
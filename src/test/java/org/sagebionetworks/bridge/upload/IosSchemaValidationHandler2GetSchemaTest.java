@@ -1,6 +1,5 @@
 package org.sagebionetworks.bridge.upload;
 
-import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -14,11 +13,8 @@ import com.google.common.collect.ImmutableMap;
 import org.joda.time.DateTime;
 import org.testng.annotations.Test;
 
-import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.upload.UploadSchema;
-import org.sagebionetworks.bridge.services.SurveyService;
 import org.sagebionetworks.bridge.services.UploadSchemaService;
 
 public class IosSchemaValidationHandler2GetSchemaTest {
@@ -31,26 +27,15 @@ public class IosSchemaValidationHandler2GetSchemaTest {
 
     @Test
     public void survey() {
-        // mock survey service
-        DynamoSurvey survey = new DynamoSurvey();
-        survey.setIdentifier("test-survey");
-        survey.setSchemaRevision(4);
-
-        SurveyService mockSurveyService = mock(SurveyService.class);
-        when(mockSurveyService.getSurvey(eq(TEST_APP_ID),
-                eq(new GuidCreatedOnVersionHolderImpl("test-guid", TEST_SURVEY_CREATED_ON_MILLIS)), eq(false),
-                eq(true))).thenReturn(survey);
-
         // mock upload schema service
         UploadSchema dummySchema = UploadSchema.create();
         UploadSchemaService mockSchemaSvc = mock(UploadSchemaService.class);
-        when(mockSchemaSvc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, "test-survey", 4)).thenReturn(
-                dummySchema);
+        when(mockSchemaSvc.getUploadSchemaBySurveyForUpload(TEST_APP_ID, "test-guid", TEST_SURVEY_CREATED_ON_MILLIS))
+                .thenReturn(dummySchema);
 
         // set up test handler
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
-        handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mockSchemaSvc);
 
         // make input
@@ -63,74 +48,11 @@ public class IosSchemaValidationHandler2GetSchemaTest {
         assertSame(retVal, dummySchema);
     }
 
-    @Test
-    public void surveyWithNoIdentifier() {
-        // mock survey service
-        DynamoSurvey survey = new DynamoSurvey();
-        survey.setSchemaRevision(4);
-
-        SurveyService mockSurveyService = mock(SurveyService.class);
-        when(mockSurveyService.getSurvey(eq(TEST_APP_ID),
-                eq(new GuidCreatedOnVersionHolderImpl("test-guid", TEST_SURVEY_CREATED_ON_MILLIS)), eq(false),
-                eq(true))).thenReturn(survey);
-
-        // set up test handler
-        IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
-        handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
-        handler.setSurveyService(mockSurveyService);
-
-        // make input
-        ObjectNode infoJson = BridgeObjectMapper.get().createObjectNode();
-        infoJson.put("surveyGuid", "test-guid");
-        infoJson.put("surveyCreatedOn", TEST_SURVEY_CREATED_ON_STRING);
-
-        // Execute. Returns null.
-        UploadSchema retVal = handler.getUploadSchema(TEST_APP_ID, infoJson);
-        assertNull(retVal);
-    }
-
-    @Test
-    public void surveyWithNoSchemaRev() {
-        // mock survey service
-        DynamoSurvey survey = new DynamoSurvey();
-        survey.setIdentifier("test-survey");
-
-        SurveyService mockSurveyService = mock(SurveyService.class);
-        when(mockSurveyService.getSurvey(eq(TEST_APP_ID),
-                eq(new GuidCreatedOnVersionHolderImpl("test-guid", TEST_SURVEY_CREATED_ON_MILLIS)), eq(false),
-                eq(true))).thenReturn(survey);
-
-        // set up test handler
-        IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
-        handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
-        handler.setSurveyService(mockSurveyService);
-
-        // make input
-        ObjectNode infoJson = BridgeObjectMapper.get().createObjectNode();
-        infoJson.put("surveyGuid", "test-guid");
-        infoJson.put("surveyCreatedOn", TEST_SURVEY_CREATED_ON_STRING);
-
-        // Execute. Returns null.
-        UploadSchema retVal = handler.getUploadSchema(TEST_APP_ID, infoJson);
-        assertNull(retVal);
-    }
-
     @Test
     public void surveySchemaNotFound() {
-        // Mock survey service.
-        DynamoSurvey survey = new DynamoSurvey();
-        survey.setIdentifier("test-survey");
-        survey.setSchemaRevision(4);
-
-        SurveyService mockSurveyService = mock(SurveyService.class);
-        when(mockSurveyService.getSurvey(eq(TEST_APP_ID),
-                eq(new GuidCreatedOnVersionHolderImpl("test-guid", TEST_SURVEY_CREATED_ON_MILLIS)), eq(false),
-                eq(true))).thenReturn(survey);
-
-        // Set up test handler
+        // The schema service returns null if the survey has no identifier or schema rev, or the schema doesn't exist.
         IosSchemaValidationHandler2 handler = new IosSchemaValidationHandler2();
         handler.setDefaultSchemaRevisionMap(DEFAULT_SCHEMA_REV_MAP);
-        handler.setSurveyService(mockSurveyService);
         handler.setUploadSchemaService(mock(UploadSchemaService.class));
 
         // Make input.
@@ -148,7 +70,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
         // mock upload schema service
         UploadSchema dummySchema = UploadSchema.create();
         UploadSchemaService mockSchemaSvc = mock(UploadSchemaService.class);
-        when(mockSchemaSvc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, "test-schema", 1)).thenReturn(
+        when(mockSchemaSvc.getUploadSchemaForUpload(TEST_APP_ID, "test-schema", 1)).thenReturn(
                 dummySchema);
 
         // set up test handler
@@ -170,7 +92,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
         // mock upload schema service
         UploadSchema dummySchema = UploadSchema.create();
         UploadSchemaService mockSchemaSvc = mock(UploadSchemaService.class);
-        when(mockSchemaSvc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, "schema-rev-test", 2)).thenReturn(
+        when(mockSchemaSvc.getUploadSchemaForUpload(TEST_APP_ID, "schema-rev-test", 2)).thenReturn(
                 dummySchema);
 
         // set up test handler
@@ -192,7 +114,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
         // mock upload schema service
         UploadSchema dummySchema = UploadSchema.create();
         UploadSchemaService mockSchemaSvc = mock(UploadSchemaService.class);
-        when(mockSchemaSvc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, "schema-rev-test", 3))
+        when(mockSchemaSvc.getUploadSchemaForUpload(TEST_APP_ID, "schema-rev-test", 3))
                 .thenReturn(dummySchema);
 
         // set up test handler
@@ -215,7 +137,7 @@ public class IosSchemaValidationHandler2GetSchemaTest {
         // mock upload schema service
         UploadSchema dummySchema = UploadSchema.create();
         UploadSchemaService mockSchemaSvc = mock(UploadSchemaService.class);
-        when(mockSchemaSvc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, "test-schema", 1)).thenReturn(
+        when(mockSchemaSvc.getUploadSchemaForUpload(TEST_APP_ID, "test-schema", 1)).thenReturn(
                 dummySchema);
 
         // set up test handler
@@ -58,6 +58,20 @@ public class UploadArchiveServiceZipTest {
         }
     }
 
+    @Test
+    public void unzipEntryLargerThanBuffer() {
+        // Several buffers' worth of data, not a multiple of the buffer size.
+        byte[] largeData = new byte[3 * 64 * 1024 + 17];
+        for (int i = 0; i < largeData.length; i++) {
+            largeData[i] = (byte) i;
+        }
+        byte[] zippedLargeData = uploadArchiveService.zip(ImmutableMap.of("large", largeData));
+
+        Map<String, byte[]> result = uploadArchiveService.unzip(zippedLargeData);
+        assertEquals(result.size(), 1);
+        assertEquals(result.get("large"), largeData);
+    }
+
     // There was originally a test here for unzipping garbage data. However, it looks like Java
     // ZipInputStream.getNextEntry() will just return null if the stream contains garbage data.
 
@@ -4,6 +4,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -59,6 +60,7 @@ public class UploadFormatHandlerTest {
     public void defaultFormat() throws Exception {
         UploadValidationContext context = setupContextWithFormat(null);
         uploadFormatHandler.handle(context);
+        assertEquals(context.getUploadFormat(), UploadFormat.V1_LEGACY);
         verify(mockV1LegacyHandler).handle(context);
         verifyZeroInteractions(mockV2GenericHandler);
         verifyCommonAttributes(context);
@@ -68,6 +70,7 @@ public class UploadFormatHandlerTest {
     public void v1Legacy() throws Exception {
         UploadValidationContext context = setupContextWithFormat(UploadFormat.V1_LEGACY);
         uploadFormatHandler.handle(context);
+        assertEquals(context.getUploadFormat(), UploadFormat.V1_LEGACY);
         verify(mockV1LegacyHandler).handle(context);
         verifyZeroInteractions(mockV2GenericHandler);
         verifyCommonAttributes(context);
@@ -77,6 +80,7 @@ public class UploadFormatHandlerTest {
     public void v2Generic() throws Exception {
         UploadValidationContext context = setupContextWithFormat(UploadFormat.V2_GENERIC);
         uploadFormatHandler.handle(context);
+        assertEquals(context.getUploadFormat(), UploadFormat.V2_GENERIC);
         verify(mockV2GenericHandler).handle(context);
         verifyZeroInteractions(mockV1LegacyHandler);
         verifyCommonAttributes(context);
@@ -91,6 +95,7 @@ public class UploadFormatHandlerTest {
         // Execute and validate.
         uploadFormatHandler.handle(context);
         verifyZeroInteractions(mockV1LegacyHandler, mockV2GenericHandler);
+        assertNull(context.getUploadFormat());
         verifyCommonAttributes(context);
     }
 
@@ -44,7 +44,6 @@ import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.upload.Upload;
 import org.sagebionetworks.bridge.services.ParticipantService;
 import org.sagebionetworks.bridge.time.DateUtils;
-import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.SharingScope;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
@@ -59,7 +58,6 @@ import org.sagebionetworks.bridge.s3.S3Helper;
 import org.sagebionetworks.bridge.services.AccountService;
 import org.sagebionetworks.bridge.services.HealthDataService;
 import org.sagebionetworks.bridge.services.AppService;
-import org.sagebionetworks.bridge.services.SurveyService;
 import org.sagebionetworks.bridge.services.UploadArchiveService;
 import org.sagebionetworks.bridge.services.UploadSchemaService;
 
@@ -257,16 +255,12 @@ public class UploadHandlersEndToEndTest {
         if (schema != null) {
             when(mockUploadSchemaService.getUploadSchemaByIdAndRev(TEST_APP_ID, schema.getSchemaId(),
                     schema.getRevision())).thenReturn(schema);
-            when(mockUploadSchemaService.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID,
+            when(mockUploadSchemaService.getUploadSchemaForUpload(TEST_APP_ID,
                     schema.getSchemaId(), schema.getRevision())).thenReturn(schema);
         }
-
-        // mock survey service
-        SurveyService mockSurveyService = mock(SurveyService.class);
         if (survey != null) {
-            when(mockSurveyService.getSurvey(TEST_APP_ID,
-                    new GuidCreatedOnVersionHolderImpl(survey.getGuid(), survey.getCreatedOn()), false, true))
-                            .thenReturn(survey);
+            when(mockUploadSchemaService.getUploadSchemaBySurveyForUpload(TEST_APP_ID, survey.getGuid(),
+                    survey.getCreatedOn())).thenReturn(schema);
         }
 
         // set up IosSchemaValidationHandler
@@ -274,14 +268,12 @@ public class UploadHandlersEndToEndTest {
         iosSchemaValidationHandler.setFileHelper(inMemoryFileHelper);
         iosSchemaValidationHandler.setUploadFileHelper(uploadFileHelper);
         iosSchemaValidationHandler.setUploadSchemaService(mockUploadSchemaService);
-        iosSchemaValidationHandler.setSurveyService(mockSurveyService);
 
         // set up GenericUploadFormatHandler
         GenericUploadFormatHandler genericUploadFormatHandler = new GenericUploadFormatHandler();
         genericUploadFormatHandler.setFileHelper(inMemoryFileHelper);
         genericUploadFormatHandler.setUploadFileHelper(uploadFileHelper);
         genericUploadFormatHandler.setUploadSchemaService(mockUploadSchemaService);
-        genericUploadFormatHandler.setSurveyService(mockSurveyService);
 
         // set up UploadFormatHandler
         UploadFormatHandler uploadFormatHandler = new UploadFormatHandler();
@@ -63,6 +63,7 @@ public class UploadValidationContextTest {
         original.setDecryptedDataFile(decryptedDataFile);
         original.setUnzippedDataFileMap(unzippedDataFileMap);
         original.setInfoJsonNode(infoJsonNode);
+        original.setUploadFormat(UploadFormat.V2_GENERIC);
         original.setHealthDataRecord(record);
         original.setRecordId("test-record");
 
@@ -77,6 +78,7 @@ public class UploadValidationContextTest {
         assertSame(copy.getDecryptedDataFile(), decryptedDataFile);
         assertEquals(copy.getUnzippedDataFileMap(), unzippedDataFileMap);
         assertSame(copy.getInfoJsonNode(), infoJsonNode);
+        assertEquals(copy.getUploadFormat(), UploadFormat.V2_GENERIC);
         assertSame(copy.getHealthDataRecord(), record);
         assertEquals(copy.getRecordId(), "test-record");
 
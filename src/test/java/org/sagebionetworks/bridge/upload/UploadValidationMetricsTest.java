@@ -0,0 +1,97 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.models.upload.UploadStatus;
+
+public class UploadValidationMetricsTest extends Mockito {
+    private UploadValidationMetrics metrics;
+
+    @BeforeMethod
+    public void before() {
+        BridgeConfig mockConfig = mock(BridgeConfig.class);
+        when(mockConfig.getPropertyAsInt(UploadValidationMetrics.CONFIG_KEY_REPORT_INTERVAL_MINUTES))
+                .thenReturn(0);
+
+        metrics = new UploadValidationMetrics();
+        metrics.setBridgeConfig(mockConfig);
+        metrics.start();
+    }
+
+    @Test
+    public void emptySnapshot() {
+        ObjectNode node = metrics.snapshot();
+        assertEquals(node.get("handlerLatencyMillis").size(), 0);
+        assertEquals(node.get("validations").size(), 0);
+        assertEquals(node.get("bytesProcessed").longValue(), 0L);
+        assertEquals(node.get("tempDiskBytes").longValue(), 0L);
+        assertEquals(node.get("maxTempDiskBytes").longValue(), 0L);
+    }
+
+    @Test
+    public void handlerLatency() {
+        metrics.recordHandlerLatency("UnzipHandler", 5);
+        metrics.recordHandlerLatency("UnzipHandler", 10);
+        metrics.recordHandlerLatency("UnzipHandler", 11);
+        metrics.recordHandlerLatency("UnzipHandler", 120000);
+        metrics.recordHandlerLatency("DecryptHandler", 300);
+
+        JsonNode latencyNode = metrics.snapshot().get("handlerLatencyMillis");
+        // Handlers are sorted by name.
+        assertEquals(Lists.newArrayList(latencyNode.fieldNames()), ImmutableList.of("DecryptHandler",
+                "UnzipHandler"));
+
+        JsonNode unzipNode = latencyNode.get("UnzipHandler");
+        assertEquals(unzipNode.get("count").longValue(), 4L);
+        assertEquals(unzipNode.get("sum").longValue(), 120026L);
+        assertEquals(unzipNode.get("max").longValue(), 120000L);
+        JsonNode unzipBuckets = unzipNode.get("buckets");
+        assertEquals(unzipBuckets.get("le10").longValue(), 2L);
+        assertEquals(unzipBuckets.get("le50").longValue(), 1L);
+        assertEquals(unzipBuckets.get("le60000").longValue(), 0L);
+        assertEquals(unzipBuckets.get("inf").longValue(), 1L);
+
+        JsonNode decryptNode = latencyNode.get("DecryptHandler");
+        assertEquals(decryptNode.get("count").longValue(), 1L);
+        assertEquals(decryptNode.get("buckets").get("le500").longValue(), 1L);
+        assertEquals(decryptNode.get("buckets").get("le250").longValue(), 0L);
+    }
+
+    @Test
+    public void validations() {
+        metrics.recordValidation("app1", UploadFormat.V2_GENERIC, UploadStatus.SUCCEEDED, 100, 300);
+        metrics.recordValidation("app1", UploadFormat.V2_GENERIC, UploadStatus.SUCCEEDED, 200, 500);
+        metrics.recordValidation("app1", null, UploadStatus.VALIDATION_FAILED, 50, 0);
+        metrics.recordValidation("app2", UploadFormat.V1_LEGACY, UploadStatus.SUCCEEDED, 10, 20);
+
+        ObjectNode node = metrics.snapshot();
+        JsonNode validationsNode = node.get("validations");
+        assertEquals(validationsNode.size(), 3);
+        assertEquals(validationsNode.get("app1.V2_GENERIC.SUCCEEDED").longValue(), 2L);
+        assertEquals(validationsNode.get("app1.NONE.VALIDATION_FAILED").longValue(), 1L);
+        assertEquals(validationsNode.get("app2.V1_LEGACY.SUCCEEDED").longValue(), 1L);
+
+        assertEquals(node.get("bytesProcessed").longValue(), 360L);
+        assertEquals(node.get("tempDiskBytes").longValue(), 820L);
+        assertEquals(node.get("maxTempDiskBytes").longValue(), 500L);
+    }
+
+    @Test
+    public void stopReports() {
+        metrics.recordValidation("app1", UploadFormat.V2_GENERIC, UploadStatus.SUCCEEDED, 100, 300);
+
+        // Stopping when the report is disabled still logs the final snapshot, and doesn't throw.
+        metrics.stop();
+        assertTrue(metrics.snapshot().get("validations").has("app1.V2_GENERIC.SUCCEEDED"));
+    }
+}
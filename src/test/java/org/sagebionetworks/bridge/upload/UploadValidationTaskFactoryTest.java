@@ -26,6 +26,7 @@ public class UploadValidationTaskFactoryTest {
         UploadDao dao = mock(UploadDao.class);
         FileHelper fileHelper = new FileHelper();
         HealthDataService healthDataService = new HealthDataService();
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
 
         // set up task factory
         UploadValidationTaskFactory taskFactory = new UploadValidationTaskFactory();
@@ -33,6 +34,7 @@ public class UploadValidationTaskFactoryTest {
         taskFactory.setHandlerList(handlerList);
         taskFactory.setUploadDao(dao);
         taskFactory.setHealthDataService(healthDataService);
+        taskFactory.setMetrics(metrics);
 
         // inputs
         App app = TestUtils.getValidApp(UploadValidationTaskFactoryTest.class);
@@ -49,5 +51,6 @@ public class UploadValidationTaskFactoryTest {
         assertSame(task.getHandlerList(), handlerList);
         assertSame(task.getUploadDao(), dao);
         assertSame(task.getHealthDataService(), healthDataService);
+        assertSame(task.getMetrics(), metrics);
     }
 }
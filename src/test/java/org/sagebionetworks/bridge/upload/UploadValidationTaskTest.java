@@ -12,14 +12,19 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.mockito.Mockito.eq;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.any;
 
 import javax.annotation.Nonnull;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.joda.time.LocalDate;
 import org.testng.annotations.BeforeMethod;
@@ -57,6 +62,7 @@ public class UploadValidationTaskTest {
     private UploadValidationContext ctx;
     private InMemoryFileHelper inMemoryFileHelper;
     private UploadDao mockDao;
+    private UploadValidationMetrics mockMetrics;
     private UploadValidationTask task;
     private Upload upload;
 
@@ -80,6 +86,7 @@ public class UploadValidationTaskTest {
         // Set up other pre-reqs
         inMemoryFileHelper = new InMemoryFileHelper();
         mockDao = mock(UploadDao.class);
+        mockMetrics = mock(UploadValidationMetrics.class);
 
         // Set up task. Spy so we can verify some calls.
         task = spy(new UploadValidationTask(ctx));
@@ -87,6 +94,7 @@ public class UploadValidationTaskTest {
         task.setHandlerList(handlerList);
         task.setHealthDataService(healthDataService);
         task.setUploadDao(mockDao);
+        task.setMetrics(mockMetrics);
     }
 
     @Test
@@ -162,10 +170,59 @@ public class UploadValidationTaskTest {
         // validate the upload dao write validation status call
         verify(mockDao).writeValidationStatus(upload, expectedStatus, ctx.getMessageList(), expectedRecordId);
 
+        // validate metrics
+        verify(mockMetrics).recordHandlerLatency(eq("MessageHandler"), anyLong());
+        verify(mockMetrics).recordValidation(ctx.getAppId(), null, expectedStatus, 0L, 0L);
+
         // Validate that we clean up the temp directory.
         assertTrue(inMemoryFileHelper.isEmpty());
     }
 
+    @Test
+    public void tempFileBytes() {
+        upload.setContentLength(42L);
+
+        // The decrypted file is the data file, as for an unencrypted upload, so it's only counted once.
+        UploadValidationHandler fileHandler = context -> {
+            File dataFile = writeFile(context, "data", 10);
+            context.setDataFile(dataFile);
+            context.setDecryptedDataFile(dataFile);
+            context.setUnzippedDataFileMap(ImmutableMap.of("foo", writeFile(context, "foo", 5),
+                    "bar", writeFile(context, "bar", 7)));
+            context.setUploadFormat(UploadFormat.V2_GENERIC);
+        };
+        task.setHandlerList(ImmutableList.of(fileHandler, new RecordIdHandler(RECORD_ID)));
+
+        task.run();
+
+        verify(mockMetrics).recordValidation(ctx.getAppId(), UploadFormat.V2_GENERIC, UploadStatus.SUCCEEDED, 42L,
+                22L);
+        assertTrue(inMemoryFileHelper.isEmpty());
+    }
+
+    @Test
+    public void recordValidationException() {
+        UploadValidationHandler fileHandler = context -> writeFile(context, "data", 10);
+        task.setHandlerList(ImmutableList.of(fileHandler, new RecordIdHandler(RECORD_ID)));
+        doThrow(new RuntimeException()).when(mockMetrics).recordValidation(any(), any(), any(), anyLong(),
+                anyLong());
+
+        task.run();
+
+        // The temp dir is still cleaned up.
+        assertTrue(inMemoryFileHelper.isEmpty());
+    }
+
+    private File writeFile(UploadValidationContext context, String name, int size) throws UploadValidationException {
+        File file = inMemoryFileHelper.newFile(context.getTempDir(), name);
+        try (OutputStream outputStream = inMemoryFileHelper.getOutputStream(file)) {
+            outputStream.write(new byte[size]);
+        } catch (IOException ex) {
+            throw new UploadValidationException(ex);
+        }
+        return file;
+    }
+
     @Test
     public void writeValidationStatusException() {
         // Trivial record ID handler, to make the test not degenerate.
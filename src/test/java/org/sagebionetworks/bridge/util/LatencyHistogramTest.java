@@ -0,0 +1,80 @@
+package org.sagebionetworks.bridge.util;
+
+import static org.testng.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.percentile(50), 0L);
+        assertEquals(histogram.percentile(100), 0L);
+
+        JsonNode node = histogram.toJson();
+        assertEquals(node.get("count").longValue(), 0L);
+        assertEquals(node.get("p99").longValue(), 0L);
+        assertEquals(node.get("buckets").get("inf").longValue(), 0L);
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 90 fast requests, 9 slower ones, and one very slow one.
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(200);
+        }
+        histogram.record(7000);
+
+        assertEquals(histogram.percentile(50), 10L);
+        assertEquals(histogram.percentile(90), 10L);
+        assertEquals(histogram.percentile(91), 250L);
+        assertEquals(histogram.percentile(99), 250L);
+        assertEquals(histogram.percentile(100), 7000L);
+
+        JsonNode node = histogram.toJson();
+        assertEquals(node.get("count").longValue(), 100L);
+        assertEquals(node.get("sum").longValue(), 90 * 5 + 9 * 200 + 7000L);
+        assertEquals(node.get("max").longValue(), 7000L);
+        assertEquals(node.get("p50").longValue(), 10L);
+        assertEquals(node.get("p90").longValue(), 10L);
+        assertEquals(node.get("p99").longValue(), 250L);
+        assertEquals(node.get("buckets").get("le10").longValue(), 90L);
+        assertEquals(node.get("buckets").get("le250").longValue(), 9L);
+        assertEquals(node.get("buckets").get("le10000").longValue(), 1L);
+    }
+
+    @Test
+    public void percentileIsCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(4);
+
+        assertEquals(histogram.percentile(50), 4L);
+        assertEquals(histogram.percentile(99), 4L);
+    }
+
+    @Test
+    public void percentileBeyondLastBucketIsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(90000);
+
+        assertEquals(histogram.percentile(99), 90000L);
+        assertEquals(histogram.toJson().get("buckets").get("inf").longValue(), 1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void percentileMustBePositive() {
+        new LatencyHistogram().percentile(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void percentileCannotExceed100() {
+        new LatencyHistogram().percentile(100.5);
+    }
+}
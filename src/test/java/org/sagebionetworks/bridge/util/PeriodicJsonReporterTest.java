@@ -0,0 +1,70 @@
+package org.sagebionetworks.bridge.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+public class PeriodicJsonReporterTest extends Mockito {
+    private static final String LOG_PREFIX = "Test metrics: ";
+
+    private Logger mockLogger;
+    private Supplier<ObjectNode> mockSupplier;
+    private PeriodicJsonReporter reporter;
+
+    @SuppressWarnings("unchecked")
+    @BeforeMethod
+    public void before() {
+        mockLogger = mock(Logger.class);
+        mockSupplier = mock(Supplier.class);
+
+        ObjectNode node = BridgeObjectMapper.get().createObjectNode();
+        node.put("count", 3);
+        when(mockSupplier.get()).thenReturn(node);
+
+        reporter = new PeriodicJsonReporter(mockLogger, "test-metrics", LOG_PREFIX, mockSupplier);
+    }
+
+    @Test
+    public void report() {
+        reporter.report();
+
+        verify(mockLogger).info("Test metrics: {\"count\":3}");
+    }
+
+    @Test
+    public void reportDoesNotThrow() {
+        RuntimeException ex = new IllegalStateException("bad snapshot");
+        when(mockSupplier.get()).thenThrow(ex);
+
+        reporter.report();
+
+        verify(mockLogger).error("Error reporting test-metrics: bad snapshot", ex);
+    }
+
+    @Test
+    public void reportsPeriodically() {
+        reporter.start(10, TimeUnit.MILLISECONDS);
+        try {
+            verify(mockLogger, timeout(5000).atLeast(2)).info("Test metrics: {\"count\":3}");
+        } finally {
+            reporter.stop();
+        }
+    }
+
+    @Test
+    public void stopReportsWhenDisabled() {
+        // A non-positive interval doesn't report periodically, but stopping still logs a final report.
+        reporter.start(0, TimeUnit.MINUTES);
+        verifyZeroInteractions(mockLogger);
+
+        reporter.stop();
+        verify(mockLogger).info("Test metrics: {\"count\":3}");
+    }
+}
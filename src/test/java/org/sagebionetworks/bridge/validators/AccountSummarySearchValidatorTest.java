@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.validators;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.TestUtils.assertValidatorMessage;
+import static org.sagebionetworks.bridge.validators.AccountSummarySearchValidator.OFFSET_KEY_AND_OFFSET_BY_ERROR;
 
 import org.joda.time.DateTime;
 import org.mockito.MockitoAnnotations;
@@ -55,6 +56,19 @@ public class AccountSummarySearchValidatorTest {
         assertValidatorMessage(validator, builder.build(), "offsetBy", "cannot be less than 0");
     }
     
+    @Test
+    public void offsetKeyCannotBeCombinedWithOffsetBy() {
+        builder.withOffsetBy(10);
+        builder.withOffsetKey("offsetKey");
+        assertValidatorMessage(validator, builder.build(), "offsetKey", OFFSET_KEY_AND_OFFSET_BY_ERROR);
+    }
+    
+    @Test
+    public void offsetKeyOk() {
+        builder.withOffsetKey("offsetKey");
+        Validate.entityThrowingException(validator, builder.build());
+    }
+    
     @Test
     public void pageSizeTooSmall() {
         builder.withPageSize(BridgeConstants.API_MINIMUM_PAGE_SIZE-1);